@@ -0,0 +1,91 @@
+package com.nlb.infrastructure.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replike: {@code @Transactional(readOnly = true)} (izveštaji, login) ide na replike, a upisi
+ * i zaključavanja ostaju na primary-ju. Bez {@code nlb.datasource.replicas.enabled=true} aplikacija
+ * koristi podrazumevani Spring Boot DataSource kao i ranije.
+ * <p>
+ * Primary se konfiguriše preko standardnih {@code spring.datasource.*} (i {@code spring.datasource.hikari.*})
+ * svojstava; replike dele korisnika i lozinku sa primary-jem ako nisu zadati posebno.
+ */
+@Configuration
+@ConditionalOnProperty(name = "nlb.datasource.replicas.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadReplicaRoutingDataSource readReplicaRoutingDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.datasource.replicas.urls}") List<String> urls,
+            @Value("${nlb.datasource.replicas.username:}") String username,
+            @Value("${nlb.datasource.replicas.password:}") String password,
+            @Value("${nlb.datasource.replicas.pool-size:10}") int poolSize,
+            @Value("${nlb.datasource.replicas.connection-timeout:2s}") Duration connectionTimeout
+    ) {
+        List<ReplicaPool> pools = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + (i + 1));
+            dataSource.setJdbcUrl(urls.get(i).trim());
+            dataSource.setUsername(username.isBlank() ? properties.determineUsername() : username);
+            dataSource.setPassword(password.isBlank() ? properties.determinePassword() : password);
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setConnectionTimeout(connectionTimeout.toMillis());
+            dataSource.setReadOnly(true);
+            // pool se ne puni pri startu - nedostupna replika ne sme da obori aplikaciju
+            dataSource.setInitializationFailTimeout(-1);
+            dataSource.setMetricRegistry(meterRegistry);
+            pools.add(new ReplicaPool(dataSource.getPoolName(), dataSource));
+        }
+        return new ReadReplicaRoutingDataSource(primaryDataSource, pools, meterRegistry);
+    }
+
+    @Bean
+    public ReplicaHealthMonitor replicaHealthMonitor(
+            HikariDataSource primaryDataSource,
+            ReadReplicaRoutingDataSource readReplicaRoutingDataSource,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.datasource.replicas.max-lag:5s}") Duration maxLag,
+            @Value("${nlb.datasource.replicas.health-check-interval:2s}") Duration interval
+    ) {
+        return new ReplicaHealthMonitor(primaryDataSource, readReplicaRoutingDataSource.getReplicas(),
+                maxLag, interval, meterRegistry);
+    }
+
+    /**
+     * Fizička konekcija se uzima tek pri prvoj naredbi, kada je poznato da li je transakcija read-only.
+     * Zavisi od monitora da bi replike bile proverene pre prvog zahteva.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource readReplicaRoutingDataSource,
+                                 ReplicaHealthMonitor replicaHealthMonitor) {
+        return new LazyConnectionDataSourceProxy(readReplicaRoutingDataSource);
+    }
+}
@@ -0,0 +1,116 @@
+package com.nlb.infrastructure.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Šalje konekcije read-only transakcija na zdrave replike (round-robin), a sve ostalo na primary.
+ * <p>
+ * Odluka se donosi u trenutku uzimanja fizičke konekcije, pa se ovaj DataSource koristi iza
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} - tek tada je
+ * {@code readOnly} flag tekuće transakcije postavljen. Ako nijedna replika nije zdrava (nedostupna
+ * ili kasni više od dozvoljenog), ili konekcija ka replici ne uspe, čitanje ide na primary.
+ */
+public class ReadReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Counter writeRoutes;
+    private final Counter fallbackRoutes;
+    private final Map<String, Counter> readRoutes = new HashMap<>();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<ReplicaPool> replicas, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.writeRoutes = routeCounter(meterRegistry, "primary", "write");
+        this.fallbackRoutes = routeCounter(meterRegistry, "primary", "read-fallback");
+        for (ReplicaPool replica : this.replicas) {
+            readRoutes.put(replica.getName(), routeCounter(meterRegistry, replica.getName(), "read"));
+        }
+    }
+
+    private static Counter routeCounter(MeterRegistry meterRegistry, String pool, String route) {
+        return Counter.builder("nlb.datasource.routed.connections")
+                .description("Physical connections handed out by the routing DataSource")
+                .tag("pool", pool)
+                .tag("route", route)
+                .register(meterRegistry);
+    }
+
+    public List<ReplicaPool> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    /**
+     * Rutira isto kao {@link #getConnection()}, a kredencijale prosleđuje izabranom pool-u.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writeRoutes.increment();
+            return opener.open(primary);
+        }
+
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ReplicaPool replica = replicas.get((start + i) % size);
+            if (!replica.isHealthy()) {
+                continue;
+            }
+            try {
+                Connection connection = opener.open(replica.getDataSource());
+                readRoutes.get(replica.getName()).increment();
+                return connection;
+            } catch (SQLException e) {
+                // ne čeka se sledeća provera - replika se odmah izbacuje iz rotacije
+                log.warn("Replica {} refused a connection, routing read to the next pool: {}",
+                        replica.getName(), e.getMessage());
+                replica.markUnhealthy(replica.getLagSeconds());
+            }
+        }
+        fallbackRoutes.increment();
+        return opener.open(primary);
+    }
+
+    /**
+     * Gasi pool-ove replika; primary je zaseban bean i gasi ga kontekst.
+     */
+    @Override
+    public void close() throws Exception {
+        for (ReplicaPool replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,170 @@
+package com.nlb.infrastructure.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Periodično proverava replike: dostupnost, da je baza zaista u recovery režimu (standby) i koliko
+ * kasni za primary-jem.
+ * <p>
+ * Monitor pamti pozicije WAL-a primary-ja iz poslednjih provera; kašnjenje replike je vreme od
+ * najnovije zapamćene pozicije koju je replika već primenila (gornja granica, tačna do jednog
+ * intervala). Vreme od poslednje primenjene transakcije se ne koristi jer posle perioda bez upisa
+ * prijavljuje lažno veliko kašnjenje. Replika sa kašnjenjem većim od {@code maxLag} izlazi iz
+ * rotacije dok ne sustigne primary.
+ */
+public class ReplicaHealthMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaHealthMonitor.class);
+
+    private static final String PRIMARY_LSN_SQL = "SELECT CAST(pg_current_wal_lsn() AS TEXT)";
+    private static final String REPLICA_STATUS_SQL = "SELECT pg_is_in_recovery(), CAST(pg_last_wal_replay_lsn() AS TEXT)";
+
+    private final DataSource primary;
+    private final List<ReplicaPool> replicas;
+    private final Duration maxLag;
+    private final Duration interval;
+    // (System.nanoTime(), LSN) primary-ja, od najstarije ka najnovijoj
+    private final Deque<long[]> primarySamples = new ArrayDeque<>();
+    private Thread worker;
+    private volatile boolean running;
+
+    public ReplicaHealthMonitor(DataSource primary, List<ReplicaPool> replicas, Duration maxLag, Duration interval,
+                                MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLag = maxLag;
+        this.interval = interval;
+        for (ReplicaPool replica : this.replicas) {
+            Gauge.builder("nlb.datasource.replica.healthy", replica, r -> r.isHealthy() ? 1 : 0)
+                    .description("1 while the replica is in the read rotation")
+                    .tag("pool", replica.getName())
+                    .register(meterRegistry);
+            Gauge.builder("nlb.datasource.replica.lag", replica, ReplicaPool::getLagSeconds)
+                    .description("Replication lag measured by the last health check")
+                    .tag("pool", replica.getName())
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        checkAll();
+        running = true;
+        worker = new Thread(this::workLoop, "replica-health-monitor");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Read replicas enabled: pools={}, maxLag={}, interval={}",
+                replicas.stream().map(ReplicaPool::getName).toList(), maxLag, interval);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            checkAll();
+        }
+    }
+
+    synchronized void checkAll() {
+        long sampledAt = System.nanoTime();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(PRIMARY_LSN_SQL)) {
+            rs.next();
+            primarySamples.addLast(new long[]{sampledAt, parseLsn(rs.getString(1))});
+        } catch (SQLException e) {
+            // bez pozicije primary-ja kašnjenje se ne može izmeriti; stanje replika ostaje isto
+            log.warn("Replica health check skipped, primary unavailable: {}", e.getMessage());
+            return;
+        }
+        // dovoljno istorije da se izmeri kašnjenje veće od maxLag
+        long horizon = sampledAt - 2 * Math.max(maxLag.toNanos(), interval.toNanos());
+        while (primarySamples.size() > 1 && primarySamples.peekFirst()[0] < horizon) {
+            primarySamples.removeFirst();
+        }
+        replicas.forEach(this::check);
+    }
+
+    private void check(ReplicaPool replica) {
+        try (Connection connection = replica.getDataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(REPLICA_STATUS_SQL)) {
+            rs.next();
+            boolean inRecovery = rs.getBoolean(1);
+            String replayLsn = rs.getString(2);
+            double lagSeconds = replayLsn != null ? lagSeconds(parseLsn(replayLsn)) : Double.POSITIVE_INFINITY;
+
+            if (inRecovery && lagSeconds <= maxLag.toNanos() / 1e9) {
+                if (!replica.isHealthy()) {
+                    log.info("Replica {} joined the read rotation (lag {}s)", replica.getName(), lagSeconds);
+                }
+                replica.markHealthy(lagSeconds);
+            } else {
+                if (replica.isHealthy()) {
+                    log.warn("Replica {} removed from the read rotation: inRecovery={}, lag={}s",
+                            replica.getName(), inRecovery, lagSeconds);
+                }
+                replica.markUnhealthy(lagSeconds);
+            }
+        } catch (SQLException e) {
+            if (replica.isHealthy()) {
+                log.warn("Replica {} removed from the read rotation: {}", replica.getName(), e.getMessage());
+            }
+            replica.markUnhealthy(Double.NaN);
+        }
+    }
+
+    /**
+     * Vreme od najnovijeg uzorka primary-ja koji je replika već primenila; ako nije primenila
+     * nijedan, vreme od najstarijeg uzorka (kašnjenje je bar toliko).
+     */
+    private double lagSeconds(long replayLsn) {
+        long now = System.nanoTime();
+        Iterator<long[]> newestFirst = primarySamples.descendingIterator();
+        long[] sample = null;
+        while (newestFirst.hasNext()) {
+            sample = newestFirst.next();
+            if (sample[1] <= replayLsn) {
+                return sample == primarySamples.peekLast() ? 0 : (now - sample[0]) / 1e9;
+            }
+        }
+        return sample == null ? 0 : (now - sample[0]) / 1e9;
+    }
+
+    /**
+     * Postgres LSN u tekstualnom obliku ({@code 16/B374D848}) kao broj.
+     */
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+}
@@ -0,0 +1,46 @@
+package com.nlb.infrastructure.datasource;
+
+import javax.sql.DataSource;
+
+/**
+ * Jedan pool ka replici i njegovo poslednje poznato stanje (popunjava {@link ReplicaHealthMonitor}).
+ * Replika je nedostupna dok je prva provera ne proglasi zdravom.
+ */
+public class ReplicaPool {
+
+    private final String name;
+    private final DataSource dataSource;
+    private volatile boolean healthy;
+    private volatile double lagSeconds = Double.NaN;
+
+    public ReplicaPool(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+
+    void markHealthy(double lagSeconds) {
+        this.lagSeconds = lagSeconds;
+        this.healthy = true;
+    }
+
+    void markUnhealthy(double lagSeconds) {
+        this.lagSeconds = lagSeconds;
+        this.healthy = false;
+    }
+}
@@ -18,11 +18,12 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(classes = NlbPaymentApplication.class)
+@SpringBootTest(classes = NlbPaymentApplication.class, properties = "nlb.security.admin-emails=admin@example.com")
 @AutoConfigureMockMvc
 @Testcontainers
 @Transactional
@@ -131,6 +132,26 @@ public class AuthIntegrationTest {
                 .andExpect(jsonPath("$.error").value("Internal Server Error"));
     }
 
+    @Test
+    void shouldAllowFailureConsoleOnlyForAdmins() throws Exception {
+        registerUser("admin@example.com", "Admin User");
+        var regularUser = registerUser("regular@example.com", "Regular User");
+
+        var loginRequest = new LoginRequest();
+        loginRequest.setEmail("admin@example.com");
+        MvcResult login = mvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(loginRequest)))
+                .andExpect(status().isOk())
+                .andReturn();
+        String adminToken = objectMapper.readTree(login.getResponse().getContentAsString()).get("token").asText();
+
+        mvc.perform(get("/api/v1/reports/failures").header("Authorization", "Bearer " + regularUser.getToken()))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/api/v1/reports/failures").header("Authorization", "Bearer " + adminToken))
+                .andExpect(status().isOk());
+    }
+
     private RegisterResponse registerUser(String email, String fullName) throws Exception {
         var req = new RegisterRequest();
         req.setEmail(email);
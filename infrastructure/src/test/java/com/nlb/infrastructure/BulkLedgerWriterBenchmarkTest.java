@@ -0,0 +1,109 @@
+package com.nlb.infrastructure;
+
+import com.nlb.domain.Currency;
+import com.nlb.domain.Transaction;
+import com.nlb.repository.TransactionRepository;
+import com.nlb.service.BulkLedgerWriter;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Poredi brzinu upisa ledger redova (redova/s): JPA saveAll (dosadašnja putanja),
+ * višeredni INSERT i binarni COPY, za batch-eve od 10 do 100k redova.
+ * Pokreće se samo eksplicitno: {@code mvn test -pl infrastructure -am -Dtest=BulkLedgerWriterBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dnlb.benchmark=true}
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "nlb.benchmark", matches = "true")
+public class BulkLedgerWriterBenchmarkTest {
+
+    private static final int[] BATCH_SIZES = {10, 100, 1_000, 10_000, 100_000};
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void compareLedgerWritePaths() {
+        BulkLedgerWriter insertWriter = new BulkLedgerWriter(jdbcTemplate, Integer.MAX_VALUE, 500);
+        BulkLedgerWriter copyWriter = new BulkLedgerWriter(jdbcTemplate, 0, 500);
+
+        // Zagrevanje JIT-a i konekcija
+        measure(1_000, rows -> {
+            transactionRepository.saveAll(rows);
+            entityManager.flush();
+        });
+        measure(1_000, insertWriter::writeTransactions);
+        measure(1_000, copyWriter::writeTransactions);
+
+        System.out.printf("%n%10s %15s %15s %15s%n", "rows", "jpa rows/s", "insert rows/s", "copy rows/s");
+        for (int size : BATCH_SIZES) {
+            double jpa = measure(size, rows -> {
+                transactionRepository.saveAll(rows);
+                entityManager.flush();
+            });
+            double insert = measure(size, insertWriter::writeTransactions);
+            double copy = measure(size, copyWriter::writeTransactions);
+            System.out.printf("%10d %15.0f %15.0f %15.0f%n", size, jpa, insert, copy);
+        }
+    }
+
+    /**
+     * Upisuje {@code size} redova u transakciji koja se na kraju vraća (rollback), pa su merenja nezavisna.
+     */
+    private double measure(int size, Consumer<List<Transaction>> writer) {
+        List<Transaction> rows = transactions(size);
+        return transactionTemplate.execute(status -> {
+            long start = System.nanoTime();
+            writer.accept(rows);
+            long elapsed = System.nanoTime() - start;
+
+            Long written = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM transactions WHERE payment_order_id = ?", Long.class, rows.get(0).getPaymentOrderId());
+            assertThat(written).isEqualTo(size);
+
+            status.setRollbackOnly();
+            entityManager.clear();
+            return size / (elapsed / 1_000_000_000.0);
+        });
+    }
+
+    private List<Transaction> transactions(int size) {
+        UUID orderId = UUID.randomUUID();
+        UUID sourceAccountId = UUID.randomUUID();
+        return IntStream.range(0, size)
+                .mapToObj(i -> Transaction.builder()
+                        .sourceAccountId(sourceAccountId)
+                        .destinationAccountId(UUID.randomUUID())
+                        .amountCents(100L + i)
+                        .currency(Currency.EUR)
+                        .paymentOrderId(orderId)
+                        .paymentOrderItemId(UUID.randomUUID())
+                        .idempotencyKey("benchmark-" + orderId)
+                        .build())
+                .toList();
+    }
+}
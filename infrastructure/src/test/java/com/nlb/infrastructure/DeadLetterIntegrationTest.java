@@ -0,0 +1,94 @@
+package com.nlb.infrastructure;
+
+import com.nlb.service.BulkLedgerWriter;
+import com.nlb.service.DefaultTransferBatchService;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Sistemska greška posle upisa naloga vraća (rollback) celu transakciju transfera; zapis greške
+ * u {@code integration_failures} mora da ostane, jer ga dead-letter writer upisuje zasebno.
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+public class DeadLetterIntegrationTest {
+
+    @Autowired
+    private DefaultTransferBatchService transferService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private BulkLedgerWriter ledgerWriter;
+
+    @Test
+    void failureRecordShouldSurviveRollbackOfTheTransfer() {
+        UUID userId = UUID.randomUUID();
+        UUID sourceAccountId = UUID.randomUUID();
+        UUID destinationAccountId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, full_name, status) VALUES (?, ?, 'Dead Letter', 'ACTIVE')",
+                userId, "dead-letter-" + userId + "@example.com");
+        jdbcTemplate.update("""
+                INSERT INTO accounts (id, owner_id, balance_cents, currency, status, version, balance_slots)
+                VALUES (?, ?, 10000, 'EUR', 'ACTIVE', 0, 0), (?, ?, 0, 'EUR', 'ACTIVE', 0, 0)
+                """, sourceAccountId, userId, destinationAccountId, userId);
+        doThrow(new IllegalStateException("Ledger unavailable")).when(ledgerWriter).writeTransactions(anyList());
+
+        String idempotencyKey = UUID.randomUUID().toString();
+        BatchTransferRequest request = new BatchTransferRequest(idempotencyKey, userId, sourceAccountId,
+                List.of(new BatchItem(destinationAccountId, new BigDecimal("10.00"))));
+
+        assertThatThrownBy(() -> transferService.executeBatchTransfer(request))
+                .hasMessageContaining("System error processing transfer");
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payment_orders WHERE idempotency_key = ?", Integer.class, idempotencyKey))
+                .isZero();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT balance_cents FROM accounts WHERE id = ?", Long.class, sourceAccountId))
+                .isEqualTo(10000L);
+
+        Map<String, Object> failure = awaitFailure(idempotencyKey);
+        assertThat(failure.get("context")).isEqualTo("TRANSFER_BATCH_SERVICE");
+        assertThat(failure.get("message")).isEqualTo("Ledger unavailable");
+        assertThat(failure.get("related_id")).isNotNull();
+    }
+
+    private Map<String, Object> awaitFailure(String idempotencyKey) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT * FROM integration_failures WHERE payload LIKE ?", "%" + idempotencyKey + "%");
+            if (!rows.isEmpty()) {
+                return rows.getFirst();
+            }
+            assertThat(System.nanoTime()).as("failure record not written within 10s").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
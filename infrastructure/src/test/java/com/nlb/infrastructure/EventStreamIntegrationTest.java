@@ -0,0 +1,110 @@
+package com.nlb.infrastructure;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.dto.auth.RegisterRequest;
+import com.nlb.dto.auth.RegisterResponse;
+import com.nlb.dto.transaction.TransferBatchItemRequest;
+import com.nlb.dto.transaction.TransferBatchRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Klijent otvara SSE konekciju i posle transfera dobija, bez polling-a, status naloga i nove salde
+ * oba svoja računa - tek posle commit-a.
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@AutoConfigureMockMvc
+@Testcontainers
+@ActiveProfiles("test")
+public class EventStreamIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void subscriberShouldReceiveOrderStatusAndBalances() throws Exception {
+        RegisterResponse sender = registerUser("sse-sender-" + UUID.randomUUID() + "@example.com");
+        RegisterResponse receiver = registerUser("sse-receiver-" + UUID.randomUUID() + "@example.com");
+        jdbcTemplate.update("UPDATE accounts SET balance_cents = 10000 WHERE id = ?",
+                UUID.fromString(sender.getAccountId()));
+
+        MvcResult subscription = mvc.perform(get("/api/v1/events")
+                        .header("Authorization", "Bearer " + sender.getToken())
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockHttpServletResponse stream = subscription.getResponse();
+        awaitContent(stream, "\"balance\":\"100.00\"");
+
+        var item = new TransferBatchItemRequest();
+        item.setDestinationAccountId(UUID.fromString(receiver.getAccountId()));
+        item.setAmount(new BigDecimal("25.50"));
+        var transfer = new TransferBatchRequest();
+        transfer.setSourceAccountId(UUID.fromString(sender.getAccountId()));
+        transfer.setItems(List.of(item));
+        mvc.perform(post("/api/v1/transfers/batch")
+                        .header("Idempotency-Key", UUID.randomUUID().toString())
+                        .header("Authorization", "Bearer " + sender.getToken())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(transfer)))
+                .andExpect(status().isOk());
+
+        String content = awaitContent(stream, "\"balance\":\"74.50\"");
+        assertThat(content).contains("event:order", "\"status\":\"COMPLETED\"");
+        // saldo primaoca pripada drugom korisniku i ne sme da stigne pošiljaocu
+        assertThat(content).doesNotContain(receiver.getAccountId());
+    }
+
+    private String awaitContent(MockHttpServletResponse stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            String content = stream.getContentAsString(StandardCharsets.UTF_8);
+            if (content.contains(expected)) {
+                return content;
+            }
+            assertThat(System.nanoTime()).as("event %s not received within 10s, got: %s", expected, content)
+                    .isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+
+    private RegisterResponse registerUser(String email) throws Exception {
+        var req = new RegisterRequest();
+        req.setEmail(email);
+        req.setFullName("SSE User");
+
+        MvcResult result = mvc.perform(post("/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), RegisterResponse.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nlb.infrastructure;
+
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.service.DefaultTransferBatchService;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ključ koji je posle punjenja Bloom filtera upisala druga instanca: lookup se preskače, upis naloga
+ * pada na unique constraint, a zahtev i dalje mora da dobije sačuvan nalog umesto greške.
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+public class IdempotencyRaceIntegrationTest {
+
+    @Autowired
+    private DefaultTransferBatchService transferService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void replayOfKeyWrittenByAnotherInstanceShouldReturnStoredOrder() {
+        UUID userId = UUID.randomUUID();
+        UUID sourceAccountId = UUID.randomUUID();
+        UUID destinationAccountId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, full_name, status) VALUES (?, ?, 'Idempotency Race', 'ACTIVE')",
+                userId, "idempotency-race-" + userId + "@example.com");
+        jdbcTemplate.update("""
+                INSERT INTO accounts (id, owner_id, balance_cents, currency, status, version, balance_slots)
+                VALUES (?, ?, 10000, 'EUR', 'ACTIVE', 0, 0), (?, ?, 0, 'EUR', 'ACTIVE', 0, 0)
+                """, sourceAccountId, userId, destinationAccountId, userId);
+
+        // Druga instanca je nalog upisala posle starta ove, pa ga Bloom filter ne zna
+        String idempotencyKey = UUID.randomUUID().toString();
+        UUID storedOrderId = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO payment_orders (id, idempotency_key, initiated_by_user_id, source_account_id,
+                                            total_amount_cents, currency, status, created_at, updated_at)
+                VALUES (?, ?, ?, ?, 1000, 'EUR', 'COMPLETED', now(), now())
+                """, storedOrderId, idempotencyKey, userId, sourceAccountId);
+
+        BatchTransferResponse response = transferService.executeBatchTransfer(new BatchTransferRequest(
+                idempotencyKey, userId, sourceAccountId, List.of(new BatchItem(destinationAccountId, new BigDecimal("10.00")))));
+
+        assertThat(response.paymentOrderId()).isEqualTo(storedOrderId);
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payment_orders WHERE idempotency_key = ?", Integer.class, idempotencyKey))
+                .isOne();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT balance_cents FROM accounts WHERE id = ?", Long.class, sourceAccountId))
+                .isEqualTo(10000L);
+    }
+}
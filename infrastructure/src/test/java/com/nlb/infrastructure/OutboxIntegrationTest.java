@@ -0,0 +1,164 @@
+package com.nlb.infrastructure;
+
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.AccountService;
+import com.nlb.interfaces.OutboxSink;
+import com.nlb.service.OutboxWriter;
+import com.nlb.service.model.AccountMovement;
+import com.nlb.service.model.OutboxEvent;
+import com.nlb.service.model.OutboxEventType;
+import com.nlb.service.model.OutboxMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Promene salda upisuju događaj u outbox u svojoj transakciji; relay ih isporučuje u sink redom
+ * po računu i briše iz tabele. Operacija koja se vrati (rollback) ne ostavlja događaj.
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@Import(OutboxIntegrationTest.InMemorySinkConfig.class)
+public class OutboxIntegrationTest {
+
+    private static final List<OutboxEvent> DELIVERED = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class InMemorySinkConfig {
+        @Bean
+        @Primary
+        OutboxSink inMemoryOutboxSink() {
+            return DELIVERED::addAll;
+        }
+    }
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxWriter outboxWriter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void accountEventsShouldBeRelayedInOrder() {
+        UUID userId = UUID.randomUUID();
+        UUID accountId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, full_name, status) VALUES (?, ?, 'Outbox User', 'ACTIVE')",
+                userId, "outbox-" + userId + "@example.com");
+        jdbcTemplate.update("""
+                INSERT INTO accounts (id, owner_id, balance_cents, currency, status, version, balance_slots)
+                VALUES (?, ?, 0, 'EUR', 'ACTIVE', 0, 0)
+                """, accountId, userId);
+
+        accountService.deposit(userId, accountId, new BigDecimal("10.00"));
+        accountService.deposit(userId, accountId, new BigDecimal("20.00"));
+        accountService.withdraw(userId, accountId, new BigDecimal("5.00"));
+        assertThatThrownBy(() -> accountService.withdraw(userId, accountId, new BigDecimal("1000.00")))
+                .isInstanceOf(BusinessValidationException.class);
+
+        List<OutboxEvent> events = awaitEvents(accountId, 3);
+        assertThat(events).extracting(OutboxEvent::type).containsExactly("DEPOSIT", "DEPOSIT", "WITHDRAWAL");
+        assertThat(events.get(0).payload()).contains("\"amountCents\":1000");
+        assertThat(events.get(2).payload()).contains("\"amountCents\":-500");
+        assertThat(events).extracting(OutboxEvent::id).isSorted();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM outbox_events WHERE aggregate_id = ?", Integer.class, accountId)).isZero();
+    }
+
+    @Test
+    void concurrentAppendsForOneAccountShouldGetIdsInCommitOrder() throws Exception {
+        UUID accountId = UUID.randomUUID();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch firstWritten = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        // Prva transakcija upiše događaj pred commit i zastane pre samog commit-a
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            outboxWriter.append(movement(accountId, 100L));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    firstWritten.countDown();
+                    await(releaseFirst);
+                }
+            });
+        }));
+        assertThat(firstWritten.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status ->
+                outboxWriter.append(movement(accountId, 200L))));
+        Thread.sleep(300);
+        assertThat(second).as("second append must wait for the first commit").isNotDone();
+
+        releaseFirst.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        List<OutboxEvent> events = awaitEvents(accountId, 2);
+        assertThat(events).extracting(OutboxEvent::id).isSorted();
+        assertThat(events.get(0).payload()).contains("\"amountCents\":100");
+        assertThat(events.get(1).payload()).contains("\"amountCents\":200");
+    }
+
+    private static OutboxMessage movement(UUID accountId, long amountCents) {
+        return new OutboxMessage(accountId, OutboxEventType.DEPOSIT,
+                new AccountMovement(accountId, UUID.randomUUID(), amountCents, "EUR"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private List<OutboxEvent> awaitEvents(UUID accountId, int expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            List<OutboxEvent> events = DELIVERED.stream()
+                    .filter(event -> event.aggregateId().equals(accountId))
+                    .toList();
+            if (events.size() >= expected) {
+                return events;
+            }
+            assertThat(System.nanoTime()).as("outbox events not relayed within 10s").isLessThan(deadline);
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.nlb.infrastructure;
+
+import com.nlb.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import com.nlb.infrastructure.datasource.ReplicaPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.Transferable;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Dva Postgres kontejnera u streaming replikaciji: primary i hot standby napravljen preko
+ * pg_basebackup. Proverava da read-only transakcije idu na repliku, upisi na primary, i da
+ * čitanja prelaze na primary kada replika nestane.
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+public class ReadReplicaRoutingIntegrationTest {
+
+    private static final Network NETWORK = Network.newNetwork();
+
+    @Container
+    private static final PostgreSQLContainer<?> PRIMARY = new PostgreSQLContainer<>("postgres:17")
+            .withNetwork(NETWORK)
+            .withNetworkAliases("primary")
+            .withDatabaseName("nlb_test")
+            .withUsername("nlb")
+            .withPassword("nlb")
+            .withCopyToContainer(Transferable.of(
+                    "echo 'host replication all all scram-sha-256' >> \"$PGDATA/pg_hba.conf\"", 0755),
+                    "/docker-entrypoint-initdb.d/10-replication.sh")
+            .withCommand("postgres", "-c", "wal_level=replica", "-c", "max_wal_senders=4", "-c", "fsync=off");
+
+    @Container
+    private static final GenericContainer<?> REPLICA = new GenericContainer<>("postgres:17")
+            .dependsOn(PRIMARY)
+            .withNetwork(NETWORK)
+            .withEnv("PGPASSWORD", "nlb")
+            .withCreateContainerCmdModifier(cmd -> cmd.withUser("postgres").withEntrypoint("bash"))
+            .withCommand("-c", "until pg_basebackup -h primary -U nlb -D /tmp/pgdata -R -X stream; do sleep 1; done; "
+                    + "chmod 700 /tmp/pgdata; exec postgres -D /tmp/pgdata -c hot_standby=on")
+            .withExposedPorts(5432)
+            .waitingFor(Wait.forLogMessage(".*ready to accept read-only connections.*", 1)
+                    .withStartupTimeout(Duration.ofMinutes(2)));
+
+    @DynamicPropertySource
+    static void dataSources(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", PRIMARY::getJdbcUrl);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+        registry.add("nlb.datasource.replicas.enabled", () -> "true");
+        registry.add("nlb.datasource.replicas.urls",
+                () -> "jdbc:postgresql://" + REPLICA.getHost() + ":" + REPLICA.getMappedPort(5432) + "/nlb_test");
+        registry.add("nlb.datasource.replicas.health-check-interval", () -> "200ms");
+        registry.add("nlb.datasource.replicas.connection-timeout", () -> "1s");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    @Order(1)
+    void readOnlyTransactionsShouldRunOnReplica_andWritesOnPrimary() {
+        awaitTrue(() -> replica().isHealthy());
+
+        assertThat(inTransaction(true, () -> jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)))
+                .isTrue();
+        assertThat(inTransaction(false, () -> jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)))
+                .isFalse();
+    }
+
+    @Test
+    @Order(2)
+    void replicaShouldSeeCommittedWrites() {
+        String email = "replica-" + UUID.randomUUID() + "@example.com";
+        inTransaction(false, () -> jdbcTemplate.update(
+                "INSERT INTO users (id, email, full_name, status) VALUES (?, ?, 'Replica Test', 'ACTIVE')",
+                UUID.randomUUID(), email));
+
+        awaitTrue(() -> inTransaction(true, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE email = ?", Integer.class, email)) == 1);
+    }
+
+    @Test
+    @Order(3)
+    void readsShouldFallBackToPrimary_whenReplicaIsDown() {
+        REPLICA.stop();
+        awaitTrue(() -> !replica().isHealthy());
+
+        assertThat(inTransaction(true, () -> jdbcTemplate.queryForObject("SELECT pg_is_in_recovery()", Boolean.class)))
+                .isFalse();
+        assertThat(meterRegistry.get("nlb.datasource.routed.connections")
+                .tag("route", "read-fallback").counter().count()).isPositive();
+        assertThat(meterRegistry.get("nlb.datasource.replica.healthy").tag("pool", "replica-1").gauge().value())
+                .isZero();
+    }
+
+    private ReplicaPool replica() {
+        return routingDataSource.getReplicas().getFirst();
+    }
+
+    private <T> T inTransaction(boolean readOnly, Supplier<T> action) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        return template.execute(status -> action.get());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 30s").isLessThan(deadline);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
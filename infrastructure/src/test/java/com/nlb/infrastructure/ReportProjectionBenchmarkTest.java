@@ -0,0 +1,161 @@
+package com.nlb.infrastructure;
+
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.Transaction;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Poredi čitanje izveštaja od 10k redova kroz managed entitete (dosadašnja putanja) i kroz DTO
+ * projekcije: latenciju i alocirane bajtove po redu (alokacije niti koja čita), za izvod računa i
+ * listu naloga. Svako merenje je u read-only transakciji sa praznim persistence context-om.
+ * Pokreće se samo eksplicitno: {@code mvn test -pl infrastructure -am -Dtest=ReportProjectionBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dnlb.benchmark=true}
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "nlb.benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReportProjectionBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int ITERATIONS = 20;
+    private static final Instant MAX_TIME = Instant.parse("9999-12-31T23:59:59Z");
+    private static final UUID MIN_ID = new UUID(0L, 0L);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PaymentOrderRepository paymentOrderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private UUID userId;
+    private UUID accountId;
+
+    @BeforeAll
+    void seedReport() {
+        userId = UUID.randomUUID();
+        accountId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, full_name, status) VALUES (?, ?, 'Benchmark User', 'ACTIVE')",
+                userId, "benchmark-" + userId + "@example.com");
+        jdbcTemplate.update("""
+                INSERT INTO accounts (id, owner_id, balance_cents, currency, status, version, balance_slots)
+                VALUES (?, ?, 0, 'EUR', 'ACTIVE', 0, 0)
+                """, accountId, userId);
+        jdbcTemplate.update("""
+                INSERT INTO payment_orders (id, idempotency_key, initiated_by_user_id, source_account_id,
+                                            total_amount_cents, currency, status, created_at, updated_at)
+                SELECT gen_random_uuid(), 'benchmark-' || o, ?, ?, 100, 'EUR', 'COMPLETED',
+                       now() - o * interval '1 second', now() - o * interval '1 second'
+                FROM generate_series(1, ?) o
+                """, userId, accountId, ROWS);
+        jdbcTemplate.update("""
+                INSERT INTO transactions (id, source_account_id, destination_account_id, amount_cents, currency,
+                                          payment_order_id, payment_order_item_id, idempotency_key, created_at, updated_at)
+                SELECT gen_random_uuid(), p.source_account_id, gen_random_uuid(), p.total_amount_cents, 'EUR',
+                       p.id, gen_random_uuid(), p.idempotency_key, p.created_at, p.created_at
+                FROM payment_orders p WHERE p.initiated_by_user_id = ?
+                """, userId);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void compareEntityAndProjectionReads() {
+        Supplier<List<?>> transactionEntities = () -> entityManager.createQuery("""
+                        SELECT t FROM Transaction t
+                        WHERE t.sourceAccountId = :accountId OR t.destinationAccountId = :accountId
+                        ORDER BY t.createdAt DESC, t.id DESC
+                        """, Transaction.class)
+                .setParameter("accountId", accountId)
+                .setMaxResults(ROWS)
+                .getResultList();
+        Supplier<List<?>> transactionSummaries = () -> transactionRepository.findPageByAccountId(
+                accountId, Instant.EPOCH, MAX_TIME, MIN_ID, ROWS);
+        Supplier<List<?>> orderEntities = () -> entityManager.createQuery("""
+                        SELECT p FROM PaymentOrder p WHERE p.initiatedByUserId = :userId
+                        ORDER BY p.createdAt DESC, p.id DESC
+                        """, PaymentOrder.class)
+                .setParameter("userId", userId)
+                .setMaxResults(ROWS)
+                .getResultList();
+        Supplier<List<?>> orderSummaries = () -> paymentOrderRepository.findPageByUserId(
+                userId, Instant.EPOCH, MAX_TIME, MIN_ID, ROWS);
+
+        System.out.printf("%n%-28s %12s %12s %14s%n", "report (10k rows)", "median ms", "p95 ms", "bytes/row");
+        report("statement / entities", transactionEntities);
+        report("statement / projections", transactionSummaries);
+        report("order list / entities", orderEntities);
+        report("order list / projections", orderSummaries);
+    }
+
+    private void report(String name, Supplier<List<?>> query) {
+        // Zagrevanje JIT-a, konekcija i keša planova
+        for (int i = 0; i < 5; i++) {
+            measure(query);
+        }
+        long[] nanos = new long[ITERATIONS];
+        long allocated = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long[] sample = measure(query);
+            nanos[i] = sample[0];
+            allocated += sample[1];
+        }
+        Arrays.sort(nanos);
+        System.out.printf("%-28s %12.2f %12.2f %14d%n", name,
+                nanos[ITERATIONS / 2] / 1e6, nanos[ITERATIONS * 95 / 100 - 1] / 1e6,
+                allocated / ITERATIONS / ROWS);
+    }
+
+    /**
+     * Vraća (trajanje u ns, alocirane bajtove) jednog čitanja; persistence context se posle čisti.
+     */
+    private long[] measure(Supplier<List<?>> query) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            long threadId = Thread.currentThread().threadId();
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            List<?> rows = query.get();
+            long elapsed = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+            assertThat(rows).hasSize(ROWS);
+            entityManager.clear();
+            return new long[]{elapsed, allocated};
+        });
+    }
+}
@@ -0,0 +1,279 @@
+package com.nlb.infrastructure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.service.DefaultReportService;
+import com.nlb.service.models.IntegrationFailureFilter;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Regresioni test planova izveštaja: nad velikim seed-ovanim podacima izvršava svaki upit izveštaja
+ * (lista naloga sa i bez statusa, detalji naloga, izvod, saldo u trenutku, konzola grešaka), hvata SQL koji Hibernate
+ * zaista šalje i proverava njegov generički plan (kakav dobija i prepared statement) preko EXPLAIN-a.
+ * Pada ako ijedan upit čita neku od velikih tabela sekvencijalno, npr. kada nestane indeks.
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class, properties =
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.nlb.infrastructure.ReportQueryPlanIntegrationTest$RecordingStatementInspector")
+@Testcontainers
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReportQueryPlanIntegrationTest {
+
+    private static final int USERS = 2_000;
+    private static final int ORDERS = 200_000;
+    private static final int SNAPSHOT_DAYS = 30;
+    private static final int FAILURES = 100_000;
+    private static final Set<String> LARGE_TABLES = Set.of("payment_orders", "payment_order_items", "transactions",
+            "ledger_postings", "account_balance_snapshots", "integration_failures");
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:17")
+            .withDatabaseName("nlb_test")
+            .withUsername("nlb")
+            .withPassword("nlb")
+            .withCommand("postgres", "-c", "fsync=off");
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.driver-class-name", () -> "org.postgresql.Driver");
+    }
+
+    @Autowired
+    private DefaultReportService reportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private UUID userId;
+    private UUID accountId;
+    private UUID orderId;
+
+    @BeforeAll
+    void seedLargeData() {
+        // id-jevi korisnika i računa su izvedeni iz rednog broja, pa ih nalozi mogu referencirati bez join-a
+        jdbcTemplate.execute("""
+                INSERT INTO users (id, email, full_name, status)
+                SELECT CAST(md5('user-' || i) AS UUID), 'plan-' || i || '@example.com', 'Plan User ' || i, 'ACTIVE'
+                FROM generate_series(1, %d) i
+                """.formatted(USERS));
+        jdbcTemplate.execute("""
+                INSERT INTO accounts (id, owner_id, balance_cents, currency, status, version, balance_slots)
+                SELECT CAST(md5('account-' || i) AS UUID), CAST(md5('user-' || i) AS UUID), 0, 'EUR', 'ACTIVE', 0, 0
+                FROM generate_series(1, %d) i
+                """.formatted(USERS));
+        // jedan nalog u 10 je FAILED, nalozi su raspoređeni unazad kroz ~2 nedelje
+        jdbcTemplate.execute("""
+                INSERT INTO payment_orders (id, idempotency_key, initiated_by_user_id, source_account_id,
+                                            total_amount_cents, currency, status, created_at, updated_at)
+                SELECT gen_random_uuid(), 'plan-' || o, CAST(md5('user-' || (o %% %2$d + 1)) AS UUID),
+                       CAST(md5('account-' || (o %% %2$d + 1)) AS UUID), 200, 'EUR',
+                       CASE WHEN o %% 10 = 0 THEN 'FAILED' ELSE 'COMPLETED' END,
+                       now() - o * interval '6 seconds', now() - o * interval '6 seconds'
+                FROM generate_series(1, %1$d) o
+                """.formatted(ORDERS, USERS));
+        jdbcTemplate.execute("""
+                INSERT INTO payment_order_items (id, payment_order_id, destination_account_id, amount_cents,
+                                                 status, order_key, created_at, updated_at)
+                SELECT gen_random_uuid(), p.id, p.source_account_id, 100, 'SUCCESS', p.idempotency_key || '#' || k,
+                       p.created_at, p.created_at
+                FROM payment_orders p CROSS JOIN generate_series(0, 1) k
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO transactions (id, source_account_id, destination_account_id, amount_cents, currency,
+                                          payment_order_id, payment_order_item_id, idempotency_key, created_at, updated_at)
+                SELECT gen_random_uuid(), o.source_account_id, i.destination_account_id, i.amount_cents, 'EUR',
+                       o.id, i.id, i.order_key, i.created_at, i.created_at
+                FROM payment_order_items i JOIN payment_orders o ON o.id = i.payment_order_id
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO ledger_postings (id, account_id, sequence_no, amount_cents, balance_after_cents, currency,
+                                             posting_type, transaction_id, payment_order_id, created_at, updated_at)
+                SELECT gen_random_uuid(), t.source_account_id,
+                       row_number() OVER (PARTITION BY t.source_account_id ORDER BY t.created_at, t.id),
+                       t.amount_cents, 0, 'EUR', 'TRANSFER_IN', t.id, t.payment_order_id, t.created_at, t.created_at
+                FROM transactions t
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO account_balance_snapshots (account_id, snapshot_date, balance_cents, created_at)
+                SELECT a.id, CURRENT_DATE - d, 0, now()
+                FROM accounts a CROSS JOIN generate_series(1, %d) d
+                """.formatted(SNAPSHOT_DAYS));
+        // greške iz nekoliko konteksta kroz poslednjih ~30 dana, svaka vezana za jedan nalog
+        jdbcTemplate.execute("""
+                INSERT INTO integration_failures (id, context, entity_name, related_id, message, payload, retry_count,
+                                                  occurred_at)
+                SELECT gen_random_uuid(), 'CONTEXT_' || (f %% 5), CASE WHEN f %% 2 = 0 THEN 'PaymentOrder' ELSE 'BatchTransferRequest' END,
+                       o.id, 'Plan failure ' || f, repeat('x', 2000), 0, now() - f * interval '26 seconds'
+                FROM generate_series(1, %d) f
+                JOIN (SELECT id, row_number() OVER () AS n FROM payment_orders) o ON o.n = f
+                """.formatted(FAILURES));
+        jdbcTemplate.execute("ANALYZE");
+
+        userId = jdbcTemplate.queryForObject("SELECT CAST(md5('user-1') AS UUID)", UUID.class);
+        accountId = jdbcTemplate.queryForObject("SELECT CAST(md5('account-1') AS UUID)", UUID.class);
+        orderId = jdbcTemplate.queryForObject(
+                "SELECT id FROM payment_orders WHERE initiated_by_user_id = ? LIMIT 1", UUID.class, userId);
+    }
+
+    @Test
+    void paymentOrderPages_shouldUseIndexes() {
+        String cursor = reportService.getPaymentOrdersForUser(userId, null, null, null, null, 20).nextCursor();
+        assertNoSequentialScans(() -> {
+            reportService.getPaymentOrdersForUser(userId, null, null, null, null, 20);
+            reportService.getPaymentOrdersForUser(userId, null, null, null, cursor, 20);
+            reportService.getPaymentOrdersForUser(userId, PaymentOrderStatus.FAILED,
+                    Instant.now().minus(7, ChronoUnit.DAYS), Instant.now(), null, 20);
+        });
+    }
+
+    @Test
+    void paymentOrderDetails_shouldLoadOrderAndItemsInOneIndexedQuery() {
+        assertThat(assertNoSequentialScans(() -> reportService.getPaymentOrderDetails(userId, orderId)))
+                .hasSize(1);
+    }
+
+    @Test
+    void accountStatementAndBalance_shouldUseIndexes() {
+        assertNoSequentialScans(() -> {
+            reportService.getTransactionsForAccount(userId, accountId, null, null, null, 50);
+            reportService.getBalanceAt(userId, accountId, Instant.now());
+        });
+    }
+
+    @Test
+    void failureConsole_shouldUseIndexes() {
+        UUID relatedId = jdbcTemplate.queryForObject(
+                "SELECT related_id FROM integration_failures LIMIT 1", UUID.class);
+        String cursor = reportService.getIntegrationFailures(
+                new IntegrationFailureFilter(null, null, null, null, null), null, 20, false).nextCursor();
+        assertNoSequentialScans(() -> {
+            reportService.getIntegrationFailures(new IntegrationFailureFilter(null, null, null, null, null), cursor, 20, false);
+            reportService.getIntegrationFailures(
+                    new IntegrationFailureFilter("CONTEXT_1", null, null, Instant.now().minus(7, ChronoUnit.DAYS), null),
+                    null, 20, true);
+            reportService.getIntegrationFailures(
+                    new IntegrationFailureFilter(null, "PaymentOrder", null, null, null), null, 20, false);
+            reportService.getIntegrationFailures(
+                    new IntegrationFailureFilter(null, null, relatedId, null, null), null, 20, false);
+            reportService.countIntegrationFailures(null, null, Duration.ofHours(1));
+        });
+    }
+
+    /**
+     * Izvršava akciju, pa za svaki uhvaćen upit proverava generički plan; vraća uhvaćene upite.
+     */
+    private List<String> assertNoSequentialScans(Runnable action) {
+        RecordingStatementInspector.STATEMENTS.clear();
+        action.run();
+        List<String> statements = List.copyOf(RecordingStatementInspector.STATEMENTS);
+        assertThat(statements).isNotEmpty();
+
+        for (String sql : statements) {
+            List<String> scanned = sequentiallyScannedTables(genericPlan(sql));
+            assertThat(scanned).as("sequential scan in plan of: %s", sql)
+                    .doesNotContainAnyElementsOf(LARGE_TABLES);
+        }
+        return statements;
+    }
+
+    /**
+     * Plan koji bi upit dobio kao prepared statement, nezavisno od konkretnih vrednosti parametara.
+     */
+    private JsonNode genericPlan(String sql) {
+        String json = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET plan_cache_mode = force_generic_plan");
+                statement.execute("PREPARE report_query AS " + numberParameters(sql));
+                int parameterCount = sql.length() - sql.replace("?", "").length();
+                String args = parameterCount == 0 ? "" : "(" + String.join(", ", nulls(parameterCount)) + ")";
+                try (ResultSet rs = statement.executeQuery("EXPLAIN (FORMAT JSON) EXECUTE report_query" + args)) {
+                    rs.next();
+                    return rs.getString(1);
+                } finally {
+                    statement.execute("DEALLOCATE report_query");
+                    statement.execute("RESET plan_cache_mode");
+                }
+            }
+        });
+        try {
+            return objectMapper.readTree(json).get(0).get("Plan");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> sequentiallyScannedTables(JsonNode plan) {
+        List<String> tables = new ArrayList<>();
+        if ("Seq Scan".equals(plan.path("Node Type").asText())) {
+            tables.add(plan.path("Relation Name").asText());
+        }
+        for (JsonNode child : plan.path("Plans")) {
+            tables.addAll(sequentiallyScannedTables(child));
+        }
+        return tables;
+    }
+
+    private static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder();
+        int index = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numbered.append('$').append(++index);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    private static List<String> nulls(int count) {
+        return Collections.nCopies(count, "NULL");
+    }
+
+    /**
+     * Beleži svaki SQL koji Hibernate šalje bazi (postavlja se kroz hibernate.session_factory.statement_inspector).
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
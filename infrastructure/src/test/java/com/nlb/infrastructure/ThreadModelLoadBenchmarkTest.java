@@ -0,0 +1,166 @@
+package com.nlb.infrastructure;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opterećenje istim mešovitim saobraćajem (80% batch transfera, 20% liste naloga) u režimu
+ * platformskih niti (Tomcat pool, 200 niti) i u režimu virtuelnih niti, oba sa istim Hikari pool-om
+ * i DB bulkhead-ima. Meri protok, p50/p99 latenciju, broj 503 odgovora, najveći broj platformskih niti
+ * i p99 čekanja na dozvolu bulkhead-a transfera.
+ * Pokreće se samo eksplicitno: {@code mvn test -pl infrastructure -am -Dtest=ThreadModelLoadBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dnlb.benchmark=true}
+ * (broj klijenata {@code -Dnlb.benchmark.clients}, trajanje {@code -Dnlb.benchmark.seconds}).
+ */
+@Testcontainers
+@EnabledIfSystemProperty(named = "nlb.benchmark", matches = "true")
+public class ThreadModelLoadBenchmarkTest {
+
+    private static final int USERS = 100;
+    private static final int CLIENTS = Integer.getInteger("nlb.benchmark.clients", 1_000);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("nlb.benchmark.seconds", 20));
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compareThreadModels() throws Exception {
+        System.out.printf("%n%-10s %8s %10s %10s %10s %8s %8s %14s %14s%n", CLIENTS + " clients", "ok", "req/s",
+                "p50 ms", "p99 ms", "503", "errors", "peak threads", "permit p99 ms");
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            LoadResult result = run(virtualThreads);
+            System.out.printf("%-10s %8d %10.0f %10.1f %10.1f %8d %8d %14d %14.1f%n",
+                    virtualThreads ? "virtual" : "platform", result.ok(), result.ok() / (double) DURATION.toSeconds(),
+                    result.percentileMillis(0.50), result.percentileMillis(0.99), result.busy(), result.errors(),
+                    result.peakThreads(), result.permitWaitP99Millis());
+            assertThat(result.ok()).isPositive();
+            assertThat(result.errors()).isZero();
+        }
+    }
+
+    private LoadResult run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(NlbPaymentApplication.class)
+                .profiles("test")
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "logging.level.org.hibernate.SQL=info",
+                        "logging.level.org.hibernate.orm.jdbc.bind=info",
+                        "logging.level.liquibase=info")
+                .run();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            List<String[]> users = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                users.add(register(http, objectMapper, baseUrl));
+            }
+            context.getBean(JdbcTemplate.class).update("UPDATE accounts SET balance_cents = 100000000");
+
+            List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+            AtomicLong busy = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            threads.resetPeakThreadCount();
+            long deadline = System.nanoTime() + DURATION.toNanos();
+
+            for (int c = 0; c < CLIENTS; c++) {
+                int client = c;
+                clients.execute(() -> {
+                    String[] source = users.get(client % USERS);
+                    String destinationAccountId = users.get((client + 1) % USERS)[1];
+                    for (int i = 0; System.nanoTime() < deadline; i++) {
+                        HttpRequest request = i % 5 == 4
+                                ? HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/reports/orders?limit=20"))
+                                        .header("Authorization", "Bearer " + source[0]).GET().build()
+                                : HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/transfers/batch"))
+                                        .header("Authorization", "Bearer " + source[0])
+                                        .header("Idempotency-Key", UUID.randomUUID().toString())
+                                        .header("Content-Type", "application/json")
+                                        .POST(HttpRequest.BodyPublishers.ofString("""
+                                                {"sourceAccountId":"%s","items":[{"destinationAccountId":"%s","amount":0.01}]}
+                                                """.formatted(source[1], destinationAccountId)))
+                                        .build();
+                        long start = System.nanoTime();
+                        try {
+                            int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                            if (status == 200) {
+                                latencies.add(System.nanoTime() - start);
+                            } else if (status == 503) {
+                                busy.incrementAndGet();
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            clients.shutdown();
+            assertThat(clients.awaitTermination(DURATION.toSeconds() + 60, TimeUnit.SECONDS)).isTrue();
+
+            Timer permitWait = context.getBean(MeterRegistry.class).get("nlb.bulkhead.wait")
+                    .tag("bulkhead", "transfers").timer();
+            double permitWaitP99 = permitWait.takeSnapshot().percentileValues()[1].value(TimeUnit.MILLISECONDS);
+            List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return new LoadResult(sorted, busy.get(), errors.get(), threads.getPeakThreadCount(), permitWaitP99);
+        }
+    }
+
+    private String[] register(HttpClient http, ObjectMapper objectMapper, String baseUrl) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("""
+                        {"email":"load-%s@example.com","fullName":"Load User"}
+                        """.formatted(UUID.randomUUID())))
+                .build();
+        JsonNode body = objectMapper.readTree(http.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        return new String[]{body.get("token").asText(), body.get("accountId").asText()};
+    }
+
+    private record LoadResult(List<Long> sortedNanos, long busy, long errors, int peakThreads,
+                              double permitWaitP99Millis) {
+
+        long ok() {
+            return sortedNanos.size();
+        }
+
+        double percentileMillis(double percentile) {
+            if (sortedNanos.isEmpty()) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedNanos.size() - 1, Math.ceil(percentile * sortedNanos.size()) - 1);
+            return sortedNanos.get(Math.max(0, index)) / 1e6;
+        }
+    }
+}
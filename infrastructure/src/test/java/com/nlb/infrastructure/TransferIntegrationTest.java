@@ -7,6 +7,7 @@ import com.nlb.dto.transaction.TransferBatchRequest;
 import com.nlb.dto.transaction.TransferBatchItemRequest;
 import com.nlb.domain.Account;
 import com.nlb.repository.AccountRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +45,9 @@ public class TransferIntegrationTest {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private EntityManager entityManager;
+
     private RegisterResponse userA;
     private RegisterResponse userB;
 
@@ -78,8 +82,8 @@ public class TransferIntegrationTest {
                 .andExpect(jsonPath("$.status").value("COMPLETED"))
                 .andExpect(jsonPath("$.message").value("Transfer successful"));
 
-        Account accountA = accountRepository.findById(UUID.fromString(userA.getAccountId())).get();
-        Account accountB = accountRepository.findById(UUID.fromString(userB.getAccountId())).get();
+        Account accountA = reloadAccount(userA.getAccountId());
+        Account accountB = reloadAccount(userB.getAccountId());
 
         assertThat(accountA.getBalanceCents()).isEqualTo(10000L - 2550L);
         assertThat(accountB.getBalanceCents()).isEqualTo(2550L);
@@ -114,7 +118,7 @@ public class TransferIntegrationTest {
                 .andExpect(jsonPath("$.status").value("COMPLETED"))
                 .andExpect(jsonPath("$.message").value("Request already processed"));
 
-        Account accountA = accountRepository.findById(UUID.fromString(userA.getAccountId())).get();
+        Account accountA = reloadAccount(userA.getAccountId());
         assertThat(accountA.getBalanceCents()).isEqualTo(10000L - 1000L);
     }
 
@@ -139,10 +143,17 @@ public class TransferIntegrationTest {
                 .andExpect(jsonPath("$.status").value("FAILED"))
                 .andExpect(jsonPath("$.message").value("Insufficient funds"));
 
-        Account accountA = accountRepository.findById(UUID.fromString(userA.getAccountId())).get();
+        Account accountA = reloadAccount(userA.getAccountId());
         assertThat(accountA.getBalanceCents()).isEqualTo(10000L);
     }
 
+    // Saldo se menja native UPDATE-om mimo persistence context-a; test deli transakciju sa zahtevom,
+    // pa se entitet mora ponovo pročitati iz baze
+    private Account reloadAccount(String accountId) {
+        entityManager.clear();
+        return accountRepository.findById(UUID.fromString(accountId)).get();
+    }
+
     private RegisterResponse registerUser(String email, String fullName) throws Exception {
         var req = new RegisterRequest();
         req.setEmail(email);
@@ -0,0 +1,84 @@
+package com.nlb.infrastructure;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Poredi punjenje append-only tabele sa slučajnim (v4, {@code gen_random_uuid()}) i vremenski
+ * uređenim (v7, {@code nlb_uuid_v7()}) primarnim ključem: redove u sekundi, veličinu PK indeksa,
+ * gustinu listova i generisani WAL. Tabele imaju oblik {@code transactions} bez spoljnih ključeva.
+ * Broj redova se zadaje sa {@code -Dnlb.benchmark.rows} (podrazumevano 5M; za 50M treba ~20 GB diska).
+ * Pokreće se samo eksplicitno: {@code mvn test -pl infrastructure -am -Dtest=UuidInsertBenchmarkTest -Dsurefire.failIfNoSpecifiedTests=false -Dnlb.benchmark=true}
+ */
+@SpringBootTest(classes = NlbPaymentApplication.class)
+@Testcontainers
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "nlb.benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UuidInsertBenchmarkTest {
+
+    private static final long ROWS = Long.getLong("nlb.benchmark.rows", 5_000_000L);
+    private static final long CHUNK = 500_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void compareRandomAndTimeOrderedPrimaryKeys() {
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pgstattuple");
+        System.out.printf("%n%-14s %12s %14s %12s %12s%n", "pk (" + ROWS + " rows)", "rows/s", "index MB",
+                "leaf fill %", "WAL MB");
+        report("uuid v4", "gen_random_uuid()");
+        report("uuid v7", "nlb_uuid_v7()");
+    }
+
+    @AfterAll
+    void dropTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS uuid_bench");
+    }
+
+    private void report(String name, String idExpression) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS uuid_bench");
+        jdbcTemplate.execute("""
+                CREATE TABLE uuid_bench (
+                    id UUID PRIMARY KEY,
+                    account_id UUID NOT NULL,
+                    amount_cents BIGINT NOT NULL,
+                    created_at TIMESTAMPTZ NOT NULL
+                )
+                """);
+        jdbcTemplate.execute("CHECKPOINT");
+        String walBefore = jdbcTemplate.queryForObject("SELECT pg_current_wal_lsn()::text", String.class);
+
+        long start = System.nanoTime();
+        // Redovi idu u delovima (zasebne transakcije), kao da ih upisuje aplikacija tokom vremena
+        for (long inserted = 0; inserted < ROWS; inserted += CHUNK) {
+            jdbcTemplate.update("""
+                    INSERT INTO uuid_bench (id, account_id, amount_cents, created_at)
+                    SELECT %s, gen_random_uuid(), g, clock_timestamp()
+                    FROM generate_series(1, ?) g
+                    """.formatted(idExpression), Math.min(CHUNK, ROWS - inserted));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double walMb = jdbcTemplate.queryForObject(
+                "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), ?::pg_lsn) / 1048576.0", Double.class, walBefore);
+        double indexMb = jdbcTemplate.queryForObject(
+                "SELECT pg_relation_size('uuid_bench_pkey') / 1048576.0", Double.class);
+        // Popunjenost listova: slučajni ključevi cepaju stranice na pola, uređeni ih pune do fillfactor-a (90%)
+        double leafFill = jdbcTemplate.queryForObject(
+                "SELECT avg_leaf_density FROM pgstatindex('uuid_bench_pkey')", Double.class);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM uuid_bench", Long.class)).isEqualTo(ROWS);
+
+        System.out.printf("%-14s %12.0f %14.1f %12.1f %12.1f%n", name, ROWS / (elapsed / 1e9), indexMb, leafFill, walMb);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nlb.infrastructure.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadReplicaRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replicaOneDataSource;
+    @Mock
+    private DataSource replicaTwoDataSource;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaPool replicaOne;
+    private ReplicaPool replicaTwo;
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        replicaOne = new ReplicaPool("replica-1", replicaOneDataSource);
+        replicaTwo = new ReplicaPool("replica-2", replicaTwoDataSource);
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, List.of(replicaOne, replicaTwo), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void getConnection_shouldUsePrimary_outsideReadOnlyTransaction() throws SQLException {
+        replicaOne.markHealthy(0);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaOneDataSource, replicaTwoDataSource);
+        assertThat(routedCount("primary", "write")).isEqualTo(1);
+    }
+
+    @Test
+    void getConnection_shouldRoundRobinHealthyReplicas_inReadOnlyTransaction() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replicaOne.markHealthy(0);
+        replicaTwo.markHealthy(0.5);
+        when(replicaOneDataSource.getConnection()).thenReturn(replicaConnection);
+        when(replicaTwoDataSource.getConnection()).thenReturn(replicaConnection);
+
+        for (int i = 0; i < 4; i++) {
+            routingDataSource.getConnection();
+        }
+
+        verify(replicaOneDataSource, times(2)).getConnection();
+        verify(replicaTwoDataSource, times(2)).getConnection();
+        verifyNoInteractions(primary);
+        assertThat(routedCount("replica-1", "read")).isEqualTo(2);
+    }
+
+    @Test
+    void getConnection_shouldSkipLaggingReplica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replicaOne.markUnhealthy(30);
+        replicaTwo.markHealthy(0);
+        when(replicaTwoDataSource.getConnection()).thenReturn(replicaConnection);
+
+        routingDataSource.getConnection();
+        routingDataSource.getConnection();
+
+        verify(replicaTwoDataSource, times(2)).getConnection();
+        verifyNoInteractions(replicaOneDataSource, primary);
+    }
+
+    @Test
+    void getConnection_shouldFallBackToPrimary_whenReplicaRefusesConnection() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        replicaOne.markHealthy(0);
+        when(replicaOneDataSource.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(routingDataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(replicaOne.isHealthy()).isFalse();
+        assertThat(routedCount("primary", "read-fallback")).isEqualTo(1);
+    }
+
+    @Test
+    void getConnectionWithCredentials_shouldRouteToTheSamePools() throws SQLException {
+        replicaOne.markHealthy(0);
+        when(primary.getConnection("auditor", "secret")).thenReturn(primaryConnection);
+        when(replicaOneDataSource.getConnection("auditor", "secret")).thenReturn(replicaConnection);
+
+        assertThat(routingDataSource.getConnection("auditor", "secret")).isSameAs(primaryConnection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routingDataSource.getConnection("auditor", "secret")).isSameAs(replicaConnection);
+
+        assertThat(routedCount("primary", "write")).isEqualTo(1);
+        assertThat(routedCount("replica-1", "read")).isEqualTo(1);
+    }
+
+    private double routedCount(String pool, String route) {
+        return meterRegistry.get("nlb.datasource.routed.connections").tag("pool", pool).tag("route", route).counter().count();
+    }
+}
@@ -0,0 +1,10 @@
+package com.nlb.exception;
+
+/**
+ * Zahtev je odbijen jer je kapacitet (npr. konekcije baze) trenutno iscrpljen; klijent može ponoviti kasnije.
+ */
+public class ServiceBusyException extends RuntimeException {
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,87 @@
+package com.nlb.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7Test {
+
+    /**
+     * Testira format: verzija 7, RFC varijanta i vreme u prvih 48 bita
+     */
+    @Test
+    void generate_shouldEncodeVersionVariantAndTimestamp() {
+        // Arrange - vreme posle svih ostalih testova, da brojač ne bi nastavio prethodno stanje
+        long millis = 32_503_680_000_000L;
+
+        // Act
+        UUID id = UuidV7.generate(millis);
+
+        // Assert
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isEqualTo(millis);
+    }
+
+    /**
+     * Testira da su id-jevi strogo rastući i u istoj milisekundi i kada sat ode unazad
+     */
+    @Test
+    void generate_shouldBeMonotonic_withinMillisecondAndOnClockRollback() {
+        // Arrange
+        long millis = System.currentTimeMillis() + 60_000;
+
+        // Act
+        UUID first = UuidV7.generate(millis);
+        UUID second = UuidV7.generate(millis);
+        UUID afterRollback = UuidV7.generate(millis - 1_000);
+
+        // Assert
+        assertThat(second).isGreaterThan(first);
+        assertThat(afterRollback).isGreaterThan(second);
+        assertThat(second.toString().compareTo(first.toString())).isPositive();
+    }
+
+    /**
+     * Testira da paralelne niti ne dobijaju isti id i da je redosled po niti rastući
+     */
+    @Test
+    void generate_shouldBeUniqueAndOrderedAcrossThreads() throws Exception {
+        // Arrange
+        int threads = 8;
+        int perThread = 50_000;
+        Set<UUID> all = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // Act
+        List<Future<Boolean>> ordered = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            ordered.add(executor.submit(() -> {
+                UUID previous = UuidV7.generate();
+                boolean increasing = all.add(previous);
+                for (int i = 1; i < perThread; i++) {
+                    UUID next = UuidV7.generate();
+                    increasing &= next.compareTo(previous) > 0 && all.add(next);
+                    previous = next;
+                }
+                return increasing;
+            }));
+        }
+        executor.shutdown();
+
+        // Assert
+        for (Future<Boolean> result : ordered) {
+            assertThat(result.get()).isTrue();
+        }
+        assertThat(all).hasSize(threads * perThread);
+    }
+}
@@ -18,7 +18,7 @@ public class IntegrationFailure {
 
     @Id
     @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id = UuidV7.generate();
 
     @Column(nullable = false, length = 100)
     private String context;
@@ -39,6 +39,22 @@ public class IntegrationFailure {
     @Builder.Default
     private int retryCount = 0;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private IntegrationFailureStatus status = IntegrationFailureStatus.PENDING;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    @Builder.Default
+    private Instant nextAttemptAt = Instant.now();
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    // Idempotency ključ zahteva; najviše jedna nerešena greška po ključu
+    @Column(name = "request_key")
+    private String requestKey;
+
     @CreationTimestamp
     @Column(name = "occurred_at", nullable = false, updatable = false)
     private Instant occurredAt;
@@ -0,0 +1,7 @@
+package com.nlb.domain;
+
+public enum IntegrationFailureStatus {
+    PENDING,
+    RESOLVED,
+    PARKED
+}
@@ -20,7 +20,7 @@ public class PaymentOrder extends BaseEntity{
 
     @Id
     @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id = UuidV7.generate();
 
     @Column(name = "idempotency_key", nullable = false, unique = true, length = 255)
     private String idempotencyKey;
@@ -18,7 +18,7 @@ public class PaymentOrderItem extends BaseEntity{
 
     @Id
     @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id = UuidV7.generate();
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "payment_order_id", nullable = false)
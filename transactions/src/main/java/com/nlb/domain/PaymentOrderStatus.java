@@ -1,6 +1,8 @@
 package com.nlb.domain;
 
 public enum PaymentOrderStatus {
+    // Streaming nalog čije se stavke još primaju; ne izvršava se dok upload ne završi
+    RECEIVING,
     PENDING,
     COMPLETED,
     FAILED
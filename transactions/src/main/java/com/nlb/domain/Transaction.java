@@ -7,8 +7,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "transactions", indexes = {
-        @Index(name = "idx_transaction_source_acc", columnList = "source_account_id"),
-        @Index(name = "idx_transaction_dest_acc", columnList = "destination_account_id"),
+        @Index(name = "idx_transaction_source_acc_created", columnList = "source_account_id, created_at, id"),
+        @Index(name = "idx_transaction_dest_acc_created", columnList = "destination_account_id, created_at, id"),
         @Index(name = "idx_transaction_order_key", columnList = "idempotency_key")
 })
 @Getter
@@ -20,7 +20,7 @@ public class Transaction extends BaseEntity {
 
     @Id
     @Builder.Default
-    private UUID id = UUID.randomUUID();
+    private UUID id = UuidV7.generate();
 
     @Column(name = "source_account_id", nullable = false)
     private UUID sourceAccountId;
@@ -0,0 +1,20 @@
+package com.nlb.exception;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Sistemska greška pri izvršavanju PENDING naloga iz asinhronog reda.
+ * Nosi ID naloga, jer se transakcija u kojoj je nalog preuzet vraća (rollback).
+ */
+@Getter
+public class PendingOrderExecutionException extends RuntimeException {
+
+    private final UUID paymentOrderId;
+
+    public PendingOrderExecutionException(UUID paymentOrderId, Exception cause) {
+        super("System error executing pending payment order " + paymentOrderId, cause);
+        this.paymentOrderId = paymentOrderId;
+    }
+}
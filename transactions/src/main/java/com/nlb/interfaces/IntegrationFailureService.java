@@ -0,0 +1,11 @@
+package com.nlb.interfaces;
+
+import java.util.UUID;
+
+public interface IntegrationFailureService {
+
+    /**
+     * Vraća parkiranu grešku u red za automatsko ponavljanje (odmah dospela, brojač pokušaja od nule).
+     */
+    void releaseParkedFailure(UUID failureId);
+}
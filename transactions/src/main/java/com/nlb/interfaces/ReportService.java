@@ -1,20 +1,34 @@
 package com.nlb.interfaces;
 
 
-import com.nlb.domain.IntegrationFailure;
-import com.nlb.domain.PaymentOrder;
-import com.nlb.domain.Transaction;
-
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.service.models.AccountBalanceAt;
+import com.nlb.service.models.IntegrationFailureCount;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.IntegrationFailurePage;
+import com.nlb.service.models.IntegrationFailureSummary;
+import com.nlb.service.models.PaymentOrderDetails;
+import com.nlb.service.models.PaymentOrderPage;
+import com.nlb.service.models.TransactionPage;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 public interface ReportService {
 
-    List<PaymentOrder> getPaymentOrdersForUser(UUID userId);
+    PaymentOrderPage getPaymentOrdersForUser(UUID userId, PaymentOrderStatus status, Instant from, Instant to, String cursor, int limit);
+
+    PaymentOrderDetails getPaymentOrderDetails(UUID userId, UUID orderId);
+
+    TransactionPage getTransactionsForAccount(UUID userId, UUID accountId, Instant from, Instant to, String cursor, int limit);
+
+    AccountBalanceAt getBalanceAt(UUID userId, UUID accountId, Instant at);
 
-    PaymentOrder getPaymentOrderDetails(UUID userId, UUID orderId);
+    IntegrationFailurePage getIntegrationFailures(IntegrationFailureFilter filter, String cursor, int limit, boolean includePayload);
 
-    List<Transaction> getTransactionsForAccount(UUID userId, UUID accountId);
+    IntegrationFailureSummary getIntegrationFailure(UUID failureId);
 
-    List<IntegrationFailure> getAllIntegrationFailures();
+    List<IntegrationFailureCount> countIntegrationFailures(Instant from, Instant to, Duration bucket);
 }
@@ -0,0 +1,22 @@
+package com.nlb.interfaces;
+
+import com.nlb.service.models.StatementFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.UUID;
+
+public interface StatementExportService {
+
+    /**
+     * Proverava pristup pre nego što se odgovor počne slati (posle toga greška više ne može biti 400).
+     */
+    void verifyAccountAccess(UUID userId, UUID accountId);
+
+    /**
+     * Upisuje sve transakcije računa u opsegu [from, to) hronološki u {@code out} i vraća broj redova.
+     */
+    long exportTransactions(UUID userId, UUID accountId, Instant from, Instant to,
+                            StatementFormat format, OutputStream out) throws IOException;
+}
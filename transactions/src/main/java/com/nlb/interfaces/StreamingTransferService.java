@@ -0,0 +1,19 @@
+package com.nlb.interfaces;
+
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferResponse;
+
+import java.util.Iterator;
+import java.util.UUID;
+
+public interface StreamingTransferService {
+
+    /**
+     * Izvršava batch transfer čije stavke stižu kao tok; stavke se čitaju lenjo i nikad
+     * se ne drže u memoriji sve odjednom.
+     */
+    BatchTransferResponse executeStreamingBatchTransfer(String idempotencyKey,
+                                                        UUID initiatedByUserId,
+                                                        UUID sourceAccountId,
+                                                        Iterator<BatchItem> items);
+}
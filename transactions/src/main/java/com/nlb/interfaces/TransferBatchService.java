@@ -5,4 +5,12 @@ import com.nlb.service.models.BatchTransferResponse;
 
 public interface TransferBatchService {
     BatchTransferResponse executeBatchTransfer(BatchTransferRequest request);
+
+    /**
+     * Da li servis sam uzima dozvolu transfers bulkhead-a tamo gde koristi konekciju; ako ne,
+     * dozvolu uzima pozivalac oko celog poziva.
+     */
+    default boolean usesOwnBulkhead() {
+        return false;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.nlb.repository;
+
+import com.nlb.service.models.IntegrationFailureCount;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.IntegrationFailureSummary;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Upiti konzole grešaka čiji WHERE zavisi od zadatih filtera.
+ */
+public interface IntegrationFailureQueries {
+
+    /**
+     * Jedna strana grešaka (keyset): greške koje odgovaraju filterima i nastale su strogo pre pozicije
+     * {@code (beforeOccurredAt, beforeId)}, od najnovije. {@code filter.to()} se ovde ne primenjuje -
+     * pozivalac ga uračunava u poziciju.
+     */
+    List<IntegrationFailureSummary> findPage(IntegrationFailureFilter filter, Instant beforeOccurredAt, UUID beforeId,
+                                             int limit, boolean includePayload);
+
+    /**
+     * Broj grešaka po kontekstu i intervalu dužine {@code bucket} (poravnatom na epoch) u [{@code from}, {@code to}).
+     */
+    List<IntegrationFailureCount> countByContext(Instant from, Instant to, Duration bucket);
+}
@@ -0,0 +1,87 @@
+package com.nlb.repository;
+
+import com.nlb.service.models.IntegrationFailureCount;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.IntegrationFailureSummary;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Upit se sastavlja samo od zadatih filtera, pa svaka kombinacija ima svoj plan po svom indeksu;
+ * {@code (:context is null or ...)} bi u generičkom planu prepared statement-a izgubio indekse.
+ */
+class IntegrationFailureQueriesImpl implements IntegrationFailureQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<IntegrationFailureSummary> findPage(IntegrationFailureFilter filter, Instant beforeOccurredAt,
+                                                    UUID beforeId, int limit, boolean includePayload) {
+        StringBuilder jpql = new StringBuilder("""
+                select new com.nlb.service.models.IntegrationFailureSummary(f.id, f.context, f.entityName,
+                       f.relatedId, f.message, %s f.retryCount, f.occurredAt)
+                from IntegrationFailure f
+                where (f.occurredAt, f.id) < (:beforeOccurredAt, :beforeId)
+                """.formatted(includePayload ? "f.payload," : ""));
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("beforeOccurredAt", beforeOccurredAt);
+        parameters.put("beforeId", beforeId);
+
+        if (filter.context() != null) {
+            jpql.append(" and f.context = :context");
+            parameters.put("context", filter.context());
+        }
+        if (filter.entityName() != null) {
+            jpql.append(" and f.entityName = :entityName");
+            parameters.put("entityName", filter.entityName());
+        }
+        if (filter.relatedId() != null) {
+            jpql.append(" and f.relatedId = :relatedId");
+            parameters.put("relatedId", filter.relatedId());
+        }
+        if (filter.from() != null) {
+            jpql.append(" and f.occurredAt >= :from");
+            parameters.put("from", filter.from());
+        }
+        jpql.append(" order by f.occurredAt desc, f.id desc");
+
+        TypedQuery<IntegrationFailureSummary> query =
+                entityManager.createQuery(jpql.toString(), IntegrationFailureSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<IntegrationFailureCount> countByContext(Instant from, Instant to, Duration bucket) {
+        long bucketSeconds = bucket.toSeconds();
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                        SELECT f.context,
+                               CAST(floor(extract(epoch FROM f.occurred_at) / :bucketSeconds) AS BIGINT),
+                               COUNT(*)
+                        FROM integration_failures f
+                        WHERE f.occurred_at >= :from AND f.occurred_at < :to
+                        GROUP BY 1, 2
+                        ORDER BY 2, 1
+                        """)
+                .setParameter("bucketSeconds", bucketSeconds)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+        return rows.stream()
+                .map(row -> new IntegrationFailureCount(
+                        (String) row[0],
+                        Instant.ofEpochSecond(((Number) row[1]).longValue() * bucketSeconds),
+                        ((Number) row[2]).longValue()))
+                .toList();
+    }
+}
@@ -7,4 +7,4 @@ import org.springframework.stereotype.Repository;
 import java.util.UUID;
 
 @Repository
-public interface IntegrationFailureRepository extends JpaRepository<IntegrationFailure, UUID> {}
\ No newline at end of file
+public interface IntegrationFailureRepository extends JpaRepository<IntegrationFailure, UUID>, IntegrationFailureQueries {}
@@ -2,10 +2,145 @@ package com.nlb.repository;
 
 import com.nlb.domain.PaymentOrderItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
+/**
+ * Skupovne (set-based) operacije nad stavkama naloga koriste streaming transferi:
+ * stavke su već u bazi, pa se računi, krediti i transakcije obrađuju jednim
+ * SQL-om po koraku, bez učitavanja stavki u memoriju.
+ */
 @Repository
 public interface PaymentOrderItemRepository extends JpaRepository<PaymentOrderItem, UUID> {
-}
\ No newline at end of file
+
+    @Query(value = """
+            SELECT COUNT(*) FROM (
+                SELECT destination_account_id FROM payment_order_items WHERE payment_order_id = :orderId
+                UNION
+                SELECT CAST(:sourceAccountId AS uuid)
+            ) ids
+            """, nativeQuery = true)
+    long countDistinctAccounts(@Param("orderId") UUID orderId, @Param("sourceAccountId") UUID sourceAccountId);
+
+    /**
+     * Zaključava sve račune naloga (FOR UPDATE) u rastućem redosledu ID-jeva i vraća broj pronađenih računa.
+     */
+    @Query(value = """
+            SELECT COUNT(*) FROM (
+                SELECT a.id FROM accounts a
+                WHERE a.id IN (
+                    SELECT destination_account_id FROM payment_order_items WHERE payment_order_id = :orderId
+                    UNION
+                    SELECT CAST(:sourceAccountId AS uuid)
+                )
+                ORDER BY a.id
+                FOR UPDATE
+            ) locked
+            """, nativeQuery = true)
+    long lockOrderAccounts(@Param("orderId") UUID orderId, @Param("sourceAccountId") UUID sourceAccountId);
+
+    @Query(value = """
+            SELECT DISTINCT destination_account_id FROM payment_order_items WHERE payment_order_id = :orderId
+            """, nativeQuery = true)
+    List<UUID> findDestinationAccountIds(@Param("orderId") UUID orderId);
+
+    @Query(value = """
+            SELECT a.id FROM accounts a
+            WHERE a.status <> 'ACTIVE'
+              AND a.id IN (SELECT destination_account_id FROM payment_order_items WHERE payment_order_id = :orderId)
+            LIMIT 1
+            """, nativeQuery = true)
+    Optional<UUID> findFirstInactiveDestination(@Param("orderId") UUID orderId);
+
+    /**
+     * Kreditira sve odredišne račune naloga (zbir po računu). Računi moraju biti zaključani FOR UPDATE,
+     * pa se i sharded računi kreditiraju direktno u glavni saldo.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE accounts a
+            SET balance_cents = a.balance_cents + d.amount_cents, version = COALESCE(a.version, 0) + 1, updated_at = now()
+            FROM (
+                SELECT destination_account_id, SUM(amount_cents) AS amount_cents
+                FROM payment_order_items WHERE payment_order_id = :orderId
+                GROUP BY destination_account_id
+            ) d
+            WHERE a.id = d.destination_account_id AND a.status = 'ACTIVE'
+            """, nativeQuery = true)
+    int creditDestinations(@Param("orderId") UUID orderId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO transactions (id, source_account_id, destination_account_id, amount_cents, currency,
+                                      payment_order_id, payment_order_item_id, idempotency_key, created_at, updated_at)
+            SELECT nlb_uuid_v7(), :sourceAccountId, i.destination_account_id, i.amount_cents, 'EUR',
+                   i.payment_order_id, i.id, :idempotencyKey, now(), now()
+            FROM payment_order_items i
+            WHERE i.payment_order_id = :orderId
+            """, nativeQuery = true)
+    int insertTransactions(@Param("orderId") UUID orderId,
+                           @Param("sourceAccountId") UUID sourceAccountId,
+                           @Param("idempotencyKey") String idempotencyKey);
+
+    @Query(value = """
+            SELECT a.id FROM accounts a
+            WHERE a.balance_slots > 0
+              AND a.id IN (SELECT destination_account_id FROM payment_order_items WHERE payment_order_id = :orderId)
+            """, nativeQuery = true)
+    List<UUID> findShardedDestinations(@Param("orderId") UUID orderId);
+
+    /**
+     * Dvojno knjiženje za sve transakcije naloga (debit izvora i kredit odredišta). Redni brojevi
+     * i salda nastavljaju od poslednjeg knjiženja svakog računa; svi računi su zaključani FOR UPDATE.
+     */
+    @Modifying
+    @Query(value = """
+            WITH legs AS (
+                SELECT t.source_account_id AS account_id, -t.amount_cents AS amount_cents, t.currency,
+                       'TRANSFER_OUT' AS posting_type, t.destination_account_id AS counterparty_account_id,
+                       t.id AS transaction_id, t.payment_order_id, 0 AS leg
+                FROM transactions t WHERE t.idempotency_key = :idempotencyKey
+                UNION ALL
+                SELECT t.destination_account_id, t.amount_cents, t.currency,
+                       'TRANSFER_IN', t.source_account_id,
+                       t.id, t.payment_order_id, 1
+                FROM transactions t WHERE t.idempotency_key = :idempotencyKey
+            ), heads AS (
+                SELECT acc.account_id, h.sequence_no, h.balance_after_cents
+                FROM (SELECT DISTINCT account_id FROM legs) acc
+                LEFT JOIN LATERAL (
+                    SELECT p.sequence_no, p.balance_after_cents FROM ledger_postings p
+                    WHERE p.account_id = acc.account_id AND p.sequence_no IS NOT NULL
+                    ORDER BY p.sequence_no DESC LIMIT 1
+                ) h ON true
+            )
+            INSERT INTO ledger_postings (id, account_id, sequence_no, amount_cents, balance_after_cents, currency,
+                                         posting_type, counterparty_account_id, transaction_id, payment_order_id,
+                                         created_at, updated_at)
+            SELECT nlb_uuid_v7(), legs.account_id,
+                   COALESCE(heads.sequence_no, 0) + ROW_NUMBER() OVER w,
+                   legs.amount_cents,
+                   COALESCE(heads.balance_after_cents, 0) + SUM(legs.amount_cents) OVER w,
+                   legs.currency, legs.posting_type, legs.counterparty_account_id, legs.transaction_id,
+                   legs.payment_order_id, clock_timestamp(), clock_timestamp()
+            FROM legs JOIN heads ON heads.account_id = legs.account_id
+            WINDOW w AS (PARTITION BY legs.account_id ORDER BY legs.transaction_id, legs.leg)
+            """, nativeQuery = true)
+    int insertPostings(@Param("idempotencyKey") String idempotencyKey);
+
+    @Modifying
+    @Query(value = """
+            UPDATE payment_order_items
+            SET status = :status, failure_reason = :failureReason, updated_at = now()
+            WHERE payment_order_id = :orderId
+            """, nativeQuery = true)
+    int updateStatusByOrderId(@Param("orderId") UUID orderId,
+                              @Param("status") String status,
+                              @Param("failureReason") String failureReason);
+}
@@ -1,9 +1,18 @@
 package com.nlb.repository;
 
 import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.service.models.PaymentOrderSummary;
+import jakarta.persistence.Tuple;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -12,8 +21,92 @@ import java.util.UUID;
 public interface PaymentOrderRepository extends JpaRepository<PaymentOrder, UUID> {
     Optional<PaymentOrder> findByIdempotencyKey(String idempotencyKey);
 
-    List<PaymentOrder> findByInitiatedByUserIdOrderByCreatedAtDesc(UUID initiatedByUserId);
+    List<PaymentOrder> findByIdempotencyKeyIn(Collection<String> idempotencyKeys);
 
-    Optional<PaymentOrder> findByIdAndInitiatedByUserId(UUID id, UUID initiatedByUserId);
+    // Keyset čitanje ključeva (index-only scan po unique indeksu) za punjenje idempotency Bloom filtera
+    @Query("select p.idempotencyKey from PaymentOrder p where p.idempotencyKey > :after order by p.idempotencyKey")
+    List<String> findIdempotencyKeysAfter(@Param("after") String after, Limit limit);
 
-}
\ No newline at end of file
+    /**
+     * Jedna strana naloga korisnika (keyset): nalozi kreirani u [{@code from}, {@code to}) i strogo pre
+     * pozicije {@code (beforeCreatedAt, beforeId)}, od najnovijeg. Čita se iz (user, created_at, id) indeksa,
+     * direktno u {@link PaymentOrderSummary}.
+     */
+    @Query("""
+            select new com.nlb.service.models.PaymentOrderSummary(p.id, p.idempotencyKey, p.sourceAccountId,
+                   p.totalAmountCents, p.currency, p.status, p.createdAt, p.updatedAt)
+            from PaymentOrder p
+            where p.initiatedByUserId = :userId and p.createdAt >= :from
+              and (p.createdAt, p.id) < (:beforeCreatedAt, :beforeId)
+            order by p.createdAt desc, p.id desc
+            limit :limit
+            """)
+    List<PaymentOrderSummary> findPageByUserId(@Param("userId") UUID userId,
+                                               @Param("from") Instant from,
+                                               @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                               @Param("beforeId") UUID beforeId,
+                                               @Param("limit") int limit);
+
+    /**
+     * Isto kao {@link #findPageByUserId}, samo za jedan status - iz (user, status, created_at, id) indeksa.
+     */
+    @Query("""
+            select new com.nlb.service.models.PaymentOrderSummary(p.id, p.idempotencyKey, p.sourceAccountId,
+                   p.totalAmountCents, p.currency, p.status, p.createdAt, p.updatedAt)
+            from PaymentOrder p
+            where p.initiatedByUserId = :userId and p.status = :status and p.createdAt >= :from
+              and (p.createdAt, p.id) < (:beforeCreatedAt, :beforeId)
+            order by p.createdAt desc, p.id desc
+            limit :limit
+            """)
+    List<PaymentOrderSummary> findPageByUserIdAndStatus(@Param("userId") UUID userId,
+                                                        @Param("status") PaymentOrderStatus status,
+                                                        @Param("from") Instant from,
+                                                        @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                                        @Param("beforeId") UUID beforeId,
+                                                        @Param("limit") int limit);
+
+    /**
+     * Nalog zajedno sa stavkama u jednom upitu (left join), red po stavci; nalog bez stavki daje jedan
+     * red sa praznim kolonama stavke. Čitaju se samo prikazane kolone, bez entiteta.
+     */
+    @Query("""
+            select o.id as id, o.idempotencyKey as idempotencyKey, o.sourceAccountId as sourceAccountId,
+                   o.totalAmountCents as totalAmountCents, o.currency as currency, o.status as status,
+                   o.createdAt as createdAt, o.updatedAt as updatedAt,
+                   i.id as itemId, i.destinationAccountId as destinationAccountId, i.amountCents as amountCents,
+                   i.status as itemStatus, i.failureReason as failureReason
+            from PaymentOrder o left join o.items i
+            where o.id = :orderId and o.initiatedByUserId = :userId
+            order by i.createdAt, i.id
+            """)
+    List<Tuple> findDetailsRows(@Param("orderId") UUID orderId, @Param("userId") UUID userId);
+
+    /**
+     * Preuzima najstariji PENDING nalog; SKIP LOCKED preskače naloge koje
+     * drugi worker već izvršava, pa se worker-i međusobno ne čekaju.
+     */
+    @Query(value = """
+            SELECT * FROM payment_orders
+            WHERE status = 'PENDING'
+            ORDER BY created_at
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<PaymentOrder> claimNextPending();
+
+    /**
+     * Najstariji nalozi u datom statusu kreirani pre {@code before} - iz parcijalnog indeksa po statusu.
+     */
+    List<PaymentOrder> findByStatusAndCreatedAtBeforeOrderByCreatedAt(PaymentOrderStatus status, Instant before, Limit limit);
+
+    /**
+     * Briše streaming nalog čiji upload nije završen, zajedno sa već upisanim stavkama.
+     */
+    @Modifying
+    @Query(value = """
+            WITH items AS (DELETE FROM payment_order_items WHERE payment_order_id = :orderId)
+            DELETE FROM payment_orders WHERE id = :orderId AND status = 'RECEIVING'
+            """, nativeQuery = true)
+    int deleteReceivingOrder(@Param("orderId") UUID orderId);
+}
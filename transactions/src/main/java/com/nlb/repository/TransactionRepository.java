@@ -1,17 +1,40 @@
 package com.nlb.repository;
 
 import com.nlb.domain.Transaction;
+import com.nlb.service.models.TransactionSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
-    @Query("SELECT t FROM Transaction t WHERE t.sourceAccountId = :accountId OR t.destinationAccountId = :accountId ORDER BY t.createdAt DESC")
-    List<Transaction> findByAccountId(@Param("accountId") UUID accountId);
 
-}
\ No newline at end of file
+    /**
+     * Jedna strana izvoda računa (keyset): transferi računa noviji od {@code from} i strogo pre pozicije
+     * {@code (beforeCreatedAt, beforeId)}, od najnovijeg. Čita se iz knjiženja računa - jedan range scan po
+     * (account_id, created_at, transaction_id) sa LIMIT-om, pa cena ne zavisi od toga koliko duboko klijent lista.
+     * Prenos na isti račun ima dva knjiženja, pa se njegov kredit preskače.
+     */
+    @Query("""
+            select new com.nlb.service.models.TransactionSummary(p.transactionId,
+                    case when p.postingType = com.nlb.domain.PostingType.TRANSFER_OUT then p.accountId else p.counterpartyAccountId end,
+                    case when p.postingType = com.nlb.domain.PostingType.TRANSFER_OUT then p.counterpartyAccountId else p.accountId end,
+                    abs(p.amountCents), p.currency, p.createdAt, p.paymentOrderId)
+            from LedgerPosting p
+            where p.accountId = :accountId and p.transactionId is not null and p.createdAt >= :from
+              and (p.createdAt, p.transactionId) < (:beforeCreatedAt, :beforeId)
+              and not (p.postingType = com.nlb.domain.PostingType.TRANSFER_IN and p.counterpartyAccountId = p.accountId)
+            order by p.createdAt desc, p.transactionId desc
+            limit :limit
+            """)
+    List<TransactionSummary> findPageByAccountId(@Param("accountId") UUID accountId,
+                                                 @Param("from") Instant from,
+                                                 @Param("beforeCreatedAt") Instant beforeCreatedAt,
+                                                 @Param("beforeId") UUID beforeId,
+                                                 @Param("limit") int limit);
+}
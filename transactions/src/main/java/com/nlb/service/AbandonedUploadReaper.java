@@ -0,0 +1,116 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.service.models.DeadLetter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Briše streaming naloge koji su ostali RECEIVING duže od {@code abandoned-after} (pad instance
+ * usred upload-a ili neuspelo brisanje posle greške), zajedno sa upisanim stavkama, i upisuje ih
+ * kao grešku integracije. Ključ time ne ostaje zauvek u statusu RECEIVING, pa klijent može da ponovi
+ * zahtev. {@code abandoned-after} mora biti duže od najdužeg upload-a; brisanje važi samo dok je
+ * nalog RECEIVING, pa nalog koji je u međuvremenu primenjen ostaje.
+ */
+@Service
+@ConditionalOnProperty(name = "nlb.transfers.stream.reaper.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class AbandonedUploadReaper {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final PaymentOrderRepository paymentOrderRepo;
+    private final DeadLetterWriter deadLetterWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+    private final Duration abandonedAfter;
+    private Thread worker;
+    private volatile boolean running;
+
+    public AbandonedUploadReaper(
+            PaymentOrderRepository paymentOrderRepo,
+            DeadLetterWriter deadLetterWriter,
+            PlatformTransactionManager transactionManager,
+            @Value("${nlb.transfers.stream.reaper.interval:5m}") Duration interval,
+            @Value("${nlb.transfers.stream.abandoned-after:1h}") Duration abandonedAfter
+    ) {
+        this.paymentOrderRepo = paymentOrderRepo;
+        this.deadLetterWriter = deadLetterWriter;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+        this.abandonedAfter = abandonedAfter;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::workLoop, "abandoned-upload-reaper");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Abandoned upload reaper enabled: interval={}, abandonedAfter={}", interval, abandonedAfter);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                int reaped = reap(Instant.now());
+                if (reaped > 0) {
+                    log.warn("Removed {} abandoned streaming order(s)", reaped);
+                }
+            } catch (Exception e) {
+                // npr. baza nedostupna - pokušava se ponovo u sledećem ciklusu
+                log.error("Abandoned upload reaper failed: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Briše napuštene naloge u batch-evima; vraća broj obrisanih. Svaki nalog ide u zasebnoj transakciji.
+     */
+    int reap(Instant now) {
+        Instant before = now.minus(abandonedAfter);
+        int reaped = 0;
+        List<PaymentOrder> abandoned;
+        do {
+            abandoned = paymentOrderRepo.findByStatusAndCreatedAtBeforeOrderByCreatedAt(
+                    PaymentOrderStatus.RECEIVING, before, Limit.of(BATCH_SIZE));
+            for (PaymentOrder order : abandoned) {
+                Integer deleted = transactionTemplate.execute(status -> paymentOrderRepo.deleteReceivingOrder(order.getId()));
+                if (deleted != null && deleted > 0) {
+                    deadLetterWriter.submit(new DeadLetter(DefaultStreamingTransferService.DLQ_CONTEXT,
+                            DefaultStreamingTransferService.DLQ_ENTITY_NAME_ORDER, order.getId(),
+                            "Streaming upload abandoned", null, now, order.getIdempotencyKey()));
+                    reaped++;
+                }
+            }
+        } while (abandoned.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        return reaped;
+    }
+}
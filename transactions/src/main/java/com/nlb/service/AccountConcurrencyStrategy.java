@@ -0,0 +1,134 @@
+package com.nlb.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bira način promene salda po računu.
+ * <ul>
+ *     <li>PESSIMISTIC - uslovni UPDATE koji čeka na tuđi row lock (dosadašnje ponašanje).</li>
+ *     <li>OPTIMISTIC - čitanje bez lock-a, pa UPDATE uz proveru verzije koji nikad ne čeka;
+ *     konflikt se ponavlja uz jittered backoff, a poslednji pokušaj je uvek pesimistički.</li>
+ *     <li>ADAPTIVE - optimistički za "hladne" račune, pesimistički za račune čija stopa
+ *     konflikata pređe prag. Stopa vremenom opada, pa račun koji se ohladi opet ide optimistički.</li>
+ * </ul>
+ */
+@Component
+@Slf4j
+public class AccountConcurrencyStrategy {
+
+    public enum Mode { PESSIMISTIC, OPTIMISTIC, ADAPTIVE }
+
+    // Težina novog ishoda u klizećoj stopi konflikata (EWMA)
+    private static final double ALPHA = 0.2;
+
+    private final Mode mode;
+    private final int maxAttempts;
+    private final long baseBackoffNanos;
+    private final long maxBackoffNanos;
+    private final double conflictThreshold;
+    private final long halfLifeNanos;
+    private final int trackedAccounts;
+    private final Map<UUID, ConflictRate> conflictRates;
+
+    public AccountConcurrencyStrategy(
+            @Value("${nlb.transfers.concurrency.mode:PESSIMISTIC}") Mode mode,
+            @Value("${nlb.transfers.concurrency.optimistic.max-attempts:3}") int maxAttempts,
+            @Value("${nlb.transfers.concurrency.optimistic.backoff:2ms}") Duration baseBackoff,
+            @Value("${nlb.transfers.concurrency.optimistic.max-backoff:20ms}") Duration maxBackoff,
+            @Value("${nlb.transfers.concurrency.adaptive.conflict-threshold:0.2}") double conflictThreshold,
+            @Value("${nlb.transfers.concurrency.adaptive.half-life:30s}") Duration halfLife,
+            @Value("${nlb.transfers.concurrency.adaptive.tracked-accounts:10000}") int trackedAccounts
+    ) {
+        this.mode = mode;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseBackoffNanos = baseBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.conflictThreshold = conflictThreshold;
+        this.halfLifeNanos = halfLife.toNanos();
+        this.trackedAccounts = trackedAccounts;
+        this.conflictRates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, ConflictRate> eldest) {
+                return size() > AccountConcurrencyStrategy.this.trackedAccounts;
+            }
+        };
+        log.info("Transfer concurrency mode: {}", mode);
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Da li se promena salda ovog računa u datom pokušaju radi optimistički.
+     * Poslednji pokušaj je uvek pesimistički, pa nalog uvek napreduje.
+     */
+    public boolean useOptimistic(UUID accountId, int attempt) {
+        if (attempt >= maxAttempts) {
+            return false;
+        }
+        return switch (mode) {
+            case PESSIMISTIC -> false;
+            case OPTIMISTIC -> true;
+            case ADAPTIVE -> conflictRate(accountId) < conflictThreshold;
+        };
+    }
+
+    public void recordOptimisticOutcome(UUID accountId, boolean conflict) {
+        if (mode != Mode.ADAPTIVE) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (conflictRates) {
+            ConflictRate current = conflictRates.get(accountId);
+            double decayed = current == null ? 0.0 : current.decayedAt(now, halfLifeNanos);
+            double updated = decayed * (1 - ALPHA) + (conflict ? ALPHA : 0.0);
+            if (updated < 0.001 && !conflict) {
+                conflictRates.remove(accountId);
+            } else {
+                conflictRates.put(accountId, new ConflictRate(updated, now));
+            }
+        }
+    }
+
+    double conflictRate(UUID accountId) {
+        synchronized (conflictRates) {
+            ConflictRate current = conflictRates.get(accountId);
+            return current == null ? 0.0 : current.decayedAt(System.nanoTime(), halfLifeNanos);
+        }
+    }
+
+    /**
+     * "Full jitter" backoff: nasumična pauza između 0 i base * 2^(attempt-1), ograničeno na max-backoff.
+     * Poziva se tek kada je neuspeli pokušaj vraćen do savepoint-a, pa pauza ne drži row lock-ove računa.
+     */
+    public void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, baseBackoffNanos << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        long pauseNanos = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(Duration.ofNanos(pauseNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record ConflictRate(double rate, long updatedAtNanos) {
+        double decayedAt(long nowNanos, long halfLifeNanos) {
+            if (halfLifeNanos <= 0) {
+                return rate;
+            }
+            return rate * Math.pow(0.5, (double) (nowNanos - updatedAtNanos) / halfLifeNanos);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.nlb.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adaptivni limit broja istovremenih zahteva (gradijentni algoritam, po uzoru na Netflix Gradient2).
+ * <p>
+ * Latencija se skuplja po prozorima (najmanje {@code window} i 10 zahteva). Prosek prozora
+ * ({@code shortRtt}) se poredi sa dugim prosekom preko poslednjih ~600 prozora ({@code longRtt}), koji
+ * predstavlja latenciju bez opterećenja. Dok je prosek prozora u okviru {@code tolerance} × dugi prosek,
+ * limit raste za {@code sqrt(limit)} (dozvoljeni red); kada latencija raste - npr. Postgres uspori
+ * ili se produže redovi na lock-ovima - limit se smanjuje proporcionalno odnosu latencija, najviše
+ * na pola po prozoru. Zahtevi preko limita se odmah odbijaju, pa oni koji prođu zadržavaju nisku
+ * latenciju, a protok ostaje blizu maksimuma umesto da se sruši.
+ * Prozor u kome je bilo odbijanja nizvodno (npr. pun {@link DbBulkhead}) smanjuje limit za 10%.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int LONG_WINDOW = 600;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Counter rejected;
+    private volatile double limit;
+    private double longRtt;
+    private long windowStart = System.nanoTime();
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInflight;
+    private boolean windowDropped;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      double tolerance, double smoothing, Duration window,
+                                      MeterRegistry meterRegistry) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = window.toNanos();
+        this.limit = initialLimit;
+
+        Gauge.builder("nlb.limiter.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("limiter", name)
+                .register(meterRegistry);
+        Gauge.builder("nlb.limiter.inflight", inflight, AtomicInteger::get)
+                .description("Requests currently admitted by the limiter")
+                .tag("limiter", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("nlb.limiter.rejected")
+                .description("Requests rejected because the concurrency limit was reached")
+                .tag("limiter", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Dozvola za jedan zahtev ili {@code null} kada je limit dostignut.
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inflight.get();
+            if (current >= (int) limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return new Permit(System.nanoTime(), current + 1);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    int getInflight() {
+        return inflight.get();
+    }
+
+    /**
+     * Završen zahtev: vraća dozvolu, a na kraju prozora koriguje limit prema izmerenoj latenciji.
+     * {@code dropped} znači da je zahtev odbijen nizvodno zbog preopterećenja.
+     */
+    synchronized void complete(Permit permit, long rttNanos, boolean dropped) {
+        inflight.decrementAndGet();
+        if (dropped) {
+            windowDropped = true;
+        } else {
+            windowRttSum += rttNanos;
+            windowSamples++;
+        }
+        windowMaxInflight = Math.max(windowMaxInflight, permit.inflight);
+
+        long now = System.nanoTime();
+        if (now - windowStart < windowNanos || (windowSamples < MIN_WINDOW_SAMPLES && !windowDropped)) {
+            return;
+        }
+        double shortRtt = windowSamples > 0 ? (double) windowRttSum / windowSamples : 0;
+        int maxInflight = windowMaxInflight;
+        boolean backOff = windowDropped;
+        windowStart = now;
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInflight = 0;
+        windowDropped = false;
+
+        if (backOff) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+        longRtt = longRtt == 0 ? shortRtt : longRtt + (shortRtt - longRtt) * 2 / (LONG_WINDOW + 1);
+        // Posle dužeg preopterećenja dugi prosek se brže vraća ka trenutnoj latenciji
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // Limit se ne povećava dok nije bar napola iskorišćen
+        if (maxInflight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / shortRtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public final class Permit {
+
+        private final long startNanos;
+        private final int inflight;
+
+        private Permit(long startNanos, int inflight) {
+            this.startNanos = startNanos;
+            this.inflight = inflight;
+        }
+
+        public void release(boolean dropped) {
+            complete(this, System.nanoTime() - startNanos, dropped);
+        }
+
+        /**
+         * Vraća dozvolu bez merenja (npr. asinhroni odgovor čija latencija nije uporediva).
+         */
+        public void ignore() {
+            AdaptiveConcurrencyLimiter.this.inflight.decrementAndGet();
+        }
+    }
+}
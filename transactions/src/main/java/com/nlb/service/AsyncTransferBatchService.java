@@ -0,0 +1,111 @@
+package com.nlb.service;
+
+import com.nlb.exception.PendingOrderExecutionException;
+import com.nlb.interfaces.TransferBatchService;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Asinhroni režim transfera.
+ * <p>
+ * HTTP zahtev samo sačuva nalog kao PENDING i odmah dobija 202 Accepted. Ograničen broj
+ * worker niti preuzima PENDING naloge preko FOR UPDATE SKIP LOCKED i izvršava ih, a klijent
+ * status prati preko /api/v1/reports/orders/{id}. Čekanje na zaključane račune više ne drži
+ * Tomcat niti, a veliki payroll nalozi se "upijaju" kroz red.
+ * <p>
+ * Uključuje se sa {@code nlb.transfers.mode=async}; jedan režim isključuje drugi (group commit).
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "nlb.transfers.mode", havingValue = "async")
+@Slf4j
+public class AsyncTransferBatchService implements TransferBatchService {
+
+    private final DefaultTransferBatchService delegate;
+    private final int workerCount;
+    private final Duration pollInterval;
+    private final boolean virtualThreads;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public AsyncTransferBatchService(
+            DefaultTransferBatchService delegate,
+            @Value("${nlb.transfers.async.workers:4}") int workerCount,
+            @Value("${nlb.transfers.async.poll-interval:200ms}") Duration pollInterval,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.delegate = delegate;
+        this.workerCount = workerCount;
+        this.pollInterval = pollInterval;
+        this.virtualThreads = virtualThreads;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        // Virtuelne niti: čekanje na bazu ne drži platformsku nit
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(threads.name("transfer-async-worker-" + i).start(this::workLoop));
+        }
+        log.info("Async transfers enabled: workers={}, pollInterval={}, virtualThreads={}", workerCount, pollInterval, virtualThreads);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    @Override
+    public BatchTransferResponse executeBatchTransfer(BatchTransferRequest request) {
+        return delegate.submitBatchTransfer(request);
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                if (!processNext()) {
+                    Thread.sleep(pollInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // npr. baza nedostupna - sačekaj pre sledećeg pokušaja
+                log.error("Async transfer worker failed to poll pending orders: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Izvršava jedan PENDING nalog; {@code false} ako red nema naloga na čekanju.
+     */
+    boolean processNext() {
+        try {
+            Optional<BatchTransferResponse> response = delegate.processNextPendingOrder();
+            return response.isPresent();
+        } catch (PendingOrderExecutionException e) {
+            delegate.failPendingOrder(e.getPaymentOrderId(), (Exception) e.getCause());
+            return true;
+        }
+    }
+}
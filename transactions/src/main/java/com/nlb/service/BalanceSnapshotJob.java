@@ -0,0 +1,158 @@
+package com.nlb.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Dnevni snimci salda ({@code account_balance_snapshots}).
+ * <p>
+ * Pozadinska nit zatvara svaki završen UTC dan inkrementalno: saldo na kraju dana = poslednji
+ * raniji snimak računa + zbir knjiženja tog dana. Snimci postoje samo za dane sa prometom, a dan
+ * se zatvara tek {@code lag} posle ponoći da bi transakcije koje su u toku stigle da se commit-uju.
+ * Poslednji zatvoren dan se čuva u {@code balance_snapshot_progress}, pa se dani bez prometa ne skeniraju ponovo.
+ * <p>
+ * Knjiženje može da se commit-uje i posle zatvaranja svog dana (transakcija duža od {@code lag},
+ * razlika u satu), pa svaki ciklus ponovo zatvara poslednjih {@code reclose-days} zatvorenih dana,
+ * redom, da bi se ispravka prenela i na kasnije snimke. Zatvaranje je idempotentno (upsert),
+ * pa više instanci aplikacije ne smeta.
+ */
+@Service
+@ConditionalOnProperty(name = "nlb.reports.snapshots.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class BalanceSnapshotJob {
+
+    private static final String CLOSE_DAY_SQL = """
+            INSERT INTO account_balance_snapshots (account_id, snapshot_date, balance_cents, created_at)
+            SELECT d.account_id, ?, COALESCE(prev.balance_cents, 0) + d.net_cents, now()
+            FROM (
+                SELECT p.account_id, SUM(p.amount_cents) AS net_cents
+                FROM ledger_postings p
+                WHERE p.created_at >= ? AND p.created_at < ?
+                GROUP BY p.account_id
+            ) d
+            LEFT JOIN LATERAL (
+                SELECT s.balance_cents FROM account_balance_snapshots s
+                WHERE s.account_id = d.account_id AND s.snapshot_date < ?
+                ORDER BY s.snapshot_date DESC LIMIT 1
+            ) prev ON true
+            ON CONFLICT (account_id, snapshot_date) DO UPDATE SET balance_cents = EXCLUDED.balance_cents
+            """;
+
+    private static final String ADVANCE_PROGRESS_SQL = """
+            INSERT INTO balance_snapshot_progress (id, closed_through) VALUES (1, ?)
+            ON CONFLICT (id) DO UPDATE
+            SET closed_through = GREATEST(balance_snapshot_progress.closed_through, EXCLUDED.closed_through)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+    private final Duration lag;
+    private final int recloseDays;
+    private Thread worker;
+    private volatile boolean running;
+
+    public BalanceSnapshotJob(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${nlb.reports.snapshots.interval:15m}") Duration interval,
+            @Value("${nlb.reports.snapshots.lag:10m}") Duration lag,
+            @Value("${nlb.reports.snapshots.reclose-days:2}") int recloseDays
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+        this.lag = lag;
+        this.recloseDays = recloseDays;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::workLoop, "balance-snapshot-job");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Balance snapshots enabled: interval={}, lag={}, recloseDays={}", interval, lag, recloseDays);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                int closed = closeCompletedDays(Instant.now());
+                if (closed > 0) {
+                    log.info("Closed {} day(s) of balance snapshots", closed);
+                }
+            } catch (Exception e) {
+                // npr. baza nedostupna - pokušava se ponovo u sledećem ciklusu
+                log.error("Balance snapshot job failed: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ponovo zatvara poslednjih {@code recloseDays} zatvorenih dana i zatvara sve dane posle njih koji su
+     * se završili najmanje {@code lag} pre {@code now}; vraća broj novozatvorenih dana. Svaki dan ide
+     * u zasebnoj transakciji.
+     */
+    int closeCompletedDays(Instant now) {
+        LocalDate lastClosable = now.minus(lag).atOffset(ZoneOffset.UTC).toLocalDate().minusDays(1);
+        LocalDate closedThrough = jdbcTemplate.queryForObject(
+                "SELECT MAX(closed_through) FROM balance_snapshot_progress", LocalDate.class);
+        LocalDate day;
+        if (closedThrough != null) {
+            day = closedThrough.minusDays(recloseDays - 1L);
+        } else {
+            OffsetDateTime firstPosting = jdbcTemplate.queryForObject(
+                    "SELECT MIN(created_at) FROM ledger_postings", OffsetDateTime.class);
+            if (firstPosting == null) {
+                return 0;
+            }
+            day = firstPosting.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+        }
+
+        int closed = 0;
+        for (; !day.isAfter(lastClosable) && !Thread.currentThread().isInterrupted(); day = day.plusDays(1)) {
+            closeDay(day);
+            if (closedThrough == null || day.isAfter(closedThrough)) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    private void closeDay(LocalDate day) {
+        OffsetDateTime dayStart = day.atStartOfDay().atOffset(ZoneOffset.UTC);
+        OffsetDateTime dayEnd = dayStart.plusDays(1);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(CLOSE_DAY_SQL, day, dayStart, dayEnd, day);
+            jdbcTemplate.update(ADVANCE_PROGRESS_SQL, day);
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrderItem;
+import com.nlb.domain.Transaction;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Masovni upis ledger redova ({@code transactions}) i stavki naloga ({@code payment_order_items})
+ * mimo Hibernate-a, na konekciji tekuće transakcije.
+ * <p>
+ * Batch veći od {@code copy-threshold} ide preko binarnog COPY protokola (jedan tok, bez
+ * parsiranja SQL-a po redu); manji batch ide kao višeredni INSERT sa najviše
+ * {@code insert-batch-size} redova po naredbi. Upisani redovi se NE dodaju u persistence
+ * context - pozivalac ih posle menja samo skupovnim UPDATE-ima.
+ */
+@Component
+@Slf4j
+public class BulkLedgerWriter {
+
+    private static final String TRANSACTION_COLUMNS = "id, source_account_id, destination_account_id, amount_cents, currency, "
+            + "payment_order_id, payment_order_item_id, idempotency_key, created_at, updated_at";
+    private static final int TRANSACTION_FIELDS = 10;
+
+    private static final String ITEM_COLUMNS = "id, payment_order_id, destination_account_id, amount_cents, status, "
+            + "order_key, failure_reason, created_at, updated_at";
+    private static final int ITEM_FIELDS = 9;
+
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int copyThreshold;
+    private final int insertBatchSize;
+
+    public BulkLedgerWriter(
+            JdbcTemplate jdbcTemplate,
+            @Value("${nlb.persistence.bulk.copy-threshold:500}") int copyThreshold,
+            @Value("${nlb.persistence.bulk.insert-batch-size:500}") int insertBatchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.copyThreshold = copyThreshold;
+        this.insertBatchSize = insertBatchSize;
+    }
+
+    public void writeTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (transactions.size() >= copyThreshold) {
+            copy("transactions", TRANSACTION_COLUMNS, transactions, (encoder, t) -> {
+                encoder.startRow(TRANSACTION_FIELDS);
+                encoder.writeUuid(t.getId());
+                encoder.writeUuid(t.getSourceAccountId());
+                encoder.writeUuid(t.getDestinationAccountId());
+                encoder.writeLong(t.getAmountCents());
+                encoder.writeText(t.getCurrency().name());
+                encoder.writeUuid(t.getPaymentOrderId());
+                encoder.writeUuid(t.getPaymentOrderItemId());
+                encoder.writeText(t.getIdempotencyKey());
+                encoder.writeTimestamp(now);
+                encoder.writeTimestamp(now);
+            });
+        } else {
+            OffsetDateTime timestamp = now.atOffset(ZoneOffset.UTC);
+            insert("transactions", TRANSACTION_COLUMNS, TRANSACTION_FIELDS, transactions, (args, t) -> {
+                args.add(t.getId());
+                args.add(t.getSourceAccountId());
+                args.add(t.getDestinationAccountId());
+                args.add(t.getAmountCents());
+                args.add(t.getCurrency().name());
+                args.add(t.getPaymentOrderId());
+                args.add(t.getPaymentOrderItemId());
+                args.add(t.getIdempotencyKey());
+                args.add(timestamp);
+                args.add(timestamp);
+            });
+        }
+    }
+
+    /**
+     * Nalog stavki mora već biti upisan (flush), zbog FK na payment_orders.
+     */
+    public void writeItems(List<PaymentOrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        if (items.size() >= copyThreshold) {
+            copy("payment_order_items", ITEM_COLUMNS, items, (encoder, item) -> {
+                encoder.startRow(ITEM_FIELDS);
+                encoder.writeUuid(item.getId());
+                encoder.writeUuid(item.getPaymentOrder().getId());
+                encoder.writeUuid(item.getDestinationAccountId());
+                encoder.writeLong(item.getAmountCents());
+                encoder.writeText(item.getStatus().name());
+                encoder.writeText(item.getOrderKey());
+                encoder.writeText(item.getFailureReason());
+                encoder.writeTimestamp(now);
+                encoder.writeTimestamp(now);
+            });
+        } else {
+            OffsetDateTime timestamp = now.atOffset(ZoneOffset.UTC);
+            insert("payment_order_items", ITEM_COLUMNS, ITEM_FIELDS, items, (args, item) -> {
+                args.add(item.getId());
+                args.add(item.getPaymentOrder().getId());
+                args.add(item.getDestinationAccountId());
+                args.add(item.getAmountCents());
+                args.add(item.getStatus().name());
+                args.add(item.getOrderKey());
+                args.add(item.getFailureReason());
+                args.add(timestamp);
+                args.add(timestamp);
+            });
+        }
+    }
+
+    private <T> void copy(String table, String columns, List<T> rows, RowEncoder<T> rowEncoder) {
+        String sql = "COPY " + table + " (" + columns + ") FROM STDIN (FORMAT BINARY)";
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            PGCopyOutputStream copyOut = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql, COPY_BUFFER_BYTES);
+            try {
+                PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(copyOut);
+                encoder.writeHeader();
+                for (T row : rows) {
+                    rowEncoder.encode(encoder, row);
+                }
+                encoder.writeTrailer();
+                return copyOut.endCopy();
+            } catch (IOException e) {
+                if (copyOut.isActive()) {
+                    copyOut.cancelCopy();
+                }
+                throw new SQLException("COPY into " + table + " failed", e);
+            }
+        });
+        log.debug("COPY wrote {} rows into {}", copied, table);
+    }
+
+    private <T> void insert(String table, String columns, int fieldCount, List<T> rows, RowBinder<T> rowBinder) {
+        String rowPlaceholder = "(" + String.join(", ", Collections.nCopies(fieldCount, "?")) + ")";
+        for (int from = 0; from < rows.size(); from += insertBatchSize) {
+            List<T> chunk = rows.subList(from, Math.min(from + insertBatchSize, rows.size()));
+            String sql = "INSERT INTO " + table + " (" + columns + ") VALUES "
+                    + String.join(", ", Collections.nCopies(chunk.size(), rowPlaceholder));
+
+            List<Object> args = new ArrayList<>(chunk.size() * fieldCount);
+            for (T row : chunk) {
+                rowBinder.bind(args, row);
+            }
+            jdbcTemplate.update(sql, args.toArray());
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowEncoder<T> {
+        void encode(PgBinaryCopyEncoder encoder, T row) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(List<Object> args, T row);
+    }
+}
@@ -0,0 +1,129 @@
+package com.nlb.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.interfaces.ReportService;
+import com.nlb.service.models.AccountBalanceAt;
+import com.nlb.service.models.IntegrationFailureCount;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.IntegrationFailurePage;
+import com.nlb.service.models.IntegrationFailureSummary;
+import com.nlb.service.models.PaymentOrderDetails;
+import com.nlb.service.models.PaymentOrderPage;
+import com.nlb.service.models.PaymentOrderChangedEvent;
+import com.nlb.service.models.TransactionPage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keš strana liste naloga i detalja naloga ispred {@link DefaultReportService}, koje dashboard traži
+ * pri svakom osvežavanju. Unosi korisnika i naloga iz {@link PaymentOrderChangedEvent} se brišu
+ * posle commit-a; TTL ograničava zastarelost kada nalog izmeni druga instanca ili kada je keš
+ * napunjen sa replike koja kasni. Izvodi, saldo u trenutku i konzola grešaka idu direktno na delegata.
+ * <p>
+ * Strane se keširaju po upitu (filteri, kursor, veličina), pa se ne mogu obrisati pojedinačno.
+ * Umesto toga svaki korisnik ima generaciju koja je deo ključa: događaj korisniku dodeljuje novu
+ * generaciju, a stare strane više niko ne traži i ispadaju po veličini ili TTL-u. Strana koja se
+ * čitala pre commit-a se upisuje pod staru generaciju, pa ne može da sakrije izmenu.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "nlb.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingReportService implements ReportService {
+
+    private final DefaultReportService delegate;
+    private final Cache<OrderPageKey, PaymentOrderPage> orderPages;
+    private final Cache<OrderKey, PaymentOrderDetails> orderDetails;
+    private final Cache<UUID, Long> userGenerations;
+    private final AtomicLong nextGeneration = new AtomicLong();
+
+    public CachingReportService(
+            DefaultReportService delegate,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.cache.max-size:10000}") long maxSize,
+            @Value("${nlb.cache.ttl:30s}") Duration ttl
+    ) {
+        this.delegate = delegate;
+        this.orderPages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.orderDetails = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        // generacija koja ispadne se zamenjuje novom, pa izbacivanje nikad ne vraća staru
+        this.userGenerations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(ttl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, orderPages, "payment-order-pages");
+        CaffeineCacheMetrics.monitor(meterRegistry, orderDetails, "payment-order-details");
+    }
+
+    @Override
+    public PaymentOrderPage getPaymentOrdersForUser(UUID userId, PaymentOrderStatus status, Instant from, Instant to,
+                                                    String cursor, int limit) {
+        long generation = userGenerations.get(userId, id -> nextGeneration.incrementAndGet());
+        return orderPages.get(new OrderPageKey(userId, generation, status, from, to, cursor, limit),
+                key -> delegate.getPaymentOrdersForUser(userId, status, from, to, cursor, limit));
+    }
+
+    @Override
+    public PaymentOrderDetails getPaymentOrderDetails(UUID userId, UUID orderId) {
+        return orderDetails.get(new OrderKey(userId, orderId),
+                key -> delegate.getPaymentOrderDetails(key.userId(), key.orderId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentOrderChanged(PaymentOrderChangedEvent event) {
+        userGenerations.put(event.initiatedByUserId(), nextGeneration.incrementAndGet());
+        orderDetails.invalidate(new OrderKey(event.initiatedByUserId(), event.paymentOrderId()));
+    }
+
+    @Override
+    public TransactionPage getTransactionsForAccount(UUID userId, UUID accountId, Instant from, Instant to,
+                                                     String cursor, int limit) {
+        return delegate.getTransactionsForAccount(userId, accountId, from, to, cursor, limit);
+    }
+
+    @Override
+    public AccountBalanceAt getBalanceAt(UUID userId, UUID accountId, Instant at) {
+        return delegate.getBalanceAt(userId, accountId, at);
+    }
+
+    @Override
+    public IntegrationFailurePage getIntegrationFailures(IntegrationFailureFilter filter, String cursor, int limit,
+                                                         boolean includePayload) {
+        return delegate.getIntegrationFailures(filter, cursor, limit, includePayload);
+    }
+
+    @Override
+    public IntegrationFailureSummary getIntegrationFailure(UUID failureId) {
+        return delegate.getIntegrationFailure(failureId);
+    }
+
+    @Override
+    public List<IntegrationFailureCount> countIntegrationFailures(Instant from, Instant to, Duration bucket) {
+        return delegate.countIntegrationFailures(from, to, bucket);
+    }
+
+    private record OrderKey(UUID userId, UUID orderId) {}
+
+    private record OrderPageKey(UUID userId, long generation, PaymentOrderStatus status, Instant from, Instant to,
+                                String cursor, int limit) {}
+}
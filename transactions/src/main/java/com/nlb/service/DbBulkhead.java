@@ -0,0 +1,85 @@
+package com.nlb.service;
+
+import com.nlb.exception.ServiceBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ograničava broj istovremenih poslova jedne vrste koji drže konekciju baze. Višak čeka na
+ * semaforu (FIFO) u JVM-u, gde je čekanje jeftino i za virtuelne niti, umesto u redu za Hikari
+ * konekciju; posle {@code acquireTimeout} zahtev se odbija sa {@link ServiceBusyException}.
+ */
+public class DbBulkhead {
+
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    private final String name;
+    private final int permits;
+    private final Semaphore semaphore;
+    private final Duration acquireTimeout;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public DbBulkhead(String name, int permits, Duration acquireTimeout, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.permits = permits;
+        this.semaphore = new Semaphore(permits, true);
+        this.acquireTimeout = acquireTimeout;
+
+        Gauge.builder("nlb.bulkhead.available", semaphore, Semaphore::availablePermits)
+                .description("Free bulkhead permits")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("nlb.bulkhead.waiting", semaphore, Semaphore::getQueueLength)
+                .description("Threads waiting for a bulkhead permit")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("nlb.bulkhead.wait")
+                .description("Time spent waiting for a bulkhead permit")
+                .tag("bulkhead", name)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("nlb.bulkhead.rejected")
+                .description("Requests rejected because no permit was free within the timeout")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+    }
+
+    public <T, E extends Exception> T call(Work<T, E> work) throws E {
+        acquire();
+        try {
+            return work.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    public int getPermits() {
+        return permits;
+    }
+
+    private void acquire() {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = semaphore.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for " + name + " capacity");
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+            throw new ServiceBusyException("Too many concurrent " + name + " requests, please retry");
+        }
+    }
+}
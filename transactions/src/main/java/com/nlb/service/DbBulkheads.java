@@ -0,0 +1,92 @@
+package com.nlb.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Odvojeni bulkhead-i za transfere i izveštaje, dimenzionisani prema Hikari pool-u: od
+ * {@code maximum-pool-size} se oduzimaju konekcije pozadinskih poslova i konekcije rezervisane za
+ * zahteve van bulkhead-a (računi, prijava, SSE), a ostatak se deli (podrazumevano 3/4 transferima).
+ * Izveštaji tako ne mogu da zauzmu konekcije potrebne transferima, niti obrnuto; eksplicitni
+ * {@code permits} zamenjuje izračunatu vrednost.
+ * <p>
+ * Pozadinski poslovi se računaju iz njihove konfiguracije: retry i outbox relay workeri, writer
+ * dead-letter reda, job snapshot-a salda, reaper napuštenih upload-a, sekvencer knjiženja na čekanju i async workeri
+ * u {@code async} režimu. Dispečer group commit-a uzima dozvolu transfers bulkhead-a, pa se ne računa posebno.
+ */
+@Component
+@Getter
+@Slf4j
+public class DbBulkheads {
+
+    private final DbBulkhead transfers;
+    private final DbBulkhead reports;
+
+    @Autowired
+    public DbBulkheads(
+            MeterRegistry meterRegistry,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${nlb.bulkhead.reserved-connections:2}") int reservedConnections,
+            @Value("${nlb.bulkhead.transfers.permits:0}") int transferPermits,
+            @Value("${nlb.bulkhead.reports.permits:0}") int reportPermits,
+            @Value("${nlb.bulkhead.acquire-timeout:2s}") Duration acquireTimeout,
+            @Value("${nlb.transfers.mode:sync}") String transfersMode,
+            @Value("${nlb.transfers.async.workers:4}") int asyncWorkers,
+            @Value("${nlb.failures.retry.enabled:true}") boolean retryEnabled,
+            @Value("${nlb.failures.retry.workers:4}") int retryWorkers,
+            @Value("${nlb.outbox.relay.enabled:true}") boolean relayEnabled,
+            @Value("${nlb.outbox.relay.workers:2}") int relayWorkers,
+            @Value("${nlb.reports.snapshots.enabled:true}") boolean snapshotsEnabled,
+            @Value("${nlb.transfers.stream.reaper.enabled:true}") boolean reaperEnabled,
+            @Value("${nlb.ledger.sequencer.enabled:true}") boolean sequencerEnabled
+    ) {
+        this(meterRegistry, poolSize,
+                reservedConnections + backgroundConnections(transfersMode, asyncWorkers, retryEnabled, retryWorkers,
+                        relayEnabled, relayWorkers, snapshotsEnabled, reaperEnabled, sequencerEnabled),
+                transferPermits, reportPermits, acquireTimeout);
+    }
+
+    /**
+     * @param reservedConnections sve konekcije van bulkhead-a, zajedno sa pozadinskim poslovima
+     */
+    DbBulkheads(
+            MeterRegistry meterRegistry,
+            int poolSize,
+            int reservedConnections,
+            int transferPermits,
+            int reportPermits,
+            Duration acquireTimeout
+    ) {
+        if (poolSize - reservedConnections < 2) {
+            log.warn("Hikari pool ({}) leaves less than 2 connections after {} reserved ones; raise "
+                    + "spring.datasource.hikari.maximum-pool-size or lower the worker counts", poolSize, reservedConnections);
+        }
+        int available = Math.max(2, poolSize - reservedConnections);
+        int transfersSize = transferPermits > 0 ? transferPermits : Math.max(1, (available * 3 + 3) / 4);
+        int reportsSize = reportPermits > 0 ? reportPermits : Math.max(1, available - transfersSize);
+
+        this.transfers = new DbBulkhead("transfers", transfersSize, acquireTimeout, meterRegistry);
+        this.reports = new DbBulkhead("reports", reportsSize, acquireTimeout, meterRegistry);
+        log.info("DB bulkheads: pool={}, reserved={}, transfers={}, reports={}, acquireTimeout={}",
+                poolSize, reservedConnections, transfersSize, reportsSize, acquireTimeout);
+    }
+
+    static int backgroundConnections(String transfersMode, int asyncWorkers, boolean retryEnabled, int retryWorkers,
+                                     boolean relayEnabled, int relayWorkers, boolean snapshotsEnabled,
+                                     boolean reaperEnabled, boolean sequencerEnabled) {
+        int connections = 1; // DeadLetterWriter
+        connections += retryEnabled ? retryWorkers : 0;
+        connections += relayEnabled ? relayWorkers : 0;
+        connections += snapshotsEnabled ? 1 : 0;
+        connections += reaperEnabled ? 1 : 0;
+        connections += sequencerEnabled ? 1 : 0;
+        connections += "async".equals(transfersMode) ? asyncWorkers : 0;
+        return connections;
+    }
+}
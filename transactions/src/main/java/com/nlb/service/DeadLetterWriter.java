@@ -0,0 +1,284 @@
+package com.nlb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.domain.UuidV7;
+import com.nlb.service.models.DeadLetter;
+import com.nlb.service.models.DeadLetterOverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upis grešaka integracija ({@code integration_failures}) van transakcije koja je grešku prijavila.
+ * <p>
+ * Pozivalac samo stavi {@link DeadLetter} u ograničen red; writer nit ga serijalizuje i upisuje u
+ * batch-evima, u sopstvenoj transakciji na sopstvenoj konekciji, pa rollback pozivaoca ne briše
+ * zapis. Kada upis ne uspe (baza nedostupna), batch ostaje u rukama writer-a i ponavlja se sa
+ * eksponencijalnim čekanjem, a red se puni; kada se napuni, primenjuje se {@link DeadLetterOverflowPolicy}.
+ * Odbačene greške se upisuju u log sa payload-om.
+ */
+@Component
+@Slf4j
+public class DeadLetterWriter {
+
+    private static final String INSERT_SQL = "INSERT INTO integration_failures "
+            + "(id, context, entity_name, related_id, message, payload, retry_count, occurred_at, request_key) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 0, ?, ?) ON CONFLICT DO NOTHING";
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final long INITIAL_BACKOFF_MILLIS = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<DeadLetter> queue;
+    private final int batchSize;
+    private final DeadLetterOverflowPolicy overflowPolicy;
+    private final Duration offerTimeout;
+    private final Duration maxBackoff;
+    private final Counter written;
+    private final Counter writeErrors;
+    private final Counter droppedOnOverflow;
+    private final Counter droppedOnShutdown;
+    // Redovi (argumenti INSERT-a) batch-a koji se upisuje; ostaju ovde dok upis ne uspe
+    private final List<Object[]> inFlight = new ArrayList<>();
+    private Thread worker;
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    public DeadLetterWriter(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.dead-letter.queue-capacity:10000}") int queueCapacity,
+            @Value("${nlb.dead-letter.batch-size:200}") int batchSize,
+            @Value("${nlb.dead-letter.overflow-policy:BLOCK}") DeadLetterOverflowPolicy overflowPolicy,
+            @Value("${nlb.dead-letter.offer-timeout:50ms}") Duration offerTimeout,
+            @Value("${nlb.dead-letter.max-backoff:30s}") Duration maxBackoff
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeout = offerTimeout;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("nlb.deadletter.queue.size", queue, BlockingQueue::size)
+                .description("Dead letters waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("nlb.deadletter.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Free slots in the dead letter queue")
+                .register(meterRegistry);
+        this.written = Counter.builder("nlb.deadletter.written")
+                .description("Dead letters persisted to integration_failures")
+                .register(meterRegistry);
+        this.writeErrors = Counter.builder("nlb.deadletter.write.errors")
+                .description("Failed attempts to persist a dead letter batch")
+                .register(meterRegistry);
+        this.droppedOnOverflow = Counter.builder("nlb.deadletter.dropped")
+                .description("Dead letters that were only logged, never persisted")
+                .tag("reason", "overflow")
+                .register(meterRegistry);
+        this.droppedOnShutdown = Counter.builder("nlb.deadletter.dropped")
+                .description("Dead letters that were only logged, never persisted")
+                .tag("reason", "shutdown")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::workLoop, "dead-letter-writer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Dead letter writer started: capacity={}, batchSize={}, overflowPolicy={}",
+                queue.remainingCapacity(), batchSize, overflowPolicy);
+    }
+
+    /**
+     * Zaustavlja writer i još jednom pokušava da upiše sve što je ostalo; šta ni tada ne uspe, ide u log.
+     */
+    @PreDestroy
+    void stop() {
+        stopped = true;
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        while (!queue.isEmpty() || hasInFlight()) {
+            if (!writePending(null)) {
+                dropInFlight(droppedOnShutdown, "shutdown");
+                DeadLetter remaining;
+                while ((remaining = queue.poll()) != null) {
+                    drop(toRow(remaining), droppedOnShutdown, "shutdown");
+                }
+            }
+        }
+    }
+
+    /**
+     * Prijavljuje grešku za upis. Ne baca izuzetak i ne čeka bazu; ako je red pun, primenjuje
+     * overflow politiku. Posle gašenja writer-a upisuje odmah, u niti pozivaoca.
+     */
+    public void submit(DeadLetter deadLetter) {
+        if (stopped) {
+            queue.offer(deadLetter);
+            if (!writePending(null)) {
+                dropInFlight(droppedOnShutdown, "shutdown");
+            }
+            return;
+        }
+
+        boolean accepted = switch (overflowPolicy) {
+            case BLOCK -> offerWithinTimeout(deadLetter);
+            case DROP_OLDEST -> offerDroppingOldest(deadLetter);
+            case DROP_NEWEST -> queue.offer(deadLetter);
+        };
+        if (!accepted) {
+            drop(toRow(deadLetter), droppedOnOverflow, "queue full");
+        }
+    }
+
+    private boolean offerWithinTimeout(DeadLetter deadLetter) {
+        try {
+            return queue.offer(deadLetter, offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean offerDroppingOldest(DeadLetter deadLetter) {
+        while (!queue.offer(deadLetter)) {
+            DeadLetter oldest = queue.poll();
+            if (oldest != null) {
+                drop(toRow(oldest), droppedOnOverflow, "queue full");
+            }
+        }
+        return true;
+    }
+
+    private void workLoop() {
+        long backoffMillis = 0;
+        while (running) {
+            try {
+                DeadLetter first = null;
+                if (backoffMillis > 0) {
+                    Thread.sleep(backoffMillis);
+                } else if (!hasInFlight()) {
+                    first = queue.take();
+                }
+                backoffMillis = writePending(first) ? 0 : nextBackoff(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private long nextBackoff(long backoffMillis) {
+        return Math.min(maxBackoff.toMillis(), Math.max(INITIAL_BACKOFF_MILLIS, backoffMillis * 2));
+    }
+
+    /**
+     * Dopunjuje batch iz reda i upisuje ga u zasebnoj transakciji. Vraća false ako upis nije uspeo;
+     * batch tada ostaje za sledeći pokušaj.
+     */
+    synchronized boolean writePending(DeadLetter first) {
+        if (first != null) {
+            inFlight.add(toRow(first));
+        }
+        List<DeadLetter> drained = new ArrayList<>();
+        queue.drainTo(drained, Math.max(0, batchSize - inFlight.size()));
+        drained.forEach(deadLetter -> inFlight.add(toRow(deadLetter)));
+        if (inFlight.isEmpty()) {
+            return true;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, inFlight));
+            written.increment(inFlight.size());
+            inFlight.clear();
+            return true;
+        } catch (RuntimeException e) {
+            writeErrors.increment();
+            log.warn("Dead letter batch of {} not written, will retry: {}", inFlight.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized boolean hasInFlight() {
+        return !inFlight.isEmpty();
+    }
+
+    private synchronized void dropInFlight(Counter counter, String reason) {
+        inFlight.forEach(row -> drop(row, counter, reason));
+        inFlight.clear();
+    }
+
+    /**
+     * Id se dodeljuje ovde, pa ponovljen upis batch-a koji je ipak prošao ne pravi duplikate
+     * (ON CONFLICT preskače i grešku zahteva koji već ima nerešenu grešku).
+     */
+    private Object[] toRow(DeadLetter deadLetter) {
+        String message = deadLetter.message();
+        if (message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        return new Object[]{
+                UuidV7.generate(),
+                deadLetter.context(),
+                deadLetter.entityName(),
+                deadLetter.relatedId(),
+                message,
+                serialize(deadLetter.payload()),
+                deadLetter.occurredAt().atOffset(ZoneOffset.UTC),
+                deadLetter.requestKey()
+        };
+    }
+
+    private String serialize(Object payload) {
+        if (payload == null || payload instanceof String) {
+            return (String) payload;
+        }
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            log.warn("Dead letter payload of type {} could not be serialized: {}",
+                    payload.getClass().getSimpleName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private void drop(Object[] row, Counter counter, String reason) {
+        counter.increment();
+        log.error("CRITICAL: Dead letter not persisted ({}): context={}, entityName={}, relatedId={}, message={}, "
+                + "occurredAt={}, payload={}", reason, row[1], row[2], row[3], row[4], row[6], row[5]);
+    }
+}
@@ -0,0 +1,34 @@
+package com.nlb.service;
+
+import com.nlb.domain.IntegrationFailureStatus;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.IntegrationFailureService;
+import com.nlb.repository.IntegrationFailureRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DefaultIntegrationFailureService implements IntegrationFailureService {
+
+    private final IntegrationFailureRepository failureRepo;
+
+    @Override
+    @Transactional
+    public void releaseParkedFailure(UUID failureId) {
+        var failure = failureRepo.findById(failureId)
+                .filter(f -> f.getStatus() == IntegrationFailureStatus.PARKED)
+                .orElseThrow(() -> new BusinessValidationException("Parked integration failure not found"));
+
+        failure.setStatus(IntegrationFailureStatus.PENDING);
+        failure.setRetryCount(0);
+        failure.setNextAttemptAt(Instant.now());
+        log.info("Integration failure {} released for retry", failureId);
+    }
+}
@@ -1,22 +1,43 @@
 package com.nlb.service;
 
-import com.nlb.domain.IntegrationFailure;
-import com.nlb.domain.PaymentOrder;
-import com.nlb.domain.Transaction;
+import com.nlb.domain.Currency;
+import com.nlb.domain.PaymentOrderItemStatus;
+import com.nlb.domain.PaymentOrderStatus;
 import com.nlb.exception.BusinessValidationException;
 
 import com.nlb.interfaces.ReportService;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.IntegrationFailureRepository;
+import com.nlb.repository.LedgerPostingRepository;
 import com.nlb.repository.PaymentOrderRepository;
 import com.nlb.repository.TransactionRepository;
+import com.nlb.service.models.AccountBalanceAt;
+import com.nlb.service.models.IntegrationFailureCount;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.IntegrationFailurePage;
+import com.nlb.service.models.IntegrationFailureSummary;
+import com.nlb.service.models.PaymentOrderDetails;
+import com.nlb.service.models.PaymentOrderItemSummary;
+import com.nlb.service.models.PaymentOrderPage;
+import com.nlb.service.models.PaymentOrderSummary;
+import com.nlb.service.models.TransactionCursor;
+import com.nlb.service.models.TransactionPage;
+import com.nlb.service.models.TransactionSummary;
+import jakarta.persistence.Tuple;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * Izveštaji se čitaju projekcijama direktno u read modele ({@code *Summary}), bez entiteta u
+ * persistence context-u, snapshot-a za dirty checking i lazy učitavanja vlasnika računa.
+ */
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
@@ -26,33 +47,176 @@ public class DefaultReportService implements ReportService {
     private final TransactionRepository transactionRepo;
     private final IntegrationFailureRepository failureRepo;
     private final AccountRepository accountRepo;
+    private final LedgerPostingRepository ledgerPostingRepo;
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_FAILURE_BUCKETS = 1_000;
+    private static final Duration DEFAULT_FAILURE_WINDOW = Duration.ofHours(24);
+    private static final Instant MIN_TIME = Instant.EPOCH;
+    private static final Instant MAX_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
+    /**
+     * Nalozi korisnika, stranu po stranu (keyset po (created_at, id), od najnovijeg), opciono samo
+     * jednog statusa. {@code from} je uključiv, {@code to} isključiv; oba su opciona.
+     */
+    @Override
+    public PaymentOrderPage getPaymentOrdersForUser(UUID userId, PaymentOrderStatus status, Instant from, Instant to,
+                                                    String cursor, int limit) {
+        requireValidPageSize(limit);
+        TransactionCursor position = startPosition(to, cursor);
+        Instant fromTime = from != null ? from : MIN_TIME;
+
+        List<PaymentOrderSummary> rows = status == null
+                ? paymentOrderRepo.findPageByUserId(userId, fromTime, position.createdAt(), position.id(), limit + 1)
+                : paymentOrderRepo.findPageByUserIdAndStatus(
+                        userId, status, fromTime, position.createdAt(), position.id(), limit + 1);
+        if (rows.size() <= limit) {
+            return new PaymentOrderPage(rows, null);
+        }
+
+        List<PaymentOrderSummary> page = rows.subList(0, limit);
+        PaymentOrderSummary last = page.getLast();
+        return new PaymentOrderPage(page, new TransactionCursor(last.createdAt(), last.id()).encode());
+    }
+
+    /**
+     * Nalog i stavke iz jednog upita (red po stavci) sklopljeni u {@link PaymentOrderDetails}.
+     */
     @Override
-    public List<PaymentOrder> getPaymentOrdersForUser(UUID userId) {
-        return paymentOrderRepo.findByInitiatedByUserIdOrderByCreatedAtDesc(userId);
+    public PaymentOrderDetails getPaymentOrderDetails(UUID userId, UUID orderId) {
+        List<Tuple> rows = paymentOrderRepo.findDetailsRows(orderId, userId);
+        if (rows.isEmpty()) {
+            throw new BusinessValidationException("Payment order not found or user does not have access");
+        }
+
+        Tuple first = rows.getFirst();
+        PaymentOrderSummary order = new PaymentOrderSummary(
+                first.get("id", UUID.class),
+                first.get("idempotencyKey", String.class),
+                first.get("sourceAccountId", UUID.class),
+                first.get("totalAmountCents", Long.class),
+                first.get("currency", Currency.class),
+                first.get("status", PaymentOrderStatus.class),
+                first.get("createdAt", Instant.class),
+                first.get("updatedAt", Instant.class));
+        List<PaymentOrderItemSummary> items = rows.stream()
+                .filter(row -> row.get("itemId") != null)
+                .map(row -> new PaymentOrderItemSummary(
+                        row.get("itemId", UUID.class),
+                        row.get("destinationAccountId", UUID.class),
+                        row.get("amountCents", Long.class),
+                        row.get("itemStatus", PaymentOrderItemStatus.class),
+                        row.get("failureReason", String.class)))
+                .toList();
+        return new PaymentOrderDetails(order, items);
     }
 
+    /**
+     * Izvod računa, stranu po stranu (keyset po (created_at, id transakcije), od najnovije).
+     * {@code from} je uključiv, {@code to} isključiv; oba su opciona.
+     */
     @Override
-    @Transactional
-    public PaymentOrder getPaymentOrderDetails(UUID userId, UUID orderId) {
-        PaymentOrder order = paymentOrderRepo.findByIdAndInitiatedByUserId(orderId, userId)
-                .orElseThrow(() -> new BusinessValidationException("Payment order not found or user does not have access"));
+    public TransactionPage getTransactionsForAccount(UUID userId, UUID accountId, Instant from, Instant to,
+                                                     String cursor, int limit) {
+        requireValidPageSize(limit);
+        if (!accountRepo.existsByIdAndOwnerId(accountId, userId)) {
+            throw new BusinessValidationException("Account not found or user does not have access");
+        }
+
+        TransactionCursor position = startPosition(to, cursor);
+        List<TransactionSummary> rows = transactionRepo.findPageByAccountId(
+                accountId, from != null ? from : MIN_TIME, position.createdAt(), position.id(), limit + 1);
+        if (rows.size() <= limit) {
+            return new TransactionPage(rows, null);
+        }
 
-        order.getItems().size();
-        return order;
+        List<TransactionSummary> page = rows.subList(0, limit);
+        TransactionSummary last = page.getLast();
+        return new TransactionPage(page, new TransactionCursor(last.createdAt(), last.id()).encode());
     }
 
+    /**
+     * Saldo računa u trenutku {@code at} (uključivo): najbliži dnevni snimak pre tog dana plus
+     * knjiženja od tada, pa trošak zavisi od prometa od poslednjeg zatvorenog dana, ne od starosti računa.
+     */
     @Override
-    public List<Transaction> getTransactionsForAccount(UUID userId, UUID accountId) {
-        accountRepo.findById(accountId)
-                .filter(acc -> acc.getOwner().getId().equals(userId))
+    public AccountBalanceAt getBalanceAt(UUID userId, UUID accountId, Instant at) {
+        Currency currency = accountRepo.findCurrencyByIdAndOwnerId(accountId, userId)
                 .orElseThrow(() -> new BusinessValidationException("Account not found or user does not have access"));
 
-        return transactionRepo.findByAccountId(accountId);
+        long balanceCents = ledgerPostingRepo.findBalanceAt(
+                accountId, at.atOffset(ZoneOffset.UTC).toLocalDate(), at);
+        return new AccountBalanceAt(accountId, at, balanceCents, currency);
+    }
+
+    /**
+     * Greške integracija, stranu po stranu (keyset po (occurred_at, id), od najnovije), sa opcionim
+     * filterima. Payload (serijalizovan zahtev) se čita samo uz {@code includePayload}.
+     */
+    @Override
+    public IntegrationFailurePage getIntegrationFailures(IntegrationFailureFilter filter, String cursor, int limit,
+                                                         boolean includePayload) {
+        requireValidPageSize(limit);
+        TransactionCursor position = startPosition(filter.to(), cursor);
+
+        List<IntegrationFailureSummary> rows = failureRepo.findPage(
+                filter, position.createdAt(), position.id(), limit + 1, includePayload);
+        if (rows.size() <= limit) {
+            return new IntegrationFailurePage(rows, null);
+        }
+
+        List<IntegrationFailureSummary> page = rows.subList(0, limit);
+        IntegrationFailureSummary last = page.getLast();
+        return new IntegrationFailurePage(page, new TransactionCursor(last.occurredAt(), last.id()).encode());
+    }
+
+    @Override
+    public IntegrationFailureSummary getIntegrationFailure(UUID failureId) {
+        return failureRepo.findById(failureId)
+                .map(failure -> new IntegrationFailureSummary(failure.getId(), failure.getContext(),
+                        failure.getEntityName(), failure.getRelatedId(), failure.getMessage(), failure.getPayload(),
+                        failure.getRetryCount(), failure.getOccurredAt()))
+                .orElseThrow(() -> new BusinessValidationException("Integration failure not found"));
     }
 
+    /**
+     * Broj grešaka po kontekstu i intervalu dužine {@code bucket} u [{@code from}, {@code to});
+     * podrazumevano poslednja 24 sata. Intervali bez grešaka se ne vraćaju.
+     */
     @Override
-    public List<IntegrationFailure> getAllIntegrationFailures() {
-        return failureRepo.findAll();
+    public List<IntegrationFailureCount> countIntegrationFailures(Instant from, Instant to, Duration bucket) {
+        Instant toTime = to != null ? to : Instant.now();
+        Instant fromTime = from != null ? from : toTime.minus(DEFAULT_FAILURE_WINDOW);
+        if (!fromTime.isBefore(toTime)) {
+            throw new BusinessValidationException("'from' must be before 'to'");
+        }
+        if (bucket.toSeconds() < 1 || bucket.getNano() != 0) {
+            throw new BusinessValidationException("Bucket must be a whole number of seconds");
+        }
+        if (Duration.between(fromTime, toTime).dividedBy(bucket) > MAX_FAILURE_BUCKETS) {
+            throw new BusinessValidationException("At most " + MAX_FAILURE_BUCKETS + " buckets can be requested");
+        }
+        return failureRepo.countByContext(fromTime, toTime, bucket);
+    }
+
+    private static void requireValidPageSize(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new BusinessValidationException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Pozicija od koje se čita strana: kursor, ali nikad posle gornje granice {@code to}.
+     */
+    private static TransactionCursor startPosition(Instant to, String cursor) {
+        // (to, najmanji UUID) isključuje i redove sa created_at = to
+        TransactionCursor upperBound = new TransactionCursor(to != null ? to : MAX_TIME, new UUID(0L, 0L));
+        if (cursor != null) {
+            TransactionCursor decoded = TransactionCursor.decode(cursor);
+            if (decoded.createdAt().isBefore(upperBound.createdAt())) {
+                return decoded;
+            }
+        }
+        return upperBound;
     }
 }
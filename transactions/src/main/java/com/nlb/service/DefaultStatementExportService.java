@@ -0,0 +1,175 @@
+package com.nlb.service;
+
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.StatementExportService;
+import com.nlb.repository.AccountRepository;
+import com.nlb.service.models.StatementFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * Izvoz celog izvoda računa (CSV ili NDJSON) bez materijalizacije rezultata.
+ * <p>
+ * Transferi računa se čitaju iz njegovih knjiženja, JDBC kursorom (read-only transakcija + fetch size,
+ * pa PgJDBC ne učitava ceo rezultat), i pišu direktno u izlazni tok, bez entiteta, DTO-a i BigDecimal-a.
+ * Heap ostaje konstantan bez obzira na broj redova.
+ */
+@Service
+@Slf4j
+public class DefaultStatementExportService implements StatementExportService {
+
+    // Jedan range scan po (account_id, created_at, transaction_id), već u redosledu izvoza;
+    // prenos na isti račun ima dva knjiženja, pa se njegov kredit preskače
+    private static final String EXPORT_SQL = """
+            SELECT transaction_id,
+                   CASE WHEN posting_type = 'TRANSFER_OUT' THEN account_id ELSE counterparty_account_id END,
+                   CASE WHEN posting_type = 'TRANSFER_OUT' THEN counterparty_account_id ELSE account_id END,
+                   abs(amount_cents), currency, created_at, payment_order_id
+            FROM ledger_postings
+            WHERE account_id = ? AND transaction_id IS NOT NULL AND created_at >= ? AND created_at < ?
+              AND NOT (posting_type = 'TRANSFER_IN' AND counterparty_account_id = account_id)
+            ORDER BY created_at, transaction_id
+            """;
+    private static final String CSV_HEADER =
+            "transactionId,sourceAccountId,destinationAccountId,amount,currency,createdAt,paymentOrderId\n";
+    private static final Instant MIN_TIME = Instant.EPOCH;
+    private static final Instant MAX_TIME = Instant.parse("9999-12-31T23:59:59Z");
+    private static final int WRITE_BUFFER_CHARS = 64 * 1024;
+
+    private final AccountRepository accountRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int fetchSize;
+
+    public DefaultStatementExportService(
+            AccountRepository accountRepo,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${nlb.reports.export.fetch-size:1000}") int fetchSize
+    ) {
+        this.accountRepo = accountRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void verifyAccountAccess(UUID userId, UUID accountId) {
+        if (!accountRepo.existsByIdAndOwnerId(accountId, userId)) {
+            throw new BusinessValidationException("Account not found or user does not have access");
+        }
+    }
+
+    @Override
+    public long exportTransactions(UUID userId, UUID accountId, Instant from, Instant to,
+                                   StatementFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_CHARS);
+        if (format == StatementFormat.CSV) {
+            writer.write(CSV_HEADER);
+        }
+
+        Timestamp lower = Timestamp.from(from != null ? from : MIN_TIME);
+        Timestamp upper = Timestamp.from(to != null ? to : MAX_TIME);
+        long[] rows = new long[1];
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                verifyAccountAccess(userId, accountId);
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(EXPORT_SQL);
+                    statement.setFetchSize(fetchSize);
+                    statement.setObject(1, accountId);
+                    statement.setTimestamp(2, lower);
+                    statement.setTimestamp(3, upper);
+                    return statement;
+                }, resultSet -> {
+                    try {
+                        writeRow(writer, format, resultSet);
+                        rows[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            });
+        } catch (UncheckedIOException e) {
+            // Klijent je prekinuo preuzimanje - kursor i transakcija su već zatvoreni
+            throw e.getCause();
+        }
+
+        writer.flush();
+        log.info("Exported {} transactions for account {} as {}", rows[0], accountId, format);
+        return rows[0];
+    }
+
+    private void writeRow(Writer writer, StatementFormat format, ResultSet rs) throws SQLException, IOException {
+        String id = rs.getString(1);
+        String source = rs.getString(2);
+        String destination = rs.getString(3);
+        String amount = formatCents(rs.getLong(4));
+        String currency = rs.getString(5);
+        String createdAt = rs.getObject(6, OffsetDateTime.class).toInstant().toString();
+        String paymentOrderId = rs.getString(7);
+
+        if (format == StatementFormat.CSV) {
+            writer.write(id);
+            writer.write(',');
+            writer.write(source);
+            writer.write(',');
+            writer.write(destination);
+            writer.write(',');
+            writer.write(amount);
+            writer.write(',');
+            writer.write(currency);
+            writer.write(',');
+            writer.write(createdAt);
+            writer.write(',');
+            writer.write(paymentOrderId);
+            writer.write('\n');
+        } else {
+            // Sve vrednosti su UUID-ovi, brojevi, ISO vreme i kod valute - escaping nije potreban
+            writer.write("{\"transactionId\":\"");
+            writer.write(id);
+            writer.write("\",\"sourceAccountId\":\"");
+            writer.write(source);
+            writer.write("\",\"destinationAccountId\":\"");
+            writer.write(destination);
+            writer.write("\",\"amount\":");
+            writer.write(amount);
+            writer.write(",\"currency\":\"");
+            writer.write(currency);
+            writer.write("\",\"createdAt\":\"");
+            writer.write(createdAt);
+            writer.write("\",\"paymentOrderId\":\"");
+            writer.write(paymentOrderId);
+            writer.write("\"}\n");
+        }
+    }
+
+    /**
+     * Centi u decimalni zapis ("1234" -> "12.34") bez BigDecimal-a.
+     */
+    static String formatCents(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return (cents < 0 ? "-" : "") + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
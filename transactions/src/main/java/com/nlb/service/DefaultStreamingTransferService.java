@@ -0,0 +1,310 @@
+package com.nlb.service;
+
+import com.nlb.domain.*;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.BalanceSlotService;
+import com.nlb.interfaces.StreamingTransferService;
+import com.nlb.repository.AccountRepository;
+import com.nlb.repository.LedgerPostingRepository;
+import com.nlb.repository.PaymentOrderItemRepository;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.service.model.AccountsChangedEvent;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferResponse;
+import com.nlb.service.models.DeadLetter;
+import com.nlb.service.models.PaymentOrderChangedEvent;
+import com.nlb.service.models.TransferOutcome;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Batch transfer za veoma velike naloge (npr. payroll sa 100k stavki).
+ * <p>
+ * Stavke se čitaju iz toka i upisuju u fiksnim chunk-ovima preko {@link BulkLedgerWriter}
+ * (mimo persistence context-a), pa heap ne raste sa veličinom naloga. Zaključavanje, krediti, kreiranje transakcija
+ * i knjiženja se zatim rade skupovnim SQL-om nad već upisanim stavkama.
+ * <p>
+ * Upload traje koliko i klijent, pa se ne radi u jednoj transakciji: nalog se upisuje kao RECEIVING,
+ * svaki chunk u svojoj kratkoj transakciji, a primena u poslednjoj. Svaka kratka transakcija drži
+ * dozvolu transfers bulkhead-a samo dok radi, pa spor klijent ne drži ni konekciju ni dozvolu dok
+ * šalje stavke. Greška u toku (neispravna stavka, prekinut upload) briše nalog i upisane stavke.
+ * Isto važi i za sistemsku grešku pri primeni (npr. deadlock ili pun bulkhead), koja se uz to upisuje
+ * kao greška integracije; klijent zahtev može da ponovi sa istim ključem. Nalog koji ostane RECEIVING
+ * zbog pada procesa briše {@link AbandonedUploadReaper}.
+ */
+@Service
+@Slf4j
+public class DefaultStreamingTransferService implements StreamingTransferService {
+
+    // Poseban kontekst: stavke obrisanog naloga ne postoje, pa retry worker ovakve greške ne ponavlja
+    static final String DLQ_CONTEXT = "STREAMING_TRANSFER_SERVICE";
+    static final String DLQ_ENTITY_NAME_ORDER = "PaymentOrder";
+
+    private final PaymentOrderRepository paymentOrderRepo;
+    private final PaymentOrderItemRepository paymentOrderItemRepo;
+    private final AccountRepository accountRepo;
+    private final BalanceSlotService balanceSlotService;
+    private final LedgerPostingRepository ledgerPostingRepo;
+    private final IdempotencyKeyCache idempotencyCache;
+    private final BulkLedgerWriter ledgerWriter;
+    private final OutboxWriter outboxWriter;
+    private final DeadLetterWriter deadLetterWriter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DbBulkhead bulkhead;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private final BigDecimal DECIMAL_MULTIPLIER = new BigDecimal("100");
+
+    public DefaultStreamingTransferService(
+            PaymentOrderRepository paymentOrderRepo,
+            PaymentOrderItemRepository paymentOrderItemRepo,
+            AccountRepository accountRepo,
+            BalanceSlotService balanceSlotService,
+            LedgerPostingRepository ledgerPostingRepo,
+            IdempotencyKeyCache idempotencyCache,
+            BulkLedgerWriter ledgerWriter,
+            OutboxWriter outboxWriter,
+            DeadLetterWriter deadLetterWriter,
+            ApplicationEventPublisher eventPublisher,
+            DbBulkheads bulkheads,
+            PlatformTransactionManager transactionManager,
+            @Value("${nlb.transfers.stream.chunk-size:1000}") int chunkSize
+    ) {
+        this.paymentOrderRepo = paymentOrderRepo;
+        this.paymentOrderItemRepo = paymentOrderItemRepo;
+        this.accountRepo = accountRepo;
+        this.balanceSlotService = balanceSlotService;
+        this.ledgerPostingRepo = ledgerPostingRepo;
+        this.idempotencyCache = idempotencyCache;
+        this.ledgerWriter = ledgerWriter;
+        this.outboxWriter = outboxWriter;
+        this.deadLetterWriter = deadLetterWriter;
+        this.eventPublisher = eventPublisher;
+        this.bulkhead = bulkheads.getTransfers();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BatchTransferResponse executeStreamingBatchTransfer(String idempotencyKey,
+                                                               UUID initiatedByUserId,
+                                                               UUID sourceAccountId,
+                                                               Iterator<BatchItem> items) {
+        PaymentOrder paymentOrder = PaymentOrder.builder()
+                .idempotencyKey(idempotencyKey)
+                .initiatedByUserId(initiatedByUserId)
+                .sourceAccountId(sourceAccountId)
+                .totalAmountCents(0L)
+                .currency(Currency.EUR)
+                .status(PaymentOrderStatus.RECEIVING)
+                .build();
+        try {
+            Optional<BatchTransferResponse> existingResponse = inShortTransaction(() -> startOrder(paymentOrder));
+            if (existingResponse.isPresent()) {
+                log.warn("Idempotent request received, returning existing status for key: {}", idempotencyKey);
+                return existingResponse.get();
+            }
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Race condition detected for idempotency key: {}", idempotencyKey, e);
+            var racedOrder = inShortTransaction(() -> paymentOrderRepo.findByIdempotencyKey(idempotencyKey))
+                    .orElseThrow(() -> new IllegalStateException("Failed to retrieve raced order"));
+            return new BatchTransferResponse(racedOrder.getId(), racedOrder.getStatus(), "Concurrent request processed");
+        }
+
+        UUID orderId = paymentOrder.getId();
+        long totalAmountCents;
+        try {
+            totalAmountCents = persistItems(paymentOrder, items);
+        } catch (RuntimeException e) {
+            discardOrder(orderId, e);
+            throw e;
+        }
+
+        try {
+            return inShortTransaction(() -> completeOrder(orderId, totalAmountCents));
+        } catch (RuntimeException e) {
+            // Poslovno odbijanje se završava unutar completeOrder; ovde stiže samo sistemska greška
+            log.error("System error completing streaming order for key {}: {}", idempotencyKey, e.getMessage());
+            discardOrder(orderId, e);
+            deadLetterWriter.submit(new DeadLetter(DLQ_CONTEXT, DLQ_ENTITY_NAME_ORDER, orderId,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getName(), null, Instant.now(), idempotencyKey));
+            throw e;
+        }
+    }
+
+    private Optional<BatchTransferResponse> startOrder(PaymentOrder paymentOrder) {
+        Optional<BatchTransferResponse> existingResponse =
+                idempotencyCache.findExisting(paymentOrder.getIdempotencyKey(), paymentOrderRepo::findByIdempotencyKey);
+        if (existingResponse.isPresent()) {
+            return existingResponse;
+        }
+        paymentOrderRepo.saveAndFlush(paymentOrder);
+        idempotencyCache.registerNewKey(paymentOrder.getIdempotencyKey());
+        return Optional.empty();
+    }
+
+    /**
+     * Prekinut upload ne ostavlja nalog, pa klijent može da ponovi zahtev sa istim ključem. Brisanje
+     * ne čeka dozvolu bulkhead-a, jer bi ga pun bulkhead odbio baš kada je primena odbijena zbog njega.
+     */
+    private void discardOrder(UUID orderId, RuntimeException cause) {
+        try {
+            transactionTemplate.execute(status -> paymentOrderRepo.deleteReceivingOrder(orderId));
+        } catch (RuntimeException e) {
+            log.error("Failed to discard interrupted streaming order {}", orderId, e);
+            cause.addSuppressed(e);
+        }
+    }
+
+    private BatchTransferResponse completeOrder(UUID orderId, long totalAmountCents) {
+        PaymentOrder paymentOrder = paymentOrderRepo.findById(orderId)
+                .orElseThrow(() -> new IllegalStateException("Streaming order disappeared: " + orderId));
+        paymentOrder.setTotalAmountCents(totalAmountCents);
+
+        String message = "Transfer successful";
+        try {
+            applyTransfer(paymentOrder);
+            paymentOrderItemRepo.updateStatusByOrderId(orderId, PaymentOrderItemStatus.SUCCESS.name(), null);
+            paymentOrder.setStatus(PaymentOrderStatus.COMPLETED);
+            publishAccountChanges(paymentOrder);
+            log.info("Streaming batch transfer completed for key: {}", paymentOrder.getIdempotencyKey());
+        } catch (BusinessValidationException e) {
+            log.warn("Business validation failed for key {}: {}", paymentOrder.getIdempotencyKey(), e.getMessage());
+            paymentOrderItemRepo.updateStatusByOrderId(orderId, PaymentOrderItemStatus.FAILED.name(), e.getMessage());
+            paymentOrder.setStatus(PaymentOrderStatus.FAILED);
+            message = e.getMessage();
+        }
+
+        paymentOrderRepo.save(paymentOrder);
+        outboxWriter.append(TransferOutcome.outboxMessage(paymentOrder));
+        idempotencyCache.rememberAfterCommit(paymentOrder);
+        eventPublisher.publishEvent(new PaymentOrderChangedEvent(paymentOrder.getInitiatedByUserId(), orderId, paymentOrder.getStatus()));
+        return new BatchTransferResponse(orderId, paymentOrder.getStatus(), message);
+    }
+
+    /**
+     * Kratka transakcija pod dozvolom transfers bulkhead-a.
+     */
+    private <T> T inShortTransaction(Supplier<T> work) {
+        return bulkhead.call(() -> transactionTemplate.execute(status -> work.get()));
+    }
+
+    /**
+     * Upisuje stavke u chunk-ovima i vraća ukupan iznos. Stavke ne ulaze u persistence
+     * context, pa u memoriji nikad nema više od chunkSize stavki.
+     */
+    private long persistItems(PaymentOrder paymentOrder, Iterator<BatchItem> items) {
+        String idempotencyKey = paymentOrder.getIdempotencyKey();
+        long totalAmountCents = 0L;
+        int index = 0;
+
+        List<PaymentOrderItem> chunk = new ArrayList<>(chunkSize);
+        while (items.hasNext()) {
+            BatchItem item = items.next();
+            long amountCents = item.amount().multiply(DECIMAL_MULTIPLIER).longValueExact();
+            totalAmountCents = Math.addExact(totalAmountCents, amountCents);
+
+            chunk.add(PaymentOrderItem.builder()
+                    .paymentOrder(paymentOrder)
+                    .destinationAccountId(item.destinationAccountId())
+                    .amountCents(amountCents)
+                    .status(PaymentOrderItemStatus.PENDING)
+                    .orderKey(idempotencyKey + "#" + (index++))
+                    .build());
+
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk);
+            }
+        }
+        writeChunk(chunk);
+
+        if (index == 0) {
+            throw new BusinessValidationException("Items list cannot be empty");
+        }
+        log.debug("Streamed {} items for key {}", index, idempotencyKey);
+        return totalAmountCents;
+    }
+
+    private void writeChunk(List<PaymentOrderItem> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        inShortTransaction(() -> {
+            ledgerWriter.writeItems(chunk);
+            return null;
+        });
+        chunk.clear();
+    }
+
+    /**
+     * Svi računi naloga se zaključavaju jednim upitom u rastućem redosledu ID-jeva, a sve provere
+     * se rade pre prve izmene salda, pa odbijen nalog ne ostavlja delimične promene.
+     */
+    private void applyTransfer(PaymentOrder paymentOrder) {
+        UUID orderId = paymentOrder.getId();
+        UUID sourceAccountId = paymentOrder.getSourceAccountId();
+
+        long expectedAccounts = paymentOrderItemRepo.countDistinctAccounts(orderId, sourceAccountId);
+        if (paymentOrderItemRepo.lockOrderAccounts(orderId, sourceAccountId) < expectedAccounts) {
+            throw new BusinessValidationException("One or more accounts not found");
+        }
+
+        paymentOrderItemRepo.findFirstInactiveDestination(orderId).ifPresent(accountId -> {
+            throw new BusinessValidationException("Account " + accountId + " is not ACTIVE");
+        });
+
+        if (!accountRepo.findShardedIdsByIdIn(List.of(sourceAccountId)).isEmpty()) {
+            balanceSlotService.sweepIntoBalance(sourceAccountId);
+        }
+        long totalAmountCents = paymentOrder.getTotalAmountCents();
+        if (accountRepo.applyOwnedBalanceDelta(sourceAccountId, paymentOrder.getInitiatedByUserId(),
+                -totalAmountCents, totalAmountCents, Integer.MAX_VALUE).isEmpty()) {
+            throw sourceRejection(sourceAccountId, paymentOrder.getInitiatedByUserId());
+        }
+
+        paymentOrderItemRepo.creditDestinations(orderId);
+        paymentOrderItemRepo.insertTransactions(orderId, sourceAccountId, paymentOrder.getIdempotencyKey());
+
+        // Sharded odredišta su ovde zaključana FOR UPDATE, pa se njihovi krediti iz slotova knjiže pre novih
+        List<UUID> shardedDestinations = paymentOrderItemRepo.findShardedDestinations(orderId);
+        if (!shardedDestinations.isEmpty()) {
+            ledgerPostingRepo.sequencePendingPostings(shardedDestinations);
+        }
+        paymentOrderItemRepo.insertPostings(paymentOrder.getIdempotencyKey());
+    }
+
+    private void publishAccountChanges(PaymentOrder paymentOrder) {
+        Set<UUID> accountIds = new HashSet<>(paymentOrderItemRepo.findDestinationAccountIds(paymentOrder.getId()));
+        accountIds.add(paymentOrder.getSourceAccountId());
+        eventPublisher.publishEvent(new AccountsChangedEvent(Set.of(paymentOrder.getInitiatedByUserId()), accountIds));
+    }
+
+    private BusinessValidationException sourceRejection(UUID sourceAccountId, UUID initiatedByUserId) {
+        AccountState state = accountRepo.findStateById(sourceAccountId)
+                .orElseThrow(() -> new BusinessValidationException("One or more accounts not found"));
+        if (!state.ownerId().equals(initiatedByUserId)) {
+            return new BusinessValidationException("User does not own the source account");
+        }
+        if (state.status() != AccountStatus.ACTIVE) {
+            return new BusinessValidationException("Account " + sourceAccountId + " is not ACTIVE");
+        }
+        return new BusinessValidationException("Insufficient funds");
+    }
+}
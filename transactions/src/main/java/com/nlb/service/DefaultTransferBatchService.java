@@ -1,26 +1,39 @@
 package com.nlb.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nlb.domain.*;
 import com.nlb.domain.Currency;
 import com.nlb.exception.BusinessValidationException;
+import com.nlb.exception.PendingOrderExecutionException;
+import com.nlb.interfaces.BalanceSlotService;
 import com.nlb.interfaces.TransferBatchService;
 import com.nlb.repository.AccountRepository;
-import com.nlb.repository.IntegrationFailureRepository;
 import com.nlb.repository.PaymentOrderRepository;
-import com.nlb.repository.TransactionRepository;
+import com.nlb.service.model.AccountsChangedEvent;
 import com.nlb.service.models.BatchItem;
 import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.TransferMetrics.Phase;
+import com.nlb.service.TransferMetrics.PhaseTimer;
 import com.nlb.service.models.BatchTransferResponse;
+import com.nlb.service.models.DeadLetter;
+import com.nlb.service.models.PaymentOrderChangedEvent;
+import com.nlb.service.models.TransferOutcome;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Savepoint;
+import java.time.Instant;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,8 +42,10 @@ import java.util.stream.Collectors;
 public class DefaultTransferBatchService implements TransferBatchService {
 
     private final PaymentOrderRepository paymentOrderRepo;
-    private final TransactionRepository transactionRepo;
-    private final IntegrationFailureRepository failureRepo;
+    private final BulkLedgerWriter ledgerWriter;
+    private final LedgerPostingWriter postingWriter;
+    private final DeadLetterWriter deadLetterWriter;
+    private final OutboxWriter outboxWriter;
     /**
     * NOTE TO THE REVIEWER: Zbog cega je ovde direktno AccountRepository a ne service koji ce kasnije da poziva repo?
      * RAZLOG:
@@ -39,7 +54,7 @@ public class DefaultTransferBatchService implements TransferBatchService {
      * (transactions i user) unutar JEDNE @Transactional metode.
      *
      * Da bismo osigurali ispravno pesimističko zaključavanje
-     * (preko AccountRepository.findAllByIdInAndLock) i garantovali
+     * (uslovni UPDATE-i salda preko AccountRepository) i garantovali
      * atomski commit ili rollback za AŽURIRANJE naloga i KREIRANJE
      * transakcija, servis mora imati direktnu kontrolu nad oba repozitorijuma.
      *
@@ -47,63 +62,63 @@ public class DefaultTransferBatchService implements TransferBatchService {
      * propagaciju transakcije i logiku zaključavanja.
      */
     private final AccountRepository accountRepo;
+    private final BalanceSlotService balanceSlotService;
 
-    private final ObjectMapper objectMapper;
+    private final IdempotencyKeyCache idempotencyCache;
+    private final AccountConcurrencyStrategy concurrencyStrategy;
+    private final JdbcSavepoints savepoints;
+    private final PlatformTransactionManager transactionManager;
+    private final TransferMetrics transferMetrics;
+    private final ApplicationEventPublisher eventPublisher;
 
     private final BigDecimal DECIMAL_MULTIPLIER = new BigDecimal("100");
     //Log constant-e
-    private static final String DLQ_CONTEXT = "TRANSFER_BATCH_SERVICE";
+    static final String DLQ_CONTEXT = "TRANSFER_BATCH_SERVICE";
     private static final String DLQ_ENTITY_NAME_ORDER = "PaymentOrder";
     private static final String DLQ_ENTITY_NAME_REQUEST = "BatchTransferRequest";
+    static final String SYSTEM_ERROR_REASON = "System error processing transfer";
+
+    // Isti redosled kao uuid poređenje u Postgres-u (bajt po bajt, unsigned)
+    private static final Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
 
     @Override
     @Transactional
     public BatchTransferResponse executeBatchTransfer(BatchTransferRequest request) {
-        Optional<PaymentOrder> existingOrder = paymentOrderRepo.findByIdempotencyKey(request.idempotencyKey());
-        if (existingOrder.isPresent()) {
+        transferMetrics.timeCommit();
+        PhaseTimer timer = transferMetrics.startPhases(Phase.IDEMPOTENCY_LOOKUP);
+        try {
+            return executeBatchTransfer(request, timer);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private BatchTransferResponse executeBatchTransfer(BatchTransferRequest request, PhaseTimer timer) {
+        Optional<BatchTransferResponse> existingResponse =
+                idempotencyCache.findExisting(request.idempotencyKey(), paymentOrderRepo::findByIdempotencyKey);
+        if (existingResponse.isPresent()) {
             log.warn("Idempotent request received, returning existing status for key: {}", request.idempotencyKey());
-            var order = existingOrder.get();
-            return new BatchTransferResponse(order.getId(), order.getStatus(), "Request already processed");
+            transferMetrics.replayed(request.items().size());
+            return existingResponse.get();
         }
 
         PaymentOrder paymentOrder;
         List<PaymentOrderItem> orderItems;
-        long totalAmountCents;
 
+        timer.switchTo(Phase.PREPARE);
         try {
-            totalAmountCents = request.items().stream()
-                    .mapToLong(this::convertToCents)
-                    .sum();
-
-            paymentOrder = PaymentOrder.builder()
-                    .idempotencyKey(request.idempotencyKey())
-                    .initiatedByUserId(request.initiatedByUserId())
-                    .sourceAccountId(request.sourceAccountId())
-                    .totalAmountCents(totalAmountCents)
-                    .currency(Currency.EUR)
-                    .status(PaymentOrderStatus.PENDING)
-                    .build();
-
-            int index = 0;
-            orderItems = new ArrayList<>();
-            for (var item : request.items()) {
-                orderItems.add(PaymentOrderItem.builder()
-                        .paymentOrder(paymentOrder)
-                        .destinationAccountId(item.destinationAccountId())
-                        .amountCents(convertToCents(item))
-                        .status(PaymentOrderItemStatus.PENDING)
-                        .orderKey(request.idempotencyKey() + "#" + (index++))
-                        .build());
-            }
-            paymentOrder.setItems(orderItems);
+            paymentOrder = buildOrder(request);
+            orderItems = paymentOrder.getItems();
 
             paymentOrderRepo.saveAndFlush(paymentOrder);
+            idempotencyCache.registerNewKey(request.idempotencyKey());
 
         } catch (DataIntegrityViolationException e) {
             log.warn("Race condition detected for idempotency key: {}", request.idempotencyKey(), e);
-            var racedOrder = paymentOrderRepo.findByIdempotencyKey(request.idempotencyKey())
-                    .orElseThrow(() -> new IllegalStateException("Failed to retrieve raced order"));
-            return new BatchTransferResponse(racedOrder.getId(), racedOrder.getStatus(), "Concurrent request processed");
+            transferMetrics.raced(request.items().size());
+            return racedOrderResponse(request.idempotencyKey());
 
         } catch (Exception e) {
             log.error("Unhandled exception during preparation", e);
@@ -112,63 +127,20 @@ public class DefaultTransferBatchService implements TransferBatchService {
         }
 
         try {
-            Set<UUID> accountIds = request.items().stream()
-                    .map(BatchItem::destinationAccountId)
-                    .collect(Collectors.toSet());
-            accountIds.add(request.sourceAccountId());
-
-            List<Account> lockedAccounts = accountRepo.findAllByIdInAndLock(new ArrayList<>(accountIds));
-            Map<UUID, Account> accountMap = lockedAccounts.stream()
-                    .collect(Collectors.toMap(Account::getId, Function.identity()));
-
-            if (lockedAccounts.size() != accountIds.size()) {
-                throw new BusinessValidationException("One or more accounts not found");
-            }
-
-            Account sourceAccount = accountMap.get(request.sourceAccountId());
-
-            if (!sourceAccount.getOwner().getId().equals(request.initiatedByUserId())) {
-                throw new BusinessValidationException("User does not own the source account");
-            }
-            for (Account acc : lockedAccounts) {
-                if (acc.getStatus() != AccountStatus.ACTIVE) {
-                    throw new BusinessValidationException("Account " + acc.getId() + " is not ACTIVE");
-                }
-            }
-            if (sourceAccount.getBalanceCents() < totalAmountCents) {
-                throw new BusinessValidationException("Insufficient funds");
-            }
-
-            sourceAccount.setBalanceCents(sourceAccount.getBalanceCents() - totalAmountCents);
+            timer.switchTo(Phase.VALIDATION);
+            Set<UUID> shardedAccountIds = new HashSet<>(accountRepo.findShardedIdsByIdIn(collectAccountIds(paymentOrder)));
 
             List<Transaction> transactions = new ArrayList<>();
-            List<Account> updatedAccounts = new ArrayList<>();
-            updatedAccounts.add(sourceAccount);
-
-            for (PaymentOrderItem item : orderItems) {
-                Account destAccount = accountMap.get(item.getDestinationAccountId());
-                destAccount.setBalanceCents(destAccount.getBalanceCents() + item.getAmountCents());
-                updatedAccounts.add(destAccount);
-
-                item.setStatus(PaymentOrderItemStatus.SUCCESS);
-
-                transactions.add(Transaction.builder()
-                        .sourceAccountId(sourceAccount.getId())
-                        .destinationAccountId(destAccount.getId())
-                        .amountCents(item.getAmountCents())
-                        .currency(Currency.EUR)
-                        .paymentOrderId(paymentOrder.getId())
-                        .paymentOrderItemId(item.getId())
-                        .idempotencyKey(request.idempotencyKey())
-                        .build());
-            }
+            applyTransfer(paymentOrder, shardedAccountIds, transactions, timer);
 
-            accountRepo.saveAll(updatedAccounts);
-            transactionRepo.saveAll(transactions);
+            timer.switchTo(Phase.LEDGER);
+            writeLedger(transactions, shardedAccountIds);
 
-            paymentOrder.setStatus(PaymentOrderStatus.COMPLETED);
             paymentOrderRepo.save(paymentOrder);
+            idempotencyCache.rememberAfterCommit(paymentOrder);
+            publishChanges(paymentOrder, true);
 
+            transferMetrics.completed(orderItems.size());
             log.info("Batch transfer completed successfully for key: {}", request.idempotencyKey());
             return new BatchTransferResponse(paymentOrder.getId(), paymentOrder.getStatus(), "Transfer successful");
 
@@ -183,6 +155,498 @@ public class DefaultTransferBatchService implements TransferBatchService {
         }
     }
 
+    /**
+     * Asinhroni prijem: nalog se samo sačuva kao PENDING i odmah vraća, a izvršava ga
+     * background worker preko {@link #processNextPendingOrder()}.
+     */
+    @Transactional
+    public BatchTransferResponse submitBatchTransfer(BatchTransferRequest request) {
+        Optional<BatchTransferResponse> existingResponse =
+                idempotencyCache.findExisting(request.idempotencyKey(), paymentOrderRepo::findByIdempotencyKey);
+        if (existingResponse.isPresent()) {
+            log.warn("Idempotent request received, returning existing status for key: {}", request.idempotencyKey());
+            transferMetrics.replayed(request.items().size());
+            return existingResponse.get();
+        }
+
+        PaymentOrder paymentOrder = buildOrder(request);
+        try {
+            paymentOrderRepo.saveAndFlush(paymentOrder);
+            idempotencyCache.registerNewKey(request.idempotencyKey());
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Race condition detected for idempotency key: {}", request.idempotencyKey(), e);
+            transferMetrics.raced(request.items().size());
+            return racedOrderResponse(request.idempotencyKey());
+        }
+
+        publishChanges(paymentOrder, false);
+        log.info("Batch transfer accepted for async processing, key: {}", request.idempotencyKey());
+        return new BatchTransferResponse(paymentOrder.getId(), paymentOrder.getStatus(), "Transfer accepted for processing");
+    }
+
+    /**
+     * Preuzima (FOR UPDATE SKIP LOCKED) i izvršava najstariji PENDING nalog.
+     * Prazan rezultat znači da nema naloga na čekanju. Sistemska greška se propagira kao
+     * {@link PendingOrderExecutionException}, da bi pozivalac mogao da označi nalog
+     * preko {@link #failPendingOrder} nakon rollback-a.
+     */
+    @Transactional
+    public Optional<BatchTransferResponse> processNextPendingOrder() {
+        Optional<PaymentOrder> claimed = paymentOrderRepo.claimNextPending();
+        if (claimed.isEmpty()) {
+            return Optional.empty();
+        }
+
+        PaymentOrder paymentOrder = claimed.get();
+        try {
+            return Optional.of(executePendingOrder(paymentOrder));
+        } catch (Exception e) {
+            throw new PendingOrderExecutionException(paymentOrder.getId(), e);
+        }
+    }
+
+    /**
+     * Ponovo izvršava postojeći nalog koji je async worker zatvorio zbog sistemske greške
+     * ({@link #failPendingOrder}): nalog se vraća u PENDING i izvršava u ovoj transakciji.
+     * Prazan rezultat znači da takav nalog ne postoji (npr. sinhroni režim, gde je rollback
+     * obrisao i nalog), pa se zahtev šalje ponovo. Sistemska greška se propagira, a rollback
+     * ostavlja nalog FAILED za sledeći pokušaj.
+     */
+    @Transactional
+    public Optional<BatchTransferResponse> retryFailedOrder(UUID paymentOrderId) {
+        Optional<PaymentOrder> failed = paymentOrderRepo.findById(paymentOrderId)
+                .filter(order -> order.getStatus() == PaymentOrderStatus.FAILED)
+                .filter(order -> order.getItems().stream()
+                        .anyMatch(item -> SYSTEM_ERROR_REASON.equals(item.getFailureReason())));
+        if (failed.isEmpty()) {
+            return Optional.empty();
+        }
+
+        PaymentOrder paymentOrder = failed.get();
+        paymentOrder.setStatus(PaymentOrderStatus.PENDING);
+        for (PaymentOrderItem item : paymentOrder.getItems()) {
+            item.setStatus(PaymentOrderItemStatus.PENDING);
+            item.setFailureReason(null);
+        }
+        log.info("Re-executing failed async order for key: {}", paymentOrder.getIdempotencyKey());
+        return Optional.of(executePendingOrder(paymentOrder));
+    }
+
+    private BatchTransferResponse executePendingOrder(PaymentOrder paymentOrder) {
+        transferMetrics.timeCommit();
+        PhaseTimer timer = transferMetrics.startPhases(Phase.VALIDATION);
+        try {
+            Set<UUID> shardedAccountIds = new HashSet<>(accountRepo.findShardedIdsByIdIn(collectAccountIds(paymentOrder)));
+
+            List<Transaction> transactions = new ArrayList<>();
+            applyTransfer(paymentOrder, shardedAccountIds, transactions, timer);
+
+            timer.switchTo(Phase.LEDGER);
+            writeLedger(transactions, shardedAccountIds);
+            paymentOrderRepo.save(paymentOrder);
+            idempotencyCache.rememberAfterCommit(paymentOrder);
+            publishChanges(paymentOrder, true);
+
+            transferMetrics.completed(paymentOrder.getItems().size());
+            log.info("Async batch transfer completed for key: {}", paymentOrder.getIdempotencyKey());
+            return new BatchTransferResponse(paymentOrder.getId(), paymentOrder.getStatus(), "Transfer successful");
+
+        } catch (BusinessValidationException e) {
+            log.warn("Business validation failed for key {}: {}", paymentOrder.getIdempotencyKey(), e.getMessage());
+            return markOrderAsFailed(paymentOrder, paymentOrder.getItems(), e.getMessage());
+
+        } finally {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Označava PENDING nalog kao FAILED nakon sistemske greške i upisuje ga u
+     * IntegrationFailure, da worker ne bi beskonačno ponavljao isti nalog.
+     */
+    @Transactional
+    public void failPendingOrder(UUID paymentOrderId, Exception cause) {
+        paymentOrderRepo.findById(paymentOrderId)
+                .filter(order -> order.getStatus() == PaymentOrderStatus.PENDING)
+                .ifPresent(order -> {
+                    log.error("System error during async transfer execution for key {}: {}",
+                            order.getIdempotencyKey(), cause.getMessage());
+                    markOrderAsFailed(order, order.getItems(), SYSTEM_ERROR_REASON);
+                    logToIntegrationFailure(toRequest(order), cause, order.getId());
+                });
+    }
+
+    /**
+     * Izvršava grupu zahteva u JEDNOJ transakciji (group commit): jedan flush naloga,
+     * jedno zaključavanje unije svih računa u determinističkom redosledu i jedan commit.
+     * Kako se promene salda unutar grupe ne primenjuju u globalnom redosledu, unija se
+     * zaključava unapred, pre prve promene.
+     * <p>
+     * Poslovne greške (npr. nedovoljno sredstava) obaraju samo svoj nalog. Sistemska greška
+     * ili konflikt idempotency ključa se propagira i cela grupa se vraća (rollback) - pozivalac
+     * tada zahteve izvršava pojedinačno preko {@link #executeBatchTransfer}.
+     */
+    @Transactional
+    public List<BatchTransferResponse> executeGroup(List<BatchTransferRequest> requests) {
+        transferMetrics.timeCommit();
+        PhaseTimer timer = transferMetrics.startPhases(Phase.IDEMPOTENCY_LOOKUP);
+        try {
+            return executeGroup(requests, timer);
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private List<BatchTransferResponse> executeGroup(List<BatchTransferRequest> requests, PhaseTimer timer) {
+        List<String> keys = requests.stream().map(BatchTransferRequest::idempotencyKey).toList();
+        Map<String, BatchTransferResponse> existingResponses =
+                idempotencyCache.findExisting(keys, paymentOrderRepo::findByIdempotencyKeyIn);
+
+        timer.switchTo(Phase.PREPARE);
+        Map<BatchTransferRequest, PaymentOrder> newOrders = new LinkedHashMap<>();
+        for (BatchTransferRequest request : requests) {
+            if (existingResponses.containsKey(request.idempotencyKey())) {
+                transferMetrics.replayed(request.items().size());
+            } else {
+                newOrders.put(request, buildOrder(request));
+            }
+        }
+        paymentOrderRepo.saveAllAndFlush(newOrders.values());
+        newOrders.keySet().forEach(request -> idempotencyCache.registerNewKey(request.idempotencyKey()));
+
+        Set<UUID> accountIds = new HashSet<>();
+        Set<UUID> sourceIds = new HashSet<>();
+        for (PaymentOrder order : newOrders.values()) {
+            accountIds.addAll(collectAccountIds(order));
+            sourceIds.add(order.getSourceAccountId());
+        }
+
+        Set<UUID> shardedAccountIds = new HashSet<>();
+        if (!accountIds.isEmpty()) {
+            timer.switchTo(Phase.VALIDATION);
+            shardedAccountIds.addAll(accountRepo.findShardedIdsByIdIn(accountIds));
+            Set<UUID> sharedLockIds = new HashSet<>(shardedAccountIds);
+            sharedLockIds.removeAll(sourceIds);
+            timer.switchTo(Phase.LOCK);
+            lockAccounts(accountIds, sharedLockIds);
+        }
+
+        List<Transaction> transactions = new ArrayList<>();
+        Map<String, BatchTransferResponse> responses = new HashMap<>();
+
+        for (var entry : newOrders.entrySet()) {
+            BatchTransferRequest request = entry.getKey();
+            PaymentOrder order = entry.getValue();
+            try {
+                applyTransfer(order, shardedAccountIds, transactions, timer);
+                idempotencyCache.rememberAfterCommit(order);
+                publishChanges(order, true);
+                transferMetrics.completed(order.getItems().size());
+                responses.put(request.idempotencyKey(), new BatchTransferResponse(order.getId(), order.getStatus(), "Transfer successful"));
+            } catch (BusinessValidationException e) {
+                log.warn("Business validation failed for key {}: {}", request.idempotencyKey(), e.getMessage());
+                responses.put(request.idempotencyKey(), markOrderAsFailed(order, order.getItems(), e.getMessage()));
+            }
+        }
+
+        timer.switchTo(Phase.LEDGER);
+        writeLedger(transactions, shardedAccountIds);
+        paymentOrderRepo.saveAll(newOrders.values());
+
+        log.info("Group commit applied {} new and {} replayed transfer requests", newOrders.size(), existingResponses.size());
+        return requests.stream()
+                .map(request -> existingResponses.getOrDefault(request.idempotencyKey(), responses.get(request.idempotencyKey())))
+                .toList();
+    }
+
+    private PaymentOrder buildOrder(BatchTransferRequest request) {
+        long totalAmountCents = request.items().stream()
+                .mapToLong(this::convertToCents)
+                .sum();
+
+        PaymentOrder paymentOrder = PaymentOrder.builder()
+                .idempotencyKey(request.idempotencyKey())
+                .initiatedByUserId(request.initiatedByUserId())
+                .sourceAccountId(request.sourceAccountId())
+                .totalAmountCents(totalAmountCents)
+                .currency(Currency.EUR)
+                .status(PaymentOrderStatus.PENDING)
+                .build();
+
+        int index = 0;
+        List<PaymentOrderItem> orderItems = new ArrayList<>();
+        for (var item : request.items()) {
+            orderItems.add(PaymentOrderItem.builder()
+                    .paymentOrder(paymentOrder)
+                    .destinationAccountId(item.destinationAccountId())
+                    .amountCents(convertToCents(item))
+                    .status(PaymentOrderItemStatus.PENDING)
+                    .orderKey(request.idempotencyKey() + "#" + (index++))
+                    .build());
+        }
+        paymentOrder.setItems(orderItems);
+        return paymentOrder;
+    }
+
+    private Set<UUID> collectAccountIds(PaymentOrder paymentOrder) {
+        Set<UUID> accountIds = paymentOrder.getItems().stream()
+                .map(PaymentOrderItem::getDestinationAccountId)
+                .collect(Collectors.toSet());
+        accountIds.add(paymentOrder.getSourceAccountId());
+        return accountIds;
+    }
+
+    /**
+     * Rekonstruiše zahtev iz sačuvanog naloga (payload za IntegrationFailure).
+     */
+    private BatchTransferRequest toRequest(PaymentOrder paymentOrder) {
+        List<BatchItem> items = paymentOrder.getItems().stream()
+                .map(item -> new BatchItem(item.getDestinationAccountId(), BigDecimal.valueOf(item.getAmountCents(), 2)))
+                .toList();
+        return new BatchTransferRequest(
+                paymentOrder.getIdempotencyKey(),
+                paymentOrder.getInitiatedByUserId(),
+                paymentOrder.getSourceAccountId(),
+                items
+        );
+    }
+
+    /**
+     * Primenjuje nalog atomskim UPDATE-ima salda (neto promena po računu), u rastućem
+     * redosledu ID-jeva - isti redosled kao {@link #lockAccounts}, pa je zaštita od
+     * deadlock-a ista kao kod eksplicitnog zaključavanja.
+     * <p>
+     * Ako neki UPDATE ne pogodi red, već primenjene promene ovog naloga se poništavaju
+     * pre bacanja BusinessValidationException, pa nalog nikad ne ostaje delimično primenjen.
+     * Pokušaj sa optimističkim računima (vidi {@link AccountConcurrencyStrategy}) ide pod savepoint:
+     * konflikt se vraća rollback-om do savepoint-a, što oslobađa row lock-ove tog pokušaja i ne
+     * menja verzije, pa backoff ne drži zaključane račune koje čekaju drugi nalozi.
+     */
+    private void applyTransfer(PaymentOrder paymentOrder,
+                               Set<UUID> shardedAccountIds,
+                               List<Transaction> transactions,
+                               PhaseTimer timer) {
+        Map<UUID, Long> deltas = new HashMap<>();
+        for (PaymentOrderItem item : paymentOrder.getItems()) {
+            deltas.merge(item.getDestinationAccountId(), item.getAmountCents(), Long::sum);
+        }
+        deltas.merge(paymentOrder.getSourceAccountId(), -paymentOrder.getTotalAmountCents(), Long::sum);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                applyBalanceChanges(paymentOrder, deltas, shardedAccountIds, attempt, timer);
+                break;
+            } catch (OptimisticLockException e) {
+                log.debug("Optimistic conflict for order {} (attempt {}): {}", paymentOrder.getId(), attempt, e.getMessage());
+                concurrencyStrategy.backoff(attempt);
+            }
+        }
+
+        for (PaymentOrderItem item : paymentOrder.getItems()) {
+            item.setStatus(PaymentOrderItemStatus.SUCCESS);
+
+            transactions.add(Transaction.builder()
+                    .sourceAccountId(paymentOrder.getSourceAccountId())
+                    .destinationAccountId(item.getDestinationAccountId())
+                    .amountCents(item.getAmountCents())
+                    .currency(Currency.EUR)
+                    .paymentOrderId(paymentOrder.getId())
+                    .paymentOrderItemId(item.getId())
+                    .idempotencyKey(paymentOrder.getIdempotencyKey())
+                    .build());
+        }
+
+        paymentOrder.setStatus(PaymentOrderStatus.COMPLETED);
+    }
+
+    private void applyBalanceChanges(PaymentOrder paymentOrder,
+                                     Map<UUID, Long> deltas,
+                                     Set<UUID> shardedAccountIds,
+                                     int attempt,
+                                     PhaseTimer timer) {
+        UUID sourceAccountId = paymentOrder.getSourceAccountId();
+        UUID initiatedByUserId = paymentOrder.getInitiatedByUserId();
+        List<UUID> orderedIds = deltas.keySet().stream().sorted(LOCK_ORDER).toList();
+
+        // Sharded računi već imaju svoj put bez čekanja (slotovi), pa ostaju van optimističkog režima
+        Set<UUID> optimisticIds = orderedIds.stream()
+                .filter(id -> !shardedAccountIds.contains(id) && concurrencyStrategy.useOptimistic(id, attempt))
+                .collect(Collectors.toSet());
+        timer.switchTo(Phase.VALIDATION);
+        Map<UUID, AccountState> states = optimisticIds.isEmpty() ? Map.of()
+                : accountRepo.findStatesByIdIn(optimisticIds).stream()
+                        .collect(Collectors.toMap(AccountState::id, state -> state));
+
+        // Uslovni UPDATE-i implicitno čekaju i na row lock, pa se to čekanje vodi kao BALANCE
+        timer.switchTo(Phase.BALANCE);
+        boolean optimisticAttempt = !optimisticIds.isEmpty();
+        Savepoint savepoint = optimisticAttempt ? savepoints.create() : null;
+        Deque<BalanceChange> applied = new ArrayDeque<>();
+        try {
+            for (UUID accountId : orderedIds) {
+                long deltaCents = deltas.get(accountId);
+                boolean sharded = shardedAccountIds.contains(accountId);
+
+                if (optimisticIds.contains(accountId)) {
+                    boolean source = accountId.equals(sourceAccountId);
+                    long minBalanceCents = source ? paymentOrder.getTotalAmountCents() : Long.MIN_VALUE;
+                    AccountState state = requireValid(states.get(accountId), source ? initiatedByUserId : null, minBalanceCents);
+                    long expectedVersion = state.version() == null ? 0L : state.version();
+                    if (accountRepo.applyVersionedBalanceDelta(accountId, expectedVersion, deltaCents, minBalanceCents).isEmpty()) {
+                        concurrencyStrategy.recordOptimisticOutcome(accountId, true);
+                        throw new OptimisticLockException("Account " + accountId + " was modified concurrently");
+                    }
+                    concurrencyStrategy.recordOptimisticOutcome(accountId, false);
+                    applied.push(BalanceChange.balance(accountId, deltaCents));
+                } else if (accountId.equals(sourceAccountId)) {
+                    if (sharded) {
+                        timer.switchTo(Phase.LOCK);
+                        accountRepo.lockAllById(List.of(accountId));
+                        balanceSlotService.sweepIntoBalance(accountId);
+                        timer.switchTo(Phase.BALANCE);
+                    }
+                    if (accountRepo.applyOwnedBalanceDelta(accountId, initiatedByUserId,
+                            deltaCents, paymentOrder.getTotalAmountCents(), Integer.MAX_VALUE).isEmpty()) {
+                        timer.switchTo(Phase.VALIDATION);
+                        throw rejection(accountId, initiatedByUserId);
+                    }
+                    applied.push(BalanceChange.balance(accountId, deltaCents));
+                } else if (sharded) {
+                    OptionalInt slot = balanceSlotService.credit(accountId, deltaCents);
+                    if (slot.isEmpty()) {
+                        timer.switchTo(Phase.VALIDATION);
+                        throw rejection(accountId, null);
+                    }
+                    applied.push(BalanceChange.slotCredit(accountId, deltaCents, slot.getAsInt()));
+                } else {
+                    if (accountRepo.applyBalanceDelta(accountId, deltaCents, Long.MIN_VALUE).isEmpty()) {
+                        timer.switchTo(Phase.VALIDATION);
+                        throw rejection(accountId, null);
+                    }
+                    applied.push(BalanceChange.balance(accountId, deltaCents));
+                }
+            }
+        } catch (BusinessValidationException | OptimisticLockException e) {
+            timer.switchTo(Phase.BALANCE);
+            if (optimisticAttempt) {
+                savepoints.rollbackTo(savepoint);
+            } else {
+                revert(applied);
+            }
+            throw e;
+        }
+        if (optimisticAttempt) {
+            savepoints.release(savepoint);
+        }
+    }
+
+    /**
+     * Upisuje transakcije i njihova knjiženja (debit izvora, kredit odredišta). Kredit sharded
+     * računa koji nije izvor ide u pod-saldo, pa njegovo knjiženje ostaje bez rednog broja.
+     */
+    private void writeLedger(List<Transaction> transactions, Set<UUID> shardedAccountIds) {
+        ledgerWriter.writeTransactions(transactions);
+
+        List<PostingLeg> legs = new ArrayList<>(transactions.size() * 2);
+        for (Transaction t : transactions) {
+            UUID source = t.getSourceAccountId();
+            UUID destination = t.getDestinationAccountId();
+            boolean slotCredit = shardedAccountIds.contains(destination) && !destination.equals(source);
+            legs.add(new PostingLeg(source, -t.getAmountCents(), t.getCurrency(), PostingType.TRANSFER_OUT,
+                    destination, t.getId(), t.getPaymentOrderId(), false));
+            legs.add(new PostingLeg(destination, t.getAmountCents(), t.getCurrency(), PostingType.TRANSFER_IN,
+                    source, t.getId(), t.getPaymentOrderId(), slotCredit));
+        }
+        postingWriter.post(legs);
+    }
+
+    /**
+     * Poništava promene u obrnutom redosledu. Redovi su i dalje zaključani ovom
+     * transakcijom, pa ovi UPDATE-i ne mogu da ne uspeju.
+     */
+    private void revert(Deque<BalanceChange> applied) {
+        for (BalanceChange change : applied) {
+            if (change.slot() != null) {
+                balanceSlotService.reverseCredit(change.accountId(), change.slot(), change.deltaCents());
+            } else {
+                accountRepo.applyBalanceDelta(change.accountId(), -change.deltaCents(), Long.MIN_VALUE);
+            }
+        }
+    }
+
+    /**
+     * Utvrđuje zašto uslovni UPDATE nije pogodio red (čita se samo u slučaju greške).
+     */
+    private BusinessValidationException rejection(UUID accountId, UUID requiredOwnerId) {
+        return accountRepo.findStateById(accountId)
+                .map(state -> violation(state, requiredOwnerId)
+                        .orElseGet(() -> new BusinessValidationException("Insufficient funds")))
+                .orElseGet(() -> new BusinessValidationException("One or more accounts not found"));
+    }
+
+    /**
+     * Provera pročitanog stanja pre optimističke promene - iste poruke kao {@link #rejection}.
+     */
+    private AccountState requireValid(AccountState state, UUID requiredOwnerId, long minBalanceCents) {
+        if (state == null) {
+            throw new BusinessValidationException("One or more accounts not found");
+        }
+        violation(state, requiredOwnerId).ifPresent(e -> {
+            throw e;
+        });
+        if (state.balanceCents() < minBalanceCents) {
+            throw new BusinessValidationException("Insufficient funds");
+        }
+        return state;
+    }
+
+    private Optional<BusinessValidationException> violation(AccountState state, UUID requiredOwnerId) {
+        if (requiredOwnerId != null && !state.ownerId().equals(requiredOwnerId)) {
+            return Optional.of(new BusinessValidationException("User does not own the source account"));
+        }
+        if (state.status() != AccountStatus.ACTIVE) {
+            return Optional.of(new BusinessValidationException("Account " + state.id() + " is not ACTIVE"));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Primenjena promena salda; {@code slot} je pod-saldo koji je kredit pogodio (null za glavni saldo).
+     */
+    private record BalanceChange(UUID accountId, long deltaCents, Integer slot) {
+
+        static BalanceChange balance(UUID accountId, long deltaCents) {
+            return new BalanceChange(accountId, deltaCents, null);
+        }
+
+        static BalanceChange slotCredit(UUID accountId, long deltaCents, int slot) {
+            return new BalanceChange(accountId, deltaCents, slot);
+        }
+    }
+
+    /**
+     * Zaključava račune u rastućem redosledu ID-jeva (zaštita od deadlock-a).
+     * Sharded odredišni računi dobijaju FOR SHARE, pa paralelni krediti na isti
+     * "vrući" račun ne čekaju jedan na drugi; svi ostali dobijaju FOR UPDATE.
+     */
+    private void lockAccounts(Set<UUID> accountIds, Set<UUID> sharedLockIds) {
+        List<UUID> sortedIds = accountIds.stream().sorted(LOCK_ORDER).toList();
+        int runStart = 0;
+        for (int i = 1; i <= sortedIds.size(); i++) {
+            boolean shared = sharedLockIds.contains(sortedIds.get(runStart));
+            if (i < sortedIds.size() && sharedLockIds.contains(sortedIds.get(i)) == shared) {
+                continue;
+            }
+            List<UUID> run = new ArrayList<>(sortedIds.subList(runStart, i));
+            if (shared) {
+                accountRepo.lockAllByIdShared(run);
+            } else {
+                accountRepo.lockAllById(run);
+            }
+            runStart = i;
+        }
+    }
+
     private long convertToCents(BatchItem item) {
         return item.amount().multiply(DECIMAL_MULTIPLIER).longValueExact();
     }
@@ -196,28 +660,54 @@ public class DefaultTransferBatchService implements TransferBatchService {
             }
         }
         paymentOrderRepo.save(order);
+        idempotencyCache.rememberAfterCommit(order);
+        publishChanges(order, false);
+        transferMetrics.failed(reason, items.size());
         return new BatchTransferResponse(order.getId(), order.getStatus(), reason);
     }
 
-    private void logToIntegrationFailure(BatchTransferRequest request, Exception e, UUID orderId) {
-        try {
-            String payload = objectMapper.writeValueAsString(request);
-
-            String entityName = (orderId != null) ? DLQ_ENTITY_NAME_ORDER : DLQ_ENTITY_NAME_REQUEST;
-
-            IntegrationFailure failure = IntegrationFailure.builder()
-                    .context(DLQ_CONTEXT)
-                    .entityName(entityName)
-                    .relatedId(orderId)
-                    .message(e.getMessage())
-                    .payload(payload)
-                    .retryCount(0)
-                    .build();
-            failureRepo.save(failure);
+    /**
+     * Nalog koji je pod istim ključem upisao konkurentni zahtev (npr. druga instanca, za ključ koji
+     * Bloom filter ove instance još ne zna). Unique violation je prekinuo tekuću Postgres transakciju,
+     * pa se nalog čita u novoj, a tekuća se označava za rollback - tako se vraća tiho, umesto da
+     * commit baci UnexpectedRollbackException.
+     */
+    private BatchTransferResponse racedOrderResponse(String idempotencyKey) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        }
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        requiresNew.setReadOnly(true);
+        var racedOrder = requiresNew.execute(status -> paymentOrderRepo.findByIdempotencyKey(idempotencyKey))
+                .orElseThrow(() -> new IllegalStateException("Failed to retrieve raced order"));
+        return new BatchTransferResponse(racedOrder.getId(), racedOrder.getStatus(), "Concurrent request processed");
+    }
 
-        } catch (Exception loggingException) {
-            log.error("CRITICAL: Failed to log to IntegrationFailure table. Original error: {}. Logging error: {}",
-                    e.getMessage(), loggingException.getMessage());
+    /**
+     * Keš izveštaja i računa se invalidira posle commit-a; vlasnik izvornog računa je inicijator,
+     * a vlasnike odredišta keš razrešava sam. Završen nalog (uspešan ili odbijen) ide i u outbox,
+     * u istoj transakciji. Svi slušaoci događaja rade posle commit-a, pa grupa koja se vrati
+     * (rollback) ne objavljuje ništa.
+     */
+    private void publishChanges(PaymentOrder order, boolean balancesChanged) {
+        if (order.getStatus() != PaymentOrderStatus.PENDING) {
+            outboxWriter.append(TransferOutcome.outboxMessage(order));
+        }
+        eventPublisher.publishEvent(new PaymentOrderChangedEvent(order.getInitiatedByUserId(), order.getId(), order.getStatus()));
+        if (balancesChanged) {
+            eventPublisher.publishEvent(new AccountsChangedEvent(Set.of(order.getInitiatedByUserId()), collectAccountIds(order)));
         }
     }
+
+    /**
+     * Greška ide u {@link DeadLetterWriter}, koji je upisuje u zasebnoj transakciji - ostaje i kada se
+     * transakcija ovog zahteva vrati (rollback) zbog izuzetka koji sledi.
+     */
+    private void logToIntegrationFailure(BatchTransferRequest request, Exception e, UUID orderId) {
+        String entityName = (orderId != null) ? DLQ_ENTITY_NAME_ORDER : DLQ_ENTITY_NAME_REQUEST;
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        deadLetterWriter.submit(new DeadLetter(DLQ_CONTEXT, entityName, orderId, message, request, Instant.now(),
+                request.idempotencyKey()));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,213 @@
+package com.nlb.service;
+
+import com.nlb.exception.ServiceBusyException;
+import com.nlb.interfaces.TransferBatchService;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit ispred {@link DefaultTransferBatchService}.
+ * <p>
+ * Zahtevi koji stignu u kratkom prozoru (ili dok se ne skupi maxGroupSize zahteva) izvršavaju
+ * se u jednoj transakciji, pa se cena zaključavanja, flush-a i commit fsync-a deli na celu grupu.
+ * Svaki pozivalac i dalje dobija svoj {@link BatchTransferResponse}. Ako grupa padne zbog
+ * sistemske greške, zahtevi se ponavljaju pojedinačno, tako da neispravan zahtev obara samo sebe.
+ * Uključuje se sa {@code nlb.transfers.mode=group-commit}.
+ * <p>
+ * Pozivalac ne drži ni konekciju ni dozvolu transfers bulkhead-a dok čeka grupu - dozvolu uzima
+ * dispečer za svaku transakciju, pa jedna grupa troši jednu dozvolu i veličina grupe ne zavisi od
+ * broja dozvola.
+ * <p>
+ * Pozivalac čeka rezultat najviše {@code await-timeout}. Ako zahtev do tada još stoji u redu, vadi
+ * ga i izvršava sam; ako ga je dispečer već uzeo, dobija {@link ServiceBusyException} i ponavlja
+ * ga sa istim idempotency ključem.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "nlb.transfers.mode", havingValue = "group-commit")
+@Slf4j
+public class GroupCommitTransferBatchService implements TransferBatchService {
+
+    private final DefaultTransferBatchService delegate;
+    private final DbBulkhead bulkhead;
+    private final Duration window;
+    private final int maxGroupSize;
+    private final int dispatcherCount;
+    private final Duration awaitTimeout;
+    private final BlockingQueue<PendingTransfer> queue;
+    private final List<Thread> dispatchers = new ArrayList<>();
+    private volatile boolean running;
+
+    public GroupCommitTransferBatchService(
+            DefaultTransferBatchService delegate,
+            DbBulkheads bulkheads,
+            @Value("${nlb.transfers.group-commit.window:5ms}") Duration window,
+            @Value("${nlb.transfers.group-commit.max-group-size:64}") int maxGroupSize,
+            @Value("${nlb.transfers.group-commit.queue-capacity:4096}") int queueCapacity,
+            @Value("${nlb.transfers.group-commit.dispatchers:1}") int dispatcherCount,
+            @Value("${nlb.transfers.group-commit.await-timeout:30s}") Duration awaitTimeout
+    ) {
+        this.delegate = delegate;
+        this.bulkhead = bulkheads.getTransfers();
+        this.window = window;
+        this.maxGroupSize = maxGroupSize;
+        this.dispatcherCount = dispatcherCount;
+        this.awaitTimeout = awaitTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        for (int i = 0; i < dispatcherCount; i++) {
+            Thread dispatcher = new Thread(this::dispatchLoop, "transfer-group-commit-" + i);
+            dispatcher.setDaemon(true);
+            dispatcher.start();
+            dispatchers.add(dispatcher);
+        }
+        log.info("Group commit enabled: window={}, maxGroupSize={}, dispatchers={}", window, maxGroupSize, dispatcherCount);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        dispatchers.forEach(Thread::interrupt);
+        drainQueue();
+    }
+
+    // Svaki zahtev iz reda izvršava tačno jedna nit - ona kojoj poll vrati taj zahtev
+    private void drainQueue() {
+        PendingTransfer pending;
+        while ((pending = queue.poll()) != null) {
+            executeSingle(pending);
+        }
+    }
+
+    @Override
+    public boolean usesOwnBulkhead() {
+        return true;
+    }
+
+    @Override
+    public BatchTransferResponse executeBatchTransfer(BatchTransferRequest request) {
+        var pending = new PendingTransfer(request, new CompletableFuture<>());
+        if (!running || !queue.offer(pending)) {
+            // Red je pun (ili se servis gasi) - izvrši direktno umesto da blokiramo pozivaoca
+            return bulkhead.call(() -> delegate.executeBatchTransfer(request));
+        }
+        if (!running) {
+            // stop() je možda već ispraznio red pre našeg offer-a i niko drugi ga neće preuzeti
+            drainQueue();
+        }
+        try {
+            return pending.result().get(awaitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                return bulkhead.call(() -> delegate.executeBatchTransfer(request));
+            }
+            throw new ServiceBusyException("Transfer is still being processed, retry with the same idempotency key");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for group commit");
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                List<PendingTransfer> group = new ArrayList<>(maxGroupSize);
+                group.add(queue.take());
+
+                long deadline = System.nanoTime() + window.toNanos();
+                while (group.size() < maxGroupSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingTransfer next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commitOrFail(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Greška koja promakne commit-u (npr. Error) ne sme da ostavi pozivaoce bez odgovora ni da ugasi dispečera
+    void commitOrFail(List<PendingTransfer> group) {
+        try {
+            commit(group);
+        } catch (Throwable t) {
+            log.error("Group commit dispatcher failed for {} requests", group.size(), t);
+            group.forEach(pending -> pending.result().completeExceptionally(t));
+        }
+    }
+
+    void commit(List<PendingTransfer> group) {
+        // Isti idempotency ključ dva puta u grupi bi oborio unique constraint za celu grupu;
+        // duplikati idu posle commit-a grupe i dobijaju postojeći rezultat
+        Set<String> keys = new HashSet<>();
+        List<PendingTransfer> unique = new ArrayList<>();
+        List<PendingTransfer> duplicates = new ArrayList<>();
+        for (PendingTransfer pending : group) {
+            (keys.add(pending.request().idempotencyKey()) ? unique : duplicates).add(pending);
+        }
+
+        if (unique.size() == 1) {
+            executeSingle(unique.getFirst());
+        } else {
+            try {
+                List<BatchTransferResponse> responses = bulkhead.call(() -> delegate.executeGroup(
+                        unique.stream().map(PendingTransfer::request).toList()));
+                for (int i = 0; i < unique.size(); i++) {
+                    unique.get(i).result().complete(responses.get(i));
+                }
+            } catch (ServiceBusyException e) {
+                // Pojedinačno izvršavanje bi za svaki zahtev ponovo čekalo na dozvolu
+                unique.forEach(pending -> pending.result().completeExceptionally(e));
+            } catch (Exception e) {
+                log.warn("Group commit of {} requests failed, falling back to individual execution: {}",
+                        unique.size(), e.getMessage());
+                unique.forEach(this::executeSingle);
+            }
+        }
+
+        duplicates.forEach(this::executeSingle);
+    }
+
+    private void executeSingle(PendingTransfer pending) {
+        try {
+            pending.result().complete(bulkhead.call(() -> delegate.executeBatchTransfer(pending.request())));
+        } catch (Exception e) {
+            pending.result().completeExceptionally(e);
+        }
+    }
+
+    record PendingTransfer(BatchTransferRequest request, CompletableFuture<BatchTransferResponse> result) {}
+}
@@ -0,0 +1,226 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.service.models.BatchTransferResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * In-JVM keš ispred {@code paymentOrderRepo.findByIdempotencyKey}.
+ * <p>
+ * LRU drži nedavne ključeve završenih naloga (COMPLETED/FAILED), pa ponovljeni zahtev dobija
+ * odgovor bez odlaska u bazu. Bloom filter (napunjen svim postojećim ključevima pri startu)
+ * govori kada je ključ sigurno nov, pa se lookup preskače. Ključ koji je u međuvremenu upisala
+ * druga instanca i dalje hvata unique constraint na idempotency_key, a servis tada postojeći nalog
+ * čita u novoj transakciji - filter ne menja ishod, samo štedi lookup.
+ */
+@Component
+@Slf4j
+public class IdempotencyKeyCache {
+
+    private static final String REPLAY_MESSAGE = "Request already processed";
+    // Gruba procena po LRU unosu: LinkedHashMap.Entry + String + CachedOrder + UUID
+    private static final long ENTRY_OVERHEAD_BYTES = 160L;
+
+    private final PaymentOrderRepository paymentOrderRepo;
+    private final int capacity;
+    private final int warmUpPageSize;
+    private final Map<String, CachedOrder> recent;
+    private final IdempotencyBloomFilter bloomFilter;
+    private volatile boolean bloomReady;
+    private long recentKeyBytes;
+
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter bloomNegatives;
+    private final Counter bloomFalsePositives;
+
+    public IdempotencyKeyCache(
+            PaymentOrderRepository paymentOrderRepo,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.transfers.idempotency-cache.capacity:10000}") int capacity,
+            @Value("${nlb.transfers.idempotency-cache.bloom.expected-keys:1000000}") long expectedKeys,
+            @Value("${nlb.transfers.idempotency-cache.bloom.false-positive-rate:0.01}") double falsePositiveRate,
+            @Value("${nlb.transfers.idempotency-cache.warm-up-page-size:10000}") int warmUpPageSize
+    ) {
+        this.paymentOrderRepo = paymentOrderRepo;
+        this.capacity = capacity;
+        this.warmUpPageSize = warmUpPageSize;
+        this.bloomFilter = new IdempotencyBloomFilter(expectedKeys, falsePositiveRate);
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedOrder> eldest) {
+                if (size() > IdempotencyKeyCache.this.capacity) {
+                    recentKeyBytes -= eldest.getKey().length() * 2L;
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        this.cacheHits = Counter.builder("nlb.idempotency.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.cacheMisses = Counter.builder("nlb.idempotency.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.bloomNegatives = Counter.builder("nlb.idempotency.bloom.checks").tag("result", "negative").register(meterRegistry);
+        this.bloomFalsePositives = Counter.builder("nlb.idempotency.bloom.checks").tag("result", "false_positive").register(meterRegistry);
+        Gauge.builder("nlb.idempotency.cache.hit.ratio", this, IdempotencyKeyCache::hitRatio).register(meterRegistry);
+        Gauge.builder("nlb.idempotency.cache.size", this, IdempotencyKeyCache::size).register(meterRegistry);
+        Gauge.builder("nlb.idempotency.bloom.false.positive.rate", this, IdempotencyKeyCache::observedFalsePositiveRate)
+                .register(meterRegistry);
+        Gauge.builder("nlb.idempotency.bloom.expected.false.positive.rate", bloomFilter,
+                IdempotencyBloomFilter::expectedFalsePositiveRate).register(meterRegistry);
+        Gauge.builder("nlb.idempotency.memory", this, IdempotencyKeyCache::memoryBytes)
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    /**
+     * Puni Bloom filter postojećim ključevima u pozadini; dok punjenje traje, filter se ne koristi.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWarmUp() {
+        Thread warmUp = new Thread(this::warmUp, "idempotency-bloom-warm-up");
+        warmUp.setDaemon(true);
+        warmUp.start();
+    }
+
+    void warmUp() {
+        try {
+            String after = "";
+            long loaded = 0;
+            List<String> page;
+            do {
+                page = paymentOrderRepo.findIdempotencyKeysAfter(after, Limit.of(warmUpPageSize));
+                page.forEach(bloomFilter::put);
+                loaded += page.size();
+                if (!page.isEmpty()) {
+                    after = page.getLast();
+                }
+            } while (page.size() == warmUpPageSize);
+            bloomReady = true;
+            log.info("Idempotency Bloom filter ready with {} existing keys", loaded);
+        } catch (Exception e) {
+            log.error("Idempotency Bloom filter warm-up failed, every key will be looked up: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Odgovor za već viđen ključ - iz LRU-a ili, ako Bloom filter ne isključuje ključ, preko {@code loader}-a.
+     */
+    public Optional<BatchTransferResponse> findExisting(String key, Function<String, Optional<PaymentOrder>> loader) {
+        return Optional.ofNullable(findExisting(List.of(key), keys -> loader.apply(key).stream().toList()).get(key));
+    }
+
+    /**
+     * Grupna varijanta: u bazu idu samo ključevi kojih nema u LRU-u, a koje Bloom filter ne isključuje.
+     */
+    public Map<String, BatchTransferResponse> findExisting(Collection<String> keys,
+                                                           Function<List<String>, List<PaymentOrder>> loader) {
+        Map<String, BatchTransferResponse> existing = new HashMap<>();
+        List<String> toLoad = new ArrayList<>();
+        for (String key : keys) {
+            CachedOrder cached = get(key);
+            if (cached != null) {
+                cacheHits.increment();
+                existing.put(key, cached.toResponse());
+                continue;
+            }
+            cacheMisses.increment();
+            if (bloomReady && !bloomFilter.mightContain(key)) {
+                bloomNegatives.increment();
+            } else {
+                toLoad.add(key);
+            }
+        }
+
+        if (!toLoad.isEmpty()) {
+            for (PaymentOrder order : loader.apply(toLoad)) {
+                remember(order);
+                existing.put(order.getIdempotencyKey(), new CachedOrder(order.getId(), order.getStatus()).toResponse());
+            }
+            if (bloomReady) {
+                toLoad.stream().filter(key -> !existing.containsKey(key)).forEach(key -> bloomFalsePositives.increment());
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Beleži novi ključ u Bloom filter (odmah - lažno "možda" je bezopasno).
+     */
+    public void registerNewKey(String key) {
+        bloomFilter.put(key);
+    }
+
+    /**
+     * Pamti završen nalog u LRU tek nakon commit-a, da rollback ne bi ostavio keširan odgovor.
+     */
+    public void rememberAfterCommit(PaymentOrder order) {
+        CachedOrder cached = new CachedOrder(order.getId(), order.getStatus());
+        String key = order.getIdempotencyKey();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    put(key, cached);
+                }
+            });
+        } else {
+            put(key, cached);
+        }
+    }
+
+    private void remember(PaymentOrder order) {
+        put(order.getIdempotencyKey(), new CachedOrder(order.getId(), order.getStatus()));
+    }
+
+    private synchronized CachedOrder get(String key) {
+        return recent.get(key);
+    }
+
+    private synchronized void put(String key, CachedOrder cached) {
+        // PENDING (async režim) i RECEIVING (streaming upload) se menjaju - kešira se samo konačan status
+        if (cached.status() == PaymentOrderStatus.PENDING || cached.status() == PaymentOrderStatus.RECEIVING) {
+            return;
+        }
+        if (recent.put(key, cached) == null) {
+            recentKeyBytes += key.length() * 2L;
+        }
+    }
+
+    synchronized int size() {
+        return recent.size();
+    }
+
+    double hitRatio() {
+        double total = cacheHits.count() + cacheMisses.count();
+        return total == 0 ? 0.0 : cacheHits.count() / total;
+    }
+
+    double observedFalsePositiveRate() {
+        double total = bloomNegatives.count() + bloomFalsePositives.count();
+        return total == 0 ? 0.0 : bloomFalsePositives.count() / total;
+    }
+
+    synchronized long memoryBytes() {
+        return bloomFilter.sizeInBytes() + recentKeyBytes + recent.size() * ENTRY_OVERHEAD_BYTES;
+    }
+
+    private record CachedOrder(UUID paymentOrderId, PaymentOrderStatus status) {
+        BatchTransferResponse toResponse() {
+            return new BatchTransferResponse(paymentOrderId, status, REPLAY_MESSAGE);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.nlb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.interfaces.TransferBatchService;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Ponavljanje transfera čiji je zahtev završio u {@code integration_failures}.
+ * <p>
+ * Worker niti (na svim instancama) preuzimaju dospele PENDING greške u batch-evima preko
+ * FOR UPDATE SKIP LOCKED i odmah im pomeraju {@code next_attempt_at} za {@code lease}, pa
+ * se zaključavanje ne drži tokom transfera, a greška instance koja je pala posle isteka
+ * lease-a preuzima druga. Zahtev se ponovo šalje kroz {@link TransferBatchService} sa istim
+ * idempotency ključem, pa dvostruko izvršavanje nije moguće. Nalog koji je async worker već
+ * zatvorio kao FAILED zbog sistemske greške idempotency bi samo vratio, pa se on ponovo izvršava
+ * direktno ({@link DefaultTransferBatchService#retryFailedOrder}). Svaki odgovor (i poslovno
+ * odbijanje) rešava grešku; izuzetak je odlaže eksponencijalno, a posle {@code max-attempts}
+ * pokušaja, ili kada payload ne može da se pročita, greška se parkira (PARKED) za ručnu obradu.
+ */
+@Service
+@ConditionalOnProperty(name = "nlb.failures.retry.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class IntegrationFailureRetryWorker {
+
+    private static final String CLAIM_SQL = """
+            UPDATE integration_failures SET next_attempt_at = ?
+            WHERE id IN (
+                SELECT id FROM integration_failures
+                WHERE status = 'PENDING' AND context = ? AND next_attempt_at <= ?
+                ORDER BY next_attempt_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING id, payload, retry_count, related_id
+            """;
+    static final String RESOLVE_SQL =
+            "UPDATE integration_failures SET status = 'RESOLVED', last_error = NULL WHERE id = ? AND status = 'PENDING'";
+    static final String RESCHEDULE_SQL = "UPDATE integration_failures SET retry_count = ?, next_attempt_at = ?, "
+            + "last_error = ? WHERE id = ? AND status = 'PENDING'";
+    static final String PARK_SQL = "UPDATE integration_failures SET status = 'PARKED', retry_count = ?, "
+            + "last_error = ? WHERE id = ? AND status = 'PENDING'";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferBatchService transferService;
+    private final DefaultTransferBatchService failedOrderExecutor;
+    private final ObjectMapper objectMapper;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Counter resolved;
+    private final Counter rescheduled;
+    private final Counter parked;
+    private final Timer attemptTimer;
+    private final boolean virtualThreads;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public IntegrationFailureRetryWorker(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            TransferBatchService transferService,
+            DefaultTransferBatchService failedOrderExecutor,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.failures.retry.workers:4}") int workerCount,
+            @Value("${nlb.failures.retry.batch-size:100}") int batchSize,
+            @Value("${nlb.failures.retry.poll-interval:1s}") Duration pollInterval,
+            @Value("${nlb.failures.retry.lease:5m}") Duration lease,
+            @Value("${nlb.failures.retry.max-attempts:10}") int maxAttempts,
+            @Value("${nlb.failures.retry.backoff:10s}") Duration backoff,
+            @Value("${nlb.failures.retry.max-backoff:1h}") Duration maxBackoff,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transferService = transferService;
+        this.failedOrderExecutor = failedOrderExecutor;
+        this.objectMapper = objectMapper;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.virtualThreads = virtualThreads;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+
+        this.resolved = outcomeCounter(meterRegistry, "resolved");
+        this.rescheduled = outcomeCounter(meterRegistry, "rescheduled");
+        this.parked = outcomeCounter(meterRegistry, "parked");
+        this.attemptTimer = Timer.builder("nlb.failure.retry.attempt")
+                .description("Time spent re-submitting one failed transfer")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("nlb.failure.retry.outcomes")
+                .description("Integration failure retry attempts by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(threads.name("failure-retry-worker-" + i).start(this::workLoop));
+        }
+        log.info("Integration failure retry enabled: workers={}, batchSize={}, maxAttempts={}",
+                workerCount, batchSize, maxAttempts);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                if (processDue(Instant.now()) < batchSize) {
+                    Thread.sleep(pollInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // npr. baza nedostupna - preuzete greške se vraćaju posle isteka lease-a
+                log.error("Integration failure retry worker failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Preuzima jedan batch dospelih grešaka i ponavlja ih; vraća broj preuzetih.
+     */
+    int processDue(Instant now) {
+        List<ClaimedFailure> claimed = claim(now);
+        for (ClaimedFailure failure : claimed) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            retry(failure, Instant.now());
+        }
+        return claimed.size();
+    }
+
+    private List<ClaimedFailure> claim(Instant now) {
+        return transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new ClaimedFailure(
+                        rs.getObject("id", UUID.class),
+                        rs.getString("payload"),
+                        rs.getInt("retry_count"),
+                        rs.getObject("related_id", UUID.class)),
+                utc(now.plus(lease)), DefaultTransferBatchService.DLQ_CONTEXT, utc(now), batchSize));
+    }
+
+    void retry(ClaimedFailure failure, Instant now) {
+        BatchTransferRequest request;
+        try {
+            request = objectMapper.readValue(failure.payload(), BatchTransferRequest.class);
+        } catch (Exception e) {
+            park(failure, failure.retryCount(), "Payload is not a transfer request: " + e.getMessage());
+            return;
+        }
+
+        int attempts = failure.retryCount() + 1;
+        Timer.Sample sample = Timer.start();
+        try {
+            Optional<BatchTransferResponse> reExecuted = failure.relatedId() != null
+                    ? failedOrderExecutor.retryFailedOrder(failure.relatedId())
+                    : Optional.empty();
+            BatchTransferResponse response = reExecuted.isPresent()
+                    ? reExecuted.get()
+                    : transferService.executeBatchTransfer(request);
+            jdbcTemplate.update(RESOLVE_SQL, failure.id());
+            resolved.increment();
+            log.info("Integration failure {} resolved after {} attempt(s): order {} is {}",
+                    failure.id(), attempts, response.paymentOrderId(), response.status());
+        } catch (Exception e) {
+            String error = rootMessage(e);
+            if (attempts >= maxAttempts) {
+                park(failure, attempts, error);
+            } else {
+                jdbcTemplate.update(RESCHEDULE_SQL, attempts, utc(now.plus(backoffFor(attempts))),
+                        truncate(error), failure.id());
+                rescheduled.increment();
+            }
+        } finally {
+            sample.stop(attemptTimer);
+        }
+    }
+
+    /**
+     * Čekanje posle {@code attempts} neuspelih pokušaja: backoff * 2^(attempts-1), najviše max-backoff.
+     */
+    Duration backoffFor(int attempts) {
+        int shift = Math.min(attempts - 1, 30);
+        Duration delay = backoff.multipliedBy(1L << shift);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private void park(ClaimedFailure failure, int attempts, String error) {
+        jdbcTemplate.update(PARK_SQL, attempts, truncate(error), failure.id());
+        parked.increment();
+        log.error("Integration failure {} parked after {} attempt(s): {}", failure.id(), attempts, error);
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable root = e;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        return root.getMessage() != null ? root.getMessage() : root.getClass().getName();
+    }
+
+    private static String truncate(String error) {
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+
+    private static OffsetDateTime utc(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    record ClaimedFailure(UUID id, String payload, int retryCount, UUID relatedId) {
+    }
+}
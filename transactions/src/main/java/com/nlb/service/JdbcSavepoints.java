@@ -0,0 +1,40 @@
+package com.nlb.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Savepoint;
+
+/**
+ * JDBC savepoint na konekciji tekuće transakcije. JpaTransactionManager sa Hibernate dijalektom
+ * ne podržava NESTED propagaciju, pa se savepoint pravi direktno na konekciji.
+ * <p>
+ * Rollback do savepoint-a ne vraća entitete u memoriji, zato {@link #create()} prvo flush-uje
+ * persistence context; između savepoint-a i rollback-a smeju da idu samo native UPDATE-i i projekcije.
+ */
+@Component
+public class JdbcSavepoints {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public Savepoint create() {
+        entityManager.flush();
+        return session().doReturningWork(Connection::setSavepoint);
+    }
+
+    public void rollbackTo(Savepoint savepoint) {
+        session().doWork(connection -> connection.rollback(savepoint));
+    }
+
+    public void release(Savepoint savepoint) {
+        session().doWork(connection -> connection.releaseSavepoint(savepoint));
+    }
+
+    private Session session() {
+        return entityManager.unwrap(Session.class);
+    }
+}
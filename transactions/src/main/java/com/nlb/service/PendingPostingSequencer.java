@@ -0,0 +1,105 @@
+package com.nlb.service;
+
+import com.nlb.repository.AccountRepository;
+import com.nlb.repository.LedgerPostingRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Dodeljuje redne brojeve i salda knjiženjima na čekanju (krediti u pod-salda). Inače ih dobijaju tek
+ * pri sweep-u sledećeg debita, pa bi na računu koji samo prima uplate ostala bez njih zauvek.
+ * Svaki račun se zaključava FOR UPDATE u zasebnoj, kratkoj transakciji - krediti na njega čekaju
+ * samo dok traje jedan UPDATE knjiženja.
+ */
+@Service
+@ConditionalOnProperty(name = "nlb.ledger.sequencer.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class PendingPostingSequencer {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final AccountRepository accountRepo;
+    private final LedgerPostingRepository ledgerPostingRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration interval;
+    private Thread worker;
+    private volatile boolean running;
+
+    public PendingPostingSequencer(
+            AccountRepository accountRepo,
+            LedgerPostingRepository ledgerPostingRepo,
+            PlatformTransactionManager transactionManager,
+            @Value("${nlb.ledger.sequencer.interval:1m}") Duration interval
+    ) {
+        this.accountRepo = accountRepo;
+        this.ledgerPostingRepo = ledgerPostingRepo;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.interval = interval;
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        worker = new Thread(this::workLoop, "pending-posting-sequencer");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("Pending posting sequencer enabled: interval={}", interval);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                int sequenced = sequencePending();
+                if (sequenced > 0) {
+                    log.debug("Sequenced {} pending posting(s)", sequenced);
+                }
+            } catch (Exception e) {
+                // npr. baza nedostupna - pokušava se ponovo u sledećem ciklusu
+                log.error("Pending posting sequencer failed: {}", e.getMessage());
+            }
+            try {
+                Thread.sleep(interval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sekvencira knjiženja na čekanju svih računa, po jedan račun u transakciji; vraća broj sekvenciranih knjiženja.
+     */
+    int sequencePending() {
+        int sequenced = 0;
+        List<UUID> accountIds;
+        do {
+            accountIds = ledgerPostingRepo.findAccountIdsWithPendingPostings(BATCH_SIZE);
+            for (UUID accountId : accountIds) {
+                Integer updated = transactionTemplate.execute(status -> {
+                    accountRepo.lockAllById(List.of(accountId));
+                    return ledgerPostingRepo.sequencePendingPostings(List.of(accountId));
+                });
+                sequenced += updated != null ? updated : 0;
+            }
+        } while (accountIds.size() == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        return sequenced;
+    }
+}
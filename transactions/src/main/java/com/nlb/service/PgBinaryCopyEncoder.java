@@ -0,0 +1,69 @@
+package com.nlb.service;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Piše redove u PostgreSQL binarnom COPY formatu (header, redovi, trailer).
+ * Podržani su samo tipovi koje koriste ledger tabele: uuid, bigint, varchar i timestamptz.
+ */
+class PgBinaryCopyEncoder {
+
+    private static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    // 2000-01-01T00:00:00Z - epoha Postgres timestamp-a
+    private static final long PG_EPOCH_SECONDS = 946_684_800L;
+
+    private final DataOutputStream out;
+
+    PgBinaryCopyEncoder(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    void writeHeader() throws IOException {
+        out.write(SIGNATURE);
+        out.writeInt(0); // flags
+        out.writeInt(0); // dužina header extension-a
+    }
+
+    void startRow(int fieldCount) throws IOException {
+        out.writeShort(fieldCount);
+    }
+
+    void writeUuid(UUID value) throws IOException {
+        out.writeInt(16);
+        out.writeLong(value.getMostSignificantBits());
+        out.writeLong(value.getLeastSignificantBits());
+    }
+
+    void writeLong(long value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    void writeText(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    void writeTimestamp(Instant value) throws IOException {
+        long micros = Math.addExact(
+                Math.multiplyExact(value.getEpochSecond() - PG_EPOCH_SECONDS, 1_000_000L),
+                value.getNano() / 1_000L);
+        out.writeInt(8);
+        out.writeLong(micros);
+    }
+
+    void writeTrailer() throws IOException {
+        out.writeShort(-1);
+        out.flush();
+    }
+}
@@ -0,0 +1,195 @@
+package com.nlb.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrike izvršavanja transfera: trajanje po fazi ({@code nlb.transfer.phase}, sa p50/p99/p999
+ * i histogramom za Prometheus) i broj ishoda ({@code nlb.transfer.outcomes}) po veličini batch-a.
+ */
+@Component
+public class TransferMetrics {
+
+    public enum Phase {
+        IDEMPOTENCY_LOOKUP, PREPARE, LOCK, VALIDATION, BALANCE, LEDGER, COMMIT;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Phase, Timer> phaseTimers = new EnumMap<>(Phase.class);
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Phase phase : Phase.values()) {
+            phaseTimers.put(phase, Timer.builder("nlb.transfer.phase")
+                    .description("Time spent in a transfer execution phase")
+                    .tag("phase", phase.tag())
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Štoperica za jedan zahtev: vreme se pripisuje tekućoj fazi do sledećeg {@code switchTo},
+     * pa se faze ne preklapaju. Nije thread-safe - koristi je samo nit koja izvršava zahtev.
+     */
+    public PhaseTimer startPhases(Phase first) {
+        PhaseTimer timer = new PhaseTimer();
+        timer.switchTo(first);
+        return timer;
+    }
+
+    /**
+     * Meri trajanje commit-a tekuće transakcije (od beforeCommit do afterCommit).
+     */
+    public void timeCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private long commitStartedAt;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                commitStartedAt = System.nanoTime();
+            }
+
+            @Override
+            public void afterCommit() {
+                phaseTimers.get(Phase.COMMIT).record(System.nanoTime() - commitStartedAt, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+
+    public void completed(int batchSize) {
+        afterCommit(() -> outcome("completed", "none", batchSize));
+    }
+
+    public void failed(String reason, int batchSize) {
+        afterCommit(() -> outcome("failed", reasonTag(reason), batchSize));
+    }
+
+    public void replayed(int batchSize) {
+        afterCommit(() -> outcome("replay", "none", batchSize));
+    }
+
+    public void raced(int batchSize) {
+        // Trka se desila bez obzira na ishod transakcije koja ju je otkrila
+        outcome("race", "none", batchSize);
+    }
+
+    /**
+     * Ishod se broji tek posle commit-a: grupa koja se vrati (rollback) i ponovi pojedinačno ne
+     * broji svoje naloge dva puta. Van transakcije se broji odmah.
+     */
+    private void afterCommit(Runnable record) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    private void outcome(String outcome, String reason, int batchSize) {
+        Counter.builder("nlb.transfer.outcomes")
+                .description("Transfer requests by outcome")
+                .tag("outcome", outcome)
+                .tag("reason", reason)
+                .tag("batch_size", batchSizeBucket(batchSize))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Poruke sadrže ID računa, pa se za tag svode na fiksan skup vrednosti.
+     */
+    static String reasonTag(String reason) {
+        if (reason == null) {
+            return "unknown";
+        }
+        if (reason.equals("Insufficient funds")) {
+            return "insufficient_funds";
+        }
+        if (reason.equals("User does not own the source account")) {
+            return "not_owner";
+        }
+        if (reason.endsWith("is not ACTIVE")) {
+            return "account_not_active";
+        }
+        if (reason.equals("One or more accounts not found")) {
+            return "account_not_found";
+        }
+        if (reason.startsWith("System error")) {
+            return "system_error";
+        }
+        return "other";
+    }
+
+    static String batchSizeBucket(int batchSize) {
+        if (batchSize <= 1) {
+            return "1";
+        }
+        if (batchSize <= 10) {
+            return "2-10";
+        }
+        if (batchSize <= 100) {
+            return "11-100";
+        }
+        if (batchSize <= 1000) {
+            return "101-1000";
+        }
+        return "1001+";
+    }
+
+    public final class PhaseTimer {
+        private final long[] nanos = new long[Phase.values().length];
+        private Phase current;
+        private long since;
+
+        private PhaseTimer() {
+        }
+
+        /**
+         * Prelazi u novu fazu i vraća prethodnu, da bi se posle kratkog koraka mogla nastaviti.
+         */
+        public Phase switchTo(Phase phase) {
+            long now = System.nanoTime();
+            Phase previous = current;
+            if (previous != null) {
+                nanos[previous.ordinal()] += now - since;
+            }
+            current = phase;
+            since = now;
+            return previous;
+        }
+
+        /**
+         * Zatvara tekuću fazu i beleži ukupno vreme svake faze koja je korišćena.
+         */
+        public void stop() {
+            switchTo(null);
+            for (Phase phase : Phase.values()) {
+                if (nanos[phase.ordinal()] > 0) {
+                    phaseTimers.get(phase).record(nanos[phase.ordinal()], TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nlb.service.models;
+
+import com.nlb.domain.Currency;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Saldo računa u zadatom trenutku.
+ */
+public record AccountBalanceAt(
+        UUID accountId,
+        Instant at,
+        long balanceCents,
+        Currency currency
+) {}
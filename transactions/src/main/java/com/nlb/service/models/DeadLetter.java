@@ -0,0 +1,19 @@
+package com.nlb.service.models;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Greška integracije na čekanju za upis u {@code integration_failures}. {@code payload} se serijalizuje
+ * tek pri upisu, van niti koja je grešku prijavila, pa mora biti nepromenljiv (npr. record zahteva).
+ * Za isti {@code requestKey} u kontekstu postoji najviše jedna nerešena greška; ponovljene se odbacuju.
+ */
+public record DeadLetter(
+        String context,
+        String entityName,
+        UUID relatedId,
+        String message,
+        Object payload,
+        Instant occurredAt,
+        String requestKey
+) {}
@@ -0,0 +1,14 @@
+package com.nlb.service.models;
+
+/**
+ * Šta dead-letter writer radi kada je red pun (npr. baza je nedostupna duže vreme).
+ * Odbačena greška se uvek upisuje u log, sa payload-om, da bi se mogla ručno obnoviti.
+ */
+public enum DeadLetterOverflowPolicy {
+    // Pozivalac čeka najviše offer-timeout da se oslobodi mesto, pa se odbacuje nova greška
+    BLOCK,
+    // Odbacuje se najstarija greška u redu, nova ulazi
+    DROP_OLDEST,
+    // Odbacuje se nova greška, pozivalac ne čeka
+    DROP_NEWEST
+}
@@ -0,0 +1,12 @@
+package com.nlb.service.models;
+
+import java.time.Instant;
+
+/**
+ * Broj grešaka jednog konteksta u vremenskom intervalu koji počinje u {@code bucketStart}.
+ */
+public record IntegrationFailureCount(
+        String context,
+        Instant bucketStart,
+        long failures
+) {}
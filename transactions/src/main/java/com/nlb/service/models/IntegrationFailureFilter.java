@@ -0,0 +1,15 @@
+package com.nlb.service.models;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Filteri konzole grešaka; null polje znači bez tog filtera. {@code from} je uključiv, {@code to} isključiv.
+ */
+public record IntegrationFailureFilter(
+        String context,
+        String entityName,
+        UUID relatedId,
+        Instant from,
+        Instant to
+) {}
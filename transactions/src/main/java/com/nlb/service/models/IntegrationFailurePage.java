@@ -0,0 +1,11 @@
+package com.nlb.service.models;
+
+import java.util.List;
+
+/**
+ * Jedna strana grešaka integracija; {@code nextCursor} je null na poslednjoj strani.
+ */
+public record IntegrationFailurePage(
+        List<IntegrationFailureSummary> failures,
+        String nextCursor
+) {}
@@ -0,0 +1,25 @@
+package com.nlb.service.models;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Greška integracije u konzoli grešaka. {@code payload} je null kada nije tražen - lista ga ne čita.
+ */
+public record IntegrationFailureSummary(
+        UUID id,
+        String context,
+        String entityName,
+        UUID relatedId,
+        String message,
+        String payload,
+        int retryCount,
+        Instant occurredAt
+) {
+
+    // Za projekcije bez payload kolone
+    public IntegrationFailureSummary(UUID id, String context, String entityName, UUID relatedId, String message,
+                                     int retryCount, Instant occurredAt) {
+        this(id, context, entityName, relatedId, message, null, retryCount, occurredAt);
+    }
+}
@@ -0,0 +1,11 @@
+package com.nlb.service.models;
+
+import com.nlb.domain.PaymentOrderStatus;
+
+import java.util.UUID;
+
+/**
+ * Nalog je kreiran ili mu se promenio status; posle commit-a se invalidira keš izveštaja,
+ * a novi status se šalje otvorenim SSE konekcijama inicijatora.
+ */
+public record PaymentOrderChangedEvent(UUID initiatedByUserId, UUID paymentOrderId, PaymentOrderStatus status) {}
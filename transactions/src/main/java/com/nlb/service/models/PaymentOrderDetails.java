@@ -0,0 +1,11 @@
+package com.nlb.service.models;
+
+import java.util.List;
+
+/**
+ * Nalog sa svim stavkama.
+ */
+public record PaymentOrderDetails(
+        PaymentOrderSummary order,
+        List<PaymentOrderItemSummary> items
+) {}
@@ -0,0 +1,16 @@
+package com.nlb.service.models;
+
+import com.nlb.domain.PaymentOrderItemStatus;
+
+import java.util.UUID;
+
+/**
+ * Stavka naloga u detaljima naloga.
+ */
+public record PaymentOrderItemSummary(
+        UUID id,
+        UUID destinationAccountId,
+        long amountCents,
+        PaymentOrderItemStatus status,
+        String failureReason
+) {}
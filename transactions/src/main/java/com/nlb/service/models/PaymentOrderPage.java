@@ -0,0 +1,11 @@
+package com.nlb.service.models;
+
+import java.util.List;
+
+/**
+ * Jedna strana naloga korisnika; {@code nextCursor} je null na poslednjoj strani.
+ */
+public record PaymentOrderPage(
+        List<PaymentOrderSummary> orders,
+        String nextCursor
+) {}
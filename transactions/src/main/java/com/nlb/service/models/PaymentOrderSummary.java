@@ -0,0 +1,21 @@
+package com.nlb.service.models;
+
+import com.nlb.domain.Currency;
+import com.nlb.domain.PaymentOrderStatus;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Nalog u listi naloga - samo kolone koje se prikazuju, bez učitavanja entiteta.
+ */
+public record PaymentOrderSummary(
+        UUID id,
+        String idempotencyKey,
+        UUID sourceAccountId,
+        long totalAmountCents,
+        Currency currency,
+        PaymentOrderStatus status,
+        Instant createdAt,
+        Instant updatedAt
+) {}
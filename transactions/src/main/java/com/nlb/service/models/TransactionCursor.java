@@ -0,0 +1,34 @@
+package com.nlb.service.models;
+
+import com.nlb.exception.BusinessValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Pozicija u keyset listi (izvod računa, lista naloga, greške integracija) - (vreme, id) poslednjeg
+ * vraćenog reda. Klijent je dobija kao neprovidan string i vraća je nepromenjenu za sledeću stranu.
+ */
+public record TransactionCursor(Instant createdAt, UUID id) {
+
+    public String encode() {
+        String raw = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Unexpected cursor format");
+            }
+            Instant createdAt = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            return new TransactionCursor(createdAt, UUID.fromString(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new BusinessValidationException("Invalid cursor");
+        }
+    }
+}
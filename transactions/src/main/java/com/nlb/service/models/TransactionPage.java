@@ -0,0 +1,11 @@
+package com.nlb.service.models;
+
+import java.util.List;
+
+/**
+ * Jedna strana izvoda računa; {@code nextCursor} je null na poslednjoj strani.
+ */
+public record TransactionPage(
+        List<TransactionSummary> transactions,
+        String nextCursor
+) {}
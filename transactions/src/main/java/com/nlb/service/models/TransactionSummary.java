@@ -0,0 +1,19 @@
+package com.nlb.service.models;
+
+import com.nlb.domain.Currency;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Transakcija u izvodu računa - samo kolone koje se prikazuju, bez učitavanja entiteta.
+ */
+public record TransactionSummary(
+        UUID id,
+        UUID sourceAccountId,
+        UUID destinationAccountId,
+        long amountCents,
+        Currency currency,
+        Instant createdAt,
+        UUID paymentOrderId
+) {}
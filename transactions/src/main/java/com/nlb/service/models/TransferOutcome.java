@@ -0,0 +1,34 @@
+package com.nlb.service.models;
+
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.service.model.OutboxEventType;
+import com.nlb.service.model.OutboxMessage;
+
+import java.util.UUID;
+
+/**
+ * Payload TRANSFER_COMPLETED/TRANSFER_FAILED događaja u outbox-u; detalje stavki potrošač čita
+ * preko izveštaja naloga.
+ */
+public record TransferOutcome(
+        UUID paymentOrderId,
+        UUID initiatedByUserId,
+        UUID sourceAccountId,
+        long totalAmountCents,
+        String currency,
+        PaymentOrderStatus status
+) {
+
+    /**
+     * Događaj završenog naloga, po izvornom računu (čiji je lock držan tokom izvršavanja).
+     */
+    public static OutboxMessage outboxMessage(PaymentOrder order) {
+        OutboxEventType type = order.getStatus() == PaymentOrderStatus.COMPLETED
+                ? OutboxEventType.TRANSFER_COMPLETED
+                : OutboxEventType.TRANSFER_FAILED;
+        return new OutboxMessage(order.getSourceAccountId(), type, new TransferOutcome(order.getId(),
+                order.getInitiatedByUserId(), order.getSourceAccountId(), order.getTotalAmountCents(),
+                order.getCurrency().name(), order.getStatus()));
+    }
+}
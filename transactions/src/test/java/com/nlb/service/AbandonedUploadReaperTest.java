@@ -0,0 +1,76 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.service.models.DeadLetter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AbandonedUploadReaperTest {
+
+    @Mock
+    private PaymentOrderRepository paymentOrderRepo;
+    @Mock
+    private DeadLetterWriter deadLetterWriter;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AbandonedUploadReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        reaper = new AbandonedUploadReaper(paymentOrderRepo, deadLetterWriter, transactionManager,
+                Duration.ofMinutes(5), Duration.ofHours(1));
+    }
+
+    /**
+     * Testira da se brišu samo nalozi stariji od abandoned-after i da se obrisani upisuju kao greška integracije
+     */
+    @Test
+    void reap_shouldDeleteStaleReceivingOrdersAndRecordThem() {
+        // Arrange
+        Instant now = Instant.parse("2025-03-04T12:00:00Z");
+        PaymentOrder abandoned = receivingOrder("payroll-1");
+        PaymentOrder completedMeanwhile = receivingOrder("payroll-2");
+        when(paymentOrderRepo.findByStatusAndCreatedAtBeforeOrderByCreatedAt(
+                eq(PaymentOrderStatus.RECEIVING), eq(now.minus(Duration.ofHours(1))), any(Limit.class)))
+                .thenReturn(List.of(abandoned, completedMeanwhile));
+        when(paymentOrderRepo.deleteReceivingOrder(abandoned.getId())).thenReturn(1);
+        when(paymentOrderRepo.deleteReceivingOrder(completedMeanwhile.getId())).thenReturn(0);
+
+        // Act
+        int reaped = reaper.reap(now);
+
+        // Assert
+        assertThat(reaped).isEqualTo(1);
+        ArgumentCaptor<DeadLetter> deadLetter = ArgumentCaptor.forClass(DeadLetter.class);
+        verify(deadLetterWriter).submit(deadLetter.capture());
+        assertThat(deadLetter.getValue().relatedId()).isEqualTo(abandoned.getId());
+        assertThat(deadLetter.getValue().requestKey()).isEqualTo("payroll-1");
+        assertThat(deadLetter.getValue().context()).isEqualTo(DefaultStreamingTransferService.DLQ_CONTEXT);
+    }
+
+    private PaymentOrder receivingOrder(String idempotencyKey) {
+        return PaymentOrder.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(PaymentOrderStatus.RECEIVING)
+                .build();
+    }
+}
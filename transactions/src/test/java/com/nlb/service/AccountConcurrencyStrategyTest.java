@@ -0,0 +1,71 @@
+package com.nlb.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccountConcurrencyStrategyTest {
+
+    /**
+     * Testira da pesimistički režim nikad ne bira optimistički put
+     */
+    @Test
+    void useOptimistic_PessimisticMode_AlwaysFalse() {
+        AccountConcurrencyStrategy strategy = strategy(AccountConcurrencyStrategy.Mode.PESSIMISTIC, Duration.ofSeconds(30));
+
+        assertThat(strategy.useOptimistic(UUID.randomUUID(), 1)).isFalse();
+    }
+
+    /**
+     * Testira da je poslednji pokušaj uvek pesimistički, i u optimističkom režimu
+     */
+    @Test
+    void useOptimistic_OptimisticMode_LastAttemptIsPessimistic() {
+        AccountConcurrencyStrategy strategy = strategy(AccountConcurrencyStrategy.Mode.OPTIMISTIC, Duration.ofSeconds(30));
+        UUID accountId = UUID.randomUUID();
+
+        assertThat(strategy.useOptimistic(accountId, 1)).isTrue();
+        assertThat(strategy.useOptimistic(accountId, 2)).isTrue();
+        assertThat(strategy.useOptimistic(accountId, 3)).isFalse();
+    }
+
+    /**
+     * Testira da adaptivni režim prebaci "vruć" račun na pesimistički put, a ostale ostavi optimističke
+     */
+    @Test
+    void useOptimistic_AdaptiveMode_SwitchesHotAccountToPessimistic() {
+        AccountConcurrencyStrategy strategy = strategy(AccountConcurrencyStrategy.Mode.ADAPTIVE, Duration.ofHours(1));
+        UUID hotAccount = UUID.randomUUID();
+        UUID coldAccount = UUID.randomUUID();
+
+        strategy.recordOptimisticOutcome(coldAccount, false);
+        strategy.recordOptimisticOutcome(hotAccount, true);
+        strategy.recordOptimisticOutcome(hotAccount, true);
+
+        assertThat(strategy.useOptimistic(hotAccount, 1)).isFalse();
+        assertThat(strategy.useOptimistic(coldAccount, 1)).isTrue();
+        assertThat(strategy.conflictRate(coldAccount)).isZero();
+    }
+
+    /**
+     * Testira da stopa konflikata opada sa vremenom, pa se ohlađen račun vraća na optimistički put
+     */
+    @Test
+    void useOptimistic_AdaptiveMode_ConflictRateDecays() throws InterruptedException {
+        AccountConcurrencyStrategy strategy = strategy(AccountConcurrencyStrategy.Mode.ADAPTIVE, Duration.ofMillis(5));
+        UUID accountId = UUID.randomUUID();
+
+        strategy.recordOptimisticOutcome(accountId, true);
+        strategy.recordOptimisticOutcome(accountId, true);
+        Thread.sleep(50);
+
+        assertThat(strategy.useOptimistic(accountId, 1)).isTrue();
+    }
+
+    private static AccountConcurrencyStrategy strategy(AccountConcurrencyStrategy.Mode mode, Duration halfLife) {
+        return new AccountConcurrencyStrategy(mode, 3, Duration.ZERO, Duration.ZERO, 0.2, halfLife, 100);
+    }
+}
@@ -0,0 +1,125 @@
+package com.nlb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long BASELINE_RTT = 10_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new AdaptiveConcurrencyLimiter("transfers", 10, 2, 100, 1.5, 0.2, Duration.ZERO, meterRegistry);
+    }
+
+    /**
+     * Testira da se zahtev preko limita odbija i broji, a vraćena dozvola oslobađa mesto
+     */
+    @Test
+    void tryAcquire_shouldReject_whenLimitIsReached() {
+        // Arrange
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(10);
+
+        // Act
+        AdaptiveConcurrencyLimiter.Permit rejected = limiter.tryAcquire();
+        permits.getFirst().ignore();
+        AdaptiveConcurrencyLimiter.Permit admitted = limiter.tryAcquire();
+
+        // Assert
+        assertThat(rejected).isNull();
+        assertThat(admitted).isNotNull();
+        assertThat(meterRegistry.get("nlb.limiter.rejected").tag("limiter", "transfers").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("nlb.limiter.inflight").tag("limiter", "transfers").gauge().value())
+                .isEqualTo(10.0);
+    }
+
+    /**
+     * Testira da limit raste dok je latencija stabilna i limit iskorišćen
+     */
+    @Test
+    void complete_shouldRaiseLimit_whenLatencyIsStable() {
+        // Act
+        runRounds(20, BASELINE_RTT);
+
+        // Assert
+        assertThat(limiter.getLimit()).isGreaterThan(10);
+        assertThat(meterRegistry.get("nlb.limiter.limit").tag("limiter", "transfers").gauge().value())
+                .isEqualTo(limiter.getLimit());
+    }
+
+    /**
+     * Testira da limit pada kada latencija poraste, ali ne ispod minimuma
+     */
+    @Test
+    void complete_shouldLowerLimitTowardsMinimum_whenLatencyGrows() {
+        // Arrange
+        runRounds(5, BASELINE_RTT);
+        int limitBeforeSlowdown = limiter.getLimit();
+
+        // Act
+        runRounds(30, BASELINE_RTT * 10);
+
+        // Assert
+        assertThat(limiter.getLimit()).isLessThan(limitBeforeSlowdown);
+        assertThat(limiter.getLimit()).isGreaterThanOrEqualTo(2);
+    }
+
+    /**
+     * Testira da limit ne raste kada je iskorišćeno manje od pola (aplikacija nije usko grlo)
+     */
+    @Test
+    void complete_shouldKeepLimit_whenUtilizationIsLow() {
+        // Act
+        for (int i = 0; i < 50; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            limiter.complete(permit, BASELINE_RTT, false);
+        }
+
+        // Assert
+        assertThat(limiter.getLimit()).isEqualTo(10);
+        assertThat(limiter.getInflight()).isZero();
+    }
+
+    /**
+     * Testira da odbijanje nizvodno (pun bulkhead) multiplikativno smanjuje limit
+     */
+    @Test
+    void complete_shouldBackOff_whenRequestWasDropped() {
+        // Arrange
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        // Act
+        limiter.complete(permit, BASELINE_RTT, true);
+
+        // Assert
+        assertThat(limiter.getLimit()).isEqualTo(9);
+    }
+
+    private void runRounds(int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            for (AdaptiveConcurrencyLimiter.Permit permit : acquire(limiter.getLimit())) {
+                limiter.complete(permit, rttNanos, false);
+            }
+        }
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquire(int count) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.exception.PendingOrderExecutionException;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncTransferBatchServiceTest {
+
+    @Mock
+    private DefaultTransferBatchService delegate;
+
+    private AsyncTransferBatchService asyncService;
+
+    @BeforeEach
+    void setUp() {
+        asyncService = new AsyncTransferBatchService(delegate, 1, Duration.ofMillis(50), false);
+    }
+
+    /**
+     * Testira da HTTP put samo predaje nalog (PENDING -> 202), bez izvršavanja
+     */
+    @Test
+    void executeBatchTransfer_shouldOnlySubmit() {
+        var request = new BatchTransferRequest("key-1", UUID.randomUUID(), UUID.randomUUID(),
+                List.of(new BatchItem(UUID.randomUUID(), BigDecimal.TEN)));
+        var accepted = new BatchTransferResponse(UUID.randomUUID(), PaymentOrderStatus.PENDING, "Transfer accepted for processing");
+        when(delegate.submitBatchTransfer(request)).thenReturn(accepted);
+
+        assertThat(asyncService.executeBatchTransfer(request)).isEqualTo(accepted);
+        verify(delegate, never()).processNextPendingOrder();
+    }
+
+    /**
+     * Testira da sistemska greška worker-a zatvara nalog umesto da ga beskonačno ponavlja
+     */
+    @Test
+    void processNext_shouldFailOrder_whenExecutionFails() {
+        UUID orderId = UUID.randomUUID();
+        RuntimeException cause = new RuntimeException("DB Connection Timeout");
+        when(delegate.processNextPendingOrder()).thenThrow(new PendingOrderExecutionException(orderId, cause));
+
+        assertThat(asyncService.processNext()).isTrue();
+        verify(delegate).failPendingOrder(orderId, cause);
+    }
+
+    /**
+     * Testira prazan red - worker treba da sačeka pre sledećeg pokušaja
+     */
+    @Test
+    void processNext_shouldReturnFalse_whenQueueIsEmpty() {
+        when(delegate.processNextPendingOrder()).thenReturn(Optional.empty());
+
+        assertThat(asyncService.processNext()).isFalse();
+    }
+}
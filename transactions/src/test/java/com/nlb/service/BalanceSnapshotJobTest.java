@@ -0,0 +1,129 @@
+package com.nlb.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BalanceSnapshotJobTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BalanceSnapshotJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new BalanceSnapshotJob(jdbcTemplate, transactionManager, Duration.ofMinutes(15), Duration.ofMinutes(10), 2);
+    }
+
+    /**
+     * Testira da se zatvaraju svi završeni dani posle poslednjeg zatvorenog dana, po jedan upsert po danu,
+     * i da se posle svakog dana pomera zapamćen napredak
+     */
+    @Test
+    void closeCompletedDays_shouldCloseEachDayAfterLastClosedDay() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDate.class))).thenReturn(LocalDate.of(2025, 3, 1));
+
+        // Act
+        int closed = job.closeCompletedDays(Instant.parse("2025-03-04T12:00:00Z"));
+
+        // Assert
+        assertThat(closed).isEqualTo(2);
+        OffsetDateTime march2 = OffsetDateTime.of(2025, 3, 2, 0, 0, 0, 0, ZoneOffset.UTC);
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 2)), eq(march2), eq(march2.plusDays(1)), eq(LocalDate.of(2025, 3, 2)));
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 3)), any(), any(), any());
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 2)));
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 3)));
+    }
+
+    /**
+     * Testira da se već zatvoreni dani iz prozora ponovo zatvaraju, redom, da bi knjiženje commit-ovano posle
+     * zatvaranja svog dana ušlo i u taj i u sve kasnije snimke
+     */
+    @Test
+    void closeCompletedDays_shouldRecloseTrailingDays_forLatePostings() {
+        // Arrange: 3. mart je zatvoren, a zatim je commit-ovano knjiženje sa created_at 2. marta
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDate.class))).thenReturn(LocalDate.of(2025, 3, 3));
+
+        // Act
+        int closed = job.closeCompletedDays(Instant.parse("2025-03-04T12:00:00Z"));
+
+        // Assert
+        assertThat(closed).isZero();
+        InOrder inOrder = inOrder(jdbcTemplate);
+        OffsetDateTime march2 = OffsetDateTime.of(2025, 3, 2, 0, 0, 0, 0, ZoneOffset.UTC);
+        inOrder.verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 2)), eq(march2), eq(march2.plusDays(1)), eq(LocalDate.of(2025, 3, 2)));
+        inOrder.verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 3)), any(), any(), any());
+        verify(jdbcTemplate, never()).update(anyString(), eq(LocalDate.of(2025, 3, 1)), any(), any(), any());
+    }
+
+    /**
+     * Testira da se prethodni dan ne zatvara dok ne prođe zadati lag posle ponoći
+     */
+    @Test
+    void closeCompletedDays_shouldWaitForLagAfterMidnight() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDate.class))).thenReturn(LocalDate.of(2025, 3, 2));
+
+        // Act
+        int closed = job.closeCompletedDays(Instant.parse("2025-03-04T00:05:00Z"));
+
+        // Assert
+        assertThat(closed).isZero();
+        verify(jdbcTemplate, never()).update(anyString(), eq(LocalDate.of(2025, 3, 3)), any(), any(), any());
+    }
+
+    /**
+     * Testira da prvo pokretanje kreće od dana prvog knjiženja
+     */
+    @Test
+    void closeCompletedDays_shouldStartFromFirstPosting_whenNoSnapshotsExist() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDate.class))).thenReturn(null);
+        when(jdbcTemplate.queryForObject(anyString(), eq(OffsetDateTime.class)))
+                .thenReturn(OffsetDateTime.parse("2025-03-02T23:30:00-02:00"));
+
+        // Act
+        int closed = job.closeCompletedDays(Instant.parse("2025-03-05T12:00:00Z"));
+
+        // Assert: 23:30 u -02:00 je već 3. mart po UTC
+        assertThat(closed).isEqualTo(2);
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 3)), any(), any(), any());
+        verify(jdbcTemplate).update(anyString(), eq(LocalDate.of(2025, 3, 4)), any(), any(), any());
+    }
+
+    /**
+     * Testira da prazna tabela knjiženja ne pokreće zatvaranje
+     */
+    @Test
+    void closeCompletedDays_shouldDoNothing_whenNoPostingsExist() {
+        // Arrange
+        when(jdbcTemplate.queryForObject(anyString(), eq(LocalDate.class))).thenReturn(null);
+        when(jdbcTemplate.queryForObject(anyString(), eq(OffsetDateTime.class))).thenReturn(null);
+
+        // Act & Assert
+        assertThat(job.closeCompletedDays(Instant.now())).isZero();
+        verifyNoInteractions(transactionManager);
+    }
+}
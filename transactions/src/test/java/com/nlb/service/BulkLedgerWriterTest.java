@@ -0,0 +1,184 @@
+package com.nlb.service;
+
+import com.nlb.domain.Currency;
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderItem;
+import com.nlb.domain.PaymentOrderItemStatus;
+import com.nlb.domain.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkLedgerWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Captor
+    private ArgumentCaptor<String> sqlCaptor;
+    @Captor
+    private ArgumentCaptor<Object[]> argsCaptor;
+
+    private BulkLedgerWriter ledgerWriter;
+
+    @BeforeEach
+    void setUp() {
+        ledgerWriter = new BulkLedgerWriter(jdbcTemplate, 10, 4);
+    }
+
+    /**
+     * Testira da se batch ispod praga upisuje višerednim INSERT-om, podeljen po insert-batch-size
+     */
+    @Test
+    void writeTransactions_BelowThreshold_UsesMultiRowInserts() {
+        // Act
+        ledgerWriter.writeTransactions(transactions(6));
+
+        // Assert
+        verify(jdbcTemplate, times(2)).update(sqlCaptor.capture(), argsCaptor.capture());
+        verify(jdbcTemplate, never()).execute(any(ConnectionCallback.class));
+
+        assertThat(sqlCaptor.getAllValues().get(0)).startsWith("INSERT INTO transactions (");
+        assertThat(countRows(sqlCaptor.getAllValues().get(0))).isEqualTo(4);
+        assertThat(countRows(sqlCaptor.getAllValues().get(1))).isEqualTo(2);
+        assertThat(argsCaptor.getAllValues().get(0)).hasSize(4 * 10);
+        assertThat(argsCaptor.getAllValues().get(1)).hasSize(2 * 10);
+    }
+
+    /**
+     * Testira da batch na pragu ili iznad ide preko COPY protokola
+     */
+    @Test
+    void writeTransactions_AtThreshold_UsesCopy() {
+        // Act
+        ledgerWriter.writeTransactions(transactions(10));
+
+        // Assert
+        verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    /**
+     * Testira da prazna lista ne šalje ništa u bazu
+     */
+    @Test
+    void writeItems_EmptyList_DoesNothing() {
+        // Act
+        ledgerWriter.writeItems(List.of());
+
+        // Assert
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    /**
+     * Testira da se stavka upisuje sa ID-jem svog naloga i NULL failure_reason-om
+     */
+    @Test
+    void writeItems_BelowThreshold_BindsOrderIdAndNullReason() {
+        // Arrange
+        PaymentOrder order = PaymentOrder.builder().idempotencyKey("key").build();
+        PaymentOrderItem item = PaymentOrderItem.builder()
+                .paymentOrder(order)
+                .destinationAccountId(UUID.randomUUID())
+                .amountCents(150L)
+                .status(PaymentOrderItemStatus.PENDING)
+                .orderKey("key#0")
+                .build();
+
+        // Act
+        ledgerWriter.writeItems(List.of(item));
+
+        // Assert
+        verify(jdbcTemplate).update(sqlCaptor.capture(), argsCaptor.capture());
+        assertThat(sqlCaptor.getValue()).startsWith("INSERT INTO payment_order_items (");
+        Object[] args = argsCaptor.getValue();
+        assertThat(args[0]).isEqualTo(item.getId());
+        assertThat(args[1]).isEqualTo(order.getId());
+        assertThat(args[3]).isEqualTo(150L);
+        assertThat(args[4]).isEqualTo("PENDING");
+        assertThat(args[6]).isNull();
+    }
+
+    /**
+     * Testira binarni COPY format: potpis, red sa uuid/bigint/text/NULL/timestamptz poljima i trailer
+     */
+    @Test
+    void encoder_WritesPostgresBinaryCopyFormat() throws Exception {
+        // Arrange
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PgBinaryCopyEncoder encoder = new PgBinaryCopyEncoder(bytes);
+        UUID id = new UUID(1L, 2L);
+
+        // Act
+        encoder.writeHeader();
+        encoder.startRow(5);
+        encoder.writeUuid(id);
+        encoder.writeLong(42L);
+        encoder.writeText("EUR");
+        encoder.writeText(null);
+        encoder.writeTimestamp(Instant.parse("2000-01-01T00:00:01Z"));
+        encoder.writeTrailer();
+
+        // Assert
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        byte[] signature = new byte[11];
+        buffer.get(signature);
+        assertThat(signature).containsExactly('P', 'G', 'C', 'O', 'P', 'Y', '\n', 0xFF, '\r', '\n', 0);
+        assertThat(buffer.getInt()).isZero();
+        assertThat(buffer.getInt()).isZero();
+
+        assertThat(buffer.getShort()).isEqualTo((short) 5);
+        assertThat(buffer.getInt()).isEqualTo(16);
+        assertThat(new UUID(buffer.getLong(), buffer.getLong())).isEqualTo(id);
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(42L);
+        assertThat(buffer.getInt()).isEqualTo(3);
+        byte[] text = new byte[3];
+        buffer.get(text);
+        assertThat(new String(text)).isEqualTo("EUR");
+        assertThat(buffer.getInt()).isEqualTo(-1);
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(1_000_000L);
+
+        assertThat(buffer.getShort()).isEqualTo((short) -1);
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    private List<Transaction> transactions(int count) {
+        UUID orderId = UUID.randomUUID();
+        return IntStream.range(0, count)
+                .mapToObj(i -> Transaction.builder()
+                        .sourceAccountId(UUID.randomUUID())
+                        .destinationAccountId(UUID.randomUUID())
+                        .amountCents(100L)
+                        .currency(Currency.EUR)
+                        .paymentOrderId(orderId)
+                        .paymentOrderItemId(UUID.randomUUID())
+                        .idempotencyKey("key")
+                        .build())
+                .toList();
+    }
+
+    private long countRows(String sql) {
+        return sql.chars().filter(c -> c == '(').count() - 1;
+    }
+}
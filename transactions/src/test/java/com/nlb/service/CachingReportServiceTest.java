@@ -0,0 +1,141 @@
+package com.nlb.service;
+
+import com.nlb.domain.Currency;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.service.models.PaymentOrderChangedEvent;
+import com.nlb.service.models.PaymentOrderDetails;
+import com.nlb.service.models.PaymentOrderPage;
+import com.nlb.service.models.PaymentOrderSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingReportServiceTest {
+
+    @Mock
+    private DefaultReportService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingReportService cachingService;
+    private UUID userId;
+    private PaymentOrderSummary order;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cachingService = new CachingReportService(delegate, meterRegistry, 100, Duration.ofMinutes(1));
+
+        userId = UUID.randomUUID();
+        order = summary(UUID.randomUUID());
+    }
+
+    /**
+     * Testira da ponovljeno osvežavanje liste naloga ne ide u bazu i da se pogoci beleže
+     */
+    @Test
+    void getPaymentOrdersForUser_shouldServeRepeatedCallsFromCache() {
+        // Arrange
+        PaymentOrderPage page = new PaymentOrderPage(List.of(order), null);
+        when(delegate.getPaymentOrdersForUser(userId, null, null, null, null, 100)).thenReturn(page);
+
+        // Act
+        cachingService.getPaymentOrdersForUser(userId, null, null, null, null, 100);
+        PaymentOrderPage result = cachingService.getPaymentOrdersForUser(userId, null, null, null, null, 100);
+
+        // Assert
+        assertThat(result).isEqualTo(page);
+        verify(delegate, times(1)).getPaymentOrdersForUser(userId, null, null, null, null, 100);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "payment-order-pages").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Testira da događaj naloga briše sve keširane strane korisnika (svi filteri) i detalje baš tog naloga
+     */
+    @Test
+    void onPaymentOrderChanged_shouldInvalidateUserPagesAndOrderDetails() {
+        // Arrange
+        PaymentOrderSummary otherOrder = summary(UUID.randomUUID());
+        when(delegate.getPaymentOrdersForUser(eq(userId), any(), any(), any(), any(), anyInt()))
+                .thenReturn(new PaymentOrderPage(List.of(order), null));
+        when(delegate.getPaymentOrderDetails(userId, order.id())).thenReturn(new PaymentOrderDetails(order, List.of()));
+        when(delegate.getPaymentOrderDetails(userId, otherOrder.id()))
+                .thenReturn(new PaymentOrderDetails(otherOrder, List.of()));
+        cachingService.getPaymentOrdersForUser(userId, null, null, null, null, 100);
+        cachingService.getPaymentOrdersForUser(userId, PaymentOrderStatus.FAILED, null, null, null, 20);
+        cachingService.getPaymentOrderDetails(userId, order.id());
+        cachingService.getPaymentOrderDetails(userId, otherOrder.id());
+
+        // Act
+        cachingService.onPaymentOrderChanged(new PaymentOrderChangedEvent(userId, order.id(), PaymentOrderStatus.COMPLETED));
+        cachingService.getPaymentOrdersForUser(userId, null, null, null, null, 100);
+        cachingService.getPaymentOrdersForUser(userId, PaymentOrderStatus.FAILED, null, null, null, 20);
+        cachingService.getPaymentOrderDetails(userId, order.id());
+        cachingService.getPaymentOrderDetails(userId, otherOrder.id());
+
+        // Assert
+        verify(delegate, times(2)).getPaymentOrdersForUser(userId, null, null, null, null, 100);
+        verify(delegate, times(2)).getPaymentOrdersForUser(userId, PaymentOrderStatus.FAILED, null, null, null, 20);
+        verify(delegate, times(2)).getPaymentOrderDetails(userId, order.id());
+        verify(delegate, times(1)).getPaymentOrderDetails(userId, otherOrder.id());
+    }
+
+    /**
+     * Testira da događaj jednog korisnika ne briše strane drugog korisnika
+     */
+    @Test
+    void onPaymentOrderChanged_shouldKeepPagesOfOtherUsers() {
+        // Arrange
+        when(delegate.getPaymentOrdersForUser(userId, null, null, null, null, 100))
+                .thenReturn(new PaymentOrderPage(List.of(order), null));
+        cachingService.getPaymentOrdersForUser(userId, null, null, null, null, 100);
+
+        // Act
+        cachingService.onPaymentOrderChanged(new PaymentOrderChangedEvent(UUID.randomUUID(), UUID.randomUUID(), PaymentOrderStatus.COMPLETED));
+        cachingService.getPaymentOrdersForUser(userId, null, null, null, null, 100);
+
+        // Assert
+        verify(delegate, times(1)).getPaymentOrdersForUser(userId, null, null, null, null, 100);
+    }
+
+    /**
+     * Testira da se "nalog nije pronađen" ne kešira - nalog može nastati odmah posle toga
+     */
+    @Test
+    void getPaymentOrderDetails_shouldNotCacheFailures() {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        when(delegate.getPaymentOrderDetails(userId, orderId))
+                .thenThrow(new BusinessValidationException("Payment order not found or user does not have access"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> cachingService.getPaymentOrderDetails(userId, orderId))
+                .isInstanceOf(BusinessValidationException.class);
+        assertThatThrownBy(() -> cachingService.getPaymentOrderDetails(userId, orderId))
+                .isInstanceOf(BusinessValidationException.class);
+        verify(delegate, times(2)).getPaymentOrderDetails(userId, orderId);
+    }
+
+    private static PaymentOrderSummary summary(UUID orderId) {
+        Instant createdAt = Instant.parse("2025-01-01T10:00:00Z");
+        return new PaymentOrderSummary(orderId, "key-" + orderId, UUID.randomUUID(), 100L, Currency.EUR,
+                PaymentOrderStatus.COMPLETED, createdAt, createdAt);
+    }
+}
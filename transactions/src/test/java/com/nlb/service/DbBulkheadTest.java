@@ -0,0 +1,106 @@
+package com.nlb.service;
+
+import com.nlb.exception.ServiceBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DbBulkheadTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Testira da se dozvola vraća i kada posao baci izuzetak
+     */
+    @Test
+    void call_shouldReleasePermit_evenWhenWorkFails() {
+        // Arrange
+        DbBulkhead bulkhead = new DbBulkhead("transfers", 1, Duration.ofMillis(50), meterRegistry);
+
+        // Act
+        assertThatThrownBy(() -> bulkhead.call(() -> {
+            throw new IllegalStateException("Ledger unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+        String result = bulkhead.call(() -> "ok");
+
+        // Assert
+        assertThat(result).isEqualTo("ok");
+        assertThat(meterRegistry.get("nlb.bulkhead.available").tag("bulkhead", "transfers").gauge().value())
+                .isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da se zahtev odbija posle isteka čekanja kada su sve dozvole zauzete
+     */
+    @Test
+    void call_shouldReject_whenNoPermitIsFreeWithinTimeout() throws Exception {
+        // Arrange
+        DbBulkhead bulkhead = new DbBulkhead("reports", 1, Duration.ofMillis(50), meterRegistry);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                bulkhead.call(() -> {
+                    holding.countDown();
+                    return release.await(5, TimeUnit.SECONDS);
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(holding.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Act + Assert
+        assertThatThrownBy(() -> bulkhead.call(() -> "late"))
+                .isInstanceOf(ServiceBusyException.class);
+        assertThat(meterRegistry.get("nlb.bulkhead.rejected").tag("bulkhead", "reports").counter().count())
+                .isEqualTo(1.0);
+
+        release.countDown();
+        holder.join();
+    }
+
+    /**
+     * Testira podelu pool-a: rezervisane konekcije se oduzimaju, transferi dobijaju 3/4 ostatka
+     */
+    @Test
+    void dbBulkheads_shouldBeSizedFromPool_unlessPermitsAreExplicit() {
+        // Act
+        DbBulkheads derived = new DbBulkheads(meterRegistry, 10, 2, 0, 0, Duration.ofSeconds(1));
+        DbBulkheads explicit = new DbBulkheads(new SimpleMeterRegistry(), 10, 2, 20, 5, Duration.ofSeconds(1));
+
+        // Assert
+        assertThat(derived.getTransfers().getPermits()).isEqualTo(6);
+        assertThat(derived.getReports().getPermits()).isEqualTo(2);
+        assertThat(explicit.getTransfers().getPermits()).isEqualTo(20);
+        assertThat(explicit.getReports().getPermits()).isEqualTo(5);
+    }
+
+    /**
+     * Testira da se od pool-a oduzimaju uključeni pozadinski poslovi, uz async workere samo u async režimu
+     */
+    @Test
+    void backgroundConnections_shouldCountEnabledWorkers() {
+        // Act
+        int sync = DbBulkheads.backgroundConnections("sync", 4, true, 4, true, 2, true, true, true);
+        int async = DbBulkheads.backgroundConnections("async", 4, true, 4, true, 2, true, true, true);
+        int minimal = DbBulkheads.backgroundConnections("group-commit", 4, false, 4, false, 2, false, false, false);
+
+        // Assert
+        assertThat(sync).isEqualTo(10);
+        assertThat(async).isEqualTo(14);
+        assertThat(minimal).isEqualTo(1);
+    }
+}
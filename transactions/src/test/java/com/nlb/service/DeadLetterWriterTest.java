@@ -0,0 +1,181 @@
+package com.nlb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.service.models.DeadLetter;
+import com.nlb.service.models.DeadLetterOverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DeadLetterWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    // Kopije batch-eva u trenutku upisa (writer posle uspeha prazni svoju listu)
+    private List<List<Object[]>> writtenBatches;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writtenBatches = new ArrayList<>();
+    }
+
+    /**
+     * Testira da se greške iz reda upisuju jednim batch-em, u zasebnoj transakciji, sa serijalizovanim payload-om
+     */
+    @Test
+    void writePending_shouldPersistQueuedDeadLettersInOneBatch() {
+        // Arrange
+        DeadLetterWriter writer = writer(10, DeadLetterOverflowPolicy.BLOCK);
+        recordBatches();
+        UUID orderId = UUID.randomUUID();
+        writer.submit(deadLetter(orderId, Map.of("idempotencyKey", "key-1")));
+        writer.submit(deadLetter(null, "raw"));
+        assertThat(meterRegistry.get("nlb.deadletter.queue.size").gauge().value()).isEqualTo(2.0);
+
+        // Act
+        boolean written = writer.writePending(null);
+
+        // Assert
+        assertThat(written).isTrue();
+        assertThat(writtenBatches).hasSize(1);
+        List<Object[]> rows = writtenBatches.getFirst();
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)[3]).isEqualTo(orderId);
+        assertThat(rows.get(0)[5]).isEqualTo("{\"idempotencyKey\":\"key-1\"}");
+        assertThat(rows.get(1)[5]).isEqualTo("raw");
+        verify(transactionManager).commit(any());
+        assertThat(meterRegistry.get("nlb.deadletter.written").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("nlb.deadletter.queue.size").gauge().value()).isZero();
+    }
+
+    /**
+     * Testira da batch ostaje kod writer-a kada baza nije dostupna i ponavlja se sa istim id-jevima
+     */
+    @Test
+    void writePending_shouldKeepBatchForRetry_whenDatabaseIsDown() {
+        // Arrange
+        DeadLetterWriter writer = writer(10, DeadLetterOverflowPolicy.BLOCK);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenAnswer(invocation -> {
+                    writtenBatches.add(List.copyOf(invocation.<List<Object[]>>getArgument(1)));
+                    return new int[0];
+                });
+        writer.submit(deadLetter(UUID.randomUUID(), "payload"));
+
+        // Act
+        boolean firstAttempt = writer.writePending(null);
+        writer.submit(deadLetter(UUID.randomUUID(), "payload"));
+        boolean secondAttempt = writer.writePending(null);
+
+        // Assert
+        assertThat(firstAttempt).isFalse();
+        assertThat(secondAttempt).isTrue();
+        assertThat(writtenBatches.getFirst()).hasSize(2);
+        assertThat(meterRegistry.get("nlb.deadletter.write.errors").counter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("nlb.deadletter.written").counter().count()).isEqualTo(2.0);
+    }
+
+    /**
+     * Testira DROP_OLDEST politiku - pun red odbacuje najstariju grešku (samo u log), nova ulazi
+     */
+    @Test
+    void submit_shouldDropOldest_whenQueueIsFullAndPolicyIsDropOldest() {
+        // Arrange
+        DeadLetterWriter writer = writer(2, DeadLetterOverflowPolicy.DROP_OLDEST);
+        recordBatches();
+        UUID oldest = UUID.randomUUID();
+        UUID middle = UUID.randomUUID();
+        UUID newest = UUID.randomUUID();
+
+        // Act
+        writer.submit(deadLetter(oldest, null));
+        writer.submit(deadLetter(middle, null));
+        writer.submit(deadLetter(newest, null));
+        writer.writePending(null);
+
+        // Assert
+        assertThat(writtenBatches.getFirst()).extracting(row -> row[3]).containsExactly(middle, newest);
+        assertThat(meterRegistry.get("nlb.deadletter.dropped").tag("reason", "overflow").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    /**
+     * Testira BLOCK politiku - pozivalac čeka najviše offer-timeout, pa se nova greška odbacuje
+     */
+    @Test
+    void submit_shouldDropNewestAfterTimeout_whenQueueIsFullAndPolicyIsBlock() {
+        // Arrange
+        DeadLetterWriter writer = writer(1, DeadLetterOverflowPolicy.BLOCK);
+        recordBatches();
+        UUID first = UUID.randomUUID();
+
+        // Act
+        writer.submit(deadLetter(first, null));
+        writer.submit(deadLetter(UUID.randomUUID(), null));
+        writer.writePending(null);
+
+        // Assert
+        assertThat(writtenBatches.getFirst()).extracting(row -> row[3]).containsExactly(first);
+        assertThat(meterRegistry.get("nlb.deadletter.dropped").tag("reason", "overflow").counter().count())
+                .isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da se poruka duža od kolone skraćuje na 1000 karaktera
+     */
+    @Test
+    void writePending_shouldTruncateLongMessages() {
+        // Arrange
+        DeadLetterWriter writer = writer(10, DeadLetterOverflowPolicy.BLOCK);
+        recordBatches();
+        writer.submit(new DeadLetter("CONTEXT", "PaymentOrder", null, "x".repeat(5000), null, Instant.now(), null));
+
+        // Act
+        writer.writePending(null);
+
+        // Assert
+        assertThat((String) writtenBatches.getFirst().getFirst()[4]).hasSize(1000);
+    }
+
+    private void recordBatches() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            writtenBatches.add(List.copyOf(invocation.<List<Object[]>>getArgument(1)));
+            return new int[0];
+        });
+    }
+
+    private DeadLetterWriter writer(int capacity, DeadLetterOverflowPolicy policy) {
+        return new DeadLetterWriter(jdbcTemplate, transactionManager, new ObjectMapper(), meterRegistry,
+                capacity, 100, policy, Duration.ofMillis(1), Duration.ofSeconds(1));
+    }
+
+    private static DeadLetter deadLetter(UUID relatedId, Object payload) {
+        return new DeadLetter("TRANSFER_BATCH_SERVICE", "PaymentOrder", relatedId, "DB Connection Timeout",
+                payload, Instant.now(), "key-" + relatedId);
+    }
+}
@@ -0,0 +1,84 @@
+package com.nlb.service;
+
+import com.nlb.domain.IntegrationFailure;
+import com.nlb.domain.IntegrationFailureStatus;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.repository.IntegrationFailureRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultIntegrationFailureServiceTest {
+
+    @Mock
+    private IntegrationFailureRepository failureRepo;
+
+    @InjectMocks
+    private DefaultIntegrationFailureService failureService;
+
+    /**
+     * Testira da puštena parkirana greška postaje odmah dospela, sa brojačem pokušaja od nule
+     */
+    @Test
+    void releaseParkedFailure_shouldMakeFailureDueAgain() {
+        // Arrange
+        IntegrationFailure failure = IntegrationFailure.builder()
+                .status(IntegrationFailureStatus.PARKED)
+                .retryCount(10)
+                .nextAttemptAt(Instant.parse("2025-01-01T10:00:00Z"))
+                .build();
+        when(failureRepo.findById(failure.getId())).thenReturn(Optional.of(failure));
+        Instant before = Instant.now();
+
+        // Act
+        failureService.releaseParkedFailure(failure.getId());
+
+        // Assert
+        assertThat(failure.getStatus()).isEqualTo(IntegrationFailureStatus.PENDING);
+        assertThat(failure.getRetryCount()).isZero();
+        assertThat(failure.getNextAttemptAt()).isAfterOrEqualTo(before);
+    }
+
+    /**
+     * Testira da se greška koja nije parkirana (npr. već rešena) ne pušta ponovo
+     */
+    @Test
+    void releaseParkedFailure_shouldThrowException_whenFailureIsNotParked() {
+        // Arrange
+        IntegrationFailure failure = IntegrationFailure.builder()
+                .status(IntegrationFailureStatus.RESOLVED)
+                .build();
+        when(failureRepo.findById(failure.getId())).thenReturn(Optional.of(failure));
+
+        // Act & Assert
+        assertThatThrownBy(() -> failureService.releaseParkedFailure(failure.getId()))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Parked integration failure not found");
+        assertThat(failure.getStatus()).isEqualTo(IntegrationFailureStatus.RESOLVED);
+    }
+
+    /**
+     * Testira nepostojeću grešku
+     */
+    @Test
+    void releaseParkedFailure_shouldThrowException_whenFailureDoesNotExist() {
+        // Arrange
+        UUID failureId = UUID.randomUUID();
+        when(failureRepo.findById(failureId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThatThrownBy(() -> failureService.releaseParkedFailure(failureId))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+}
@@ -4,8 +4,22 @@ import com.nlb.domain.*;
 import com.nlb.exception.BusinessValidationException;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.IntegrationFailureRepository;
+import com.nlb.repository.LedgerPostingRepository;
 import com.nlb.repository.PaymentOrderRepository;
 import com.nlb.repository.TransactionRepository;
+import com.nlb.service.models.AccountBalanceAt;
+import com.nlb.service.models.IntegrationFailureCount;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.IntegrationFailurePage;
+import com.nlb.service.models.IntegrationFailureSummary;
+import com.nlb.service.models.PaymentOrderDetails;
+import com.nlb.service.models.PaymentOrderItemSummary;
+import com.nlb.service.models.PaymentOrderPage;
+import com.nlb.service.models.PaymentOrderSummary;
+import com.nlb.service.models.TransactionCursor;
+import com.nlb.service.models.TransactionPage;
+import com.nlb.service.models.TransactionSummary;
+import jakarta.persistence.Tuple;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,13 +27,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -33,6 +55,8 @@ class DefaultReportServiceTest {
     private IntegrationFailureRepository failureRepo;
     @Mock
     private AccountRepository accountRepo;
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepo;
 
     @InjectMocks
     private DefaultReportService reportService;
@@ -49,35 +73,78 @@ class DefaultReportServiceTest {
     }
 
     @Test
-    void getPaymentOrdersForUser_shouldReturnOrderList() {
-        List<PaymentOrder> mockOrders = List.of(new PaymentOrder(), new PaymentOrder());
-        when(paymentOrderRepo.findByInitiatedByUserIdOrderByCreatedAtDesc(userId))
+    void getPaymentOrdersForUser_shouldReturnLastPageWithoutCursor() {
+        List<PaymentOrderSummary> mockOrders = List.of(orderAt(Instant.parse("2025-01-02T10:00:00Z")),
+                orderAt(Instant.parse("2025-01-01T10:00:00Z")));
+        when(paymentOrderRepo.findPageByUserId(eq(userId), eq(Instant.EPOCH), any(Instant.class), eq(new UUID(0L, 0L)), eq(3)))
                 .thenReturn(mockOrders);
 
-        List<PaymentOrder> result = reportService.getPaymentOrdersForUser(userId);
+        PaymentOrderPage result = reportService.getPaymentOrdersForUser(userId, null, null, null, null, 2);
+
+        assertThat(result.orders()).isEqualTo(mockOrders);
+        assertThat(result.nextCursor()).isNull();
+        verify(paymentOrderRepo, never()).findPageByUserIdAndStatus(any(), any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void getPaymentOrdersForUser_shouldFilterByStatus_andReturnCursorOfLastRow() {
+        PaymentOrderSummary newest = orderAt(Instant.parse("2025-01-03T10:00:00Z"));
+        PaymentOrderSummary oldest = orderAt(Instant.parse("2025-01-01T10:00:00Z"));
+        Instant from = Instant.parse("2024-12-01T00:00:00Z");
+        Instant to = Instant.parse("2025-02-01T00:00:00Z");
+        when(paymentOrderRepo.findPageByUserIdAndStatus(userId, PaymentOrderStatus.FAILED, from, to, new UUID(0L, 0L), 2))
+                .thenReturn(List.of(newest, oldest));
+
+        PaymentOrderPage result = reportService.getPaymentOrdersForUser(userId, PaymentOrderStatus.FAILED, from, to, null, 1);
+
+        assertThat(result.orders()).containsExactly(newest);
+        TransactionCursor cursor = TransactionCursor.decode(result.nextCursor());
+        assertThat(cursor.createdAt()).isEqualTo(newest.createdAt());
+        assertThat(cursor.id()).isEqualTo(newest.id());
+    }
 
-        assertThat(result).hasSize(2);
-        assertThat(result).isEqualTo(mockOrders);
-        verify(paymentOrderRepo).findByInitiatedByUserIdOrderByCreatedAtDesc(userId);
+    @Test
+    void getPaymentOrdersForUser_shouldRejectInvalidPageSize() {
+        assertThatThrownBy(() -> reportService.getPaymentOrdersForUser(userId, null, null, null, null, 501))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Page size must be between 1 and 500");
+        verifyNoInteractions(paymentOrderRepo);
     }
 
     @Test
-    void getPaymentOrderDetails_shouldReturnOrder_whenUserIsOwner() {
-        PaymentOrder mockOrder = new PaymentOrder();
-        mockOrder.setItems(new ArrayList<>());
-        when(paymentOrderRepo.findByIdAndInitiatedByUserId(orderId, userId))
-                .thenReturn(Optional.of(mockOrder));
+    void getPaymentOrderDetails_shouldAssembleOrderAndItemsFromJoinedRows_whenUserIsOwner() {
+        UUID firstItemId = UUID.randomUUID();
+        UUID secondItemId = UUID.randomUUID();
+        UUID destinationId = UUID.randomUUID();
+        List<Tuple> rows = List.of(
+                detailsRow(firstItemId, destinationId, 700L, PaymentOrderItemStatus.SUCCESS, null),
+                detailsRow(secondItemId, destinationId, 300L, PaymentOrderItemStatus.FAILED, "Insufficient funds"));
+        when(paymentOrderRepo.findDetailsRows(orderId, userId)).thenReturn(rows);
 
-        PaymentOrder result = reportService.getPaymentOrderDetails(userId, orderId);
+        PaymentOrderDetails result = reportService.getPaymentOrderDetails(userId, orderId);
 
-        assertThat(result).isEqualTo(mockOrder);
-        verify(paymentOrderRepo).findByIdAndInitiatedByUserId(orderId, userId);
+        assertThat(result.order().id()).isEqualTo(orderId);
+        assertThat(result.order().totalAmountCents()).isEqualTo(1000L);
+        assertThat(result.order().status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        assertThat(result.items()).containsExactly(
+                new PaymentOrderItemSummary(firstItemId, destinationId, 700L, PaymentOrderItemStatus.SUCCESS, null),
+                new PaymentOrderItemSummary(secondItemId, destinationId, 300L, PaymentOrderItemStatus.FAILED, "Insufficient funds"));
+    }
+
+    @Test
+    void getPaymentOrderDetails_shouldReturnNoItems_whenJoinedRowHasNoItem() {
+        Tuple orderWithoutItems = detailsRow(null, null, null, null, null);
+        when(paymentOrderRepo.findDetailsRows(orderId, userId)).thenReturn(List.of(orderWithoutItems));
+
+        PaymentOrderDetails result = reportService.getPaymentOrderDetails(userId, orderId);
+
+        assertThat(result.order().id()).isEqualTo(orderId);
+        assertThat(result.items()).isEmpty();
     }
 
     @Test
     void getPaymentOrderDetails_shouldThrowException_whenOrderNotFound() {
-        when(paymentOrderRepo.findByIdAndInitiatedByUserId(orderId, userId))
-                .thenReturn(Optional.empty());
+        when(paymentOrderRepo.findDetailsRows(orderId, userId)).thenReturn(List.of());
 
         assertThatThrownBy(() -> reportService.getPaymentOrderDetails(userId, orderId))
                 .isInstanceOf(BusinessValidationException.class)
@@ -85,45 +152,199 @@ class DefaultReportServiceTest {
     }
 
     @Test
-    void getTransactionsForAccount_shouldReturnTransactionList_whenUserIsOwner() {
-        User mockUser = new User();
-        mockUser.setId(userId);
-        Account mockAccount = Account.builder().owner(mockUser).build();
-        List<Transaction> mockTransactions = List.of(new Transaction());
+    void getTransactionsForAccount_shouldReturnLastPageWithoutCursor_whenUserIsOwner() {
+        List<TransactionSummary> mockTransactions = List.of(transactionAt(Instant.parse("2025-01-01T10:00:00Z")));
 
-        when(accountRepo.findById(accountId)).thenReturn(Optional.of(mockAccount));
-        when(transactionRepo.findByAccountId(accountId)).thenReturn(mockTransactions);
+        when(accountRepo.existsByIdAndOwnerId(accountId, userId)).thenReturn(true);
+        when(transactionRepo.findPageByAccountId(eq(accountId), eq(Instant.EPOCH), any(Instant.class), eq(new UUID(0L, 0L)), eq(3)))
+                .thenReturn(mockTransactions);
 
-        List<Transaction> result = reportService.getTransactionsForAccount(userId, accountId);
+        TransactionPage result = reportService.getTransactionsForAccount(userId, accountId, null, null, null, 2);
 
-        assertThat(result).isEqualTo(mockTransactions);
-        verify(accountRepo).findById(accountId);
-        verify(transactionRepo).findByAccountId(accountId);
+        assertThat(result.transactions()).isEqualTo(mockTransactions);
+        assertThat(result.nextCursor()).isNull();
+        verify(accountRepo, never()).findById(any());
+    }
+
+    @Test
+    void getTransactionsForAccount_shouldReturnCursorOfLastRow_whenMoreRowsExist() {
+        TransactionSummary newest = transactionAt(Instant.parse("2025-01-03T10:00:00Z"));
+        TransactionSummary middle = transactionAt(Instant.parse("2025-01-02T10:00:00.123456Z"));
+        TransactionSummary oldest = transactionAt(Instant.parse("2025-01-01T10:00:00Z"));
+
+        when(accountRepo.existsByIdAndOwnerId(accountId, userId)).thenReturn(true);
+        when(transactionRepo.findPageByAccountId(eq(accountId), any(Instant.class), any(Instant.class), any(UUID.class), eq(3)))
+                .thenReturn(List.of(newest, middle, oldest));
+
+        TransactionPage result = reportService.getTransactionsForAccount(userId, accountId, null, null, null, 2);
+
+        assertThat(result.transactions()).containsExactly(newest, middle);
+        TransactionCursor cursor = TransactionCursor.decode(result.nextCursor());
+        assertThat(cursor.createdAt()).isEqualTo(middle.createdAt());
+        assertThat(cursor.id()).isEqualTo(middle.id());
+    }
+
+    @Test
+    void getTransactionsForAccount_shouldContinueFromCursor() {
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        Instant to = Instant.parse("2025-02-01T00:00:00Z");
+        TransactionCursor cursor = new TransactionCursor(Instant.parse("2025-01-15T08:30:00Z"), UUID.randomUUID());
+
+        when(accountRepo.existsByIdAndOwnerId(accountId, userId)).thenReturn(true);
+        when(transactionRepo.findPageByAccountId(accountId, from, cursor.createdAt(), cursor.id(), 51)).thenReturn(List.of());
+
+        TransactionPage result = reportService.getTransactionsForAccount(userId, accountId, from, to, cursor.encode(), 50);
+
+        assertThat(result.transactions()).isEmpty();
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    void getTransactionsForAccount_shouldThrowException_whenCursorIsInvalid() {
+        when(accountRepo.existsByIdAndOwnerId(accountId, userId)).thenReturn(true);
+
+        assertThatThrownBy(() -> reportService.getTransactionsForAccount(userId, accountId, null, null, "not-a-cursor", 10))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Invalid cursor");
     }
 
     @Test
     void getTransactionsForAccount_shouldThrowException_whenUserIsNotOwner() {
-        User otherUser = new User();
-        otherUser.setId(UUID.randomUUID());
-        Account mockAccount = Account.builder().owner(otherUser).build();
+        when(accountRepo.existsByIdAndOwnerId(accountId, userId)).thenReturn(false);
+
+        assertThatThrownBy(() -> reportService.getTransactionsForAccount(userId, accountId, null, null, null, 10))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Account not found or user does not have access");
+
+        verify(transactionRepo, never()).findPageByAccountId(any(), any(), any(), any(), anyInt());
+    }
 
-        when(accountRepo.findById(accountId)).thenReturn(Optional.of(mockAccount));
+    @Test
+    void getBalanceAt_shouldQuerySnapshotOfUtcDay_whenUserIsOwner() {
+        Instant at = Instant.parse("2025-01-31T23:30:00Z");
+
+        when(accountRepo.findCurrencyByIdAndOwnerId(accountId, userId)).thenReturn(Optional.of(Currency.EUR));
+        when(ledgerPostingRepo.findBalanceAt(accountId, LocalDate.of(2025, 1, 31), at)).thenReturn(12_345L);
+
+        AccountBalanceAt result = reportService.getBalanceAt(userId, accountId, at);
+
+        assertThat(result).isEqualTo(new AccountBalanceAt(accountId, at, 12_345L, Currency.EUR));
+    }
 
-        assertThatThrownBy(() -> reportService.getTransactionsForAccount(userId, accountId))
+    @Test
+    void getBalanceAt_shouldThrowException_whenUserIsNotOwner() {
+        when(accountRepo.findCurrencyByIdAndOwnerId(accountId, userId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> reportService.getBalanceAt(userId, accountId, Instant.now()))
                 .isInstanceOf(BusinessValidationException.class)
                 .hasMessage("Account not found or user does not have access");
 
-        verify(transactionRepo, never()).findByAccountId(any());
+        verifyNoInteractions(ledgerPostingRepo);
     }
 
     @Test
-    void getAllIntegrationFailures_shouldReturnFailureList() {
-        List<IntegrationFailure> mockFailures = List.of(new IntegrationFailure());
-        when(failureRepo.findAll()).thenReturn(mockFailures);
+    void getIntegrationFailures_shouldPassFiltersWithoutPayload_andReturnCursorOfLastRow() {
+        IntegrationFailureSummary newest = failureAt(Instant.parse("2025-01-03T10:00:00Z"));
+        IntegrationFailureSummary oldest = failureAt(Instant.parse("2025-01-01T10:00:00Z"));
+        Instant to = Instant.parse("2025-02-01T00:00:00Z");
+        IntegrationFailureFilter filter = new IntegrationFailureFilter("TRANSFER_BATCH_SERVICE", null, null, null, to);
+        when(failureRepo.findPage(filter, to, new UUID(0L, 0L), 2, false)).thenReturn(List.of(newest, oldest));
+
+        IntegrationFailurePage result = reportService.getIntegrationFailures(filter, null, 1, false);
+
+        assertThat(result.failures()).containsExactly(newest);
+        TransactionCursor cursor = TransactionCursor.decode(result.nextCursor());
+        assertThat(cursor.createdAt()).isEqualTo(newest.occurredAt());
+        assertThat(cursor.id()).isEqualTo(newest.id());
+    }
 
-        List<IntegrationFailure> result = reportService.getAllIntegrationFailures();
+    @Test
+    void getIntegrationFailures_shouldContinueFromCursor_andReturnLastPageWithoutCursor() {
+        TransactionCursor position = new TransactionCursor(Instant.parse("2025-01-02T10:00:00Z"), UUID.randomUUID());
+        IntegrationFailureFilter filter = new IntegrationFailureFilter(null, null, orderId, null, null);
+        List<IntegrationFailureSummary> rows = List.of(failureAt(Instant.parse("2025-01-01T10:00:00Z")));
+        when(failureRepo.findPage(filter, position.createdAt(), position.id(), 3, true)).thenReturn(rows);
+
+        IntegrationFailurePage result = reportService.getIntegrationFailures(filter, position.encode(), 2, true);
+
+        assertThat(result.failures()).isEqualTo(rows);
+        assertThat(result.nextCursor()).isNull();
+    }
+
+    @Test
+    void getIntegrationFailure_shouldThrowException_whenFailureDoesNotExist() {
+        UUID failureId = UUID.randomUUID();
+        when(failureRepo.findById(failureId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> reportService.getIntegrationFailure(failureId))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Integration failure not found");
+    }
+
+    @Test
+    void countIntegrationFailures_shouldDefaultToLast24Hours() {
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+        List<IntegrationFailureCount> counts = List.of(
+                new IntegrationFailureCount("TRANSFER_BATCH_SERVICE", Instant.parse("2025-01-01T10:00:00Z"), 42L));
+        when(failureRepo.countByContext(Instant.parse("2025-01-01T00:00:00Z"), to, Duration.ofHours(1)))
+                .thenReturn(counts);
+
+        List<IntegrationFailureCount> result = reportService.countIntegrationFailures(null, to, Duration.ofHours(1));
+
+        assertThat(result).isEqualTo(counts);
+    }
+
+    @Test
+    void countIntegrationFailures_shouldRejectTooManyBuckets() {
+        Instant to = Instant.parse("2025-01-02T00:00:00Z");
+
+        assertThatThrownBy(() -> reportService.countIntegrationFailures(null, to, Duration.ofSeconds(1)))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("At most 1000 buckets can be requested");
+        verifyNoInteractions(failureRepo);
+    }
+
+    private static TransactionSummary transactionAt(Instant createdAt) {
+        return transactionWithId(UUID.randomUUID(), createdAt);
+    }
+
+    private static TransactionSummary transactionWithId(UUID id, Instant createdAt) {
+        return new TransactionSummary(id, UUID.randomUUID(), UUID.randomUUID(), 100L, Currency.EUR,
+                createdAt, UUID.randomUUID());
+    }
+
+    private static IntegrationFailureSummary failureAt(Instant occurredAt) {
+        return new IntegrationFailureSummary(UUID.randomUUID(), "TRANSFER_BATCH_SERVICE", "PaymentOrder",
+                UUID.randomUUID(), "Insufficient funds", 0, occurredAt);
+    }
+
+    private static PaymentOrderSummary orderAt(Instant createdAt) {
+        return new PaymentOrderSummary(UUID.randomUUID(), "key-" + createdAt, UUID.randomUUID(), 100L, Currency.EUR,
+                PaymentOrderStatus.FAILED, createdAt, createdAt);
+    }
 
-        assertThat(result).isEqualTo(mockFailures);
-        verify(failureRepo).findAll();
+    /**
+     * Red iz left join-a naloga i stavke; kolone stavke su null za nalog bez stavki.
+     */
+    private Tuple detailsRow(UUID itemId, UUID destinationId, Long amountCents, PaymentOrderItemStatus itemStatus,
+                             String failureReason) {
+        Map<String, Object> values = new HashMap<>(Map.of(
+                "id", orderId,
+                "idempotencyKey", "key-1",
+                "sourceAccountId", accountId,
+                "totalAmountCents", 1000L,
+                "currency", Currency.EUR,
+                "status", PaymentOrderStatus.COMPLETED,
+                "createdAt", Instant.parse("2025-01-01T10:00:00Z"),
+                "updatedAt", Instant.parse("2025-01-01T10:00:01Z")));
+        values.put("itemId", itemId);
+        values.put("destinationAccountId", destinationId);
+        values.put("amountCents", amountCents);
+        values.put("itemStatus", itemStatus);
+        values.put("failureReason", failureReason);
+        Tuple row = mock(Tuple.class);
+        lenient().when(row.get(anyString())).thenAnswer(invocation -> values.get(invocation.getArgument(0)));
+        lenient().when(row.get(anyString(), any())).thenAnswer(invocation -> values.get(invocation.getArgument(0)));
+        return row;
     }
 }
@@ -0,0 +1,160 @@
+package com.nlb.service;
+
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.repository.AccountRepository;
+import com.nlb.service.models.StatementFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultStatementExportServiceTest {
+
+    private static final UUID TX_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID SOURCE_ID = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID DEST_ID = UUID.fromString("00000000-0000-0000-0000-000000000003");
+    private static final UUID ORDER_ID = UUID.fromString("00000000-0000-0000-0000-000000000004");
+
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DefaultStatementExportService exportService;
+    private UUID userId;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new DefaultStatementExportService(accountRepo, jdbcTemplate, transactionManager, 250);
+        userId = UUID.randomUUID();
+    }
+
+    /**
+     * Testira da se CSV izvod piše sa zaglavljem, a redovi se čitaju kursorom sa zadatim fetch size-om
+     */
+    @Test
+    void exportTransactions_Csv_WritesHeaderAndRowsWithFetchSize() throws Exception {
+        // Arrange
+        givenOwnedAccount(SOURCE_ID);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        PreparedStatement statement = givenRows(SOURCE_ID, 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = exportService.exportTransactions(userId, SOURCE_ID, null, null, StatementFormat.CSV, out);
+
+        // Assert
+        assertThat(rows).isEqualTo(2);
+        verify(statement).setFetchSize(250);
+        verify(transactionManager).commit(any());
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "transactionId,sourceAccountId,destinationAccountId,amount,currency,createdAt,paymentOrderId\n"
+                        + csvRow() + csvRow());
+    }
+
+    /**
+     * Testira da se NDJSON izvod piše kao jedan JSON objekat po liniji
+     */
+    @Test
+    void exportTransactions_Ndjson_WritesOneObjectPerLine() throws Exception {
+        // Arrange
+        givenOwnedAccount(SOURCE_ID);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        givenRows(SOURCE_ID, 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        exportService.exportTransactions(userId, SOURCE_ID, null, null, StatementFormat.NDJSON, out);
+
+        // Assert
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "{\"transactionId\":\"" + TX_ID + "\",\"sourceAccountId\":\"" + SOURCE_ID
+                        + "\",\"destinationAccountId\":\"" + DEST_ID + "\",\"amount\":-12.05,\"currency\":\"EUR\""
+                        + ",\"createdAt\":\"2025-01-02T03:04:05Z\",\"paymentOrderId\":\"" + ORDER_ID + "\"}\n");
+    }
+
+    /**
+     * Testira da se izvod tuđeg računa odbija pre čitanja transakcija
+     */
+    @Test
+    void verifyAccountAccess_NotOwner_ThrowsException() {
+        // Arrange
+        when(accountRepo.existsByIdAndOwnerId(SOURCE_ID, userId)).thenReturn(false);
+
+        // Act & Assert
+        assertThatThrownBy(() -> exportService.verifyAccountAccess(userId, SOURCE_ID))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Account not found or user does not have access");
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    /**
+     * Testira formatiranje centi bez BigDecimal-a
+     */
+    @Test
+    void formatCents_FormatsSignAndTwoDecimals() {
+        assertThat(DefaultStatementExportService.formatCents(0)).isEqualTo("0.00");
+        assertThat(DefaultStatementExportService.formatCents(5)).isEqualTo("0.05");
+        assertThat(DefaultStatementExportService.formatCents(123456)).isEqualTo("1234.56");
+        assertThat(DefaultStatementExportService.formatCents(-1205)).isEqualTo("-12.05");
+        assertThat(StatementFormat.from("ndjson")).isEqualTo(StatementFormat.NDJSON);
+        assertThatThrownBy(() -> StatementFormat.from("xml")).isInstanceOf(BusinessValidationException.class);
+    }
+
+    private void givenOwnedAccount(UUID accountId) {
+        when(accountRepo.existsByIdAndOwnerId(accountId, userId)).thenReturn(true);
+    }
+
+    private PreparedStatement givenRows(UUID accountId, int count) throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn(TX_ID.toString());
+        when(rs.getString(2)).thenReturn(accountId.toString());
+        when(rs.getString(3)).thenReturn(DEST_ID.toString());
+        when(rs.getLong(4)).thenReturn(-1205L);
+        when(rs.getString(5)).thenReturn("EUR");
+        when(rs.getObject(6, OffsetDateTime.class)).thenReturn(OffsetDateTime.of(2025, 1, 2, 3, 4, 5, 0, ZoneOffset.UTC));
+        when(rs.getString(7)).thenReturn(ORDER_ID.toString());
+
+        doAnswer(invocation -> {
+            invocation.<PreparedStatementCreator>getArgument(0).createPreparedStatement(connection);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (int i = 0; i < count; i++) {
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+        return statement;
+    }
+
+    private static String csvRow() {
+        return TX_ID + "," + SOURCE_ID + "," + DEST_ID + ",-12.05,EUR,2025-01-02T03:04:05Z," + ORDER_ID + "\n";
+    }
+}
@@ -0,0 +1,337 @@
+package com.nlb.service;
+
+import com.nlb.domain.*;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.BalanceSlotService;
+import com.nlb.repository.AccountRepository;
+import com.nlb.repository.LedgerPostingRepository;
+import com.nlb.repository.PaymentOrderItemRepository;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferResponse;
+import com.nlb.service.models.DeadLetter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultStreamingTransferServiceTest {
+
+    @Mock
+    private PaymentOrderRepository paymentOrderRepo;
+    @Mock
+    private PaymentOrderItemRepository paymentOrderItemRepo;
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private BalanceSlotService balanceSlotService;
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepo;
+    @Mock
+    private BulkLedgerWriter ledgerWriter;
+    @Mock
+    private OutboxWriter outboxWriter;
+    @Mock
+    private DeadLetterWriter deadLetterWriter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private DefaultStreamingTransferService streamingService;
+
+    private UUID userId;
+    private UUID sourceAccountId;
+    private UUID destAccountId;
+    private String idempotencyKey;
+
+    @BeforeEach
+    void setUp() {
+        IdempotencyKeyCache idempotencyCache = new IdempotencyKeyCache(
+                paymentOrderRepo, new SimpleMeterRegistry(), 100, 1000, 0.01, 100);
+        streamingService = new DefaultStreamingTransferService(
+                paymentOrderRepo, paymentOrderItemRepo, accountRepo, balanceSlotService, ledgerPostingRepo, idempotencyCache, ledgerWriter, outboxWriter, deadLetterWriter, eventPublisher,
+                new DbBulkheads(new SimpleMeterRegistry(), 10, 2, 0, 0, Duration.ofSeconds(1)), transactionManager, 2
+        );
+
+        userId = UUID.randomUUID();
+        sourceAccountId = UUID.randomUUID();
+        destAccountId = UUID.randomUUID();
+        idempotencyKey = UUID.randomUUID().toString();
+    }
+
+    /**
+     * Testira da se stavke upisuju u chunk-ovima preko bulk writer-a i da uspešan
+     * nalog završava skupovnim kreditom odredišta i upisom transakcija
+     */
+    @Test
+    void executeStreamingBatchTransfer_Success_PersistsItemsInChunks() {
+        // Arrange
+        PaymentOrder[] saved = new PaymentOrder[1];
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> saved[0] = inv.getArgument(0));
+        when(paymentOrderRepo.findById(any(UUID.class))).thenAnswer(inv -> Optional.of(saved[0]));
+        List<String> writtenKeys = new ArrayList<>();
+        List<Integer> chunkSizes = new ArrayList<>();
+        doAnswer(inv -> {
+            List<PaymentOrderItem> chunk = inv.getArgument(0);
+            chunkSizes.add(chunk.size());
+            chunk.forEach(item -> writtenKeys.add(item.getOrderKey()));
+            return null;
+        }).when(ledgerWriter).writeItems(anyList());
+        when(paymentOrderItemRepo.countDistinctAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(2L);
+        when(paymentOrderItemRepo.lockOrderAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(2L);
+        when(paymentOrderItemRepo.findFirstInactiveDestination(any(UUID.class))).thenReturn(Optional.empty());
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -500L, 500L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(new AccountSummary(sourceAccountId, userId, 500L, Currency.EUR, AccountStatus.ACTIVE, 0)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        BatchTransferResponse response = streamingService.executeStreamingBatchTransfer(
+                idempotencyKey, userId, sourceAccountId, items(5, "1.00"));
+
+        // Assert
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        assertThat(response.message()).isEqualTo("Transfer successful");
+        assertThat(saved[0].getTotalAmountCents()).isEqualTo(500L);
+
+        assertThat(writtenKeys).containsExactly(idempotencyKey + "#0", idempotencyKey + "#1", idempotencyKey + "#2",
+                idempotencyKey + "#3", idempotencyKey + "#4");
+        // 5 stavki sa chunk-om od 2 -> tri upisa
+        assertThat(chunkSizes).containsExactly(2, 2, 1);
+
+        verify(paymentOrderItemRepo).creditDestinations(saved[0].getId());
+        verify(paymentOrderItemRepo).insertTransactions(saved[0].getId(), sourceAccountId, idempotencyKey);
+        verify(paymentOrderItemRepo).insertPostings(idempotencyKey);
+        verify(paymentOrderItemRepo).updateStatusByOrderId(saved[0].getId(), PaymentOrderItemStatus.SUCCESS.name(), null);
+        verify(balanceSlotService, never()).sweepIntoBalance(any());
+        verifyNoInteractions(ledgerPostingRepo);
+        // Kratke transakcije: kreiranje naloga, tri chunk-a i primena
+        verify(transactionManager, times(5)).commit(any());
+    }
+
+    /**
+     * Testira da nedovoljno sredstava označi nalog kao FAILED bez kredita odredišta
+     */
+    @Test
+    void executeStreamingBatchTransfer_InsufficientFunds_MarksOrderFailed() {
+        // Arrange
+        PaymentOrder[] saved = new PaymentOrder[1];
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> saved[0] = inv.getArgument(0));
+        when(paymentOrderRepo.findById(any(UUID.class))).thenAnswer(inv -> Optional.of(saved[0]));
+        when(paymentOrderItemRepo.countDistinctAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(2L);
+        when(paymentOrderItemRepo.lockOrderAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(2L);
+        when(paymentOrderItemRepo.findFirstInactiveDestination(any(UUID.class))).thenReturn(Optional.empty());
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -100L, 100L, Integer.MAX_VALUE))
+                .thenReturn(Optional.empty());
+        when(accountRepo.findStateById(sourceAccountId))
+                .thenReturn(Optional.of(new AccountState(sourceAccountId, userId, AccountStatus.ACTIVE, 50L, 0, 0L)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        BatchTransferResponse response = streamingService.executeStreamingBatchTransfer(
+                idempotencyKey, userId, sourceAccountId, items(1, "1.00"));
+
+        // Assert
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.FAILED);
+        assertThat(response.message()).isEqualTo("Insufficient funds");
+        verify(paymentOrderItemRepo).updateStatusByOrderId(saved[0].getId(), PaymentOrderItemStatus.FAILED.name(), "Insufficient funds");
+        verify(paymentOrderItemRepo, never()).creditDestinations(any());
+        verify(paymentOrderItemRepo, never()).insertTransactions(any(), any(), any());
+        verify(paymentOrderItemRepo, never()).insertPostings(any());
+    }
+
+    /**
+     * Testira da nepostojeći račun (manje zaključanih redova od očekivanih) odbije nalog
+     * pre bilo kakve izmene salda
+     */
+    @Test
+    void executeStreamingBatchTransfer_MissingAccount_FailsBeforeDebit() {
+        // Arrange
+        PaymentOrder[] saved = new PaymentOrder[1];
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> saved[0] = inv.getArgument(0));
+        when(paymentOrderRepo.findById(any(UUID.class))).thenAnswer(inv -> Optional.of(saved[0]));
+        when(paymentOrderItemRepo.countDistinctAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(2L);
+        when(paymentOrderItemRepo.lockOrderAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(1L);
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Act
+        BatchTransferResponse response = streamingService.executeStreamingBatchTransfer(
+                idempotencyKey, userId, sourceAccountId, items(1, "1.00"));
+
+        // Assert
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.FAILED);
+        assertThat(response.message()).isEqualTo("One or more accounts not found");
+        verify(accountRepo, never()).applyOwnedBalanceDelta(any(), any(), anyLong(), anyLong(), anyInt());
+    }
+
+    /**
+     * Testira da prazan tok baca grešku i briše započeti nalog
+     */
+    @Test
+    void executeStreamingBatchTransfer_EmptyStream_ThrowsException() {
+        // Arrange
+        PaymentOrder[] saved = new PaymentOrder[1];
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> saved[0] = inv.getArgument(0));
+
+        // Act & Assert
+        BusinessValidationException ex = assertThrows(BusinessValidationException.class, () ->
+                streamingService.executeStreamingBatchTransfer(idempotencyKey, userId, sourceAccountId, items(0, "1.00")));
+        assertThat(ex.getMessage()).isEqualTo("Items list cannot be empty");
+        assertThat(saved[0].getStatus()).isEqualTo(PaymentOrderStatus.RECEIVING);
+        verify(paymentOrderRepo).deleteReceivingOrder(saved[0].getId());
+        verify(paymentOrderRepo, never()).save(any());
+    }
+
+    /**
+     * Testira da prekinut upload briše nalog i već upisane chunk-ove i ne primenjuje transfer
+     */
+    @Test
+    void executeStreamingBatchTransfer_InterruptedUpload_DiscardsOrder() {
+        // Arrange
+        PaymentOrder[] saved = new PaymentOrder[1];
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> saved[0] = inv.getArgument(0));
+        Iterator<BatchItem> firstItems = items(3, "1.00");
+        Iterator<BatchItem> interrupted = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public BatchItem next() {
+                if (firstItems.hasNext()) {
+                    return firstItems.next();
+                }
+                throw new IllegalStateException("Connection reset");
+            }
+        };
+
+        // Act & Assert
+        IllegalStateException ex = assertThrows(IllegalStateException.class, () ->
+                streamingService.executeStreamingBatchTransfer(idempotencyKey, userId, sourceAccountId, interrupted));
+        assertThat(ex.getMessage()).isEqualTo("Connection reset");
+        verify(ledgerWriter).writeItems(anyList());
+        verify(paymentOrderRepo).deleteReceivingOrder(saved[0].getId());
+        verify(paymentOrderItemRepo, never()).lockOrderAccounts(any(), any());
+        verify(paymentOrderRepo, never()).save(any());
+    }
+
+    /**
+     * Testira da sistemska greška pri primeni naloga briše RECEIVING nalog i upisuje grešku integracije
+     */
+    @Test
+    void executeStreamingBatchTransfer_CompletionFails_DiscardsOrderAndRecordsDeadLetter() {
+        // Arrange
+        PaymentOrder[] saved = new PaymentOrder[1];
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> saved[0] = inv.getArgument(0));
+        when(paymentOrderRepo.findById(any(UUID.class))).thenAnswer(inv -> Optional.of(saved[0]));
+        when(paymentOrderItemRepo.countDistinctAccounts(any(UUID.class), eq(sourceAccountId))).thenReturn(2L);
+        when(paymentOrderItemRepo.lockOrderAccounts(any(UUID.class), eq(sourceAccountId)))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        // Act & Assert
+        CannotAcquireLockException ex = assertThrows(CannotAcquireLockException.class, () ->
+                streamingService.executeStreamingBatchTransfer(idempotencyKey, userId, sourceAccountId, items(3, "1.00")));
+        assertThat(ex.getMessage()).isEqualTo("deadlock detected");
+        verify(paymentOrderRepo).deleteReceivingOrder(saved[0].getId());
+        ArgumentCaptor<DeadLetter> deadLetter = ArgumentCaptor.forClass(DeadLetter.class);
+        verify(deadLetterWriter).submit(deadLetter.capture());
+        assertThat(deadLetter.getValue().context()).isEqualTo(DefaultStreamingTransferService.DLQ_CONTEXT);
+        assertThat(deadLetter.getValue().relatedId()).isEqualTo(saved[0].getId());
+        assertThat(deadLetter.getValue().requestKey()).isEqualTo(idempotencyKey);
+        verify(paymentOrderRepo, never()).save(any());
+    }
+
+    /**
+     * Testira da istovremeni zahtev sa istim ključem dobije nalog koji je pobedio, kao i kod /batch
+     */
+    @Test
+    void executeStreamingBatchTransfer_IdempotencyRace_ReturnsRacedOrder() {
+        // Arrange
+        PaymentOrder raced = PaymentOrder.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(PaymentOrderStatus.RECEIVING)
+                .build();
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(raced));
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        @SuppressWarnings("unchecked")
+        Iterator<BatchItem> untouched = mock(Iterator.class);
+
+        // Act
+        BatchTransferResponse response = streamingService.executeStreamingBatchTransfer(
+                idempotencyKey, userId, sourceAccountId, untouched);
+
+        // Assert
+        assertThat(response.paymentOrderId()).isEqualTo(raced.getId());
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.RECEIVING);
+        assertThat(response.message()).isEqualTo("Concurrent request processed");
+        verifyNoInteractions(untouched);
+        verify(transactionManager).rollback(any());
+    }
+
+    /**
+     * Testira da se za već obrađen ključ vraća postojeći status bez čitanja toka
+     */
+    @Test
+    void executeStreamingBatchTransfer_IdempotentReplay_ReturnsExistingOrder() {
+        // Arrange
+        PaymentOrder existing = PaymentOrder.builder()
+                .idempotencyKey(idempotencyKey)
+                .status(PaymentOrderStatus.COMPLETED)
+                .build();
+        when(paymentOrderRepo.findByIdempotencyKey(idempotencyKey)).thenReturn(Optional.of(existing));
+        @SuppressWarnings("unchecked")
+        Iterator<BatchItem> untouched = mock(Iterator.class);
+
+        // Act
+        BatchTransferResponse response = streamingService.executeStreamingBatchTransfer(
+                idempotencyKey, userId, sourceAccountId, untouched);
+
+        // Assert
+        assertThat(response.paymentOrderId()).isEqualTo(existing.getId());
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        verifyNoInteractions(untouched);
+        verify(paymentOrderRepo, never()).saveAndFlush(any());
+    }
+
+    private Iterator<BatchItem> items(int count, String amount) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new BatchItem(destAccountId, new BigDecimal(amount)))
+                .iterator();
+    }
+}
@@ -1,33 +1,51 @@
 package com.nlb.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nlb.domain.*;
+import com.nlb.exception.PendingOrderExecutionException;
+import com.nlb.interfaces.BalanceSlotService;
 import com.nlb.repository.AccountRepository;
-import com.nlb.repository.IntegrationFailureRepository;
 import com.nlb.repository.PaymentOrderRepository;
-import com.nlb.repository.TransactionRepository;
+import com.nlb.service.model.AccountsChangedEvent;
+import com.nlb.service.model.OutboxEventType;
+import com.nlb.service.model.OutboxMessage;
 import com.nlb.service.models.BatchItem;
 import com.nlb.service.models.BatchTransferRequest;
 import com.nlb.service.models.BatchTransferResponse;
+import com.nlb.service.models.DeadLetter;
+import com.nlb.service.models.PaymentOrderChangedEvent;
+import com.nlb.service.models.TransferOutcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -36,13 +54,23 @@ class DefaultTransferBatchServiceTest {
     @Mock
     private PaymentOrderRepository paymentOrderRepo;
     @Mock
-    private TransactionRepository transactionRepo;
+    private BulkLedgerWriter ledgerWriter;
     @Mock
-    private IntegrationFailureRepository failureRepo;
+    private LedgerPostingWriter postingWriter;
+    @Mock
+    private DeadLetterWriter deadLetterWriter;
+    @Mock
+    private OutboxWriter outboxWriter;
     @Mock
     private AccountRepository accountRepo;
     @Mock
-    private ObjectMapper objectMapper;
+    private BalanceSlotService balanceSlotService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private JdbcSavepoints savepoints;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private DefaultTransferBatchService transferService;
@@ -52,27 +80,33 @@ class DefaultTransferBatchServiceTest {
     @Captor
     private ArgumentCaptor<List<Transaction>> transactionsCaptor;
     @Captor
-    private ArgumentCaptor<List<Account>> accountsCaptor;
+    private ArgumentCaptor<DeadLetter> failureCaptor;
     @Captor
-    private ArgumentCaptor<IntegrationFailure> failureCaptor;
+    private ArgumentCaptor<List<PostingLeg>> legsCaptor;
 
+    private SimpleMeterRegistry meterRegistry;
     private UUID userId;
     private UUID sourceAccountId;
     private UUID destAccountId;
     private User mockUser;
     private Account mockSourceAccount;
-    private Account mockDestAccount;
     private BatchTransferRequest mockRequest;
 
     @BeforeEach
     void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // Bloom filter nije napunjen, pa keš uvek propušta lookup do repozitorijuma
+        IdempotencyKeyCache idempotencyCache = new IdempotencyKeyCache(
+                paymentOrderRepo, new SimpleMeterRegistry(), 100, 1000, 0.01, 100);
         transferService = new DefaultTransferBatchService(
-                paymentOrderRepo, transactionRepo, failureRepo, accountRepo, objectMapper
+                paymentOrderRepo, ledgerWriter, postingWriter, deadLetterWriter, outboxWriter, accountRepo, balanceSlotService, idempotencyCache,
+                concurrencyStrategy(AccountConcurrencyStrategy.Mode.PESSIMISTIC), savepoints, transactionManager, new TransferMetrics(meterRegistry), eventPublisher
         );
 
         userId = UUID.randomUUID();
-        sourceAccountId = UUID.randomUUID();
-        destAccountId = UUID.randomUUID();
+        // Fiksni ID-jevi da bi redosled primene (LOCK_ORDER) bio predvidiv: odredište pa izvor
+        sourceAccountId = new UUID(0L, 2L);
+        destAccountId = new UUID(0L, 1L);
 
         mockUser = new User(userId, "user@example.com", "Test User", UserStatus.ACTIVE);
 
@@ -84,14 +118,6 @@ class DefaultTransferBatchServiceTest {
                 .status(AccountStatus.ACTIVE)
                 .build();
 
-        mockDestAccount = Account.builder()
-                .id(destAccountId)
-                .owner(new User())
-                .balanceCents(0L)
-                .currency(Currency.EUR)
-                .status(AccountStatus.ACTIVE)
-                .build();
-
         BatchItem item = new BatchItem(destAccountId, new BigDecimal("10.00"));
         mockRequest = new BatchTransferRequest(
                 UUID.randomUUID().toString(),
@@ -108,10 +134,9 @@ class DefaultTransferBatchServiceTest {
     void executeBatchTransfer_shouldSucceed_onHappyPath() throws Exception {
         when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
         when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(accountRepo.findAllByIdInAndLock(anyList()))
-                .thenReturn(List.of(mockSourceAccount, mockDestAccount));
-        when(accountRepo.saveAll(anyList())).thenReturn(null);
-        when(transactionRepo.saveAll(anyList())).thenReturn(null);
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
         when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
 
         BatchTransferResponse response = transferService.executeBatchTransfer(mockRequest);
@@ -124,20 +149,284 @@ class DefaultTransferBatchServiceTest {
         assertThat(capturedOrder.getStatus()).isEqualTo(PaymentOrderStatus.COMPLETED);
         assertThat(capturedOrder.getItems().getFirst().getStatus()).isEqualTo(PaymentOrderItemStatus.SUCCESS);
 
-        verify(accountRepo, times(1)).saveAll(accountsCaptor.capture());
-        List<Account> updatedAccounts = accountsCaptor.getValue();
-        assertThat(updatedAccounts).hasSize(2);
-        assertThat(updatedAccounts.get(0).getId()).isEqualTo(sourceAccountId);
-        assertThat(updatedAccounts.get(0).getBalanceCents()).isEqualTo(9000L); // 100 - 10
-        assertThat(updatedAccounts.get(1).getId()).isEqualTo(destAccountId);
-        assertThat(updatedAccounts.get(1).getBalanceCents()).isEqualTo(1000L); // 0 + 10
+        // Promene salda idu u rastućem redosledu ID-jeva (odredište < izvor u ovom testu)
+        InOrder inOrder = inOrder(accountRepo);
+        inOrder.verify(accountRepo).applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE);
+        inOrder.verify(accountRepo).applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE);
+        verify(accountRepo, never()).findStateById(any());
+        verify(accountRepo, never()).saveAll(anyList());
 
-        verify(transactionRepo, times(1)).saveAll(transactionsCaptor.capture());
+        verify(ledgerWriter, times(1)).writeTransactions(transactionsCaptor.capture());
         List<Transaction> transactions = transactionsCaptor.getValue();
         assertThat(transactions).hasSize(1);
         assertThat(transactions.getFirst().getAmountCents()).isEqualTo(1000L);
         assertThat(transactions.getFirst().getSourceAccountId()).isEqualTo(sourceAccountId);
         assertThat(transactions.getFirst().getDestinationAccountId()).isEqualTo(destAccountId);
+
+        // Dvojno knjiženje: debit izvora i kredit odredišta, oba sa rednim brojem
+        verify(postingWriter).post(legsCaptor.capture());
+        UUID transactionId = transactions.getFirst().getId();
+        assertThat(legsCaptor.getValue()).containsExactly(
+                new PostingLeg(sourceAccountId, -1000L, Currency.EUR, PostingType.TRANSFER_OUT,
+                        destAccountId, transactionId, capturedOrder.getId(), false),
+                new PostingLeg(destAccountId, 1000L, Currency.EUR, PostingType.TRANSFER_IN,
+                        sourceAccountId, transactionId, capturedOrder.getId(), false));
+
+        // Keš se invalidira za nalog inicijatora i za oba računa
+        verify(eventPublisher).publishEvent(new PaymentOrderChangedEvent(userId, capturedOrder.getId(), PaymentOrderStatus.COMPLETED));
+        verify(eventPublisher).publishEvent(
+                new AccountsChangedEvent(Set.of(userId), Set.of(sourceAccountId, destAccountId)));
+
+        // Događaj za spoljne sisteme ide u outbox u istoj transakciji, po izvornom računu
+        verify(outboxWriter).append(new OutboxMessage(sourceAccountId, OutboxEventType.TRANSFER_COMPLETED,
+                new TransferOutcome(capturedOrder.getId(), userId, sourceAccountId, 1000L, "EUR", PaymentOrderStatus.COMPLETED)));
+    }
+
+    /**
+     * Testira da se ishodi broje po razlogu i veličini batch-a, a faze mere tajmerima
+     */
+    @Test
+    void executeBatchTransfer_shouldRecordPhaseTimersAndOutcomeCounters() {
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyBalanceDelta(destAccountId, -1000L, Long.MIN_VALUE)).thenReturn(Optional.of(0L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.empty());
+        when(accountRepo.findStateById(sourceAccountId)).thenReturn(Optional.of(stateOf(mockSourceAccount)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        transferService.executeBatchTransfer(mockRequest);
+
+        assertThat(meterRegistry.get("nlb.transfer.outcomes")
+                .tags("outcome", "failed", "reason", "insufficient_funds", "batch_size", "1")
+                .counter().count()).isEqualTo(1.0);
+        for (String phase : List.of("idempotency_lookup", "prepare", "validation", "balance")) {
+            assertThat(meterRegistry.get("nlb.transfer.phase").tag("phase", phase).timer().count())
+                    .as(phase).isEqualTo(1L);
+        }
+        assertThat(meterRegistry.get("nlb.transfer.phase").tag("phase", "ledger").timer().count()).isZero();
+    }
+
+    /**
+     * Testira kredit na sharded ("vruć") odredišni račun - kredit ide u slot, bez UPDATE-a glavnog salda
+     */
+    @Test
+    void executeBatchTransfer_shouldCreditSlot_whenDestinationIsSharded() {
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findShardedIdsByIdIn(anyCollection())).thenReturn(List.of(destAccountId));
+        when(balanceSlotService.credit(destAccountId, 1000L)).thenReturn(OptionalInt.of(3));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = transferService.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        verify(balanceSlotService).credit(destAccountId, 1000L);
+        verify(accountRepo, never()).applyBalanceDelta(any(), anyLong(), anyLong());
+        verify(balanceSlotService, never()).sweepIntoBalance(any());
+
+        // Kredit u pod-saldo se knjiži bez rednog broja, debit izvora normalno
+        verify(postingWriter).post(legsCaptor.capture());
+        assertThat(legsCaptor.getValue()).extracting(PostingLeg::accountId, PostingLeg::slotCredit)
+                .containsExactly(tuple(sourceAccountId, false), tuple(destAccountId, true));
+    }
+
+    /**
+     * Testira da odbijen debit poništava kredit na istom slotu koji je kredit pogodio, a ne na novom nasumičnom
+     */
+    @Test
+    void executeBatchTransfer_shouldReverseCreditOnTheSameSlot_whenDebitIsRejected() {
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findShardedIdsByIdIn(anyCollection())).thenReturn(List.of(destAccountId));
+        when(balanceSlotService.credit(destAccountId, 1000L)).thenReturn(OptionalInt.of(3));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.empty());
+        when(accountRepo.findStateById(sourceAccountId)).thenReturn(Optional.of(stateOf(mockSourceAccount)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = transferService.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.FAILED);
+        verify(balanceSlotService).reverseCredit(destAccountId, 3, 1000L);
+        verify(balanceSlotService, times(1)).credit(any(), anyLong());
+        verify(postingWriter, never()).post(anyList());
+    }
+
+    /**
+     * Testira debit sa sharded izvornog računa - FOR UPDATE, pa se pod-salda prebacuju u glavni saldo pre debita
+     */
+    @Test
+    void executeBatchTransfer_shouldSweepSlots_whenSourceIsSharded() {
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findShardedIdsByIdIn(anyCollection())).thenReturn(List.of(sourceAccountId));
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(balanceSlotService.sweepIntoBalance(sourceAccountId)).thenReturn(400L);
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = transferService.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        InOrder inOrder = inOrder(accountRepo, balanceSlotService);
+        inOrder.verify(accountRepo).lockAllById(List.of(sourceAccountId));
+        inOrder.verify(balanceSlotService).sweepIntoBalance(sourceAccountId);
+        inOrder.verify(accountRepo).applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Testira group commit - jedno zaključavanje za celu grupu, poslovna greška obara samo svoj nalog
+     */
+    @Test
+    void executeGroup_shouldFailOnlyTheInvalidRequest() {
+        BatchTransferRequest tooLarge = new BatchTransferRequest(
+                UUID.randomUUID().toString(),
+                userId,
+                sourceAccountId,
+                List.of(new BatchItem(destAccountId, new BigDecimal("95.00")))
+        );
+
+        when(paymentOrderRepo.findByIdempotencyKeyIn(anyList())).thenReturn(List.of());
+        when(accountRepo.applyBalanceDelta(eq(destAccountId), anyLong(), eq(Long.MIN_VALUE))).thenReturn(Optional.of(0L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
+        when(accountRepo.findStateById(sourceAccountId)).thenReturn(Optional.of(stateOf(mockSourceAccount)));
+
+        List<BatchTransferResponse> responses = transferService.executeGroup(List.of(mockRequest, tooLarge));
+
+        assertThat(responses).extracting(BatchTransferResponse::status)
+                .containsExactly(PaymentOrderStatus.COMPLETED, PaymentOrderStatus.FAILED);
+        assertThat(responses.get(1).message()).isEqualTo("Insufficient funds");
+
+        verify(accountRepo, times(1)).lockAllById(List.of(destAccountId, sourceAccountId));
+        verify(paymentOrderRepo, times(1)).saveAllAndFlush(any());
+        // Kredit odbijenog naloga je poništen
+        verify(accountRepo).applyBalanceDelta(destAccountId, 9500L, Long.MIN_VALUE);
+        verify(accountRepo).applyBalanceDelta(destAccountId, -9500L, Long.MIN_VALUE);
+
+        verify(ledgerWriter).writeTransactions(transactionsCaptor.capture());
+        assertThat(transactionsCaptor.getValue()).hasSize(1);
+    }
+
+    /**
+     * Testira group commit - ponovljeni ključ vraća postojeći nalog bez zaključavanja
+     */
+    @Test
+    void executeGroup_shouldReturnExistingResult_forReplayedKeys() {
+        PaymentOrder existingOrder = PaymentOrder.builder()
+                .id(UUID.randomUUID())
+                .idempotencyKey(mockRequest.idempotencyKey())
+                .status(PaymentOrderStatus.COMPLETED)
+                .build();
+        when(paymentOrderRepo.findByIdempotencyKeyIn(anyList())).thenReturn(List.of(existingOrder));
+
+        List<BatchTransferResponse> responses = transferService.executeGroup(List.of(mockRequest));
+
+        assertThat(responses.getFirst().paymentOrderId()).isEqualTo(existingOrder.getId());
+        assertThat(responses.getFirst().message()).isEqualTo("Request already processed");
+        verify(accountRepo, never()).lockAllById(anyList());
+    }
+
+    /**
+     * Testira asinhroni prijem - nalog se samo sačuva kao PENDING, bez diranja računa
+     */
+    @Test
+    void submitBatchTransfer_shouldPersistPendingOrderWithoutExecuting() {
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = transferService.submitBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.PENDING);
+        assertThat(response.message()).isEqualTo("Transfer accepted for processing");
+        verifyNoInteractions(accountRepo, ledgerWriter, outboxWriter);
+    }
+
+    /**
+     * Testira worker put - preuzeti PENDING nalog se izvršava kao i sinhroni
+     */
+    @Test
+    void processNextPendingOrder_shouldExecuteClaimedOrder() {
+        PaymentOrder pendingOrder = pendingOrderFor(mockRequest);
+        when(paymentOrderRepo.claimNextPending()).thenReturn(Optional.of(pendingOrder));
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
+
+        Optional<BatchTransferResponse> response = transferService.processNextPendingOrder();
+
+        assertThat(response).get().extracting(BatchTransferResponse::status).isEqualTo(PaymentOrderStatus.COMPLETED);
+        assertThat(pendingOrder.getItems().getFirst().getStatus()).isEqualTo(PaymentOrderItemStatus.SUCCESS);
+        verify(ledgerWriter).writeTransactions(anyList());
+        verify(paymentOrderRepo).save(pendingOrder);
+    }
+
+    /**
+     * Testira worker put - sistemska greška nosi ID naloga, a failPendingOrder ga zatvara i loguje
+     */
+    @Test
+    void processNextPendingOrder_shouldReportOrderId_whenSystemFailureOccurs() throws Exception {
+        PaymentOrder pendingOrder = pendingOrderFor(mockRequest);
+        when(paymentOrderRepo.claimNextPending()).thenReturn(Optional.of(pendingOrder));
+        when(accountRepo.findShardedIdsByIdIn(anyCollection())).thenThrow(new RuntimeException("DB Connection Timeout"));
+
+        PendingOrderExecutionException thrown = assertThrows(PendingOrderExecutionException.class,
+                () -> transferService.processNextPendingOrder());
+        assertThat(thrown.getPaymentOrderId()).isEqualTo(pendingOrder.getId());
+
+        when(paymentOrderRepo.findById(pendingOrder.getId())).thenReturn(Optional.of(pendingOrder));
+
+        transferService.failPendingOrder(pendingOrder.getId(), (Exception) thrown.getCause());
+
+        assertThat(pendingOrder.getStatus()).isEqualTo(PaymentOrderStatus.FAILED);
+        verify(deadLetterWriter).submit(failureCaptor.capture());
+        assertThat(failureCaptor.getValue().relatedId()).isEqualTo(pendingOrder.getId());
+        assertThat(failureCaptor.getValue().message()).isEqualTo("DB Connection Timeout");
+    }
+
+    /**
+     * Testira ponavljanje async naloga zatvorenog zbog sistemske greške - vraća se u PENDING i izvršava
+     */
+    @Test
+    void retryFailedOrder_shouldReExecuteOrder_whenItFailedWithSystemError() {
+        PaymentOrder failedOrder = pendingOrderFor(mockRequest);
+        failedOrder.setStatus(PaymentOrderStatus.FAILED);
+        failedOrder.getItems().getFirst().setStatus(PaymentOrderItemStatus.FAILED);
+        failedOrder.getItems().getFirst().setFailureReason(DefaultTransferBatchService.SYSTEM_ERROR_REASON);
+        when(paymentOrderRepo.findById(failedOrder.getId())).thenReturn(Optional.of(failedOrder));
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
+
+        Optional<BatchTransferResponse> response = transferService.retryFailedOrder(failedOrder.getId());
+
+        assertThat(response).get().extracting(BatchTransferResponse::status).isEqualTo(PaymentOrderStatus.COMPLETED);
+        assertThat(failedOrder.getItems().getFirst().getStatus()).isEqualTo(PaymentOrderItemStatus.SUCCESS);
+        assertThat(failedOrder.getItems().getFirst().getFailureReason()).isNull();
+        verify(ledgerWriter).writeTransactions(anyList());
+    }
+
+    /**
+     * Testira da se poslovno odbijen nalog ne ponavlja
+     */
+    @Test
+    void retryFailedOrder_shouldReturnEmpty_whenOrderFailedBusinessValidation() {
+        PaymentOrder failedOrder = pendingOrderFor(mockRequest);
+        failedOrder.setStatus(PaymentOrderStatus.FAILED);
+        failedOrder.getItems().getFirst().setStatus(PaymentOrderItemStatus.FAILED);
+        failedOrder.getItems().getFirst().setFailureReason("Insufficient funds");
+        when(paymentOrderRepo.findById(failedOrder.getId())).thenReturn(Optional.of(failedOrder));
+
+        Optional<BatchTransferResponse> response = transferService.retryFailedOrder(failedOrder.getId());
+
+        assertThat(response).isEmpty();
+        assertThat(failedOrder.getStatus()).isEqualTo(PaymentOrderStatus.FAILED);
+        verifyNoInteractions(accountRepo, ledgerWriter);
     }
 
     /**
@@ -147,6 +436,7 @@ class DefaultTransferBatchServiceTest {
     void executeBatchTransfer_shouldReturnExistingResult_whenIdempotencyKeyExists() {
         PaymentOrder existingOrder = PaymentOrder.builder()
                 .id(UUID.randomUUID())
+                .idempotencyKey(mockRequest.idempotencyKey())
                 .status(PaymentOrderStatus.COMPLETED)
                 .build();
         when(paymentOrderRepo.findByIdempotencyKey(mockRequest.idempotencyKey()))
@@ -159,11 +449,11 @@ class DefaultTransferBatchServiceTest {
         assertThat(response.paymentOrderId()).isEqualTo(existingOrder.getId());
 
         verify(paymentOrderRepo, never()).saveAndFlush(any());
-        verify(accountRepo, never()).findAllByIdInAndLock(anyList());
+        verify(accountRepo, never()).applyBalanceDelta(any(), anyLong(), anyLong());
     }
 
     /**
-     * Testira poslovnu grešku: Nedovoljno sredstava
+     * Testira poslovnu grešku: Nedovoljno sredstava (već primenjen kredit se poništava)
      */
     @Test
     void executeBatchTransfer_shouldFail_whenInsufficientFunds() {
@@ -171,8 +461,8 @@ class DefaultTransferBatchServiceTest {
 
         when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
         when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(accountRepo.findAllByIdInAndLock(anyList()))
-                .thenReturn(List.of(mockSourceAccount, mockDestAccount));
+        when(accountRepo.applyBalanceDelta(eq(destAccountId), anyLong(), eq(Long.MIN_VALUE))).thenReturn(Optional.of(0L));
+        when(accountRepo.findStateById(sourceAccountId)).thenReturn(Optional.of(stateOf(mockSourceAccount)));
         when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
 
         BatchTransferResponse response = transferService.executeBatchTransfer(mockRequest);
@@ -186,8 +476,9 @@ class DefaultTransferBatchServiceTest {
         assertThat(capturedOrder.getItems().getFirst().getStatus()).isEqualTo(PaymentOrderItemStatus.FAILED);
         assertThat(capturedOrder.getItems().getFirst().getFailureReason()).isEqualTo("Insufficient funds");
 
-        verify(accountRepo, never()).saveAll(anyList());
-        verify(transactionRepo, never()).saveAll(anyList());
+        verify(accountRepo).applyBalanceDelta(destAccountId, -1000L, Long.MIN_VALUE);
+        verify(ledgerWriter, never()).writeTransactions(anyList());
+        verify(outboxWriter).append(argThat((OutboxMessage message) -> message.type() == OutboxEventType.TRANSFER_FAILED));
     }
 
     /**
@@ -204,16 +495,33 @@ class DefaultTransferBatchServiceTest {
 
         when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
         when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(accountRepo.findAllByIdInAndLock(anyList()))
-                .thenReturn(List.of(mockSourceAccount, mockDestAccount));
+        when(accountRepo.applyBalanceDelta(eq(destAccountId), anyLong(), eq(Long.MIN_VALUE))).thenReturn(Optional.of(0L));
+        when(accountRepo.findStateById(sourceAccountId)).thenReturn(Optional.of(stateOf(mockSourceAccount)));
         when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
 
         BatchTransferResponse response = transferService.executeBatchTransfer(badRequest);
 
         assertThat(response.status()).isEqualTo(PaymentOrderStatus.FAILED);
         assertThat(response.message()).isEqualTo("User does not own the source account");
-        verify(accountRepo, never()).saveAll(anyList());
-        verify(transactionRepo, never()).saveAll(anyList());
+        verify(accountRepo).applyBalanceDelta(destAccountId, -1000L, Long.MIN_VALUE);
+        verify(ledgerWriter, never()).writeTransactions(anyList());
+    }
+
+    /**
+     * Testira poslovnu grešku: odredišni račun ne postoji
+     */
+    @Test
+    void executeBatchTransfer_shouldFail_whenDestinationAccountIsMissing() {
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findStateById(destAccountId)).thenReturn(Optional.empty());
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = transferService.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.FAILED);
+        assertThat(response.message()).isEqualTo("One or more accounts not found");
+        verify(accountRepo, never()).applyOwnedBalanceDelta(any(), any(), anyLong(), anyLong(), anyInt());
     }
 
     /**
@@ -223,32 +531,29 @@ class DefaultTransferBatchServiceTest {
     void executeBatchTransfer_shouldRollbackAndLog_whenSystemFailureOccurs() throws Exception {
         when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
         when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(accountRepo.findAllByIdInAndLock(anyList()))
-                .thenReturn(List.of(mockSourceAccount, mockDestAccount));
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
 
         RuntimeException dbException = new RuntimeException("DB Connection Timeout");
-        when(accountRepo.saveAll(anyList())).thenThrow(dbException);
-
-        when(objectMapper.writeValueAsString(any())).thenReturn("{}");
-        when(failureRepo.save(any(IntegrationFailure.class))).thenReturn(null);
+        doThrow(dbException).when(ledgerWriter).writeTransactions(anyList());
 
         RuntimeException thrown = assertThrows(RuntimeException.class, () -> {
             transferService.executeBatchTransfer(mockRequest);
         });
         assertThat(thrown.getMessage()).contains("System error processing transfer");
 
-        verify(failureRepo, times(1)).save(failureCaptor.capture());
-        IntegrationFailure capturedFailure = failureCaptor.getValue();
-        assertThat(capturedFailure.getContext()).isEqualTo("TRANSFER_BATCH_SERVICE");
-        assertThat(capturedFailure.getMessage()).isEqualTo("DB Connection Timeout");
-        assertThat(capturedFailure.getPayload()).isEqualTo("{}");
+        verify(deadLetterWriter, times(1)).submit(failureCaptor.capture());
+        DeadLetter capturedFailure = failureCaptor.getValue();
+        assertThat(capturedFailure.context()).isEqualTo("TRANSFER_BATCH_SERVICE");
+        assertThat(capturedFailure.message()).isEqualTo("DB Connection Timeout");
+        assertThat(capturedFailure.payload()).isEqualTo(mockRequest);
 
         verify(paymentOrderRepo, never()).save(any(PaymentOrder.class));
-        verify(transactionRepo, never()).saveAll(anyList());
     }
 
     /**
-     * Testira "race condition" kod idempotentnosti
+     * Testira "race condition" kod idempotentnosti - nalog koji je pobedio se čita u novoj transakciji
      */
     @Test
     void executeBatchTransfer_shouldHandleIdempotencyRaceCondition() {
@@ -269,5 +574,129 @@ class DefaultTransferBatchServiceTest {
         assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
         assertThat(response.message()).isEqualTo("Concurrent request processed");
         assertThat(response.paymentOrderId()).isEqualTo(racedOrder.getId());
+        // Prekinuta transakcija ne može da čita, pa se pobednički nalog čita u novoj
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+    }
+
+    /**
+     * Testira optimistički režim - stanje se čita bez lock-a, a salda se menjaju uz proveru verzije
+     */
+    @Test
+    void executeBatchTransfer_shouldUseVersionedUpdates_inOptimisticMode() {
+        DefaultTransferBatchService service = optimisticService();
+        Account destAccount = Account.builder().id(destAccountId).owner(mockUser).status(AccountStatus.ACTIVE).version(4L).build();
+        mockSourceAccount.setVersion(7L);
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findStatesByIdIn(anyCollection())).thenReturn(List.of(stateOf(mockSourceAccount), stateOf(destAccount)));
+        when(accountRepo.applyVersionedBalanceDelta(destAccountId, 4L, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyVersionedBalanceDelta(sourceAccountId, 7L, -1000L, 1000L)).thenReturn(Optional.of(9000L));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = service.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        verify(accountRepo, never()).applyBalanceDelta(any(), anyLong(), anyLong());
+        verify(accountRepo, never()).applyOwnedBalanceDelta(any(), any(), anyLong(), anyLong(), anyInt());
+        verify(savepoints).create();
+        verify(savepoints).release(any());
+        verify(ledgerWriter).writeTransactions(anyList());
+    }
+
+    /**
+     * Testira da se optimistički konflikt vrati do savepoint-a pre backoff-a (bez kompenzacionih
+     * UPDATE-a koji bi držali lock-ove i menjali verzije) i ponovi, a da je poslednji pokušaj pesimistički
+     */
+    @Test
+    void executeBatchTransfer_shouldRetryAndFallBackToPessimistic_onOptimisticConflicts() {
+        DefaultTransferBatchService service = optimisticService();
+        Account destAccount = Account.builder().id(destAccountId).owner(mockUser).status(AccountStatus.ACTIVE).version(4L).build();
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findStatesByIdIn(anyCollection())).thenReturn(List.of(stateOf(mockSourceAccount), stateOf(destAccount)));
+        // Odredište prolazi, izvor je u oba optimistička pokušaja zaključan/izmenjen
+        when(accountRepo.applyVersionedBalanceDelta(destAccountId, 4L, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyVersionedBalanceDelta(eq(sourceAccountId), anyLong(), eq(-1000L), eq(1000L))).thenReturn(Optional.empty());
+        when(accountRepo.applyBalanceDelta(destAccountId, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(accountRepo.applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockSourceAccount)));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = service.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        verify(accountRepo, times(2)).applyVersionedBalanceDelta(eq(sourceAccountId), anyLong(), eq(-1000L), eq(1000L));
+        // Kredit odredišta iz oba neuspela pokušaja je vraćen rollback-om do savepoint-a
+        verify(savepoints, times(2)).create();
+        verify(savepoints, times(2)).rollbackTo(any());
+        verify(savepoints, never()).release(any());
+        verify(accountRepo, never()).applyBalanceDelta(destAccountId, -1000L, Long.MIN_VALUE);
+        verify(accountRepo).applyOwnedBalanceDelta(sourceAccountId, userId, -1000L, 1000L, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Testira da optimistički režim odbija nalog na osnovu pročitanog stanja, bez ijednog UPDATE-a
+     */
+    @Test
+    void executeBatchTransfer_shouldFailWithoutUpdates_whenOptimisticReadShowsInsufficientFunds() {
+        DefaultTransferBatchService service = optimisticService();
+        Account destAccount = Account.builder().id(destAccountId).owner(mockUser).status(AccountStatus.ACTIVE).build();
+        mockSourceAccount.setBalanceCents(500L);
+        when(paymentOrderRepo.findByIdempotencyKey(anyString())).thenReturn(Optional.empty());
+        when(paymentOrderRepo.saveAndFlush(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(accountRepo.findStatesByIdIn(anyCollection())).thenReturn(List.of(stateOf(mockSourceAccount), stateOf(destAccount)));
+        when(accountRepo.applyVersionedBalanceDelta(destAccountId, 0L, 1000L, Long.MIN_VALUE)).thenReturn(Optional.of(1000L));
+        when(paymentOrderRepo.save(any(PaymentOrder.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        BatchTransferResponse response = service.executeBatchTransfer(mockRequest);
+
+        assertThat(response.status()).isEqualTo(PaymentOrderStatus.FAILED);
+        assertThat(response.message()).isEqualTo("Insufficient funds");
+        verify(accountRepo, never()).applyVersionedBalanceDelta(eq(sourceAccountId), anyLong(), anyLong(), anyLong());
+        verify(savepoints).rollbackTo(any());
+        verify(accountRepo, never()).applyBalanceDelta(any(), anyLong(), anyLong());
+        verify(ledgerWriter, never()).writeTransactions(anyList());
+    }
+
+    private DefaultTransferBatchService optimisticService() {
+        IdempotencyKeyCache idempotencyCache = new IdempotencyKeyCache(
+                paymentOrderRepo, new SimpleMeterRegistry(), 100, 1000, 0.01, 100);
+        return new DefaultTransferBatchService(
+                paymentOrderRepo, ledgerWriter, postingWriter, deadLetterWriter, outboxWriter, accountRepo, balanceSlotService, idempotencyCache,
+                concurrencyStrategy(AccountConcurrencyStrategy.Mode.OPTIMISTIC), savepoints, transactionManager, new TransferMetrics(meterRegistry), eventPublisher
+        );
+    }
+
+    private static AccountConcurrencyStrategy concurrencyStrategy(AccountConcurrencyStrategy.Mode mode) {
+        return new AccountConcurrencyStrategy(mode, 3, Duration.ZERO, Duration.ZERO, 0.2, Duration.ofSeconds(30), 100);
+    }
+
+    private static AccountSummary summaryOf(Account account) {
+        return new AccountSummary(account.getId(), account.getOwner().getId(), account.getBalanceCents(),
+                account.getCurrency(), account.getStatus(), account.getBalanceSlots());
+    }
+
+    private static AccountState stateOf(Account account) {
+        return new AccountState(account.getId(), account.getOwner().getId(), account.getStatus(),
+                account.getBalanceCents(), account.getBalanceSlots(), account.getVersion());
+    }
+
+    private static PaymentOrder pendingOrderFor(BatchTransferRequest request) {
+        PaymentOrder order = PaymentOrder.builder()
+                .idempotencyKey(request.idempotencyKey())
+                .initiatedByUserId(request.initiatedByUserId())
+                .sourceAccountId(request.sourceAccountId())
+                .totalAmountCents(1000L)
+                .currency(Currency.EUR)
+                .status(PaymentOrderStatus.PENDING)
+                .build();
+        order.addItem(PaymentOrderItem.builder()
+                .destinationAccountId(request.items().getFirst().destinationAccountId())
+                .amountCents(1000L)
+                .status(PaymentOrderItemStatus.PENDING)
+                .orderKey(request.idempotencyKey() + "#0")
+                .build());
+        return order;
     }
 }
@@ -0,0 +1,210 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.exception.ServiceBusyException;
+import com.nlb.service.GroupCommitTransferBatchService.PendingTransfer;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GroupCommitTransferBatchServiceTest {
+
+    @Mock
+    private DefaultTransferBatchService delegate;
+
+    private GroupCommitTransferBatchService groupCommitService;
+
+    @BeforeEach
+    void setUp() {
+        groupCommitService = new GroupCommitTransferBatchService(delegate,
+                new DbBulkheads(new SimpleMeterRegistry(), 10, 2, 0, 0, Duration.ofSeconds(1)), Duration.ofMillis(200), 3, 16, 1, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        groupCommitService.stop();
+    }
+
+    /**
+     * Testira da se istovremeni zahtevi spajaju u jednu grupu i da svaki dobija svoj odgovor
+     */
+    @Test
+    void executeBatchTransfer_shouldCoalesceConcurrentRequestsIntoOneGroup() {
+        when(delegate.executeGroup(anyList())).thenAnswer(inv -> {
+            List<BatchTransferRequest> requests = inv.getArgument(0);
+            return requests.stream().map(this::completed).toList();
+        });
+        groupCommitService.start();
+
+        List<BatchTransferRequest> requests = List.of(request("k1"), request("k2"), request("k3"));
+        List<CompletableFuture<BatchTransferResponse>> futures = requests.stream()
+                .map(r -> CompletableFuture.supplyAsync(() -> groupCommitService.executeBatchTransfer(r)))
+                .toList();
+
+        List<BatchTransferResponse> responses = futures.stream().map(CompletableFuture::join).toList();
+
+        assertThat(responses).extracting(BatchTransferResponse::message)
+                .containsExactlyInAnyOrder("k1", "k2", "k3");
+        verify(delegate, times(1)).executeGroup(anyList());
+        verify(delegate, never()).executeBatchTransfer(any());
+    }
+
+    /**
+     * Testira da grupa troši jednu dozvolu transfers bulkhead-a, pa je veća od broja dozvola
+     */
+    @Test
+    void commit_shouldHoldOnePermitForTheWholeGroup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        var singlePermit = new GroupCommitTransferBatchService(delegate,
+                new DbBulkheads(meterRegistry, 10, 2, 1, 1, Duration.ofMillis(50)), Duration.ofMillis(200), 3, 16, 1, Duration.ofSeconds(5));
+        List<Double> freeDuringGroup = new ArrayList<>();
+        when(delegate.executeGroup(anyList())).thenAnswer(inv -> {
+            freeDuringGroup.add(meterRegistry.get("nlb.bulkhead.available").tag("bulkhead", "transfers").gauge().value());
+            List<BatchTransferRequest> requests = inv.getArgument(0);
+            return requests.stream().map(this::completed).toList();
+        });
+
+        List<PendingTransfer> group = List.of(
+                new PendingTransfer(request("k1"), new CompletableFuture<>()),
+                new PendingTransfer(request("k2"), new CompletableFuture<>()),
+                new PendingTransfer(request("k3"), new CompletableFuture<>()));
+        singlePermit.commit(group);
+
+        assertThat(group).allSatisfy(pending -> assertThat(pending.result().join().status())
+                .isEqualTo(PaymentOrderStatus.COMPLETED));
+        assertThat(freeDuringGroup).containsExactly(0.0);
+        assertThat(singlePermit.usesOwnBulkhead()).isTrue();
+    }
+
+    /**
+     * Testira fallback: ako grupa padne, svaki zahtev se izvršava pojedinačno i pada samo neispravan
+     */
+    @Test
+    void commit_shouldFallBackToIndividualExecution_whenGroupFails() {
+        BatchTransferRequest good = request("good");
+        BatchTransferRequest bad = request("bad");
+        when(delegate.executeGroup(anyList())).thenThrow(new RuntimeException("DB Connection Timeout"));
+        when(delegate.executeBatchTransfer(good)).thenReturn(completed(good));
+        when(delegate.executeBatchTransfer(bad)).thenThrow(new RuntimeException("System error processing transfer"));
+
+        var goodPending = new PendingTransfer(good, new CompletableFuture<>());
+        var badPending = new PendingTransfer(bad, new CompletableFuture<>());
+        groupCommitService.commit(List.of(goodPending, badPending));
+
+        assertThat(goodPending.result().join().status()).isEqualTo(PaymentOrderStatus.COMPLETED);
+        assertThatThrownBy(() -> badPending.result().join())
+                .hasMessageContaining("System error processing transfer");
+    }
+
+    /**
+     * Testira da se duplikat idempotency ključa ne šalje u istu grupu
+     */
+    @Test
+    void commit_shouldExecuteDuplicateKeysAfterTheGroup() {
+        BatchTransferRequest first = request("same-key");
+        BatchTransferRequest duplicate = request("same-key");
+        BatchTransferRequest other = request("other-key");
+        when(delegate.executeGroup(List.of(first, other))).thenReturn(List.of(completed(first), completed(other)));
+        when(delegate.executeBatchTransfer(duplicate)).thenReturn(completed(duplicate));
+
+        var pendingDuplicate = new PendingTransfer(duplicate, new CompletableFuture<>());
+        groupCommitService.commit(List.of(
+                new PendingTransfer(first, new CompletableFuture<>()),
+                pendingDuplicate,
+                new PendingTransfer(other, new CompletableFuture<>())));
+
+        verify(delegate).executeGroup(List.of(first, other));
+        assertThat(pendingDuplicate.result().join().message()).isEqualTo("same-key");
+    }
+
+    /**
+     * Testira da pozivalac čiji zahtev niko ne preuzme iz reda posle isteka čekanja izvrši zahtev sam
+     */
+    @Test
+    void executeBatchTransfer_shouldExecuteQueuedRequestItself_whenNobodyTakesIt() {
+        var noDispatchers = new GroupCommitTransferBatchService(delegate,
+                new DbBulkheads(new SimpleMeterRegistry(), 10, 2, 0, 0, Duration.ofSeconds(1)),
+                Duration.ofMillis(200), 3, 16, 0, Duration.ofMillis(100));
+        noDispatchers.start();
+        BatchTransferRequest request = request("orphan");
+        when(delegate.executeBatchTransfer(request)).thenReturn(completed(request));
+
+        BatchTransferResponse response = noDispatchers.executeBatchTransfer(request);
+
+        assertThat(response.message()).isEqualTo("orphan");
+        verify(delegate, times(1)).executeBatchTransfer(request);
+    }
+
+    /**
+     * Testira da pozivalac ne čeka neograničeno na zahtev koji je dispečer već preuzeo
+     */
+    @Test
+    void executeBatchTransfer_shouldRejectWithServiceBusy_whenInFlightRequestTimesOut() throws Exception {
+        var shortWait = new GroupCommitTransferBatchService(delegate,
+                new DbBulkheads(new SimpleMeterRegistry(), 10, 2, 0, 0, Duration.ofSeconds(1)),
+                Duration.ofMillis(10), 3, 16, 1, Duration.ofMillis(100));
+        CountDownLatch release = new CountDownLatch(1);
+        BatchTransferRequest request = request("slow");
+        when(delegate.executeBatchTransfer(request)).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return completed(request);
+        });
+        shortWait.start();
+
+        try {
+            assertThatThrownBy(() -> shortWait.executeBatchTransfer(request))
+                    .isInstanceOf(ServiceBusyException.class);
+        } finally {
+            release.countDown();
+            shortWait.stop();
+        }
+        verify(delegate, times(1)).executeBatchTransfer(request);
+    }
+
+    /**
+     * Testira da Error iz grupe završi sve zahteve grupe umesto da ih ostavi bez odgovora
+     */
+    @Test
+    void commitOrFail_shouldFailTheWholeGroup_whenCommitThrowsError() {
+        when(delegate.executeGroup(anyList())).thenThrow(new OutOfMemoryError("Java heap space"));
+
+        List<PendingTransfer> group = List.of(
+                new PendingTransfer(request("k1"), new CompletableFuture<>()),
+                new PendingTransfer(request("k2"), new CompletableFuture<>()));
+        groupCommitService.commitOrFail(group);
+
+        assertThat(group).allSatisfy(pending -> assertThat(pending.result()).isCompletedExceptionally());
+    }
+
+    private BatchTransferRequest request(String key) {
+        return new BatchTransferRequest(key, UUID.randomUUID(), UUID.randomUUID(),
+                List.of(new BatchItem(UUID.randomUUID(), new BigDecimal("1.00"))));
+    }
+
+    private BatchTransferResponse completed(BatchTransferRequest request) {
+        return new BatchTransferResponse(UUID.randomUUID(), PaymentOrderStatus.COMPLETED, request.idempotencyKey());
+    }
+}
@@ -0,0 +1,134 @@
+package com.nlb.service;
+
+import com.nlb.domain.PaymentOrder;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.repository.PaymentOrderRepository;
+import com.nlb.service.models.BatchTransferResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyKeyCacheTest {
+
+    @Mock
+    private PaymentOrderRepository paymentOrderRepo;
+
+    private MeterRegistry meterRegistry;
+    private IdempotencyKeyCache cache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new IdempotencyKeyCache(paymentOrderRepo, meterRegistry, 2, 1000, 0.01, 2);
+    }
+
+    /**
+     * Testira da se ponovljeni ključ završenog naloga vraća iz LRU-a bez lookup-a
+     */
+    @Test
+    void findExisting_shouldServeReplayFromLru() {
+        PaymentOrder order = order("key-1", PaymentOrderStatus.COMPLETED);
+        cache.rememberAfterCommit(order);
+        AtomicInteger loads = new AtomicInteger();
+
+        Optional<BatchTransferResponse> response = cache.findExisting("key-1", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(response).get().extracting(BatchTransferResponse::paymentOrderId).isEqualTo(order.getId());
+        assertThat(response.get().message()).isEqualTo("Request already processed");
+        assertThat(loads).hasValue(0);
+        assertThat(meterRegistry.get("nlb.idempotency.cache.hit.ratio").gauge().value()).isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da se PENDING nalog ne kešira (status se još menja)
+     */
+    @Test
+    void rememberAfterCommit_shouldIgnorePendingOrders() {
+        cache.rememberAfterCommit(order("key-1", PaymentOrderStatus.PENDING));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    /**
+     * Testira LRU kapacitet - najstariji ključ ispada
+     */
+    @Test
+    void rememberAfterCommit_shouldEvictLeastRecentlyUsed() {
+        cache.rememberAfterCommit(order("key-1", PaymentOrderStatus.COMPLETED));
+        cache.rememberAfterCommit(order("key-2", PaymentOrderStatus.FAILED));
+        cache.rememberAfterCommit(order("key-3", PaymentOrderStatus.COMPLETED));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.findExisting("key-1", key -> Optional.empty())).isEmpty();
+    }
+
+    /**
+     * Testira da napunjen Bloom filter preskače lookup za nove ključeve, a i dalje radi lookup za postojeće
+     */
+    @Test
+    void findExisting_shouldSkipLookupForKeysRejectedByBloomFilter() {
+        when(paymentOrderRepo.findIdempotencyKeysAfter(eq(""), any(Limit.class))).thenReturn(List.of("old-1", "old-2"));
+        when(paymentOrderRepo.findIdempotencyKeysAfter(eq("old-2"), any(Limit.class))).thenReturn(List.of());
+        cache.warmUp();
+
+        PaymentOrder old = order("old-1", PaymentOrderStatus.COMPLETED);
+        AtomicInteger loads = new AtomicInteger();
+        Map<String, BatchTransferResponse> existing = cache.findExisting(List.of("old-1", "brand-new"), keys -> {
+            loads.incrementAndGet();
+            assertThat(keys).containsExactly("old-1");
+            return List.of(old);
+        });
+
+        assertThat(existing).containsOnlyKeys("old-1");
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("nlb.idempotency.bloom.checks").tag("result", "negative").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("nlb.idempotency.memory").gauge().value()).isPositive();
+    }
+
+    /**
+     * Testira da se ključ iz istog JVM-a odmah vidi u Bloom filteru
+     */
+    @Test
+    void registerNewKey_shouldMakeKeyVisibleToBloomFilter() {
+        when(paymentOrderRepo.findIdempotencyKeysAfter(eq(""), any(Limit.class))).thenReturn(List.of());
+        cache.warmUp();
+        cache.registerNewKey("key-1");
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.findExisting("key-1", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(loads).hasValue(1);
+    }
+
+    private static PaymentOrder order(String key, PaymentOrderStatus status) {
+        return PaymentOrder.builder()
+                .id(UUID.randomUUID())
+                .idempotencyKey(key)
+                .status(status)
+                .build();
+    }
+}
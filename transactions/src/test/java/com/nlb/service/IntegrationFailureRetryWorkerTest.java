@@ -0,0 +1,169 @@
+package com.nlb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.interfaces.TransferBatchService;
+import com.nlb.service.IntegrationFailureRetryWorker.ClaimedFailure;
+import com.nlb.service.models.BatchItem;
+import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IntegrationFailureRetryWorkerTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Mock
+    private TransferBatchService transferService;
+    @Mock
+    private DefaultTransferBatchService failedOrderExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SimpleMeterRegistry meterRegistry;
+    private IntegrationFailureRetryWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        worker = new IntegrationFailureRetryWorker(jdbcTemplate, transactionManager, transferService,
+                failedOrderExecutor, objectMapper, meterRegistry, 1, 100, Duration.ofSeconds(1), Duration.ofMinutes(5), 3,
+                Duration.ofSeconds(10), Duration.ofMinutes(1), false);
+    }
+
+    /**
+     * Testira da se zahtev ponovo šalje sa originalnim idempotency ključem i da odgovor rešava grešku
+     */
+    @Test
+    void retry_shouldResolveFailure_whenTransferReturnsResponse() throws Exception {
+        // Arrange
+        BatchTransferRequest request = request("key-1");
+        ClaimedFailure failure = new ClaimedFailure(UUID.randomUUID(), objectMapper.writeValueAsString(request), 0, null);
+        when(transferService.executeBatchTransfer(request)).thenReturn(
+                new BatchTransferResponse(UUID.randomUUID(), PaymentOrderStatus.COMPLETED, "Transfer successful"));
+
+        // Act
+        worker.retry(failure, Instant.now());
+
+        // Assert
+        verify(transferService).executeBatchTransfer(request);
+        verify(jdbcTemplate).update(IntegrationFailureRetryWorker.RESOLVE_SQL, failure.id());
+        assertThat(outcomes("resolved")).isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da se async nalog zatvoren kao FAILED ponovo izvršava, umesto da idempotency vrati FAILED
+     */
+    @Test
+    void retry_shouldReExecuteExistingOrder_whenAsyncOrderFailedWithSystemError() throws Exception {
+        // Arrange
+        UUID orderId = UUID.randomUUID();
+        ClaimedFailure failure = new ClaimedFailure(UUID.randomUUID(),
+                objectMapper.writeValueAsString(request("key-4")), 0, orderId);
+        when(failedOrderExecutor.retryFailedOrder(orderId)).thenReturn(Optional.of(
+                new BatchTransferResponse(orderId, PaymentOrderStatus.COMPLETED, "Transfer successful")));
+
+        // Act
+        worker.retry(failure, Instant.now());
+
+        // Assert
+        verify(transferService, never()).executeBatchTransfer(any());
+        verify(jdbcTemplate).update(IntegrationFailureRetryWorker.RESOLVE_SQL, failure.id());
+        assertThat(outcomes("resolved")).isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da neuspeo pokušaj povećava retry_count i odlaže sledeći eksponencijalno
+     */
+    @Test
+    void retry_shouldRescheduleWithBackoff_whenTransferFails() throws Exception {
+        // Arrange
+        Instant now = Instant.parse("2025-01-01T10:00:00Z");
+        ClaimedFailure failure = new ClaimedFailure(UUID.randomUUID(), objectMapper.writeValueAsString(request("key-2")), 1, null);
+        when(transferService.executeBatchTransfer(any()))
+                .thenThrow(new RuntimeException("System error processing transfer",
+                        new IllegalStateException("DB Connection Timeout")));
+
+        // Act
+        worker.retry(failure, now);
+
+        // Assert
+        verify(jdbcTemplate).update(IntegrationFailureRetryWorker.RESCHEDULE_SQL, 2,
+                now.plusSeconds(20).atOffset(ZoneOffset.UTC), "DB Connection Timeout", failure.id());
+        assertThat(outcomes("rescheduled")).isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da se greška parkira kada potroši sve pokušaje
+     */
+    @Test
+    void retry_shouldPark_whenMaxAttemptsReached() throws Exception {
+        // Arrange
+        ClaimedFailure failure = new ClaimedFailure(UUID.randomUUID(), objectMapper.writeValueAsString(request("key-3")), 2, null);
+        when(transferService.executeBatchTransfer(any())).thenThrow(new IllegalStateException("Ledger unavailable"));
+
+        // Act
+        worker.retry(failure, Instant.now());
+
+        // Assert
+        verify(jdbcTemplate).update(IntegrationFailureRetryWorker.PARK_SQL, 3, "Ledger unavailable", failure.id());
+        assertThat(outcomes("parked")).isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da se greška bez čitljivog payload-a parkira bez slanja transfera
+     */
+    @Test
+    void retry_shouldPark_whenPayloadIsNotATransferRequest() {
+        // Arrange
+        ClaimedFailure failure = new ClaimedFailure(UUID.randomUUID(), "not json", 0, null);
+
+        // Act
+        worker.retry(failure, Instant.now());
+
+        // Assert
+        verifyNoInteractions(transferService);
+        verify(jdbcTemplate).update(eq(IntegrationFailureRetryWorker.PARK_SQL), eq(0), anyString(), eq(failure.id()));
+    }
+
+    /**
+     * Testira da je čekanje eksponencijalno i ograničeno sa max-backoff
+     */
+    @Test
+    void backoffFor_shouldDoubleUpToMaxBackoff() {
+        assertThat(worker.backoffFor(1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(worker.backoffFor(3)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(worker.backoffFor(10)).isEqualTo(Duration.ofMinutes(1));
+        assertThat(worker.backoffFor(100)).isEqualTo(Duration.ofMinutes(1));
+    }
+
+    private double outcomes(String outcome) {
+        return meterRegistry.get("nlb.failure.retry.outcomes").tag("outcome", outcome).counter().count();
+    }
+
+    private static BatchTransferRequest request(String idempotencyKey) {
+        return new BatchTransferRequest(idempotencyKey, UUID.randomUUID(), UUID.randomUUID(),
+                List.of(new BatchItem(UUID.randomUUID(), new BigDecimal("10.00"))));
+    }
+}
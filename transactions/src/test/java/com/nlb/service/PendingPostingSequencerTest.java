@@ -0,0 +1,76 @@
+package com.nlb.service;
+
+import com.nlb.repository.AccountRepository;
+import com.nlb.repository.LedgerPostingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PendingPostingSequencerTest {
+
+    @Mock
+    private AccountRepository accountRepo;
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepo;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PendingPostingSequencer sequencer;
+
+    @BeforeEach
+    void setUp() {
+        sequencer = new PendingPostingSequencer(accountRepo, ledgerPostingRepo, transactionManager, Duration.ofMinutes(1));
+    }
+
+    /**
+     * Testira da se knjiženja na čekanju sekvenciraju po računu, tek pošto je račun zaključan FOR UPDATE
+     */
+    @Test
+    void sequencePending_shouldLockEachAccountBeforeSequencingItsPostings() {
+        // Arrange: računi koji samo primaju uplate, bez debita koji bi ih sweep-ovao
+        UUID merchant = UUID.randomUUID();
+        UUID payroll = UUID.randomUUID();
+        when(ledgerPostingRepo.findAccountIdsWithPendingPostings(anyInt())).thenReturn(List.of(merchant, payroll));
+        when(ledgerPostingRepo.sequencePendingPostings(List.of(merchant))).thenReturn(3);
+        when(ledgerPostingRepo.sequencePendingPostings(List.of(payroll))).thenReturn(1);
+
+        // Act
+        int sequenced = sequencer.sequencePending();
+
+        // Assert
+        assertThat(sequenced).isEqualTo(4);
+        InOrder inOrder = inOrder(accountRepo, ledgerPostingRepo);
+        inOrder.verify(accountRepo).lockAllById(List.of(merchant));
+        inOrder.verify(ledgerPostingRepo).sequencePendingPostings(List.of(merchant));
+        inOrder.verify(accountRepo).lockAllById(List.of(payroll));
+        inOrder.verify(ledgerPostingRepo).sequencePendingPostings(List.of(payroll));
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    /**
+     * Testira da bez knjiženja na čekanju nema zaključavanja ni transakcija
+     */
+    @Test
+    void sequencePending_shouldDoNothing_whenNoPostingsArePending() {
+        // Arrange
+        when(ledgerPostingRepo.findAccountIdsWithPendingPostings(anyInt())).thenReturn(List.of());
+
+        // Act & Assert
+        assertThat(sequencer.sequencePending()).isZero();
+        verifyNoInteractions(accountRepo, transactionManager);
+    }
+}
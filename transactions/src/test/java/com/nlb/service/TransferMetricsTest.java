@@ -0,0 +1,80 @@
+package com.nlb.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferMetricsTest {
+
+    /**
+     * Testira da se poruke greške (koje sadrže ID računa) svode na fiksan skup tagova
+     */
+    @Test
+    void reasonTag_NormalizesFailureMessages() {
+        assertThat(TransferMetrics.reasonTag("Insufficient funds")).isEqualTo("insufficient_funds");
+        assertThat(TransferMetrics.reasonTag("Account 5f0c6c1e-0000-0000-0000-000000000001 is not ACTIVE")).isEqualTo("account_not_active");
+        assertThat(TransferMetrics.reasonTag("System error processing transfer")).isEqualTo("system_error");
+        assertThat(TransferMetrics.reasonTag("Something new")).isEqualTo("other");
+    }
+
+    /**
+     * Testira granice bucket-a za veličinu batch-a
+     */
+    @Test
+    void batchSizeBucket_UsesFixedBuckets() {
+        assertThat(TransferMetrics.batchSizeBucket(1)).isEqualTo("1");
+        assertThat(TransferMetrics.batchSizeBucket(10)).isEqualTo("2-10");
+        assertThat(TransferMetrics.batchSizeBucket(11)).isEqualTo("11-100");
+        assertThat(TransferMetrics.batchSizeBucket(1000)).isEqualTo("101-1000");
+        assertThat(TransferMetrics.batchSizeBucket(100_000)).isEqualTo("1001+");
+    }
+
+    /**
+     * Testira da štoperica pripisuje vreme samo fazama koje su korišćene, po jednom zapisu po zahtevu
+     */
+    @Test
+    void phaseTimer_RecordsEachUsedPhaseOnce() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransferMetrics metrics = new TransferMetrics(registry);
+
+        TransferMetrics.PhaseTimer timer = metrics.startPhases(TransferMetrics.Phase.PREPARE);
+        timer.switchTo(TransferMetrics.Phase.BALANCE);
+        timer.switchTo(TransferMetrics.Phase.PREPARE);
+        timer.stop();
+
+        assertThat(registry.get("nlb.transfer.phase").tag("phase", "prepare").timer().count()).isEqualTo(1L);
+        assertThat(registry.get("nlb.transfer.phase").tag("phase", "balance").timer().count()).isEqualTo(1L);
+        assertThat(registry.get("nlb.transfer.phase").tag("phase", "lock").timer().count()).isZero();
+    }
+
+    /**
+     * Testira da se završen nalog broji tek posle commit-a, a posle rollback-a nikako
+     */
+    @Test
+    void completed_IsCountedOnlyAfterCommit() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        TransferMetrics metrics = new TransferMetrics(registry);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.completed(3);
+            assertThat(registry.find("nlb.transfer.outcomes").counter()).isNull();
+            TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(registry.find("nlb.transfer.outcomes").counter()).isNull();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            metrics.completed(3);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(registry.get("nlb.transfer.outcomes").tag("outcome", "completed").counter().count()).isEqualTo(1.0);
+    }
+}
@@ -30,4 +30,8 @@ public class Account extends BaseEntity{
 
     @Version
     private Long version;
+
+    // Broj pod-salda za "vruće" račune (0 = sharding isključen)
+    @Column(name = "balance_slots", nullable = false)
+    private int balanceSlots;
 }
\ No newline at end of file
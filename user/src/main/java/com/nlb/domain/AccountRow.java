@@ -0,0 +1,26 @@
+package com.nlb.domain;
+
+import java.util.UUID;
+
+/**
+ * Red računa vraćen iz native {@code UPDATE ... RETURNING}. Spring Data ga puni iz kolona
+ * (uz konverziju enum-a), bez entiteta i persistence context-a.
+ */
+public interface AccountRow {
+
+    UUID getId();
+
+    UUID getOwnerId();
+
+    long getBalanceCents();
+
+    Currency getCurrency();
+
+    AccountStatus getStatus();
+
+    int getBalanceSlots();
+
+    default AccountSummary toSummary() {
+        return new AccountSummary(getId(), getOwnerId(), getBalanceCents(), getCurrency(), getStatus(), getBalanceSlots());
+    }
+}
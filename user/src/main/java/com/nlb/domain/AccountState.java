@@ -0,0 +1,17 @@
+package com.nlb.domain;
+
+import java.util.UUID;
+
+/**
+ * Lagani pogled na račun (bez učitavanja entiteta) - koristi se da se objasni
+ * zašto uslovni UPDATE salda nije pogodio nijedan red, i kao polazno stanje
+ * (sa verzijom) za optimističku promenu salda.
+ */
+public record AccountState(
+        UUID id,
+        UUID ownerId,
+        AccountStatus status,
+        long balanceCents,
+        int balanceSlots,
+        Long version
+) {}
@@ -0,0 +1,25 @@
+package com.nlb.domain;
+
+import java.util.UUID;
+
+/**
+ * Račun u listi računa korisnika, čitan bez učitavanja entiteta i vlasnika.
+ * {@code balanceCents} je logički saldo: glavni saldo plus zbir pod-salda.
+ */
+public record AccountSummary(
+        UUID id,
+        UUID ownerId,
+        long balanceCents,
+        Currency currency,
+        AccountStatus status,
+        int balanceSlots
+) {
+
+    public boolean isBalanceSharded() {
+        return balanceSlots > 0;
+    }
+
+    public AccountSummary withSlotBalance(long slotBalanceCents) {
+        return new AccountSummary(id, ownerId, balanceCents + slotBalanceCents, currency, status, balanceSlots);
+    }
+}
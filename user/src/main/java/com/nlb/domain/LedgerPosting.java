@@ -0,0 +1,64 @@
+package com.nlb.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Knjiženje po dvojnom knjigovodstvu: svaki transfer daje dva reda (debit i kredit),
+ * a uplate i isplate po jedan. Redni broj je monoton po računu i dodeljuje se dok
+ * transakcija drži ekskluzivni lock nad računom, zajedno sa saldom posle knjiženja.
+ * <p>
+ * Krediti u pod-salda sharded računa drže samo FOR SHARE, pa se upisuju bez rednog broja
+ * i salda ("na čekanju"); dobijaju ih pri sledećem sweep-u, kada je račun ponovo zaključan, ili
+ * od {@code PendingPostingSequencer}-a ako debita nema (račun koji samo prima uplate).
+ */
+@Entity
+@Table(name = "ledger_postings", indexes = {
+        @Index(name = "idx_ledger_posting_account_seq", columnList = "account_id, sequence_no", unique = true),
+        @Index(name = "idx_ledger_posting_account_created_tx", columnList = "account_id, created_at, transaction_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerPosting extends BaseEntity {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+
+    @Column(name = "sequence_no")
+    private Long sequenceNo;
+
+    @Column(name = "amount_cents", nullable = false)
+    private long amountCents;
+
+    @Column(name = "balance_after_cents")
+    private Long balanceAfterCents;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 3)
+    private Currency currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "posting_type", nullable = false, length = 20)
+    private PostingType postingType;
+
+    @Column(name = "counterparty_account_id")
+    private UUID counterpartyAccountId;
+
+    @Column(name = "transaction_id")
+    private UUID transactionId;
+
+    @Column(name = "payment_order_id")
+    private UUID paymentOrderId;
+
+    public boolean isPending() {
+        return sequenceNo == null;
+    }
+}
@@ -0,0 +1,29 @@
+package com.nlb.domain;
+
+import java.util.UUID;
+
+/**
+ * Jedna stavka knjiženja pre upisa u {@code ledger_postings}. Iznos je sa predznakom
+ * (debit negativan, kredit pozitivan); redni broj i saldo posle knjiženja dodeljuje baza.
+ * {@code slotCredit} označava kredit u pod-saldo sharded računa, koji se upisuje bez
+ * rednog broja (vidi {@link LedgerPosting}).
+ */
+public record PostingLeg(
+        UUID accountId,
+        long amountCents,
+        Currency currency,
+        PostingType type,
+        UUID counterpartyAccountId,
+        UUID transactionId,
+        UUID paymentOrderId,
+        boolean slotCredit
+) {
+
+    public static PostingLeg deposit(UUID accountId, long amountCents, boolean slotCredit) {
+        return new PostingLeg(accountId, amountCents, Currency.EUR, PostingType.DEPOSIT, null, null, null, slotCredit);
+    }
+
+    public static PostingLeg withdrawal(UUID accountId, long amountCents) {
+        return new PostingLeg(accountId, -amountCents, Currency.EUR, PostingType.WITHDRAWAL, null, null, null, false);
+    }
+}
@@ -0,0 +1,5 @@
+package com.nlb.domain;
+
+public enum PostingType {
+    TRANSFER_OUT, TRANSFER_IN, DEPOSIT, WITHDRAWAL, OPENING_BALANCE
+}
@@ -1,6 +1,7 @@
 package com.nlb.interfaces;
 
 import com.nlb.domain.Account;
+import com.nlb.domain.AccountSummary;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -10,11 +11,13 @@ public interface AccountService {
 
     Account createAccount(UUID userId);
 
-    Account deposit(UUID userId, UUID accountId, BigDecimal amount);
+    AccountSummary deposit(UUID userId, UUID accountId, BigDecimal amount);
 
     Account deactivateAccount(UUID userId, UUID accountId);
 
-    List<Account> getAccountsByUserId(UUID userId);
+    List<AccountSummary> getAccountsByUserId(UUID userId);
 
-    Account withdraw(UUID userId, UUID accountId, BigDecimal amount);
+    AccountSummary withdraw(UUID userId, UUID accountId, BigDecimal amount);
+
+    Account configureBalanceSlots(UUID userId, UUID accountId, int slots);
 }
@@ -0,0 +1,38 @@
+package com.nlb.interfaces;
+
+import com.nlb.domain.AccountSummary;
+
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+
+public interface BalanceSlotService {
+
+    /**
+     * Kredit nasumičnog slota; vraća pogođeni slot, ili prazno ako račun ne postoji, nije ACTIVE ili nije sharded.
+     */
+    OptionalInt credit(UUID accountId, long amountCents);
+
+    /**
+     * Poništava kredit na slotu koji je vratio {@link #credit}. Red slota je već zaključan istom
+     * transakcijom, pa se ne čeka ni na koga (nasumičan slot bi mogao da čeka na tuđi kredit).
+     */
+    void reverseCredit(UUID accountId, int slot, long amountCents);
+
+    /**
+     * Prebacuje sve slotove računa (koji je već zaključan FOR UPDATE) u glavni saldo i vraća
+     * prebačeni iznos. Logički saldo se ne menja, pa je korak bezbedan i ako debit posle njega ne prođe.
+     */
+    long sweepIntoBalance(UUID lockedAccountId);
+
+    /**
+     * Dodaje zbir pod-salda na saldo sharded računa, tako da {@code balanceCents} bude logički saldo.
+     */
+    List<AccountSummary> withSlotBalances(List<AccountSummary> accounts);
+
+    /**
+     * Prebacuje slotove u glavni saldo i pravi {@code slots} novih, praznih slotova.
+     * Ne menja {@code balance_slots} na računu; to radi pozivalac nad sveže pročitanim entitetom.
+     */
+    void resize(UUID lockedAccountId, int slots);
+}
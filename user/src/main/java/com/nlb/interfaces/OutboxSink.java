@@ -0,0 +1,14 @@
+package com.nlb.interfaces;
+
+import com.nlb.service.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * Odredište outbox relay-a (broker, webhook, fajl...). Dobija batch događaja jedne particije u
+ * rastućem redosledu id-ja; izuzetak vraća ceo batch na ponovno slanje, pa isporuka je
+ * "at least once" i sink mora podneti duplikate.
+ */
+public interface OutboxSink {
+    void publish(List<OutboxEvent> events);
+}
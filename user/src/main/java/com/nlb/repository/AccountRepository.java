@@ -1,13 +1,19 @@
 package com.nlb.repository;
 
 import com.nlb.domain.Account;
+import com.nlb.domain.AccountRow;
+import com.nlb.domain.AccountState;
+import com.nlb.domain.AccountSummary;
+import com.nlb.domain.Currency;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 
 import jakarta.persistence.LockModeType;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -17,5 +23,158 @@ public interface AccountRepository extends JpaRepository<Account, UUID> {
     @Query("select a from Account a where a.id in :ids order by a.id")
     List<Account> findAllByIdInAndLock(@Param("ids") List<UUID> ids);
 
+    @Query(value = "SELECT id FROM accounts WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<UUID> lockAllById(@Param("ids") List<UUID> ids);
+
+    @Query(value = "SELECT id FROM accounts WHERE id IN (:ids) ORDER BY id FOR SHARE", nativeQuery = true)
+    List<UUID> lockAllByIdShared(@Param("ids") List<UUID> ids);
+
+    @Query("select a.id from Account a where a.id in :ids and a.balanceSlots > 0")
+    List<UUID> findShardedIdsByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("select new com.nlb.domain.AccountState(a.id, a.owner.id, a.status, a.balanceCents, a.balanceSlots, a.version) from Account a where a.id = :id")
+    Optional<AccountState> findStateById(@Param("id") UUID id);
+
+    @Query("select new com.nlb.domain.AccountState(a.id, a.owner.id, a.status, a.balanceCents, a.balanceSlots, a.version) from Account a where a.id in :ids")
+    List<AccountState> findStatesByIdIn(@Param("ids") Collection<UUID> ids);
+
     List<Account> findByOwnerId(UUID ownerId);
-}
\ No newline at end of file
+
+    @Query("select new com.nlb.domain.AccountSummary(a.id, a.owner.id, a.balanceCents, a.currency, a.status, a.balanceSlots) from Account a where a.owner.id = :ownerId")
+    List<AccountSummary> findSummariesByOwnerId(@Param("ownerId") UUID ownerId);
+
+    @Query("select new com.nlb.domain.AccountSummary(a.id, a.owner.id, a.balanceCents, a.currency, a.status, a.balanceSlots) from Account a where a.id = :accountId")
+    Optional<AccountSummary> findSummaryById(@Param("accountId") UUID accountId);
+
+    boolean existsByIdAndOwnerId(UUID id, UUID ownerId);
+
+    @Query("select a.currency from Account a where a.id = :id and a.owner.id = :ownerId")
+    Optional<Currency> findCurrencyByIdAndOwnerId(@Param("id") UUID id, @Param("ownerId") UUID ownerId);
+
+    /**
+     * Atomska promena salda jednim UPDATE-om (bez SELECT-a i bez učitavanja entiteta).
+     * Prazan rezultat znači da račun ne postoji, nije ACTIVE ili nema dovoljno sredstava
+     * - razlog se po potrebi utvrđuje preko {@link #findStateById}.
+     */
+    @Query(value = """
+            UPDATE accounts
+            SET balance_cents = balance_cents + :deltaCents, version = COALESCE(version, 0) + 1, updated_at = now()
+            WHERE id = :accountId AND status = 'ACTIVE' AND balance_cents >= :minBalanceCents
+            RETURNING balance_cents
+            """, nativeQuery = true)
+    Optional<Long> applyBalanceDelta(@Param("accountId") UUID accountId,
+                                     @Param("deltaCents") long deltaCents,
+                                     @Param("minBalanceCents") long minBalanceCents);
+
+    /**
+     * Kao {@link #applyBalanceDelta}, uz proveru vlasnika; vraća ažurirani red kao {@link AccountSummary}.
+     * Namerno nije entitet: Hibernate bi za već učitan račun vratio instancu iz persistence context-a sa starim saldom.
+     * {@code maxSlots = 0} propušta samo račune bez sharding-a.
+     */
+    default Optional<AccountSummary> applyOwnedBalanceDelta(UUID accountId, UUID ownerId, long deltaCents,
+                                                            long minBalanceCents, int maxSlots) {
+        return applyOwnedBalanceDeltaReturningRow(accountId, ownerId, deltaCents, minBalanceCents, maxSlots)
+                .map(AccountRow::toSummary);
+    }
+
+    @Query(value = """
+            UPDATE accounts
+            SET balance_cents = balance_cents + :deltaCents, version = COALESCE(version, 0) + 1, updated_at = now()
+            WHERE id = :accountId AND owner_id = :ownerId AND status = 'ACTIVE'
+              AND balance_cents >= :minBalanceCents AND balance_slots <= :maxSlots
+            RETURNING id, owner_id AS "ownerId", balance_cents AS "balanceCents", currency, status,
+                      balance_slots AS "balanceSlots"
+            """, nativeQuery = true)
+    Optional<AccountRow> applyOwnedBalanceDeltaReturningRow(@Param("accountId") UUID accountId,
+                                                            @Param("ownerId") UUID ownerId,
+                                                            @Param("deltaCents") long deltaCents,
+                                                            @Param("minBalanceCents") long minBalanceCents,
+                                                            @Param("maxSlots") int maxSlots);
+
+    /**
+     * Optimistička promena salda: prolazi samo ako je verzija ista kao pri čitanju i red trenutno
+     * nije zaključan (SKIP LOCKED), pa nikad ne čeka na tuđi lock. Prazan rezultat znači konflikt.
+     */
+    @Query(value = """
+            WITH target AS (
+                SELECT id FROM accounts
+                WHERE id = :accountId AND COALESCE(version, 0) = :expectedVersion
+                  AND status = 'ACTIVE' AND balance_cents >= :minBalanceCents
+                FOR NO KEY UPDATE SKIP LOCKED
+            )
+            UPDATE accounts a
+            SET balance_cents = a.balance_cents + :deltaCents, version = COALESCE(a.version, 0) + 1, updated_at = now()
+            FROM target WHERE a.id = target.id
+            RETURNING a.balance_cents
+            """, nativeQuery = true)
+    Optional<Long> applyVersionedBalanceDelta(@Param("accountId") UUID accountId,
+                                              @Param("expectedVersion") long expectedVersion,
+                                              @Param("deltaCents") long deltaCents,
+                                              @Param("minBalanceCents") long minBalanceCents);
+
+    /**
+     * Kredit jednog pod-salda (slot = slotSeed % balance_slots); vraća pogođeni slot. FOR SHARE na redu
+     * računa dozvoljava paralelne kredite, a blokira debit (sweep) koji drži FOR UPDATE nad istim računom.
+     */
+    @Query(value = """
+            WITH acc AS (
+                SELECT id, balance_slots FROM accounts
+                WHERE id = :accountId AND status = 'ACTIVE' AND balance_slots > 0 FOR SHARE
+            )
+            UPDATE account_balance_slots s SET balance_cents = s.balance_cents + :amountCents
+            FROM acc WHERE s.account_id = acc.id AND s.slot = :slotSeed % acc.balance_slots
+            RETURNING s.slot
+            """, nativeQuery = true)
+    Optional<Integer> creditBalanceSlot(@Param("accountId") UUID accountId,
+                          @Param("slotSeed") int slotSeed,
+                          @Param("amountCents") long amountCents);
+
+    /**
+     * Promena tačno zadatog pod-salda - za poništavanje kredita na slotu koji ova transakcija već drži.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE account_balance_slots SET balance_cents = balance_cents + :amountCents
+            WHERE account_id = :accountId AND slot = :slot
+            """, nativeQuery = true)
+    int addToBalanceSlot(@Param("accountId") UUID accountId,
+                         @Param("slot") int slot,
+                         @Param("amountCents") long amountCents);
+
+    /**
+     * Bezuslovna promena glavnog salda - samo za prebacivanje pod-salda (sweep) dok je red zaključan FOR UPDATE.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE accounts
+            SET balance_cents = balance_cents + :deltaCents, version = COALESCE(version, 0) + 1, updated_at = now()
+            WHERE id = :accountId
+            """, nativeQuery = true)
+    int addToBalance(@Param("accountId") UUID accountId, @Param("deltaCents") long deltaCents);
+
+    @Query(value = "SELECT CAST(COALESCE(SUM(balance_cents), 0) AS BIGINT) FROM account_balance_slots WHERE account_id = :accountId",
+            nativeQuery = true)
+    long sumBalanceSlots(@Param("accountId") UUID accountId);
+
+    @Query(value = """
+            SELECT account_id, CAST(SUM(balance_cents) AS BIGINT)
+            FROM account_balance_slots WHERE account_id IN (:accountIds) GROUP BY account_id
+            """, nativeQuery = true)
+    List<Object[]> sumBalanceSlotsByAccountIds(@Param("accountIds") Collection<UUID> accountIds);
+
+    @Modifying
+    @Query(value = "UPDATE account_balance_slots SET balance_cents = 0 WHERE account_id = :accountId AND balance_cents <> 0",
+            nativeQuery = true)
+    int clearBalanceSlots(@Param("accountId") UUID accountId);
+
+    @Modifying
+    @Query(value = "DELETE FROM account_balance_slots WHERE account_id = :accountId", nativeQuery = true)
+    int deleteBalanceSlots(@Param("accountId") UUID accountId);
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO account_balance_slots (account_id, slot, balance_cents)
+            SELECT :accountId, s, 0 FROM generate_series(0, :slots - 1) s
+            """, nativeQuery = true)
+    int createBalanceSlots(@Param("accountId") UUID accountId, @Param("slots") int slots);
+}
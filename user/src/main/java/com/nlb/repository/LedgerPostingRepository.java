@@ -0,0 +1,76 @@
+package com.nlb.repository;
+
+import com.nlb.domain.LedgerPosting;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LedgerPostingRepository extends JpaRepository<LedgerPosting, UUID> {
+
+    /**
+     * Dodeljuje redne brojeve i salda knjiženjima "na čekanju" (krediti u pod-salda), nastavljajući
+     * od poslednjeg knjiženja računa. Računi moraju biti zaključani FOR UPDATE.
+     */
+    @Modifying
+    @Query(value = """
+            WITH pending AS (
+                SELECT p.id, p.account_id,
+                       ROW_NUMBER() OVER w AS rn,
+                       SUM(p.amount_cents) OVER w AS running
+                FROM ledger_postings p
+                WHERE p.account_id IN (:accountIds) AND p.sequence_no IS NULL
+                WINDOW w AS (PARTITION BY p.account_id ORDER BY p.created_at, p.id)
+            )
+            UPDATE ledger_postings t
+            SET sequence_no = COALESCE(h.sequence_no, 0) + pending.rn,
+                balance_after_cents = COALESCE(h.balance_after_cents, 0) + pending.running,
+                updated_at = now()
+            FROM pending
+            LEFT JOIN LATERAL (
+                SELECT s.sequence_no, s.balance_after_cents FROM ledger_postings s
+                WHERE s.account_id = pending.account_id AND s.sequence_no IS NOT NULL
+                ORDER BY s.sequence_no DESC LIMIT 1
+            ) h ON true
+            WHERE t.id = pending.id
+            """, nativeQuery = true)
+    int sequencePendingPostings(@Param("accountIds") Collection<UUID> accountIds);
+
+    /**
+     * Računi koji imaju knjiženja na čekanju; čita se iz parcijalnog indeksa nad knjiženjima bez rednog broja.
+     */
+    @Query(value = """
+            SELECT DISTINCT account_id FROM ledger_postings WHERE sequence_no IS NULL LIMIT :limit
+            """, nativeQuery = true)
+    List<UUID> findAccountIdsWithPendingPostings(@Param("limit") int limit);
+
+    /**
+     * Saldo računa u trenutku {@code at}: poslednji dnevni snimak pre dana {@code day} (UTC dan
+     * trenutka {@code at}) plus knjiženja od kraja tog snimka do {@code at}. Sabira se samo range
+     * po (account_id, created_at) posle poslednjeg zatvorenog dana, ne cela istorija računa.
+     */
+    @Query(value = """
+            WITH snap AS (
+                SELECT s.snapshot_date, s.balance_cents FROM account_balance_snapshots s
+                WHERE s.account_id = :accountId AND s.snapshot_date < :day
+                ORDER BY s.snapshot_date DESC LIMIT 1
+            )
+            SELECT CAST(COALESCE((SELECT balance_cents FROM snap), 0)
+                 + COALESCE((
+                       SELECT SUM(p.amount_cents) FROM ledger_postings p
+                       WHERE p.account_id = :accountId
+                         AND p.created_at >= COALESCE(
+                               (SELECT CAST(snapshot_date + 1 AS TIMESTAMP) AT TIME ZONE 'UTC' FROM snap),
+                               '-infinity')
+                         AND p.created_at <= :at), 0) AS BIGINT)
+            """, nativeQuery = true)
+    long findBalanceAt(@Param("accountId") UUID accountId, @Param("day") LocalDate day, @Param("at") Instant at);
+}
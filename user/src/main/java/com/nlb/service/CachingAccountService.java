@@ -0,0 +1,113 @@
+package com.nlb.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.nlb.domain.Account;
+import com.nlb.domain.AccountSummary;
+import com.nlb.interfaces.AccountService;
+import com.nlb.service.model.AccountsChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keš liste računa korisnika ispred {@link DefaultAccountService}; izmene idu direktno na delegata.
+ * <p>
+ * Unos se briše posle commit-a transakcije koja je objavila {@link AccountsChangedEvent}. Za račune
+ * čiji vlasnik nije poznat u trenutku izmene (odredišta transfera) vlasnik se nalazi preko indeksa
+ * račun → korisnik, koji sadrži samo račune iz keširanih lista - račun koji nije u indeksu nije ni
+ * u kešu. TTL ograničava zastarelost kada izmenu napravi druga instanca aplikacije.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "nlb.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachingAccountService implements AccountService {
+
+    private final DefaultAccountService delegate;
+    private final Cache<UUID, List<AccountSummary>> accountsByUser;
+    private final Map<UUID, UUID> ownerByAccount = new ConcurrentHashMap<>();
+
+    public CachingAccountService(
+            DefaultAccountService delegate,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.cache.max-size:10000}") long maxSize,
+            @Value("${nlb.cache.ttl:30s}") Duration ttl
+    ) {
+        this.delegate = delegate;
+        this.accountsByUser = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(Runnable::run)
+                .removalListener(this::unindex)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, accountsByUser, "accounts-by-user");
+    }
+
+    @Override
+    public List<AccountSummary> getAccountsByUserId(UUID userId) {
+        return accountsByUser.get(userId, id -> {
+            List<AccountSummary> accounts = List.copyOf(delegate.getAccountsByUserId(id));
+            accounts.forEach(account -> ownerByAccount.put(account.id(), id));
+            return accounts;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountsChanged(AccountsChangedEvent event) {
+        accountsByUser.invalidateAll(event.userIds());
+        for (UUID accountId : event.accountIds()) {
+            UUID ownerId = ownerByAccount.get(accountId);
+            if (ownerId != null) {
+                accountsByUser.invalidate(ownerId);
+            }
+        }
+    }
+
+    /**
+     * Posle isteka i ponovnog učitavanja u istom pozivu novi unos već postoji i indeks ostaje.
+     */
+    private void unindex(UUID userId, List<AccountSummary> accounts, RemovalCause cause) {
+        if (accounts == null || accountsByUser.asMap().containsKey(userId)) {
+            return;
+        }
+        accounts.forEach(account -> ownerByAccount.remove(account.id(), userId));
+    }
+
+    @Override
+    public Account createAccount(UUID userId) {
+        return delegate.createAccount(userId);
+    }
+
+    @Override
+    public AccountSummary deposit(UUID userId, UUID accountId, BigDecimal amount) {
+        return delegate.deposit(userId, accountId, amount);
+    }
+
+    @Override
+    public Account deactivateAccount(UUID userId, UUID accountId) {
+        return delegate.deactivateAccount(userId, accountId);
+    }
+
+    @Override
+    public AccountSummary withdraw(UUID userId, UUID accountId, BigDecimal amount) {
+        return delegate.withdraw(userId, accountId, amount);
+    }
+
+    @Override
+    public Account configureBalanceSlots(UUID userId, UUID accountId, int slots) {
+        return delegate.configureBalanceSlots(userId, accountId, slots);
+    }
+}
@@ -1,19 +1,30 @@
 package com.nlb.service;
 
 import com.nlb.domain.Account;
+import com.nlb.domain.AccountState;
 import com.nlb.domain.AccountStatus;
+import com.nlb.domain.AccountSummary;
 import com.nlb.domain.Currency;
+import com.nlb.domain.PostingLeg;
 import com.nlb.domain.User;
+import com.nlb.domain.UuidV7;
 import com.nlb.exception.BusinessValidationException;
 import com.nlb.interfaces.AccountService;
+import com.nlb.interfaces.BalanceSlotService;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.UserRepository;
+import com.nlb.service.model.AccountMovement;
+import com.nlb.service.model.AccountsChangedEvent;
+import com.nlb.service.model.OutboxEventType;
+import com.nlb.service.model.OutboxMessage;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -22,6 +33,10 @@ public class DefaultAccountService implements AccountService {
 
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
+    private final BalanceSlotService balanceSlotService;
+    private final LedgerPostingWriter postingWriter;
+    private final OutboxWriter outboxWriter;
+    private final ApplicationEventPublisher eventPublisher;
     private final BigDecimal DECIMAL_MULTIPLIER = new BigDecimal("100");
 
     @Override
@@ -31,85 +46,186 @@ public class DefaultAccountService implements AccountService {
                 .orElseThrow(() -> new BusinessValidationException("User not found"));
 
         Account account = Account.builder()
-                .id(UUID.randomUUID())
+                .id(UuidV7.generate())
                 .owner(user)
                 .balanceCents(0L)
                 .currency(Currency.EUR)
                 .status(AccountStatus.ACTIVE)
                 .build();
 
-        return accountRepository.save(account);
+        return publishChange(userId, accountRepository.save(account));
     }
 
+    /**
+     * Saldo se menja jednim uslovnim UPDATE-om; stanje računa se čita samo ako UPDATE
+     * nije pogodio red (da bi se vratila tačna poruka) ili ako je račun sharded.
+     */
     @Override
     @Transactional
-    public Account deposit(UUID userId, UUID accountId, BigDecimal amount) {
-        Account account = getAccountAndVerifyOwnership(userId, accountId);
+    public AccountSummary deposit(UUID userId, UUID accountId, BigDecimal amount) {
+        long amountCents = amount.multiply(DECIMAL_MULTIPLIER).longValueExact();
 
-        if (account.getStatus() != AccountStatus.ACTIVE) {
-            throw new BusinessValidationException("Account is not ACTIVE");
+        Optional<AccountSummary> updated = accountRepository.applyOwnedBalanceDelta(accountId, userId, amountCents, Long.MIN_VALUE, 0);
+        if (updated.isPresent()) {
+            AccountSummary account = requireEurAccount(updated.get());
+            postingWriter.post(List.of(PostingLeg.deposit(accountId, amountCents, false)));
+            return publishMovement(userId, account, OutboxEventType.DEPOSIT, amountCents);
         }
 
-        if (!Currency.EUR.equals(account.getCurrency())) {
-            throw new BusinessValidationException("Deposits are only allowed to EUR accounts");
+        AccountState state = getAccountStateAndVerifyOwnership(userId, accountId);
+
+        if (state.status() != AccountStatus.ACTIVE) {
+            throw new BusinessValidationException("Account is not ACTIVE");
         }
 
-        long amountCents = amount.multiply(DECIMAL_MULTIPLIER).longValueExact();
-        account.setBalanceCents(account.getBalanceCents() + amountCents);
+        if (state.balanceSlots() > 0 && balanceSlotService.credit(accountId, amountCents).isPresent()) {
+            AccountSummary account = requireEurAccount(
+                    balanceSlotService.withSlotBalances(List.of(getAccountSummary(accountId))).getFirst());
+            postingWriter.post(List.of(PostingLeg.deposit(accountId, amountCents, true)));
+            return publishMovement(userId, account, OutboxEventType.DEPOSIT, amountCents);
+        }
 
-        return accountRepository.save(account);
+        throw new BusinessValidationException("Account was modified concurrently, please retry");
     }
 
     @Override
     @Transactional
-    public Account withdraw(UUID userId, UUID accountId, BigDecimal amount) {
-        Account account = getAccountAndVerifyOwnership(userId, accountId);
+    public AccountSummary withdraw(UUID userId, UUID accountId, BigDecimal amount) {
+        long amountCents = amount.multiply(DECIMAL_MULTIPLIER).longValueExact();
 
-        if (account.getStatus() != AccountStatus.ACTIVE) {
-            throw new BusinessValidationException("Account is not ACTIVE");
+        Optional<AccountSummary> updated = accountRepository.applyOwnedBalanceDelta(accountId, userId, -amountCents, amountCents, 0);
+        if (updated.isPresent()) {
+            postingWriter.post(List.of(PostingLeg.withdrawal(accountId, amountCents)));
+            return publishMovement(userId, updated.get(), OutboxEventType.WITHDRAWAL, -amountCents);
         }
 
-        long amountCents = amount.multiply(DECIMAL_MULTIPLIER).longValueExact();
+        AccountState state = getAccountStateAndVerifyOwnership(userId, accountId);
 
-        if (account.getBalanceCents() < amountCents) {
-            throw new BusinessValidationException("Insufficient funds");
+        if (state.status() != AccountStatus.ACTIVE) {
+            throw new BusinessValidationException("Account is not ACTIVE");
         }
 
-        account.setBalanceCents(account.getBalanceCents() - amountCents);
+        if (state.balanceSlots() > 0) {
+            // FOR UPDATE čeka da se završe krediti u toku, nakon čega se pod-salda prebacuju u glavni saldo
+            accountRepository.lockAllById(List.of(accountId));
+            balanceSlotService.sweepIntoBalance(accountId);
+            updated = accountRepository.applyOwnedBalanceDelta(
+                    accountId, userId, -amountCents, amountCents, Integer.MAX_VALUE);
+            if (updated.isPresent()) {
+                postingWriter.post(List.of(PostingLeg.withdrawal(accountId, amountCents)));
+                return publishMovement(userId, updated.get(), OutboxEventType.WITHDRAWAL, -amountCents);
+            }
+        }
 
-        return accountRepository.save(account);
+        throw new BusinessValidationException("Insufficient funds");
     }
 
+    /**
+     * Pod-salda se prebacuju SQL-om pod FOR UPDATE lock-om, pa se entitet čita tek posle toga;
+     * ranije učitan entitet bi pri save-u pregazio saldo koji je sweep upravo izmenio.
+     */
     @Override
     @Transactional
     public Account deactivateAccount(UUID userId, UUID accountId) {
-        Account account = getAccountAndVerifyOwnership(userId, accountId);
+        AccountState state = getAccountStateAndVerifyOwnership(userId, accountId);
 
-        if (account.getStatus() == AccountStatus.CLOSED) {
+        if (state.status() == AccountStatus.CLOSED) {
             throw new BusinessValidationException("Account is already closed");
         }
 
+        lockAndSweepIfSharded(state);
+        Account account = getAccount(accountId);
+
         if (account.getBalanceCents() > 0) {
             throw new BusinessValidationException("Cannot deactivate account with a positive balance. Please transfer funds first.");
         }
 
         account.setStatus(AccountStatus.CLOSED);
-        return accountRepository.save(account);
+        return publishChange(userId, accountRepository.save(account));
     }
 
     @Override
-    public List<Account> getAccountsByUserId(UUID userId) {
-        return accountRepository.findByOwnerId(userId);
+    @Transactional
+    public Account configureBalanceSlots(UUID userId, UUID accountId, int slots) {
+        AccountState state = getAccountStateAndVerifyOwnership(userId, accountId);
+
+        if (state.status() != AccountStatus.ACTIVE) {
+            throw new BusinessValidationException("Account is not ACTIVE");
+        }
+
+        accountRepository.lockAllById(List.of(accountId));
+        balanceSlotService.resize(accountId, slots);
+
+        Account account = getAccount(accountId);
+        if (account.getStatus() != AccountStatus.ACTIVE) {
+            throw new BusinessValidationException("Account is not ACTIVE");
+        }
+
+        account.setBalanceSlots(slots);
+        return publishChange(userId, accountRepository.save(account));
+    }
+
+    @Override
+    public List<AccountSummary> getAccountsByUserId(UUID userId) {
+        return balanceSlotService.withSlotBalances(accountRepository.findSummariesByOwnerId(userId));
+    }
+
+    /**
+     * Keš računa korisnika se invalidira tek posle commit-a ove transakcije.
+     */
+    private Account publishChange(UUID userId, Account account) {
+        eventPublisher.publishEvent(AccountsChangedEvent.of(userId, account.getId()));
+        return account;
+    }
+
+    /**
+     * Događaj za spoljne sisteme ide u outbox u ovoj transakciji; OutboxWriter ga upisuje pred commit,
+     * pod lock-om računa, i kada kredit u pod-saldo drži red računa samo FOR SHARE.
+     */
+    private AccountSummary publishMovement(UUID userId, AccountSummary account, OutboxEventType type, long amountCents) {
+        outboxWriter.append(new OutboxMessage(account.id(), type,
+                new AccountMovement(account.id(), userId, amountCents, account.currency().name())));
+        eventPublisher.publishEvent(AccountsChangedEvent.of(userId, account.id()));
+        return account;
     }
 
-    private Account getAccountAndVerifyOwnership(UUID userId, UUID accountId) {
-        Account account = accountRepository.findById(accountId)
+    /**
+     * Debit sa sharded računa: FOR UPDATE čeka da se završe svi krediti u toku,
+     * nakon čega se pod-salda prebacuju u glavni saldo.
+     */
+    private void lockAndSweepIfSharded(AccountState state) {
+        if (state.balanceSlots() == 0) {
+            return;
+        }
+        accountRepository.lockAllById(List.of(state.id()));
+        balanceSlotService.sweepIntoBalance(state.id());
+    }
+
+    private AccountState getAccountStateAndVerifyOwnership(UUID userId, UUID accountId) {
+        AccountState state = accountRepository.findStateById(accountId)
                 .orElseThrow(() -> new BusinessValidationException("Account not found: " + accountId));
 
-        if (!account.getOwner().getId().equals(userId)) {
+        if (!state.ownerId().equals(userId)) {
             throw new BusinessValidationException("User does not own this account");
         }
 
+        return state;
+    }
+
+    private AccountSummary requireEurAccount(AccountSummary account) {
+        if (account.currency() != Currency.EUR) {
+            throw new BusinessValidationException("Deposits are only allowed to EUR accounts");
+        }
         return account;
     }
-}
\ No newline at end of file
+
+    private AccountSummary getAccountSummary(UUID accountId) {
+        return accountRepository.findSummaryById(accountId)
+                .orElseThrow(() -> new BusinessValidationException("Account not found: " + accountId));
+    }
+
+    private Account getAccount(UUID accountId) {
+        return accountRepository.findById(accountId)
+                .orElseThrow(() -> new BusinessValidationException("Account not found: " + accountId));
+    }
+}
@@ -1,11 +1,12 @@
 package com.nlb.service;
 
 import com.nlb.domain.Account;
+import com.nlb.domain.User;
 import com.nlb.interfaces.AuthService;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.UserRepository;
 import com.nlb.service.model.LoginResult;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
@@ -15,16 +16,33 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
-@RequiredArgsConstructor
 public class DefaultAuthService implements AuthService {
 
     private final UserRepository users;
     private final AccountRepository accountRepository;
     private final JwtEncoder jwtEncoder;
+    private final Set<String> adminEmails;
+
+    public DefaultAuthService(
+            UserRepository users,
+            AccountRepository accountRepository,
+            JwtEncoder jwtEncoder,
+            @Value("${nlb.security.admin-emails:}") List<String> adminEmails
+    ) {
+        this.users = users;
+        this.accountRepository = accountRepository;
+        this.jwtEncoder = jwtEncoder;
+        this.adminEmails = adminEmails.stream()
+                .map(email -> email.trim().toLowerCase(Locale.ROOT))
+                .filter(email -> !email.isEmpty())
+                .collect(Collectors.toSet());
+    }
 
     @Override
     @Transactional(readOnly = true)
@@ -37,14 +55,14 @@ public class DefaultAuthService implements AuthService {
                 .map(Account::getId)
                 .collect(Collectors.toList());
 
-        String token = tokenFor(user.getId(), hours);
+        String token = tokenFor(user, hours);
         return new LoginResult(token, accountIds);
     }
 
     @Override
     @Transactional(readOnly = true)
     public LoginResult issueTokenForUserId(UUID userId, long hours) {
-        users.findById(userId)
+        var user = users.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         List<UUID> accountIds = accountRepository.findByOwnerId(userId)
@@ -52,18 +70,24 @@ public class DefaultAuthService implements AuthService {
                 .map(Account::getId)
                 .collect(Collectors.toList());
 
-        String token = tokenFor(userId, hours);
+        String token = tokenFor(user, hours);
         return new LoginResult(token, accountIds);
     }
 
-    private String tokenFor(UUID userId, long hours) {
+    private String tokenFor(User user, long hours) {
         var now = Instant.now();
         var claims = JwtClaimsSet.builder()
                 .issuer("nlb-dev")
                 .issuedAt(now)
                 .expiresAt(now.plus(Duration.ofHours(hours)))
-                .subject(userId.toString())
+                .subject(user.getId().toString())
+                .claim("roles", rolesFor(user))
                 .build();
         return jwtEncoder.encode(JwtEncoderParameters.from(claims)).getTokenValue();
     }
+
+    // ADMIN dobijaju samo korisnici iz nlb.security.admin-emails (konzola grešaka integracija)
+    private List<String> rolesFor(User user) {
+        return adminEmails.contains(user.getEmail().toLowerCase(Locale.ROOT)) ? List.of("ADMIN") : List.of();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+package com.nlb.service;
+
+import com.nlb.domain.AccountSummary;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.BalanceSlotService;
+import com.nlb.repository.AccountRepository;
+import com.nlb.repository.LedgerPostingRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Pod-salda za "vruće" račune (npr. merchant/payroll) na koje stiže veliki broj kredita.
+ * <p>
+ * Krediti idu u nasumični slot i drže samo FOR SHARE nad redom računa, pa se paralelni
+ * krediti ne blokiraju međusobno. Debit mora da drži FOR UPDATE nad računom i pre
+ * provere sredstava "pokupi" (sweep) sve slotove u glavni saldo.
+ * <p>
+ * Knjiženja kredita u slotove se upisuju bez rednog broja; sweep im, pod istim FOR UPDATE
+ * lock-om, dodeljuje redne brojeve i salda pre nego što račun dobije nova knjiženja.
+ */
+@Service
+@RequiredArgsConstructor
+public class DefaultBalanceSlotService implements BalanceSlotService {
+
+    private final AccountRepository accountRepository;
+    private final LedgerPostingRepository ledgerPostingRepository;
+
+    @Override
+    public OptionalInt credit(UUID accountId, long amountCents) {
+        int slotSeed = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        return accountRepository.creditBalanceSlot(accountId, slotSeed, amountCents)
+                .map(OptionalInt::of)
+                .orElse(OptionalInt.empty());
+    }
+
+    @Override
+    public void reverseCredit(UUID accountId, int slot, long amountCents) {
+        accountRepository.addToBalanceSlot(accountId, slot, -amountCents);
+    }
+
+    @Override
+    public long sweepIntoBalance(UUID lockedAccountId) {
+        ledgerPostingRepository.sequencePendingPostings(List.of(lockedAccountId));
+        long swept = accountRepository.sumBalanceSlots(lockedAccountId);
+        if (swept != 0L) {
+            accountRepository.clearBalanceSlots(lockedAccountId);
+            accountRepository.addToBalance(lockedAccountId, swept);
+        }
+        return swept;
+    }
+
+    @Override
+    public List<AccountSummary> withSlotBalances(List<AccountSummary> accounts) {
+        Set<UUID> sharded = accounts.stream()
+                .filter(AccountSummary::isBalanceSharded)
+                .map(AccountSummary::id)
+                .collect(Collectors.toSet());
+        if (sharded.isEmpty()) {
+            return accounts;
+        }
+        Map<UUID, Long> slotBalances = sumSlotBalances(sharded);
+        return accounts.stream()
+                .map(account -> account.withSlotBalance(slotBalances.getOrDefault(account.id(), 0L)))
+                .toList();
+    }
+
+    private Map<UUID, Long> sumSlotBalances(Collection<UUID> accountIds) {
+        return accountRepository.sumBalanceSlotsByAccountIds(accountIds).stream()
+                .collect(Collectors.toMap(row -> (UUID) row[0], row -> ((Number) row[1]).longValue()));
+    }
+
+    @Override
+    public void resize(UUID lockedAccountId, int slots) {
+        if (slots < 0) {
+            throw new BusinessValidationException("Number of balance slots cannot be negative");
+        }
+        sweepIntoBalance(lockedAccountId);
+        accountRepository.deleteBalanceSlots(lockedAccountId);
+        if (slots > 0) {
+            accountRepository.createBalanceSlots(lockedAccountId, slots);
+        }
+    }
+}
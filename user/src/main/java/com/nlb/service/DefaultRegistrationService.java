@@ -4,8 +4,10 @@ import com.nlb.domain.*;
 import com.nlb.interfaces.RegistrationService;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.UserRepository;
+import com.nlb.service.model.AccountsChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.oauth2.jwt.JwtClaimsSet;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
@@ -14,7 +16,6 @@ import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.UUID;
 
 
 @Service
@@ -24,6 +25,7 @@ public class DefaultRegistrationService implements RegistrationService {
     private final UserRepository users;
     private final AccountRepository accounts;
     private final JwtEncoder jwtEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     private final String ISSUER = "nlb-dev";
 
@@ -31,7 +33,7 @@ public class DefaultRegistrationService implements RegistrationService {
     @Transactional
     public RegistrationResult register(String email, String fullName, long tokenHours) {
         var user = new User();
-        user.setId(UUID.randomUUID());
+        user.setId(UuidV7.generate());
         user.setEmail(email);
         user.setFullName(fullName);
         user.setStatus(UserStatus.ACTIVE);
@@ -42,12 +44,13 @@ public class DefaultRegistrationService implements RegistrationService {
         }
 
         var acc = new Account();
-        acc.setId(UUID.randomUUID());
+        acc.setId(UuidV7.generate());
         acc.setOwner(user);
         acc.setBalanceCents(0L);
         acc.setCurrency(Currency.EUR);
         acc.setStatus(AccountStatus.ACTIVE);
         accounts.save(acc);
+        eventPublisher.publishEvent(AccountsChangedEvent.of(user.getId(), acc.getId()));
 
         var now = Instant.now();
         var claims = JwtClaimsSet.builder()
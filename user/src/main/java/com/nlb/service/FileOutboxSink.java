@@ -0,0 +1,49 @@
+package com.nlb.service;
+
+import com.nlb.interfaces.OutboxSink;
+import com.nlb.service.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Dopisuje događaje u fajl, jedan JSON red po događaju (za testove i lokalnu integraciju).
+ * Batch se upisuje jednim pozivom, a neuspeh upisa vraća ceo batch relay-u.
+ */
+@Component
+@ConditionalOnProperty(name = "nlb.outbox.sink", havingValue = "file")
+public class FileOutboxSink implements OutboxSink {
+
+    private final Path file;
+
+    public FileOutboxSink(@Value("${nlb.outbox.file.path:outbox-events.jsonl}") Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxEvent event : events) {
+            lines.append("{\"id\":").append(event.id())
+                    .append(",\"type\":\"").append(event.type())
+                    .append("\",\"aggregateId\":\"").append(event.aggregateId())
+                    .append("\",\"createdAt\":\"").append(event.createdAt())
+                    .append("\",\"payload\":").append(event.payload())
+                    .append("}\n");
+        }
+        try {
+            Files.writeString(file, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Outbox events could not be written to " + file, e);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.nlb.service;
+
+import com.nlb.domain.PostingLeg;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Upisuje knjiženja ({@code ledger_postings}) jednom naredbom, bez obzira na broj stavki.
+ * <p>
+ * Redni broj i saldo posle knjiženja računa baza unapred od poslednjeg knjiženja računa
+ * (poslednji redni broj + redosled stavke, poslednji saldo + kumulativni zbir), pa je
+ * pozivalac dužan da drži ekskluzivni lock nad svakim računom koji dobija redni broj
+ * (uslovni UPDATE salda ili FOR UPDATE). Stavke {@code slotCredit} računa koji u istom
+ * pozivu nema nijednu drugu stavku ostaju "na čekanju" (bez rednog broja).
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerPostingWriter {
+
+    private static final String INSERT_SQL = """
+            WITH legs AS (
+                SELECT l.*, ROW_NUMBER() OVER w AS rn, SUM(l.amount_cents) OVER w AS running
+                FROM unnest(?::uuid[], ?::bigint[], ?::varchar[], ?::varchar[], ?::uuid[], ?::uuid[], ?::uuid[], ?::boolean[])
+                     WITH ORDINALITY AS l(account_id, amount_cents, currency, posting_type,
+                                          counterparty_account_id, transaction_id, payment_order_id, pending, ord)
+                WINDOW w AS (PARTITION BY l.account_id ORDER BY l.ord)
+            ), heads AS (
+                SELECT acc.account_id, h.sequence_no, h.balance_after_cents
+                FROM (SELECT DISTINCT account_id FROM legs WHERE NOT pending) acc
+                LEFT JOIN LATERAL (
+                    SELECT p.sequence_no, p.balance_after_cents FROM ledger_postings p
+                    WHERE p.account_id = acc.account_id AND p.sequence_no IS NOT NULL
+                    ORDER BY p.sequence_no DESC LIMIT 1
+                ) h ON true
+            )
+            INSERT INTO ledger_postings (id, account_id, sequence_no, amount_cents, balance_after_cents, currency,
+                                         posting_type, counterparty_account_id, transaction_id, payment_order_id,
+                                         created_at, updated_at)
+            SELECT nlb_uuid_v7(), legs.account_id,
+                   CASE WHEN legs.pending THEN NULL ELSE COALESCE(heads.sequence_no, 0) + legs.rn END,
+                   legs.amount_cents,
+                   CASE WHEN legs.pending THEN NULL ELSE COALESCE(heads.balance_after_cents, 0) + legs.running END,
+                   legs.currency, legs.posting_type, legs.counterparty_account_id, legs.transaction_id,
+                   legs.payment_order_id, clock_timestamp(), clock_timestamp()
+            FROM legs LEFT JOIN heads ON heads.account_id = legs.account_id
+            ORDER BY legs.ord
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void post(List<PostingLeg> legs) {
+        if (legs.isEmpty()) {
+            return;
+        }
+
+        // Račun koji u istom pozivu ima i knjiženje sa ekskluzivnim lock-om dobija redne brojeve za sve stavke
+        Set<UUID> sequencedAccountIds = new HashSet<>();
+        for (PostingLeg leg : legs) {
+            if (!leg.slotCredit()) {
+                sequencedAccountIds.add(leg.accountId());
+            }
+        }
+
+        int size = legs.size();
+        UUID[] accountIds = new UUID[size];
+        Long[] amounts = new Long[size];
+        String[] currencies = new String[size];
+        String[] types = new String[size];
+        UUID[] counterparties = new UUID[size];
+        UUID[] transactionIds = new UUID[size];
+        UUID[] paymentOrderIds = new UUID[size];
+        Boolean[] pending = new Boolean[size];
+        for (int i = 0; i < size; i++) {
+            PostingLeg leg = legs.get(i);
+            accountIds[i] = leg.accountId();
+            amounts[i] = leg.amountCents();
+            currencies[i] = leg.currency().name();
+            types[i] = leg.type().name();
+            counterparties[i] = leg.counterpartyAccountId();
+            transactionIds[i] = leg.transactionId();
+            paymentOrderIds[i] = leg.paymentOrderId();
+            pending[i] = !sequencedAccountIds.contains(leg.accountId());
+        }
+
+        jdbcTemplate.update(INSERT_SQL, ps -> {
+            Connection connection = ps.getConnection();
+            ps.setArray(1, connection.createArrayOf("uuid", accountIds));
+            ps.setArray(2, connection.createArrayOf("bigint", amounts));
+            ps.setArray(3, connection.createArrayOf("varchar", currencies));
+            ps.setArray(4, connection.createArrayOf("varchar", types));
+            ps.setArray(5, connection.createArrayOf("uuid", counterparties));
+            ps.setArray(6, connection.createArrayOf("uuid", transactionIds));
+            ps.setArray(7, connection.createArrayOf("uuid", paymentOrderIds));
+            ps.setArray(8, connection.createArrayOf("boolean", pending));
+        });
+    }
+}
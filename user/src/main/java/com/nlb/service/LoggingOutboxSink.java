@@ -0,0 +1,26 @@
+package com.nlb.service;
+
+import com.nlb.interfaces.OutboxSink;
+import com.nlb.service.model.OutboxEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Podrazumevani sink: događaje samo upisuje u log (razvoj, dok se ne poveže broker).
+ */
+@Component
+@ConditionalOnProperty(name = "nlb.outbox.sink", havingValue = "log", matchIfMissing = true)
+@Slf4j
+public class LoggingOutboxSink implements OutboxSink {
+
+    @Override
+    public void publish(List<OutboxEvent> events) {
+        for (OutboxEvent event : events) {
+            log.info("Outbox event {} {} aggregate={} payload={}",
+                    event.id(), event.type(), event.aggregateId(), event.payload());
+        }
+    }
+}
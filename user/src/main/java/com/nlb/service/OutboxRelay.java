@@ -0,0 +1,182 @@
+package com.nlb.service;
+
+import com.nlb.interfaces.OutboxSink;
+import com.nlb.service.model.OutboxEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Prosleđuje događaje iz {@code outbox_events} u {@link OutboxSink}.
+ * <p>
+ * Worker nit (na bilo kojoj instanci) preuzima particiju koja ima događaje zaključavanjem njenog
+ * reda u {@code outbox_partitions} (FOR UPDATE SKIP LOCKED - zauzete particije preskače), šalje
+ * batch najstarijih događaja particije i briše ih u istoj transakciji. Particiju u jednom trenutku
+ * obrađuje samo jedna nit, a id-jevi događaja istog računa rastu u redosledu commit-a (vidi
+ * {@link OutboxWriter}), pa događaji istog računa izlaze redom. Kada sink ne uspe, događaji ostaju
+ * i particija ide na kraj reda, da ne bi blokirala ostale.
+ */
+@Service
+@ConditionalOnProperty(name = "nlb.outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+@Slf4j
+public class OutboxRelay {
+
+    private static final String CLAIM_PARTITION_SQL = """
+            SELECT p.partition_no FROM outbox_partitions p
+            WHERE EXISTS (SELECT 1 FROM outbox_events e WHERE e.partition_no = p.partition_no)
+            ORDER BY p.relayed_at
+            LIMIT 1
+            FOR UPDATE OF p SKIP LOCKED
+            """;
+    private static final String SELECT_BATCH_SQL = """
+            SELECT id, aggregate_id, event_type, payload, created_at FROM outbox_events
+            WHERE partition_no = ?
+            ORDER BY id
+            LIMIT ?
+            """;
+    // Brišu se tačno poslati id-jevi: događaj sa manjim id-jem (drugog računa iz iste particije) može biti
+    // commit-ovan tek posle čitanja; za isti račun to ne važi, jer OutboxWriter drži lock računa do commit-a
+    private static final String DELETE_SQL = "DELETE FROM outbox_events WHERE id = ANY(?)";
+    private static final String TOUCH_PARTITION_SQL = "UPDATE outbox_partitions SET relayed_at = now() WHERE partition_no = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final int workerCount;
+    private final int batchSize;
+    private final Duration pollInterval;
+    private final Counter relayed;
+    private final Counter relayErrors;
+    private final Timer lag;
+    private final Timer publishTimer;
+    private final boolean virtualThreads;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public OutboxRelay(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            OutboxSink sink,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.outbox.relay.workers:2}") int workerCount,
+            @Value("${nlb.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${nlb.outbox.relay.poll-interval:100ms}") Duration pollInterval,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sink = sink;
+        this.workerCount = workerCount;
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.virtualThreads = virtualThreads;
+
+        this.relayed = Counter.builder("nlb.outbox.relayed")
+                .description("Outbox events delivered to the sink")
+                .register(meterRegistry);
+        this.relayErrors = Counter.builder("nlb.outbox.relay.errors")
+                .description("Outbox batches the sink rejected")
+                .register(meterRegistry);
+        this.lag = Timer.builder("nlb.outbox.lag")
+                .description("Time from writing an outbox event to delivering it")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.publishTimer = Timer.builder("nlb.outbox.publish")
+                .description("Time the sink takes to accept one batch")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        Thread.Builder threads = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(threads.name("outbox-relay-" + i).start(this::workLoop));
+        }
+        log.info("Outbox relay started: workers={}, batchSize={}, sink={}",
+                workerCount, batchSize, sink.getClass().getSimpleName());
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void workLoop() {
+        while (running) {
+            try {
+                if (relayNext() == 0) {
+                    Thread.sleep(pollInterval.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // npr. baza nedostupna - sačekaj pre sledećeg pokušaja
+                log.error("Outbox relay failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollInterval.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Šalje jedan batch jedne particije; vraća broj isporučenih događaja (0 ako nema slobodne
+     * particije sa događajima ili sink nije uspeo).
+     */
+    int relayNext() {
+        Integer delivered = transactionTemplate.execute(status -> {
+            List<Integer> claimed = jdbcTemplate.queryForList(CLAIM_PARTITION_SQL, Integer.class);
+            if (claimed.isEmpty()) {
+                return 0;
+            }
+            int partition = claimed.getFirst();
+            List<OutboxEvent> events = jdbcTemplate.query(SELECT_BATCH_SQL, (rs, rowNum) -> new OutboxEvent(
+                    rs.getLong("id"),
+                    rs.getObject("aggregate_id", UUID.class),
+                    rs.getString("event_type"),
+                    rs.getString("payload"),
+                    rs.getTimestamp("created_at").toInstant()), partition, batchSize);
+
+            jdbcTemplate.update(TOUCH_PARTITION_SQL, partition);
+            if (events.isEmpty()) {
+                return 0;
+            }
+            try {
+                publishTimer.record(() -> sink.publish(events));
+            } catch (RuntimeException e) {
+                relayErrors.increment();
+                log.warn("Outbox sink rejected {} event(s) of partition {}, will retry: {}",
+                        events.size(), partition, e.getMessage());
+                return 0;
+            }
+
+            jdbcTemplate.update(DELETE_SQL, (Object) events.stream().mapToLong(OutboxEvent::id).toArray());
+            Instant now = Instant.now();
+            events.forEach(event -> lag.record(Duration.between(event.createdAt(), now)));
+            relayed.increment(events.size());
+            return events.size();
+        });
+        return delivered != null ? delivered : 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.nlb.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.service.model.OutboxMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Upisuje događaje u {@code outbox_events} u tekućoj transakciji - događaj postoji ako i samo ako
+ * je promena commit-ovana, a slanje dalje radi {@link OutboxRelay} van transakcije promene.
+ * <p>
+ * Lock nad redom računa ne uređuje sve pisce (kredit u pod-saldo drži samo FOR SHARE, odbijen
+ * transfer nijedan), pa se događaji transakcije skupljaju i upisuju tek pred commit, pošto se uzme
+ * transakcioni advisory lock nad svakim računom ({@code aggregateId}), sortirano da se dve transakcije
+ * ne bi zaglavile. Lock se drži od dodele id-ja do commit-a, pa id-jevi događaja istog računa rastu
+ * u redosledu commit-a. Particija je fiksna funkcija računa; relay u jednom trenutku obrađuje
+ * particiju samo jednom niti, čime se redosled po računu čuva i pri slanju.
+ */
+@Component
+@RequiredArgsConstructor
+public class OutboxWriter {
+
+    // Mora da odgovara broju redova u outbox_partitions (V13)
+    static final int PARTITIONS = 16;
+
+    // Prvi ključ advisory lock-a odvaja lock-ove outbox-a od ostalih korisnika pg_advisory_*
+    static final int LOCK_NAMESPACE = 0x0B0C;
+
+    private static final String LOCK_SQL =
+            "SELECT COUNT(pg_advisory_xact_lock(?, k)) FROM unnest(?::int[]) AS k";
+    private static final String INSERT_SQL =
+            "INSERT INTO outbox_events (partition_no, aggregate_id, event_type, payload) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Dodaje događaj transakciji; upisuje se pred commit, zajedno sa ostalim događajima iste transakcije.
+     */
+    public void append(OutboxMessage message) {
+        OutboxRow row = new OutboxRow(message.aggregateId(), message.type().name(), serialize(message.payload()));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(row));
+            return;
+        }
+        // Sinhronizacije se suspenduju zajedno sa transakcijom, pa REQUIRES_NEW dobija svoju listu
+        PendingMessages pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .filter(PendingMessages.class::isInstance)
+                .map(PendingMessages.class::cast)
+                .findFirst()
+                .orElseGet(() -> {
+                    PendingMessages registered = new PendingMessages();
+                    TransactionSynchronizationManager.registerSynchronization(registered);
+                    return registered;
+                });
+        pending.rows.add(row);
+    }
+
+    private void write(List<OutboxRow> rows) {
+        Integer[] lockKeys = rows.stream()
+                .map(row -> lockKeyOf(row.aggregateId()))
+                .distinct()
+                .sorted()
+                .toArray(Integer[]::new);
+        jdbcTemplate.query(LOCK_SQL, ps -> {
+            ps.setInt(1, LOCK_NAMESPACE);
+            ps.setArray(2, ps.getConnection().createArrayOf("int4", lockKeys));
+        }, rs -> {});
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows.stream()
+                .map(row -> new Object[]{partitionOf(row.aggregateId()), row.aggregateId(), row.eventType(), row.payload()})
+                .toList());
+    }
+
+    static int partitionOf(UUID aggregateId) {
+        return Math.floorMod(aggregateId.hashCode(), PARTITIONS);
+    }
+
+    // Kolizija samo nepotrebno uređuje dva računa, ne narušava redosled
+    static int lockKeyOf(UUID aggregateId) {
+        return aggregateId.hashCode();
+    }
+
+    private String serialize(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Outbox payload could not be serialized", e);
+        }
+    }
+
+    private record OutboxRow(UUID aggregateId, String eventType, String payload) {}
+
+    private class PendingMessages implements TransactionSynchronization {
+
+        private final List<OutboxRow> rows = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            write(rows);
+        }
+    }
+}
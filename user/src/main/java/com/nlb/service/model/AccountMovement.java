@@ -0,0 +1,13 @@
+package com.nlb.service.model;
+
+import java.util.UUID;
+
+/**
+ * Payload DEPOSIT/WITHDRAWAL događaja; iznos je sa predznakom kao u knjiženju.
+ */
+public record AccountMovement(
+        UUID accountId,
+        UUID userId,
+        long amountCents,
+        String currency
+) {}
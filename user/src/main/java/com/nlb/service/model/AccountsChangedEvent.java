@@ -0,0 +1,21 @@
+package com.nlb.service.model;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Objavljuje se kada transakcija menja račune (saldo, status, novi račun). Keš računa se
+ * invalidira posle commit-a: po korisnicima, i po računima čiji vlasnik nije poznat pozivaocu
+ * (npr. odredišta transfera).
+ */
+public record AccountsChangedEvent(Set<UUID> userIds, Set<UUID> accountIds) {
+
+    public AccountsChangedEvent {
+        userIds = Set.copyOf(userIds);
+        accountIds = Set.copyOf(accountIds);
+    }
+
+    public static AccountsChangedEvent of(UUID userId, UUID accountId) {
+        return new AccountsChangedEvent(Set.of(userId), Set.of(accountId));
+    }
+}
@@ -0,0 +1,16 @@
+package com.nlb.service.model;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Događaj pročitan iz outbox-a, onako kako ga dobija {@link com.nlb.interfaces.OutboxSink}.
+ * {@code id} raste u redosledu commit-a za isti račun, pa ga potrošači mogu koristiti za deduplikaciju.
+ */
+public record OutboxEvent(
+        long id,
+        UUID aggregateId,
+        String type,
+        String payload,
+        Instant createdAt
+) {}
@@ -0,0 +1,5 @@
+package com.nlb.service.model;
+
+public enum OutboxEventType {
+    TRANSFER_COMPLETED, TRANSFER_FAILED, DEPOSIT, WITHDRAWAL
+}
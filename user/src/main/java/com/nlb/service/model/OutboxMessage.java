@@ -0,0 +1,13 @@
+package com.nlb.service.model;
+
+import java.util.UUID;
+
+/**
+ * Događaj koji se upisuje u outbox u transakciji promene. {@code aggregateId} je račun čiji se
+ * redosled događaja čuva (za naloge izvorni račun); {@code payload} se serijalizuje u JSON.
+ */
+public record OutboxMessage(
+        UUID aggregateId,
+        OutboxEventType type,
+        Object payload
+) {}
@@ -0,0 +1,98 @@
+package com.nlb.service;
+
+import com.nlb.domain.AccountStatus;
+import com.nlb.domain.AccountSummary;
+import com.nlb.domain.Currency;
+import com.nlb.service.model.AccountsChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingAccountServiceTest {
+
+    @Mock
+    private DefaultAccountService delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingAccountService cachingService;
+    private UUID userId;
+    private UUID accountId;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cachingService = new CachingAccountService(delegate, meterRegistry, 100, Duration.ofMinutes(1));
+
+        userId = UUID.randomUUID();
+        accountId = UUID.randomUUID();
+        AccountSummary account = new AccountSummary(accountId, userId, 1000L, Currency.EUR, AccountStatus.ACTIVE, 0);
+        when(delegate.getAccountsByUserId(userId)).thenReturn(List.of(account));
+    }
+
+    @Test
+    void getAccountsByUserId_shouldHitDatabaseOnce_andRecordHitsAndMisses() {
+        cachingService.getAccountsByUserId(userId);
+        List<AccountSummary> cached = cachingService.getAccountsByUserId(userId);
+
+        assertThat(cached).extracting(AccountSummary::id).containsExactly(accountId);
+        verify(delegate, times(1)).getAccountsByUserId(userId);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "accounts-by-user").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "accounts-by-user").tag("result", "miss")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void onAccountsChanged_shouldInvalidateUser_whenUserIdIsKnown() {
+        cachingService.getAccountsByUserId(userId);
+
+        cachingService.onAccountsChanged(AccountsChangedEvent.of(userId, accountId));
+        cachingService.getAccountsByUserId(userId);
+
+        verify(delegate, times(2)).getAccountsByUserId(userId);
+    }
+
+    @Test
+    void onAccountsChanged_shouldInvalidateOwner_whenOnlyAccountIdIsKnown() {
+        cachingService.getAccountsByUserId(userId);
+
+        cachingService.onAccountsChanged(new AccountsChangedEvent(Set.of(UUID.randomUUID()), Set.of(accountId)));
+        cachingService.getAccountsByUserId(userId);
+
+        verify(delegate, times(2)).getAccountsByUserId(userId);
+    }
+
+    @Test
+    void onAccountsChanged_shouldKeepEntry_forUnrelatedAccounts() {
+        cachingService.getAccountsByUserId(userId);
+
+        cachingService.onAccountsChanged(AccountsChangedEvent.of(UUID.randomUUID(), UUID.randomUUID()));
+        cachingService.getAccountsByUserId(userId);
+
+        verify(delegate, times(1)).getAccountsByUserId(userId);
+    }
+
+    @Test
+    void onAccountsChanged_shouldStillResolveOwner_afterEntryWasReloaded() {
+        cachingService.getAccountsByUserId(userId);
+        cachingService.onAccountsChanged(AccountsChangedEvent.of(userId, accountId));
+        cachingService.getAccountsByUserId(userId);
+
+        cachingService.onAccountsChanged(new AccountsChangedEvent(Set.of(), Set.of(accountId)));
+        cachingService.getAccountsByUserId(userId);
+
+        verify(delegate, times(3)).getAccountsByUserId(userId);
+    }
+}
@@ -2,24 +2,35 @@ package com.nlb.service;
 
 
 import com.nlb.domain.Account;
+import com.nlb.domain.AccountState;
 import com.nlb.domain.AccountStatus;
+import com.nlb.domain.AccountSummary;
 import com.nlb.domain.Currency;
+import com.nlb.domain.PostingLeg;
 import com.nlb.domain.User;
 import com.nlb.exception.BusinessValidationException;
+import com.nlb.interfaces.BalanceSlotService;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.UserRepository;
+import com.nlb.service.model.AccountMovement;
+import com.nlb.service.model.AccountsChangedEvent;
+import com.nlb.service.model.OutboxEventType;
+import com.nlb.service.model.OutboxMessage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,6 +45,14 @@ class DefaultAccountServiceTest {
     private AccountRepository accountRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private BalanceSlotService balanceSlotService;
+    @Mock
+    private LedgerPostingWriter postingWriter;
+    @Mock
+    private OutboxWriter outboxWriter;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private DefaultAccountService accountService;
@@ -66,7 +85,7 @@ class DefaultAccountServiceTest {
 
     @Test
     void getAccountAndVerifyOwnership_shouldFail_whenAccountNotFound() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.empty());
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> accountService.deposit(userId, accountId, BigDecimal.TEN))
                 .isInstanceOf(BusinessValidationException.class)
@@ -76,7 +95,7 @@ class DefaultAccountServiceTest {
     @Test
     void getAccountAndVerifyOwnership_shouldFail_whenUserDoesNotOwnAccount() {
         UUID otherUserId = UUID.randomUUID();
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
 
         assertThatThrownBy(() -> accountService.deposit(otherUserId, accountId, BigDecimal.TEN))
                 .isInstanceOf(BusinessValidationException.class)
@@ -110,46 +129,71 @@ class DefaultAccountServiceTest {
     }
 
     @Test
-    void deposit_shouldIncreaseBalance_whenAccountIsActive() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
-        when(accountRepository.save(any(Account.class))).thenReturn(mockAccount);
+    void deposit_shouldIncreaseBalance_withSingleConditionalUpdate() {
+        mockAccount.setBalanceCents(15050L);
+        when(accountRepository.applyOwnedBalanceDelta(accountId, userId, 5050L, Long.MIN_VALUE, 0))
+                .thenReturn(Optional.of(summaryOf(mockAccount)));
 
-        BigDecimal depositAmount = new BigDecimal("50.50");
-        accountService.deposit(userId, accountId, depositAmount);
+        AccountSummary result = accountService.deposit(userId, accountId, new BigDecimal("50.50"));
 
-        verify(accountRepository).save(accountCaptor.capture());
-        Account savedAccount = accountCaptor.getValue();
+        assertThat(result.balanceCents()).isEqualTo(15050L);
+        verify(accountRepository, never()).findById(any());
+        verify(accountRepository, never()).findStateById(any());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(postingWriter).post(List.of(PostingLeg.deposit(accountId, 5050L, false)));
+        verify(outboxWriter).append(new OutboxMessage(accountId, OutboxEventType.DEPOSIT,
+                new AccountMovement(accountId, userId, 5050L, "EUR")));
+        verify(eventPublisher).publishEvent(AccountsChangedEvent.of(userId, accountId));
+    }
 
-        assertThat(savedAccount.getBalanceCents()).isEqualTo(15050L);
+    @Test
+    void deposit_shouldCreditBalanceSlot_whenAccountIsSharded() {
+        mockAccount.setBalanceSlots(4);
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
+        when(balanceSlotService.credit(accountId, 2500L)).thenReturn(OptionalInt.of(1));
+        AccountSummary summary = summaryOf(mockAccount);
+        when(accountRepository.findSummaryById(accountId)).thenReturn(Optional.of(summary));
+        when(balanceSlotService.withSlotBalances(List.of(summary))).thenReturn(List.of(summary.withSlotBalance(2500L)));
+
+        AccountSummary result = accountService.deposit(userId, accountId, new BigDecimal("25.00"));
+
+        assertThat(result.balanceCents()).isEqualTo(12500L);
+        verify(balanceSlotService).credit(accountId, 2500L);
+        verify(accountRepository, never()).findById(any());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(postingWriter).post(List.of(PostingLeg.deposit(accountId, 2500L, true)));
     }
 
     @Test
     void deposit_shouldFail_whenAccountIsNotActive() {
         mockAccount.setStatus(AccountStatus.CLOSED);
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
 
         assertThatThrownBy(() -> accountService.deposit(userId, accountId, BigDecimal.TEN))
                 .isInstanceOf(BusinessValidationException.class)
                 .hasMessage("Account is not ACTIVE");
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
-    void withdraw_shouldDecreaseBalance_whenSufficientFunds() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
-        when(accountRepository.save(any(Account.class))).thenReturn(mockAccount);
+    void withdraw_shouldDecreaseBalance_withSingleConditionalUpdate() {
+        mockAccount.setBalanceCents(7000L);
+        when(accountRepository.applyOwnedBalanceDelta(accountId, userId, -3000L, 3000L, 0))
+                .thenReturn(Optional.of(summaryOf(mockAccount)));
 
-        BigDecimal withdrawAmount = new BigDecimal("30.00");
-        accountService.withdraw(userId, accountId, withdrawAmount);
+        AccountSummary result = accountService.withdraw(userId, accountId, new BigDecimal("30.00"));
 
-        verify(accountRepository).save(accountCaptor.capture());
-        Account savedAccount = accountCaptor.getValue();
-
-        assertThat(savedAccount.getBalanceCents()).isEqualTo(7000L);
+        assertThat(result.balanceCents()).isEqualTo(7000L);
+        verify(accountRepository, never()).findStateById(any());
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(postingWriter).post(List.of(PostingLeg.withdrawal(accountId, 3000L)));
+        verify(outboxWriter).append(new OutboxMessage(accountId, OutboxEventType.WITHDRAWAL,
+                new AccountMovement(accountId, userId, -3000L, "EUR")));
     }
 
     @Test
     void withdraw_shouldFail_whenInsufficientFunds() {
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
 
         BigDecimal withdrawAmount = new BigDecimal("200.00");
 
@@ -158,12 +202,31 @@ class DefaultAccountServiceTest {
                 .hasMessage("Insufficient funds");
 
         verify(accountRepository, never()).save(any(Account.class));
+        verifyNoInteractions(postingWriter, outboxWriter);
+    }
+
+    @Test
+    void withdraw_shouldSweepSlotsBeforeDebit_whenAccountIsSharded() {
+        mockAccount.setBalanceSlots(4);
+        when(accountRepository.applyOwnedBalanceDelta(accountId, userId, -12000L, 12000L, 0)).thenReturn(Optional.empty());
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
+        when(balanceSlotService.sweepIntoBalance(accountId)).thenReturn(5000L);
+        when(accountRepository.applyOwnedBalanceDelta(accountId, userId, -12000L, 12000L, Integer.MAX_VALUE))
+                .thenReturn(Optional.of(summaryOf(mockAccount)));
+
+        accountService.withdraw(userId, accountId, new BigDecimal("120.00"));
+
+        InOrder inOrder = inOrder(accountRepository, balanceSlotService);
+        inOrder.verify(accountRepository).lockAllById(List.of(accountId));
+        inOrder.verify(balanceSlotService).sweepIntoBalance(accountId);
+        inOrder.verify(accountRepository).applyOwnedBalanceDelta(accountId, userId, -12000L, 12000L, Integer.MAX_VALUE);
+        verify(postingWriter).post(List.of(PostingLeg.withdrawal(accountId, 12000L)));
     }
 
     @Test
     void withdraw_shouldFail_whenAccountIsNotActive() {
         mockAccount.setStatus(AccountStatus.FROZEN);
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
 
         assertThatThrownBy(() -> accountService.withdraw(userId, accountId, BigDecimal.TEN))
                 .isInstanceOf(BusinessValidationException.class)
@@ -173,6 +236,7 @@ class DefaultAccountServiceTest {
     @Test
     void deactivateAccount_shouldSetStatusToClosed_whenBalanceIsZero() {
         mockAccount.setBalanceCents(0L);
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
         when(accountRepository.save(any(Account.class))).thenReturn(mockAccount);
 
@@ -182,10 +246,42 @@ class DefaultAccountServiceTest {
         Account savedAccount = accountCaptor.getValue();
 
         assertThat(savedAccount.getStatus()).isEqualTo(AccountStatus.CLOSED);
+        verifyNoInteractions(balanceSlotService);
+    }
+
+    /**
+     * Testira da se sharded račun čita tek nakon SQL sweep-a, pa provera salda vidi i pod-salda.
+     */
+    @Test
+    void deactivateAccount_shouldReadAccountAfterSweep_whenAccountIsSharded() {
+        // Arrange
+        mockAccount.setBalanceSlots(4);
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
+        when(balanceSlotService.sweepIntoBalance(accountId)).thenReturn(2500L);
+        Account sweptAccount = Account.builder()
+                .id(accountId)
+                .owner(mockUser)
+                .balanceCents(12500L)
+                .currency(Currency.EUR)
+                .status(AccountStatus.ACTIVE)
+                .build();
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(sweptAccount));
+
+        // Act & Assert
+        assertThatThrownBy(() -> accountService.deactivateAccount(userId, accountId))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Cannot deactivate account with a positive balance. Please transfer funds first.");
+
+        InOrder inOrder = inOrder(accountRepository, balanceSlotService);
+        inOrder.verify(accountRepository).lockAllById(List.of(accountId));
+        inOrder.verify(balanceSlotService).sweepIntoBalance(accountId);
+        inOrder.verify(accountRepository).findById(accountId);
+        verify(accountRepository, never()).save(any(Account.class));
     }
 
     @Test
     void deactivateAccount_shouldFail_whenBalanceIsPositive() {
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
         when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
 
         assertThatThrownBy(() -> accountService.deactivateAccount(userId, accountId))
@@ -199,7 +295,7 @@ class DefaultAccountServiceTest {
     void deactivateAccount_shouldFail_whenAlreadyClosed() {
         mockAccount.setBalanceCents(0L);
         mockAccount.setStatus(AccountStatus.CLOSED);
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
 
         assertThatThrownBy(() -> accountService.deactivateAccount(userId, accountId))
                 .isInstanceOf(BusinessValidationException.class)
@@ -209,12 +305,42 @@ class DefaultAccountServiceTest {
     }
 
     @Test
-    void getAccountsByUserId_shouldReturnAccountList() {
-        when(accountRepository.findByOwnerId(userId)).thenReturn(List.of(mockAccount));
+    void getAccountsByUserId_shouldReturnProjectedAccountsWithSlotBalances() {
+        AccountSummary summary = new AccountSummary(accountId, userId, 1000L, Currency.EUR, AccountStatus.ACTIVE, 4);
+        AccountSummary withSlots = summary.withSlotBalance(250L);
+        when(accountRepository.findSummariesByOwnerId(userId)).thenReturn(List.of(summary));
+        when(balanceSlotService.withSlotBalances(List.of(summary))).thenReturn(List.of(withSlots));
+
+        List<AccountSummary> accounts = accountService.getAccountsByUserId(userId);
+
+        assertThat(accounts).containsExactly(withSlots);
+        assertThat(accounts.getFirst().balanceCents()).isEqualTo(1250L);
+        verify(accountRepository, never()).findByOwnerId(any());
+    }
+
+    @Test
+    void configureBalanceSlots_shouldLockResizeAndSaveFreshAccount() {
+        when(accountRepository.findStateById(accountId)).thenReturn(Optional.of(stateOf(mockAccount)));
+        when(accountRepository.findById(accountId)).thenReturn(Optional.of(mockAccount));
+        when(accountRepository.save(any(Account.class))).thenReturn(mockAccount);
+
+        accountService.configureBalanceSlots(userId, accountId, 8);
 
-        List<Account> accounts = accountService.getAccountsByUserId(userId);
+        InOrder inOrder = inOrder(accountRepository, balanceSlotService);
+        inOrder.verify(accountRepository).lockAllById(List.of(accountId));
+        inOrder.verify(balanceSlotService).resize(accountId, 8);
+        inOrder.verify(accountRepository).findById(accountId);
+        inOrder.verify(accountRepository).save(accountCaptor.capture());
+        assertThat(accountCaptor.getValue().getBalanceSlots()).isEqualTo(8);
+    }
+
+    private static AccountSummary summaryOf(Account account) {
+        return new AccountSummary(account.getId(), account.getOwner().getId(), account.getBalanceCents(),
+                account.getCurrency(), account.getStatus(), account.getBalanceSlots());
+    }
 
-        assertThat(accounts).hasSize(1);
-        assertThat(accounts.getFirst()).isEqualTo(mockAccount);
+    private static AccountState stateOf(Account account) {
+        return new AccountState(account.getId(), account.getOwner().getId(), account.getStatus(),
+                account.getBalanceCents(), account.getBalanceSlots(), account.getVersion());
     }
 }
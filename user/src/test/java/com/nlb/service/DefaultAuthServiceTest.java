@@ -9,7 +9,7 @@ import com.nlb.service.model.LoginResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -39,7 +39,6 @@ class DefaultAuthServiceTest {
     @Mock
     private JwtEncoder jwtEncoder;
 
-    @InjectMocks
     private DefaultAuthService defaultAuthService;
 
     private User mockUser;
@@ -50,6 +49,9 @@ class DefaultAuthServiceTest {
 
     @BeforeEach
     void setUp() {
+        defaultAuthService = new DefaultAuthService(userRepository, accountRepository, jwtEncoder,
+                List.of(" Admin@Example.com "));
+
         UUID userId = UUID.randomUUID();
         mockUser = new User(userId, "test@example.com", "Test User", UserStatus.ACTIVE);
 
@@ -84,6 +86,22 @@ class DefaultAuthServiceTest {
         verify(accountRepository, times(1)).findByOwnerId(mockUser.getId());
     }
 
+    @Test
+    void issueTokenForEmail_shouldGrantAdminRole_onlyToConfiguredEmails() {
+        User admin = new User(UUID.randomUUID(), "admin@example.com", "Admin User", UserStatus.ACTIVE);
+        when(userRepository.findByEmail("admin@example.com")).thenReturn(Optional.of(admin));
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(mockUser));
+        when(jwtEncoder.encode(any(JwtEncoderParameters.class))).thenReturn(mockJwt);
+        ArgumentCaptor<JwtEncoderParameters> captor = ArgumentCaptor.forClass(JwtEncoderParameters.class);
+
+        defaultAuthService.issueTokenForEmail("admin@example.com", 8);
+        defaultAuthService.issueTokenForEmail("test@example.com", 8);
+
+        verify(jwtEncoder, times(2)).encode(captor.capture());
+        assertThat(captor.getAllValues().get(0).getClaims().getClaimAsStringList("roles")).containsExactly("ADMIN");
+        assertThat(captor.getAllValues().get(1).getClaims().getClaimAsStringList("roles")).isEmpty();
+    }
+
     @Test
     void issueTokenForEmail_shouldThrowException_whenEmailNotFound() {
         when(userRepository.findByEmail(anyString())).thenReturn(Optional.empty());
@@ -0,0 +1,121 @@
+package com.nlb.service;
+
+import com.nlb.domain.AccountStatus;
+import com.nlb.domain.AccountSummary;
+import com.nlb.domain.Currency;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.repository.AccountRepository;
+import com.nlb.repository.LedgerPostingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultBalanceSlotServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+    @Mock
+    private LedgerPostingRepository ledgerPostingRepository;
+
+    @InjectMocks
+    private DefaultBalanceSlotService balanceSlotService;
+
+    private UUID accountId;
+
+    @BeforeEach
+    void setUp() {
+        accountId = UUID.randomUUID();
+    }
+
+    @Test
+    void credit_shouldUpdateOneSlot() {
+        when(accountRepository.creditBalanceSlot(eq(accountId), anyInt(), eq(500L))).thenReturn(Optional.of(2));
+
+        assertThat(balanceSlotService.credit(accountId, 500L)).hasValue(2);
+    }
+
+    @Test
+    void reverseCredit_shouldUpdateTheSameSlot() {
+        balanceSlotService.reverseCredit(accountId, 2, 500L);
+
+        verify(accountRepository).addToBalanceSlot(accountId, 2, -500L);
+    }
+
+    @Test
+    void credit_shouldReturnFalse_whenAccountIsNotActive() {
+        when(accountRepository.creditBalanceSlot(eq(accountId), anyInt(), anyLong())).thenReturn(Optional.empty());
+
+        assertThat(balanceSlotService.credit(accountId, 500L)).isEmpty();
+    }
+
+    @Test
+    void sweepIntoBalance_shouldMoveSlotsIntoMainBalance() {
+        when(accountRepository.sumBalanceSlots(accountId)).thenReturn(1200L);
+
+        assertThat(balanceSlotService.sweepIntoBalance(accountId)).isEqualTo(1200L);
+        verify(accountRepository).clearBalanceSlots(accountId);
+        verify(accountRepository).addToBalance(accountId, 1200L);
+        verify(ledgerPostingRepository).sequencePendingPostings(List.of(accountId));
+    }
+
+    @Test
+    void withSlotBalances_shouldAddSlotsOnlyToShardedSummaries() {
+        AccountSummary sharded = new AccountSummary(accountId, UUID.randomUUID(), 1000L,
+                Currency.EUR, AccountStatus.ACTIVE, 4);
+        AccountSummary plain = new AccountSummary(UUID.randomUUID(), UUID.randomUUID(), 700L,
+                Currency.EUR, AccountStatus.ACTIVE, 0);
+        when(accountRepository.sumBalanceSlotsByAccountIds(Set.of(sharded.id())))
+                .thenReturn(List.<Object[]>of(new Object[]{sharded.id(), 300L}));
+
+        List<AccountSummary> result = balanceSlotService.withSlotBalances(List.of(sharded, plain));
+
+        assertThat(result).extracting(AccountSummary::balanceCents).containsExactly(1300L, 700L);
+    }
+
+    @Test
+    void withSlotBalances_shouldNotQuery_whenNoAccountIsSharded() {
+        List<AccountSummary> accounts = List.of(new AccountSummary(UUID.randomUUID(), UUID.randomUUID(), 700L,
+                Currency.EUR, AccountStatus.ACTIVE, 0));
+
+        assertThat(balanceSlotService.withSlotBalances(accounts)).isSameAs(accounts);
+        verifyNoInteractions(accountRepository);
+    }
+
+    @Test
+    void resize_shouldSweepAndRecreateSlots() {
+        when(accountRepository.sumBalanceSlots(accountId)).thenReturn(2500L);
+
+        balanceSlotService.resize(accountId, 16);
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).clearBalanceSlots(accountId);
+        inOrder.verify(accountRepository).addToBalance(accountId, 2500L);
+        inOrder.verify(accountRepository).deleteBalanceSlots(accountId);
+        inOrder.verify(accountRepository).createBalanceSlots(accountId, 16);
+    }
+
+    @Test
+    void resize_shouldFail_whenSlotsAreNegative() {
+        assertThatThrownBy(() -> balanceSlotService.resize(accountId, -1))
+                .isInstanceOf(BusinessValidationException.class)
+                .hasMessage("Number of balance slots cannot be negative");
+        verifyNoInteractions(accountRepository, ledgerPostingRepository);
+    }
+}
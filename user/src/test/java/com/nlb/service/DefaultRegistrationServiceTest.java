@@ -4,11 +4,13 @@ import com.nlb.domain.*;
 import com.nlb.interfaces.RegistrationService;
 import com.nlb.repository.AccountRepository;
 import com.nlb.repository.UserRepository;
+import com.nlb.service.model.AccountsChangedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtEncoder;
@@ -34,6 +36,9 @@ class DefaultRegistrationServiceTest {
     @Mock
     private JwtEncoder jwtEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private DefaultRegistrationService registrationService;
 
@@ -85,6 +90,8 @@ class DefaultRegistrationServiceTest {
         assertThat(capturedAccount.getBalanceCents()).isZero();
         assertThat(capturedAccount.getCurrency()).isEqualTo(Currency.EUR);
         assertThat(capturedAccount.getStatus()).isEqualTo(AccountStatus.ACTIVE);
+
+        verify(eventPublisher).publishEvent(AccountsChangedEvent.of(result.userId(), result.accountId()));
     }
 
     @Test
@@ -0,0 +1,83 @@
+package com.nlb.service;
+
+import com.nlb.domain.Currency;
+import com.nlb.domain.PostingLeg;
+import com.nlb.domain.PostingType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerPostingWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void post_shouldWriteAllLegsWithSingleStatement() throws Exception {
+        UUID source = UUID.randomUUID();
+        UUID destination = UUID.randomUUID();
+        UUID transactionId = UUID.randomUUID();
+        UUID orderId = UUID.randomUUID();
+        LedgerPostingWriter writer = new LedgerPostingWriter(jdbcTemplate);
+
+        writer.post(List.of(
+                new PostingLeg(source, -500L, Currency.EUR, PostingType.TRANSFER_OUT, destination, transactionId, orderId, false),
+                new PostingLeg(destination, 500L, Currency.EUR, PostingType.TRANSFER_IN, source, transactionId, orderId, false)));
+
+        Connection connection = bindArrays();
+        verify(connection).createArrayOf("uuid", new UUID[]{source, destination});
+        verify(connection).createArrayOf("bigint", new Long[]{-500L, 500L});
+        verify(connection).createArrayOf("varchar", new String[]{"TRANSFER_OUT", "TRANSFER_IN"});
+        verify(connection).createArrayOf("uuid", new UUID[]{transactionId, transactionId});
+        verify(connection).createArrayOf("boolean", new Boolean[]{false, false});
+    }
+
+    @Test
+    void post_shouldKeepSlotCreditPending_unlessAccountHasLockedLegInSameCall() throws Exception {
+        UUID hotAccount = UUID.randomUUID();
+        UUID lockedHotAccount = UUID.randomUUID();
+        LedgerPostingWriter writer = new LedgerPostingWriter(jdbcTemplate);
+
+        writer.post(List.of(
+                PostingLeg.deposit(hotAccount, 100L, true),
+                PostingLeg.deposit(lockedHotAccount, 200L, true),
+                PostingLeg.withdrawal(lockedHotAccount, 50L)));
+
+        Connection connection = bindArrays();
+        verify(connection).createArrayOf("boolean", new Boolean[]{true, false, false});
+    }
+
+    @Test
+    void post_shouldSkipEmptyList() {
+        new LedgerPostingWriter(jdbcTemplate).post(List.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private Connection bindArrays() throws Exception {
+        ArgumentCaptor<PreparedStatementSetter> setter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        verify(jdbcTemplate).update(anyString(), setter.capture());
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.getConnection()).thenReturn(connection);
+        setter.getValue().setValues(statement);
+        verify(statement, times(8)).setArray(anyInt(), any());
+        return connection;
+    }
+}
@@ -0,0 +1,121 @@
+package com.nlb.service;
+
+import com.nlb.interfaces.OutboxSink;
+import com.nlb.service.model.OutboxEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    // In-memory sink: pamti batch-eve redom kojim ih je relay poslao
+    private List<List<OutboxEvent>> delivered;
+    private RuntimeException sinkFailure;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        delivered = new ArrayList<>();
+        OutboxSink sink = events -> {
+            if (sinkFailure != null) {
+                throw sinkFailure;
+            }
+            delivered.add(List.copyOf(events));
+        };
+        relay = new OutboxRelay(jdbcTemplate, transactionManager, sink, meterRegistry, 1, 500, Duration.ofMillis(100), false);
+    }
+
+    /**
+     * Testira da se batch zauzete particije šalje u sink i briše tačno po poslatim id-jevima
+     */
+    @Test
+    void relayNext_shouldDeliverClaimedPartitionAndDeleteDeliveredIds() {
+        // Arrange
+        UUID accountId = UUID.randomUUID();
+        List<OutboxEvent> events = List.of(event(41, accountId), event(42, accountId));
+        claimPartition(3, events);
+
+        // Act
+        int relayed = relay.relayNext();
+
+        // Assert
+        assertThat(relayed).isEqualTo(2);
+        assertThat(delivered).containsExactly(events);
+        verify(jdbcTemplate).update(contains("DELETE FROM outbox_events"), eq(new long[]{41, 42}));
+        verify(transactionManager).commit(any());
+        assertThat(meterRegistry.get("nlb.outbox.relayed").counter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("nlb.outbox.lag").timer().count()).isEqualTo(2);
+    }
+
+    /**
+     * Testira da neuspeh sink-a ostavlja događaje i pomera particiju na kraj reda
+     */
+    @Test
+    void relayNext_shouldKeepEvents_whenSinkFails() {
+        // Arrange
+        claimPartition(5, List.of(event(7, UUID.randomUUID())));
+        sinkFailure = new IllegalStateException("Broker unavailable");
+
+        // Act
+        int relayed = relay.relayNext();
+
+        // Assert
+        assertThat(relayed).isZero();
+        verify(jdbcTemplate, never()).update(contains("DELETE"), any(Object[].class));
+        verify(jdbcTemplate).update(contains("UPDATE outbox_partitions"), eq(5));
+        assertThat(meterRegistry.get("nlb.outbox.relay.errors").counter().count()).isEqualTo(1.0);
+    }
+
+    /**
+     * Testira da relay ne zove sink kada su sve particije prazne ili zauzete
+     */
+    @Test
+    void relayNext_shouldDoNothing_whenNoPartitionIsAvailable() {
+        // Arrange
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class))).thenReturn(List.of());
+
+        // Act
+        int relayed = relay.relayNext();
+
+        // Assert
+        assertThat(relayed).isZero();
+        assertThat(delivered).isEmpty();
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void claimPartition(int partition, List<OutboxEvent> events) {
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class))).thenReturn(List.of(partition));
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(partition), eq(500))).thenReturn(events);
+    }
+
+    private static OutboxEvent event(long id, UUID accountId) {
+        return new OutboxEvent(id, accountId, "DEPOSIT", "{\"amountCents\":100}", Instant.now().minusMillis(50));
+    }
+}
@@ -0,0 +1,131 @@
+package com.nlb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nlb.service.model.AccountMovement;
+import com.nlb.service.model.OutboxEventType;
+import com.nlb.service.model.OutboxMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxWriterTest {
+
+    private static final UUID ACCOUNT_A = new UUID(0L, 1L);
+    private static final UUID ACCOUNT_B = new UUID(0L, 2L);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private OutboxWriter outboxWriter;
+
+    @BeforeEach
+    void setUp() {
+        outboxWriter = new OutboxWriter(jdbcTemplate, new ObjectMapper());
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    /**
+     * Testira da se događaji transakcije upisuju tek pred commit, u redosledu dodavanja, pošto se uzmu
+     * lock-ovi računa sortirano i bez ponavljanja
+     */
+    @Test
+    void append_shouldWriteBeforeCommitUnderSortedAccountLocks() throws Exception {
+        // Arrange
+        outboxWriter.append(deposit(ACCOUNT_B, 1000L));
+        outboxWriter.append(deposit(ACCOUNT_A, 500L));
+        outboxWriter.append(deposit(ACCOUNT_B, 200L));
+        verifyNoInteractions(jdbcTemplate);
+
+        // Act
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+
+        // Assert
+        ArgumentCaptor<PreparedStatementSetter> lockSetter = ArgumentCaptor.forClass(PreparedStatementSetter.class);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).query(anyString(), lockSetter.capture(), any(RowCallbackHandler.class));
+        inOrder.verify(jdbcTemplate).batchUpdate(anyString(), rows.capture());
+
+        assertThat(lockKeys(lockSetter.getValue()))
+                .containsExactlyInAnyOrder(OutboxWriter.lockKeyOf(ACCOUNT_A), OutboxWriter.lockKeyOf(ACCOUNT_B))
+                .isSorted();
+        assertThat(rows.getValue()).extracting(row -> row[1]).containsExactly(ACCOUNT_B, ACCOUNT_A, ACCOUNT_B);
+        assertThat((String) rows.getValue().getFirst()[3]).contains("\"amountCents\":1000");
+    }
+
+    /**
+     * Testira da se van transakcije događaj upisuje odmah
+     */
+    @Test
+    void append_shouldWriteImmediately_whenNoTransactionIsActive() {
+        // Arrange
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Act
+        outboxWriter.append(deposit(ACCOUNT_A, 500L));
+
+        // Assert
+        verify(jdbcTemplate).query(anyString(), any(PreparedStatementSetter.class), any(RowCallbackHandler.class));
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+    }
+
+    /**
+     * Testira da grešku serijalizacije dobija pozivalac, a ne commit
+     */
+    @Test
+    void append_shouldRejectUnserializablePayloadImmediately() {
+        // Arrange
+        OutboxMessage message = new OutboxMessage(ACCOUNT_A, OutboxEventType.DEPOSIT, new Object());
+
+        // Act & Assert
+        assertThatThrownBy(() -> outboxWriter.append(message))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    private static OutboxMessage deposit(UUID accountId, long amountCents) {
+        return new OutboxMessage(accountId, OutboxEventType.DEPOSIT,
+                new AccountMovement(accountId, UUID.randomUUID(), amountCents, "EUR"));
+    }
+
+    private static Integer[] lockKeys(PreparedStatementSetter setter) throws Exception {
+        PreparedStatement statement = mock(PreparedStatement.class);
+        Connection connection = mock(Connection.class);
+        when(statement.getConnection()).thenReturn(connection);
+        ArgumentCaptor<Object[]> keys = ArgumentCaptor.forClass(Object[].class);
+        when(connection.createArrayOf(eq("int4"), keys.capture())).thenReturn(mock(Array.class));
+        setter.setValues(statement);
+        return (Integer[]) keys.getValue();
+    }
+}
@@ -0,0 +1,42 @@
+package com.nlb.config;
+
+import com.nlb.service.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Adaptivni limiteri ispred transfera, izmena računa i izveštaja; svaki ima svoj limit, pa
+ * preopterećenje jedne klase ne obara ostale.
+ */
+@Configuration
+@ConditionalOnProperty(name = "nlb.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitConfig implements WebMvcConfigurer {
+
+    private final ConcurrencyLimitInterceptor interceptor;
+
+    public ConcurrencyLimitConfig(
+            MeterRegistry meterRegistry,
+            @Value("${nlb.limiter.initial-limit:20}") int initialLimit,
+            @Value("${nlb.limiter.min-limit:4}") int minLimit,
+            @Value("${nlb.limiter.max-limit:200}") int maxLimit,
+            @Value("${nlb.limiter.tolerance:1.5}") double tolerance,
+            @Value("${nlb.limiter.smoothing:0.2}") double smoothing,
+            @Value("${nlb.limiter.window:1s}") Duration window
+    ) {
+        this.interceptor = new ConcurrencyLimitInterceptor(
+                new AdaptiveConcurrencyLimiter("transfers", initialLimit, minLimit, maxLimit, tolerance, smoothing, window, meterRegistry),
+                new AdaptiveConcurrencyLimiter("account-mutations", initialLimit, minLimit, maxLimit, tolerance, smoothing, window, meterRegistry),
+                new AdaptiveConcurrencyLimiter("reports", initialLimit, minLimit, maxLimit, tolerance, smoothing, window, meterRegistry));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor).addPathPatterns("/api/v1/**");
+    }
+}
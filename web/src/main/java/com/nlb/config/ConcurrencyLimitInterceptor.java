@@ -0,0 +1,80 @@
+package com.nlb.config;
+
+import com.nlb.exception.ServiceBusyException;
+import com.nlb.service.AdaptiveConcurrencyLimiter;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Propušta zahtev samo uz dozvolu limitera njegove klase: transferi, izmene računa (sve osim GET)
+ * i izveštaji. Latencija se meri do kraja obrade; odgovor 503 (npr. pun bulkhead) smanjuje limit.
+ */
+@RequiredArgsConstructor
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConcurrencyLimitInterceptor.class.getName() + ".permit";
+
+    private final AdaptiveConcurrencyLimiter transfers;
+    private final AdaptiveConcurrencyLimiter accountMutations;
+    private final AdaptiveConcurrencyLimiter reports;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Asinhroni dispatch (izvoz) je već prošao limiter na početku zahteva
+        if (request.getDispatcherType() != DispatcherType.REQUEST) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter limiter = limiterFor(request);
+        if (limiter == null) {
+            return true;
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            throw new ServiceBusyException("Too many concurrent " + limiter.getName() + " requests, please retry");
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        AdaptiveConcurrencyLimiter.Permit permit = takePermit(request);
+        if (permit != null) {
+            permit.ignore();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        AdaptiveConcurrencyLimiter.Permit permit = takePermit(request);
+        if (permit != null) {
+            permit.release(response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || ex instanceof ServiceBusyException);
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter limiterFor(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/api/v1/transfers")) {
+            return transfers;
+        }
+        if (path.startsWith("/api/v1/accounts") && !HttpMethod.GET.matches(request.getMethod())) {
+            return accountMutations;
+        }
+        if (path.startsWith("/api/v1/reports")) {
+            return reports;
+        }
+        return null;
+    }
+
+    private static AdaptiveConcurrencyLimiter.Permit takePermit(HttpServletRequest request) {
+        Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        return (AdaptiveConcurrencyLimiter.Permit) permit;
+    }
+}
@@ -1,6 +1,7 @@
 package com.nlb.controller;
 
 import com.nlb.dto.account.AccountResponse;
+import com.nlb.dto.account.BalanceSlotsRequest;
 import com.nlb.dto.account.DepositRequest;
 import com.nlb.dto.account.WithdrawRequest;
 import com.nlb.interfaces.AccountService;
@@ -25,7 +26,7 @@ public class AccountController {
     public List<AccountResponse> getMyAccounts(Authentication authentication) {
         UUID userId = UUID.fromString(authentication.getName());
         return accountService.getAccountsByUserId(userId).stream()
-                .map(AccountResponse::fromEntity)
+                .map(AccountResponse::fromSummary)
                 .collect(Collectors.toList());
     }
 
@@ -45,7 +46,7 @@ public class AccountController {
     ) {
         UUID userId = UUID.fromString(authentication.getName());
         var updatedAccount = accountService.deposit(userId, accountId, request.getAmount());
-        return AccountResponse.fromEntity(updatedAccount);
+        return AccountResponse.fromSummary(updatedAccount);
     }
 
     @PostMapping("/{accountId}/withdraw")
@@ -56,6 +57,17 @@ public class AccountController {
     ) {
         UUID userId = UUID.fromString(authentication.getName());
         var updatedAccount = accountService.withdraw(userId, accountId, request.getAmount());
+        return AccountResponse.fromSummary(updatedAccount);
+    }
+
+    @PutMapping("/{accountId}/balance-slots")
+    public AccountResponse configureBalanceSlots(
+            @PathVariable UUID accountId,
+            @RequestBody @Valid BalanceSlotsRequest request,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        var updatedAccount = accountService.configureBalanceSlots(userId, accountId, request.getSlots());
         return AccountResponse.fromEntity(updatedAccount);
     }
 
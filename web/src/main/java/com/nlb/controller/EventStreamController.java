@@ -0,0 +1,30 @@
+package com.nlb.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/events")
+@RequiredArgsConstructor
+public class EventStreamController {
+
+    private final StatusEventHub statusEventHub;
+
+    /**
+     * Server-Sent Events umesto polling-a izveštaja: {@code balance} događaji za račune korisnika
+     * (na početku trenutni saldi) i {@code order} događaji za promene statusa njegovih naloga,
+     * posle commit-a. Heartbeat komentar stiže kada nema događaja.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(Authentication authentication) {
+        UUID userId = UUID.fromString(authentication.getName());
+        return statusEventHub.subscribe(userId);
+    }
+}
@@ -0,0 +1,88 @@
+package com.nlb.controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.nlb.dto.transaction.TransferBatchItemRequest;
+import com.nlb.exception.BusinessValidationException;
+import com.nlb.service.models.BatchItem;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Lenjo čita NDJSON stavke (jedan JSON objekat po liniji) Jackson streaming parserom
+ * i validira svaku stavku istim pravilima kao {@link TransferBatchItemRequest}.
+ * U memoriji je u svakom trenutku samo jedna stavka.
+ */
+class NdjsonBatchItemIterator implements Iterator<BatchItem> {
+
+    private final JsonParser parser;
+    private final ObjectReader itemReader;
+    private final Validator validator;
+    private BatchItem next;
+    private int itemNumber;
+    private boolean finished;
+
+    NdjsonBatchItemIterator(JsonParser parser, ObjectReader itemReader, Validator validator) {
+        this.parser = parser;
+        this.itemReader = itemReader;
+        this.validator = validator;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                finished = true;
+                return false;
+            }
+            itemNumber++;
+            if (token != JsonToken.START_OBJECT) {
+                throw new BusinessValidationException("Item " + itemNumber + ": expected a JSON object");
+            }
+            next = validate(itemReader.readValue(parser, TransferBatchItemRequest.class));
+            return true;
+        } catch (JsonProcessingException e) {
+            throw new BusinessValidationException("Item " + itemNumber + ": malformed JSON - " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read NDJSON transfer items", e);
+        }
+    }
+
+    @Override
+    public BatchItem next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        BatchItem item = next;
+        next = null;
+        return item;
+    }
+
+    private BatchItem validate(TransferBatchItemRequest dto) {
+        Set<ConstraintViolation<TransferBatchItemRequest>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            String errors = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            throw new BusinessValidationException("Item " + itemNumber + ": " + errors);
+        }
+        return new BatchItem(dto.getDestinationAccountId(), dto.getAmount());
+    }
+}
@@ -1,13 +1,35 @@
 package com.nlb.controller;
 
+import com.nlb.domain.PaymentOrderStatus;
+import com.nlb.dto.report.AccountBalanceReport;
+import com.nlb.dto.report.IntegrationFailureCountReport;
+import com.nlb.dto.report.IntegrationFailurePageReport;
 import com.nlb.dto.report.IntegrationFailureReport;
+import com.nlb.dto.report.PaymentOrderPageReport;
 import com.nlb.dto.report.PaymentOrderReport;
-import com.nlb.dto.report.TransactionReport;
+import com.nlb.dto.report.TransactionPageReport;
+import com.nlb.interfaces.IntegrationFailureService;
 import com.nlb.interfaces.ReportService;
+import com.nlb.interfaces.StatementExportService;
+import com.nlb.service.DbBulkheads;
+import com.nlb.service.models.IntegrationFailureFilter;
+import com.nlb.service.models.StatementFormat;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.zip.GZIPOutputStream;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -15,16 +37,32 @@ import java.util.stream.Collectors;
 @RestController
 @RequestMapping("/api/v1/reports")
 @RequiredArgsConstructor
+@Validated
 public class ReportController {
 
     private final ReportService reportService;
+    private final StatementExportService statementExportService;
+    private final IntegrationFailureService failureService;
+    private final DbBulkheads bulkheads;
 
+    /**
+     * Nalozi korisnika sa keyset paginacijom (od najnovijeg): {@code nextCursor} iz odgovora se šalje
+     * kao {@code cursor} za sledeću stranu. Opciono samo jedan {@code status}; {@code from} je
+     * uključiv, {@code to} isključiv.
+     */
     @GetMapping("/orders")
-    public List<PaymentOrderReport> getMyPaymentOrders(Authentication authentication) {
+    public PaymentOrderPageReport getMyPaymentOrders(
+            @RequestParam(required = false) PaymentOrderStatus status,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") @Min(value = 1, message = "limit must be at least 1")
+            @Max(value = 500, message = "limit must be at most 500") int limit,
+            Authentication authentication
+    ) {
         UUID userId = UUID.fromString(authentication.getName());
-        return reportService.getPaymentOrdersForUser(userId).stream()
-                .map(PaymentOrderReport::fromEntitySummary)
-                .collect(Collectors.toList());
+        return PaymentOrderPageReport.fromPage(bulkheads.getReports().call(
+                () -> reportService.getPaymentOrdersForUser(userId, status, from, to, cursor, limit)));
     }
 
     @GetMapping("/orders/{orderId}")
@@ -33,26 +71,139 @@ public class ReportController {
             Authentication authentication
     ) {
         UUID userId = UUID.fromString(authentication.getName());
-        var order = reportService.getPaymentOrderDetails(userId, orderId);
-        return PaymentOrderReport.fromEntityDetails(order);
+        return PaymentOrderReport.fromDetails(bulkheads.getReports().call(
+                () -> reportService.getPaymentOrderDetails(userId, orderId)));
     }
 
+    /**
+     * Izvod računa sa keyset paginacijom: {@code nextCursor} iz odgovora se šalje kao
+     * {@code cursor} za sledeću stranu. {@code from} je uključiv, {@code to} isključiv.
+     */
     @GetMapping("/accounts/{accountId}/transactions")
-    public List<TransactionReport> getTransactionsForAccount(
+    public TransactionPageReport getTransactionsForAccount(
             @PathVariable UUID accountId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") @Min(value = 1, message = "limit must be at least 1")
+            @Max(value = 500, message = "limit must be at most 500") int limit,
             Authentication authentication
     ) {
         UUID userId = UUID.fromString(authentication.getName());
-        return reportService.getTransactionsForAccount(userId, accountId).stream()
-                .map(TransactionReport::fromEntity)
-                .collect(Collectors.toList());
+        return TransactionPageReport.fromPage(bulkheads.getReports().call(
+                () -> reportService.getTransactionsForAccount(userId, accountId, from, to, cursor, limit)));
+    }
+
+    /**
+     * Kompletan izvod računa kao CSV ili NDJSON fajl. Redovi se šalju dok se čitaju iz baze,
+     * a sa {@code gzip=true} fajl se kompresuje u letu ({@code .gz}).
+     */
+    @GetMapping("/accounts/{accountId}/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactionsForAccount(
+            @PathVariable UUID accountId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        StatementFormat statementFormat = StatementFormat.from(format);
+        bulkheads.getReports().call(() -> {
+            statementExportService.verifyAccountAccess(userId, accountId);
+            return null;
+        });
+
+        // Izvoz drži konekciju (cursor) dok se fajl šalje, pa dozvolu uzima tek kada počne da čita
+        StreamingResponseBody body = out -> bulkheads.getReports().call(() -> {
+            if (gzip) {
+                GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024);
+                statementExportService.exportTransactions(userId, accountId, from, to, statementFormat, gzipOut);
+                gzipOut.finish();
+            } else {
+                statementExportService.exportTransactions(userId, accountId, from, to, statementFormat, out);
+            }
+            return null;
+        });
+
+        String filename = "statement-" + accountId + "." + statementFormat.fileExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : statementFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Saldo računa u trenutku {@code at} (podrazumevano sada), npr. na kraju meseca.
+     */
+    @GetMapping("/accounts/{accountId}/balance")
+    public AccountBalanceReport getBalanceAt(
+            @PathVariable UUID accountId,
+            @RequestParam(required = false) Instant at,
+            Authentication authentication
+    ) {
+        UUID userId = UUID.fromString(authentication.getName());
+        return AccountBalanceReport.fromModel(bulkheads.getReports().call(
+                () -> reportService.getBalanceAt(userId, accountId, at != null ? at : Instant.now())));
     }
 
+    /**
+     * Greške integracija sa keyset paginacijom (od najnovije) i opcionim filterima. Payload se vraća
+     * samo uz {@code includePayload=true}; pojedinačna greška sa payload-om je na {@code /failures/{id}}.
+     */
     @GetMapping("/failures")
-    public List<IntegrationFailureReport> getAllFailures(Authentication authentication) {
-        // TODO: Dodati proveru za ADMIN rolu u budućnosti
-        return reportService.getAllIntegrationFailures().stream()
-                .map(IntegrationFailureReport::fromEntity)
+    @PreAuthorize("hasRole('ADMIN')")
+    public IntegrationFailurePageReport getFailures(
+            @RequestParam(required = false) String context,
+            @RequestParam(required = false) String entityName,
+            @RequestParam(required = false) UUID relatedId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") @Min(value = 1, message = "limit must be at least 1")
+            @Max(value = 500, message = "limit must be at most 500") int limit,
+            @RequestParam(defaultValue = "false") boolean includePayload,
+            Authentication authentication
+    ) {
+        IntegrationFailureFilter filter = new IntegrationFailureFilter(context, entityName, relatedId, from, to);
+        return IntegrationFailurePageReport.fromPage(bulkheads.getReports().call(
+                () -> reportService.getIntegrationFailures(filter, cursor, limit, includePayload)));
+    }
+
+    /**
+     * Broj grešaka po kontekstu i intervalu ({@code bucket}, ISO-8601 trajanje, npr. {@code PT15M});
+     * podrazumevano poslednja 24 sata po satima.
+     */
+    @GetMapping("/failures/summary")
+    @PreAuthorize("hasRole('ADMIN')")
+    public List<IntegrationFailureCountReport> getFailureSummary(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "PT1H") Duration bucket,
+            Authentication authentication
+    ) {
+        return bulkheads.getReports().call(() -> reportService.countIntegrationFailures(from, to, bucket)).stream()
+                .map(IntegrationFailureCountReport::fromModel)
                 .collect(Collectors.toList());
     }
+
+    @GetMapping("/failures/{failureId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public IntegrationFailureReport getFailure(
+            @PathVariable UUID failureId,
+            Authentication authentication
+    ) {
+        return IntegrationFailureReport.fromSummary(bulkheads.getReports().call(
+                () -> reportService.getIntegrationFailure(failureId)));
+    }
+
+    /**
+     * Vraća parkiranu grešku u automatsko ponavljanje (npr. greške zapisane pre uvođenja retry-a).
+     */
+    @PostMapping("/failures/{failureId}/release")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> releaseFailure(@PathVariable UUID failureId) {
+        failureService.releaseParkedFailure(failureId);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,268 @@
+package com.nlb.controller;
+
+import com.nlb.domain.AccountSummary;
+import com.nlb.dto.account.AccountResponse;
+import com.nlb.dto.event.PaymentOrderStatusEvent;
+import com.nlb.service.DefaultAccountService;
+import com.nlb.service.model.AccountsChangedEvent;
+import com.nlb.service.models.PaymentOrderChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Otvorene SSE konekcije korisnika i slanje promena koje su commit-ovane: status naloga
+ * ({@code order}) i saldo računa ({@code balance}).
+ * <p>
+ * Konekcija ne drži nit servlet kontejnera (async zahtev); svaka ima ograničen red događaja i jednu
+ * virtuelnu nit koja ga prazni i šalje heartbeat kada nema događaja. Listener posle commit-a samo
+ * stavlja događaj u red, pa spor klijent ne usporava transfer - kada mu se red napuni, konekcija se
+ * zatvara, a klijent se ponovo povezuje i dobija trenutne salde.
+ * <p>
+ * Za salde listener ne čita bazu: beleži promenjene račune na konekciji i u red stavlja jedan
+ * marker, a salde čita nit te konekcije. Više promena pre slanja se spaja u jedno čitanje, a pošto
+ * jedna nit čita i šalje, klijent ne može da dobije stariji saldo posle novijeg.
+ */
+@Component
+@Slf4j
+public class StatusEventHub {
+
+    static final String ORDER_EVENT = "order";
+    static final String BALANCE_EVENT = "balance";
+    // Marker u redu: saldi promenjenih računa se čitaju tek na niti konekcije
+    private static final PushEvent BALANCES_CHANGED = new PushEvent(BALANCE_EVENT, null);
+
+    // Direktno, mimo keša: listener keša računa se može izvršiti tek posle ovog
+    private final DefaultAccountService accountService;
+    private final int queueCapacity;
+    private final Duration heartbeatInterval;
+    private final Duration timeout;
+    private final Map<UUID, Set<Subscription>> subscriptionsByUser = new ConcurrentHashMap<>();
+    // Računi povezanih korisnika - za odredišta transfera čiji vlasnik nije u događaju
+    private final Map<UUID, UUID> ownerByAccount = new ConcurrentHashMap<>();
+    private final ThreadFactory senderFactory = Thread.ofVirtual().name("sse-sender-", 0).factory();
+    private final Set<Subscription> open = ConcurrentHashMap.newKeySet();
+    private final Counter sent;
+    private final Counter dropped;
+
+    public StatusEventHub(
+            DefaultAccountService accountService,
+            MeterRegistry meterRegistry,
+            @Value("${nlb.events.queue-capacity:256}") int queueCapacity,
+            @Value("${nlb.events.heartbeat-interval:15s}") Duration heartbeatInterval,
+            @Value("${nlb.events.timeout:30m}") Duration timeout
+    ) {
+        this.accountService = accountService;
+        this.queueCapacity = queueCapacity;
+        this.heartbeatInterval = heartbeatInterval;
+        this.timeout = timeout;
+
+        Gauge.builder("nlb.events.connections", open, Set::size)
+                .description("Open server-sent event connections")
+                .register(meterRegistry);
+        this.sent = Counter.builder("nlb.events.sent")
+                .description("Events written to server-sent event connections")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("nlb.events.dropped")
+                .description("Connections closed because the client did not keep up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Otvara konekciju korisnika; prvi događaji su trenutni saldi svih njegovih računa.
+     */
+    public SseEmitter subscribe(UUID userId) {
+        List<AccountSummary> accounts = accountService.getAccountsByUserId(userId);
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(userId, emitter, new ArrayBlockingQueue<>(queueCapacity));
+
+        subscriptionsByUser.compute(userId, (id, subscriptions) -> {
+            Set<Subscription> updated = subscriptions != null ? subscriptions : ConcurrentHashMap.newKeySet();
+            updated.add(subscription);
+            return updated;
+        });
+        open.add(subscription);
+        index(userId, accounts);
+        emitter.onCompletion(() -> close(subscription));
+        emitter.onTimeout(() -> close(subscription));
+        emitter.onError(e -> close(subscription));
+
+        accounts.forEach(account -> offer(subscription, balanceEvent(account)));
+        subscription.sender = senderFactory.newThread(() -> drain(subscription));
+        subscription.sender.start();
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentOrderChanged(PaymentOrderChangedEvent event) {
+        Set<Subscription> subscriptions = subscriptionsByUser.get(event.initiatedByUserId());
+        if (subscriptions == null) {
+            return;
+        }
+        PushEvent push = new PushEvent(ORDER_EVENT,
+                new PaymentOrderStatusEvent(event.paymentOrderId(), event.status()));
+        subscriptions.forEach(subscription -> offer(subscription, push));
+    }
+
+    /**
+     * Samo beleži promenjene račune na konekcijama povezanih korisnika; salde čita nit konekcije
+     * (vidi {@link #pushBalances}), pa transfer ne čeka na bazu zbog pretplatnika.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccountsChanged(AccountsChangedEvent event) {
+        if (subscriptionsByUser.isEmpty()) {
+            return;
+        }
+        Set<UUID> userIds = new HashSet<>();
+        event.userIds().stream().filter(subscriptionsByUser::containsKey).forEach(userIds::add);
+        event.accountIds().stream().map(ownerByAccount::get).filter(Objects::nonNull).forEach(userIds::add);
+
+        for (UUID userId : userIds) {
+            for (Subscription subscription : subscriptionsByUser.getOrDefault(userId, Set.of())) {
+                subscription.changedAccounts.addAll(event.accountIds());
+                if (subscription.balancesPending.compareAndSet(false, true)) {
+                    offer(subscription, BALANCES_CHANGED);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void closeAll() {
+        List.copyOf(open).forEach(this::close);
+    }
+
+    private void offer(Subscription subscription, PushEvent push) {
+        if (!subscription.queue.offer(push)) {
+            dropped.increment();
+            log.debug("SSE queue of user {} is full, closing connection", subscription.userId);
+            close(subscription);
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        while (!subscription.closed.get()) {
+            PushEvent push;
+            try {
+                push = subscription.queue.poll(heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                if (push == null) {
+                    subscription.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else if (push == BALANCES_CHANGED) {
+                    pushBalances(subscription);
+                } else {
+                    send(subscription, push);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // klijent je zatvorio konekciju
+                close(subscription);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Čita trenutne salde računa promenjenih od prethodnog čitanja i šalje ih. Greška čitanja se samo
+     * loguje - konekcija ostaje otvorena, a sledeća promena ponovo čita salde.
+     */
+    private void pushBalances(Subscription subscription) throws IOException {
+        // Prvo se spušta zastavica: promena posle nje dodaje novi marker, pa se ne gubi
+        subscription.balancesPending.set(false);
+        Set<UUID> changed = new HashSet<>(subscription.changedAccounts);
+        subscription.changedAccounts.removeAll(changed);
+
+        List<AccountSummary> accounts;
+        try {
+            accounts = accountService.getAccountsByUserId(subscription.userId);
+        } catch (RuntimeException e) {
+            log.warn("Balance push for user {} failed: {}", subscription.userId, e.getMessage());
+            return;
+        }
+        index(subscription.userId, accounts);
+        for (AccountSummary account : accounts) {
+            if (changed.contains(account.id())) {
+                send(subscription, balanceEvent(account));
+            }
+        }
+    }
+
+    private void send(Subscription subscription, PushEvent push) throws IOException {
+        subscription.emitter.send(SseEmitter.event().name(push.name()).data(push.data(), MediaType.APPLICATION_JSON));
+        sent.increment();
+    }
+
+    private void close(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return;
+        }
+        open.remove(subscription);
+        subscriptionsByUser.computeIfPresent(subscription.userId, (userId, subscriptions) -> {
+            subscriptions.remove(subscription);
+            if (subscriptions.isEmpty()) {
+                ownerByAccount.values().removeIf(userId::equals);
+                return null;
+            }
+            return subscriptions;
+        });
+        if (subscription.sender != null) {
+            subscription.sender.interrupt();
+        }
+        try {
+            subscription.emitter.complete();
+        } catch (RuntimeException ignored) {
+            // već završena
+        }
+    }
+
+    private void index(UUID userId, List<AccountSummary> accounts) {
+        accounts.forEach(account -> ownerByAccount.put(account.id(), userId));
+    }
+
+    private static PushEvent balanceEvent(AccountSummary account) {
+        return new PushEvent(BALANCE_EVENT, AccountResponse.fromSummary(account));
+    }
+
+    private record PushEvent(String name, Object data) {}
+
+    private static final class Subscription {
+        private final UUID userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<PushEvent> queue;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // Računi promenjeni od poslednjeg čitanja salda i da li je marker već u redu
+        private final Set<UUID> changedAccounts = ConcurrentHashMap.newKeySet();
+        private final AtomicBoolean balancesPending = new AtomicBoolean();
+        private volatile Thread sender;
+
+        private Subscription(UUID userId, SseEmitter emitter, BlockingQueue<PushEvent> queue) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.nlb.controller;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nlb.dto.transaction.TransferBatchItemRequest;
 import com.nlb.dto.transaction.TransferBatchRequest;
 import com.nlb.dto.transaction.TransferBatchResponse;
+import com.nlb.interfaces.StreamingTransferService;
 import com.nlb.interfaces.TransferBatchService;
+import com.nlb.service.DbBulkheads;
 import com.nlb.service.models.BatchItem;
 import com.nlb.service.models.BatchTransferRequest;
+import com.nlb.service.models.BatchTransferResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -15,6 +21,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -26,6 +34,10 @@ import java.util.stream.Collectors;
 public class TransferController {
 
     private final TransferBatchService transferBatchService;
+    private final StreamingTransferService streamingTransferService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final DbBulkheads bulkheads;
 
     @PostMapping("/batch")
     public ResponseEntity<TransferBatchResponse> executeBatchTransfer(
@@ -42,8 +54,38 @@ public class TransferController {
                 mapToServiceItems(request.getItems())
         );
 
-        var serviceResponse = transferBatchService.executeBatchTransfer(serviceRequest);
+        var serviceResponse = transferBatchService.usesOwnBulkhead()
+                ? transferBatchService.executeBatchTransfer(serviceRequest)
+                : bulkheads.getTransfers().call(() -> transferBatchService.executeBatchTransfer(serviceRequest));
 
+        return toResponseEntity(serviceResponse);
+    }
+
+    /**
+     * Batch transfer sa stavkama u NDJSON formatu (jedan {@code {"destinationAccountId", "amount"}}
+     * objekat po liniji). Telo se parsira i upisuje inkrementalno, pa potrošnja heap-a
+     * ne zavisi od broja stavki; idempotentnost i "sve ili ništa" važe kao i za /batch.
+     * Dok upload traje, isti ključ vraća nalog u statusu RECEIVING (202).
+     */
+    @PostMapping(value = "/batch/stream", consumes = "application/x-ndjson")
+    public ResponseEntity<TransferBatchResponse> executeStreamingBatchTransfer(
+            @RequestHeader("Idempotency-Key") @NotBlank(message = "Idempotency-Key header is required") String idempotencyKey,
+            @RequestParam UUID sourceAccountId,
+            InputStream body,
+            Authentication authentication
+    ) throws IOException {
+        UUID initiatedByUserId = UUID.fromString(authentication.getName());
+
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            var items = new NdjsonBatchItemIterator(parser, objectMapper.readerFor(TransferBatchItemRequest.class), validator);
+            // Bez bulkhead-a oko celog upload-a: servis uzima dozvolu za svaku svoju kratku transakciju
+            var serviceResponse = streamingTransferService.executeStreamingBatchTransfer(
+                    idempotencyKey, initiatedByUserId, sourceAccountId, items);
+            return toResponseEntity(serviceResponse);
+        }
+    }
+
+    private ResponseEntity<TransferBatchResponse> toResponseEntity(BatchTransferResponse serviceResponse) {
         var responseDto = new TransferBatchResponse(
                 serviceResponse.paymentOrderId().toString(),
                 serviceResponse.status().name(),
@@ -53,7 +95,7 @@ public class TransferController {
         HttpStatus status = switch (serviceResponse.status()) {
             case COMPLETED -> HttpStatus.OK;
             case FAILED -> HttpStatus.BAD_REQUEST;
-            case PENDING -> HttpStatus.ACCEPTED;
+            case RECEIVING, PENDING -> HttpStatus.ACCEPTED;
         };
 
         return new ResponseEntity<>(responseDto, status);
@@ -2,6 +2,7 @@ package com.nlb.dto.account;
 
 import com.nlb.domain.Account;
 import com.nlb.domain.AccountStatus;
+import com.nlb.domain.AccountSummary;
 import com.nlb.domain.Currency;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -38,4 +39,14 @@ public class AccountResponse {
                 .status(account.getStatus())
                 .build();
     }
-}
\ No newline at end of file
+
+    public static AccountResponse fromSummary(AccountSummary account) {
+        return AccountResponse.builder()
+                .accountId(account.id())
+                .ownerId(account.ownerId())
+                .balance(formatBalance(account.balanceCents()))
+                .currency(account.currency())
+                .status(account.status())
+                .build();
+    }
+}
@@ -0,0 +1,14 @@
+package com.nlb.dto.account;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class BalanceSlotsRequest {
+    @NotNull(message = "Slots cannot be null")
+    @Min(value = 0, message = "Slots cannot be negative")
+    @Max(value = 64, message = "Slots can be at most 64")
+    private Integer slots;
+}
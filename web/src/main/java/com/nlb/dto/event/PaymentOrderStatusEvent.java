@@ -0,0 +1,16 @@
+package com.nlb.dto.event;
+
+import com.nlb.domain.PaymentOrderStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentOrderStatusEvent {
+    private UUID paymentOrderId;
+    private PaymentOrderStatus status;
+}
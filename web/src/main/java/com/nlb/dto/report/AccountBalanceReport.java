@@ -0,0 +1,28 @@
+package com.nlb.dto.report;
+
+import com.nlb.domain.Currency;
+import com.nlb.dto.account.AccountResponse;
+import com.nlb.service.models.AccountBalanceAt;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder
+public class AccountBalanceReport {
+    private UUID accountId;
+    private Instant at;
+    private String balance;
+    private Currency currency;
+
+    public static AccountBalanceReport fromModel(AccountBalanceAt balance) {
+        return AccountBalanceReport.builder()
+                .accountId(balance.accountId())
+                .at(balance.at())
+                .balance(AccountResponse.formatBalance(balance.balanceCents()))
+                .currency(balance.currency())
+                .build();
+    }
+}
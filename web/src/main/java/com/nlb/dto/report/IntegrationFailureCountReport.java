@@ -0,0 +1,23 @@
+package com.nlb.dto.report;
+
+import com.nlb.service.models.IntegrationFailureCount;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class IntegrationFailureCountReport {
+    private String context;
+    private Instant bucketStart;
+    private long failures;
+
+    public static IntegrationFailureCountReport fromModel(IntegrationFailureCount count) {
+        return IntegrationFailureCountReport.builder()
+                .context(count.context())
+                .bucketStart(count.bucketStart())
+                .failures(count.failures())
+                .build();
+    }
+}
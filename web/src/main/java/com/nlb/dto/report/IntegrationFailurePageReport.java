@@ -0,0 +1,25 @@
+package com.nlb.dto.report;
+
+import com.nlb.service.models.IntegrationFailurePage;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+public class IntegrationFailurePageReport {
+    private List<IntegrationFailureReport> items;
+    // null na poslednjoj strani
+    private String nextCursor;
+
+    public static IntegrationFailurePageReport fromPage(IntegrationFailurePage page) {
+        return IntegrationFailurePageReport.builder()
+                .items(page.failures().stream()
+                        .map(IntegrationFailureReport::fromSummary)
+                        .collect(Collectors.toList()))
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+}
@@ -1,6 +1,6 @@
 package com.nlb.dto.report;
 
-import com.nlb.domain.IntegrationFailure;
+import com.nlb.service.models.IntegrationFailureSummary;
 import lombok.Builder;
 import lombok.Data;
 
@@ -15,20 +15,21 @@ public class IntegrationFailureReport {
     private String entityName;
     private UUID relatedId;
     private String message;
+    // null u listi, osim uz includePayload=true
     private String payload;
     private int retryCount;
     private Instant occurredAt;
 
-    public static IntegrationFailureReport fromEntity(IntegrationFailure failure) {
+    public static IntegrationFailureReport fromSummary(IntegrationFailureSummary failure) {
         return IntegrationFailureReport.builder()
-                .failureId(failure.getId())
-                .context(failure.getContext())
-                .entityName(failure.getEntityName())
-                .relatedId(failure.getRelatedId())
-                .message(failure.getMessage())
-                .payload(failure.getPayload())
-                .retryCount(failure.getRetryCount())
-                .occurredAt(failure.getOccurredAt())
+                .failureId(failure.id())
+                .context(failure.context())
+                .entityName(failure.entityName())
+                .relatedId(failure.relatedId())
+                .message(failure.message())
+                .payload(failure.payload())
+                .retryCount(failure.retryCount())
+                .occurredAt(failure.occurredAt())
                 .build();
     }
 }
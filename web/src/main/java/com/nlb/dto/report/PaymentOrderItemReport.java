@@ -1,6 +1,6 @@
 package com.nlb.dto.report;
 
-import com.nlb.domain.PaymentOrderItem;
+import com.nlb.service.models.PaymentOrderItemSummary;
 import lombok.Builder;
 import lombok.Data;
 
@@ -16,13 +16,13 @@ public class PaymentOrderItemReport {
     private String status;
     private String failureReason;
 
-    public static PaymentOrderItemReport fromEntity(PaymentOrderItem item) {
+    public static PaymentOrderItemReport fromSummary(PaymentOrderItemSummary item) {
         return PaymentOrderItemReport.builder()
-                .itemId(item.getId())
-                .destinationAccountId(item.getDestinationAccountId())
-                .amount(new BigDecimal(item.getAmountCents()).divide(new BigDecimal("100")))
-                .status(item.getStatus().name())
-                .failureReason(item.getFailureReason())
+                .itemId(item.id())
+                .destinationAccountId(item.destinationAccountId())
+                .amount(new BigDecimal(item.amountCents()).divide(new BigDecimal("100")))
+                .status(item.status().name())
+                .failureReason(item.failureReason())
                 .build();
     }
 }
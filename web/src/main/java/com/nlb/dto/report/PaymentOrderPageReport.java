@@ -0,0 +1,25 @@
+package com.nlb.dto.report;
+
+import com.nlb.service.models.PaymentOrderPage;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+public class PaymentOrderPageReport {
+    private List<PaymentOrderReport> items;
+    // null na poslednjoj strani
+    private String nextCursor;
+
+    public static PaymentOrderPageReport fromPage(PaymentOrderPage page) {
+        return PaymentOrderPageReport.builder()
+                .items(page.orders().stream()
+                        .map(PaymentOrderReport::fromSummary)
+                        .collect(Collectors.toList()))
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+}
@@ -1,7 +1,8 @@
 package com.nlb.dto.report;
 
 import com.nlb.domain.Currency;
-import com.nlb.domain.PaymentOrder;
+import com.nlb.service.models.PaymentOrderDetails;
+import com.nlb.service.models.PaymentOrderSummary;
 import lombok.Builder;
 import lombok.Data;
 
@@ -24,33 +25,25 @@ public class PaymentOrderReport {
     private Instant updatedAt;
     private List<PaymentOrderItemReport> items;
 
-    public static PaymentOrderReport fromEntitySummary(PaymentOrder order) {
+    public static PaymentOrderReport fromSummary(PaymentOrderSummary order) {
         return PaymentOrderReport.builder()
-                .paymentOrderId(order.getId())
-                .idempotencyKey(order.getIdempotencyKey())
-                .sourceAccountId(order.getSourceAccountId())
-                .totalAmount(new BigDecimal(order.getTotalAmountCents()).divide(new BigDecimal("100")))
-                .currency(order.getCurrency())
-                .status(order.getStatus().name())
-                .createdAt(order.getCreatedAt())
-                .updatedAt(order.getUpdatedAt())
+                .paymentOrderId(order.id())
+                .idempotencyKey(order.idempotencyKey())
+                .sourceAccountId(order.sourceAccountId())
+                .totalAmount(new BigDecimal(order.totalAmountCents()).divide(new BigDecimal("100")))
+                .currency(order.currency())
+                .status(order.status().name())
+                .createdAt(order.createdAt())
+                .updatedAt(order.updatedAt())
                 .items(null)
                 .build();
     }
 
-    public static PaymentOrderReport fromEntityDetails(PaymentOrder order) {
-        return PaymentOrderReport.builder()
-                .paymentOrderId(order.getId())
-                .idempotencyKey(order.getIdempotencyKey())
-                .sourceAccountId(order.getSourceAccountId())
-                .totalAmount(new BigDecimal(order.getTotalAmountCents()).divide(new BigDecimal("100")))
-                .currency(order.getCurrency())
-                .status(order.getStatus().name())
-                .createdAt(order.getCreatedAt())
-                .updatedAt(order.getUpdatedAt())
-                .items(order.getItems().stream()
-                        .map(PaymentOrderItemReport::fromEntity)
-                        .collect(Collectors.toList()))
-                .build();
+    public static PaymentOrderReport fromDetails(PaymentOrderDetails details) {
+        PaymentOrderReport report = fromSummary(details.order());
+        report.setItems(details.items().stream()
+                .map(PaymentOrderItemReport::fromSummary)
+                .collect(Collectors.toList()));
+        return report;
     }
 }
@@ -0,0 +1,25 @@
+package com.nlb.dto.report;
+
+import com.nlb.service.models.TransactionPage;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+public class TransactionPageReport {
+    private List<TransactionReport> items;
+    // null na poslednjoj strani
+    private String nextCursor;
+
+    public static TransactionPageReport fromPage(TransactionPage page) {
+        return TransactionPageReport.builder()
+                .items(page.transactions().stream()
+                        .map(TransactionReport::fromSummary)
+                        .collect(Collectors.toList()))
+                .nextCursor(page.nextCursor())
+                .build();
+    }
+}
@@ -1,7 +1,7 @@
 package com.nlb.dto.report;
 
 import com.nlb.domain.Currency;
-import com.nlb.domain.Transaction;
+import com.nlb.service.models.TransactionSummary;
 import lombok.Builder;
 import lombok.Data;
 
@@ -21,15 +21,15 @@ public class TransactionReport {
     private Instant createdAt;
     private UUID paymentOrderId;
 
-    public static TransactionReport fromEntity(Transaction t) {
+    public static TransactionReport fromSummary(TransactionSummary t) {
         return TransactionReport.builder()
-                .transactionId(t.getId())
-                .sourceAccountId(t.getSourceAccountId())
-                .destinationAccountId(t.getDestinationAccountId())
-                .amount(new BigDecimal(t.getAmountCents()).divide(new BigDecimal("100")))
-                .currency(t.getCurrency())
-                .createdAt(t.getCreatedAt())
-                .paymentOrderId(t.getPaymentOrderId())
+                .transactionId(t.id())
+                .sourceAccountId(t.sourceAccountId())
+                .destinationAccountId(t.destinationAccountId())
+                .amount(new BigDecimal(t.amountCents()).divide(new BigDecimal("100")))
+                .currency(t.currency())
+                .createdAt(t.createdAt())
+                .paymentOrderId(t.paymentOrderId())
                 .build();
     }
 }